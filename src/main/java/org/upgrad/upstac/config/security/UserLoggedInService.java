@@ -22,9 +22,13 @@ public class UserLoggedInService {
 
 
     public User getLoggedInUser() {
-            UserDetails principal = (UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-            return userService.findByUserName(principal.getUsername());
+            return userService.findByUserName(getLoggedInUserName());
+
+    }
 
+    public String getLoggedInUserName() {
+            UserDetails principal = (UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+            return principal.getUsername();
     }
 
 
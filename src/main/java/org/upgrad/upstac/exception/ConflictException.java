@@ -0,0 +1,11 @@
+package org.upgrad.upstac.exception;
+
+/**
+ * A transition lost to a concurrent one that moved the request first, such as its claim running out.
+ */
+public class ConflictException extends AppException {
+
+    public ConflictException(String message) {
+        super(message);
+    }
+}
@@ -35,6 +35,10 @@ public class UpgradResponseStatusException extends ResponseStatusException {
         return new UpgradResponseStatusException( HttpStatus.BAD_REQUEST,msg,throwable);
     }
 
+    public static UpgradResponseStatusException asConflict(String msg) {
+        return asExceptionFromHttpStatus(msg, HttpStatus.CONFLICT);
+    }
+
     public static UpgradResponseStatusException asServerError(String msg) {
         return asExceptionFromHttpStatus(msg, HttpStatus.INTERNAL_SERVER_ERROR);
     }
@@ -0,0 +1,85 @@
+package org.upgrad.upstac.shared;
+
+import org.upgrad.upstac.exception.AppException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal RFC 4180 line handling for uploads: comma separated, fields optionally double quoted,
+ * quotes escaped by doubling. Records are one line each, so files can be read line by line.
+ */
+public class CsvParser {
+
+    public static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        if (quoted)
+            throw new AppException("Unterminated quoted field");
+
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    public static String formatLine(Object... values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0)
+                line.append(',');
+            String value = values[i] == null ? "" : values[i].toString();
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0)
+                line.append('"').append(value.replace("\"", "\"\"")).append('"');
+            else
+                line.append(value);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Column positions by lower-cased header name.
+     */
+    public static Map<String, Integer> indexHeader(String headerLine, String... requiredColumns) {
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = parseLine(headerLine);
+        for (int i = 0; i < names.size(); i++)
+            columns.put(names.get(i).toLowerCase(), i);
+
+        for (String requiredColumn : requiredColumns)
+            if (columns.containsKey(requiredColumn.toLowerCase()) == false)
+                throw new AppException("Missing column " + requiredColumn);
+
+        return columns;
+    }
+
+    public static String field(List<String> fields, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column.toLowerCase());
+        if (index == null || index >= fields.size() || fields.get(index).isEmpty())
+            return null;
+        return fields.get(index);
+    }
+}
@@ -0,0 +1,171 @@
+package org.upgrad.upstac.shared;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Estimates how many distinct values it was offered in 2^precision bytes, whatever their number, to within a
+ * relative standard error of 1.04 / sqrt(2^precision). Sketches of the same precision merge into the sketch of the
+ * union of their values, so counts over several sketches are estimated without counting anyone twice.
+ *
+ * Each value is hashed to 64 bits; the first precision bits pick a register and the register keeps the longest
+ * run of leading zeros seen in the rest. Safe for concurrent use.
+ */
+public class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+
+    public static final int MAX_PRECISION = 16;
+
+    private static final byte DENSE = 0;
+
+    private static final byte SPARSE = 1;
+
+    private final int precision;
+
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION)
+            throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION);
+
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public double relativeStandardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    /**
+     * Offers the value and returns whether the sketch changed, which it stops doing for values already seen.
+     */
+    public boolean offer(String value) {
+        return offerHash(hash(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public synchronized boolean offerHash(long hash) {
+        int register = (int) (hash >>> (Long.SIZE - precision));
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+        if (rank <= registers[register])
+            return false;
+
+        registers[register] = rank;
+        return true;
+    }
+
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision)
+            throw new IllegalArgumentException("Only sketches of the same precision can be merged");
+
+        byte[] otherRegisters = other.copyRegisters();
+        synchronized (this) {
+            for (int register = 0; register < registers.length; register++)
+                if (otherRegisters[register] > registers[register])
+                    registers[register] = otherRegisters[register];
+        }
+    }
+
+    public synchronized long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int empty = 0;
+        for (byte rank : registers) {
+            sum += 1.0 / (1L << rank);
+            if (rank == 0)
+                empty++;
+        }
+
+        double estimate = alpha(m) * m * m / sum;
+
+        // Few values leave many registers empty, where counting the empty ones is the better estimate
+        if (estimate <= 2.5 * m && empty > 0)
+            estimate = m * Math.log((double) m / empty);
+
+        return Math.round(estimate);
+    }
+
+    /**
+     * The precision, then the registers as they are, or as index and value pairs of the non-empty ones when that
+     * is shorter, as it is for sketches of few values.
+     */
+    public synchronized byte[] toBytes() {
+        int nonEmpty = 0;
+        for (byte rank : registers)
+            if (rank != 0)
+                nonEmpty++;
+
+        if (nonEmpty * 3 >= registers.length) {
+            ByteBuffer dense = ByteBuffer.allocate(2 + registers.length);
+            dense.put((byte) precision).put(DENSE).put(registers);
+            return dense.array();
+        }
+
+        ByteBuffer sparse = ByteBuffer.allocate(2 + nonEmpty * 3);
+        sparse.put((byte) precision).put(SPARSE);
+        for (int register = 0; register < registers.length; register++) {
+            if (registers[register] != 0) {
+                sparse.putShort((short) register);
+                sparse.put(registers[register]);
+            }
+        }
+        return sparse.array();
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        HyperLogLog hyperLogLog = new HyperLogLog(buffer.get());
+        byte encoding = buffer.get();
+
+        if (encoding == DENSE) {
+            buffer.get(hyperLogLog.registers);
+        } else if (encoding == SPARSE) {
+            while (buffer.hasRemaining()) {
+                int register = buffer.getShort() & 0xFFFF;
+                hyperLogLog.registers[register] = buffer.get();
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown sketch encoding " + encoding);
+        }
+        return hyperLogLog;
+    }
+
+    private synchronized byte[] copyRegisters() {
+        return registers.clone();
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a, finished with the MurmurHash3 mix so every input bit reaches the leading bits.
+     */
+    static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte value : bytes) {
+            hash ^= value & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,133 @@
+package org.upgrad.upstac.shared;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Server-Sent Event subscribers grouped by key.
+ *
+ * Publishing only appends to each subscriber's bounded buffer; a small shared pool drains the buffers
+ * onto the connections. A subscriber whose buffer overflows is disconnected instead of slowing
+ * everyone else down, and is expected to reconnect and reload.
+ */
+public class SseSubscriptions<K> {
+
+    private static final Logger log = LoggerFactory.getLogger(SseSubscriptions.class);
+
+    private final ConcurrentMap<K, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private final ExecutorService senders;
+
+    private final int bufferSize;
+
+    private final long timeoutMillis;
+
+    public SseSubscriptions(String name, int senderThreads, int bufferSize, long timeoutMillis) {
+        this.senders = Executors.newFixedThreadPool(senderThreads, daemonThreadsNamed(name));
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public SseEmitter subscribe(K key) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(key, emitter);
+
+        subscribers.compute(key, (k, set) -> {
+            Set<Subscriber> keySubscribers = set == null ? ConcurrentHashMap.newKeySet() : set;
+            keySubscribers.add(subscriber);
+            return keySubscribers;
+        });
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> remove(subscriber));
+        return emitter;
+    }
+
+    public void publish(K key, String eventName, Object data) {
+        for (Subscriber subscriber : subscribers.getOrDefault(key, Collections.emptySet()))
+            subscriber.offer(SseEmitter.event().name(eventName).data(data));
+    }
+
+    public int countSubscribers(K key) {
+        return subscribers.getOrDefault(key, Collections.emptySet()).size();
+    }
+
+    public void shutdown() {
+        senders.shutdownNow();
+        subscribers.values().forEach(set -> set.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.key, (key, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private static CustomizableThreadFactory daemonThreadsNamed(String name) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(name + "-");
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    private class Subscriber implements Runnable {
+
+        private final K key;
+
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<SseEmitter.SseEventBuilder> buffer = new ArrayBlockingQueue<>(bufferSize);
+
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        Subscriber(K key, SseEmitter emitter) {
+            this.key = key;
+            this.emitter = emitter;
+        }
+
+        void offer(SseEmitter.SseEventBuilder event) {
+            if (buffer.offer(event) == false) {
+                log.info("Disconnecting slow subscriber on " + key);
+                remove(this);
+                emitter.complete();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true))
+                senders.execute(this);
+        }
+
+        @Override
+        public void run() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while ((event = buffer.poll()) != null)
+                    emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                remove(this);
+                buffer.clear();
+                emitter.completeWithError(e);
+            } finally {
+                draining.set(false);
+                if (buffer.isEmpty() == false)
+                    scheduleDrain();
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.upgrad.upstac.shared;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A bounded number of units split across stripes that are taken from independently.
+ *
+ * Each caller starts at a random stripe and moves on only when that one is empty, so concurrent callers
+ * rarely compete for the same counter, yet no more than the capacity is ever handed out.
+ * Stripes are spaced a cache line apart to keep them from contending through false sharing.
+ */
+public class StripedCapacity {
+
+    private static final int SPACING = 16;
+
+    private final AtomicIntegerArray remaining;
+
+    private final int stripes;
+
+    public StripedCapacity(int available, int stripes) {
+        if (stripes < 1)
+            throw new IllegalArgumentException("At least one stripe is needed");
+
+        this.stripes = stripes;
+        this.remaining = new AtomicIntegerArray(stripes * SPACING);
+        reset(available);
+    }
+
+    public boolean tryAcquire() {
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        for (int i = 0; i < stripes; i++) {
+            int index = ((start + i) % stripes) * SPACING;
+            int left = remaining.get(index);
+            while (left > 0) {
+                if (remaining.compareAndSet(index, left, left - 1))
+                    return true;
+                left = remaining.get(index);
+            }
+        }
+        return false;
+    }
+
+    public void release() {
+        remaining.incrementAndGet(ThreadLocalRandom.current().nextInt(stripes) * SPACING);
+    }
+
+    public int available() {
+        int available = 0;
+        for (int stripe = 0; stripe < stripes; stripe++)
+            available += remaining.get(stripe * SPACING);
+        return available;
+    }
+
+    /**
+     * Spreads the given number of units over the stripes, replacing what was left.
+     */
+    public void reset(int available) {
+        for (int stripe = 0; stripe < stripes; stripe++)
+            remaining.set(stripe * SPACING, available / stripes + (stripe < available % stripes ? 1 : 0));
+    }
+}
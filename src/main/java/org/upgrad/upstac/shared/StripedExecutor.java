@@ -0,0 +1,73 @@
+package org.upgrad.upstac.shared;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs tasks on a fixed number of single-threaded lanes picked by a hash of their key, so tasks with the same key
+ * run one after another in submission order while tasks with keys on different lanes run in parallel.
+ *
+ * The caller waits for its task. A task that itself submits another with a key on its own lane runs it in place
+ * rather than queueing it behind itself; one submitting to another lane is rejected, since two lanes waiting on each
+ * other would deadlock and running it in place would break the ordering of that lane. Lanes never wait on lanes.
+ */
+public class StripedExecutor {
+
+    private final ExecutorService[] lanes;
+
+    private final ThreadLocal<Integer> currentLane = new ThreadLocal<>();
+
+    public StripedExecutor(int laneCount, String threadNamePrefix) {
+        if (laneCount < 1)
+            throw new IllegalArgumentException("At least one lane is needed");
+
+        lanes = new ExecutorService[laneCount];
+        for (int lane = 0; lane < laneCount; lane++) {
+            int laneIndex = lane;
+            String threadName = threadNamePrefix + lane;
+            lanes[lane] = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(() -> {
+                    currentLane.set(laneIndex);
+                    task.run();
+                }, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public <T> T execute(Object key, Callable<T> task) throws Exception {
+        int lane = laneOf(key);
+        Integer callerLane = currentLane.get();
+        if (callerLane != null) {
+            if (callerLane == lane)
+                return task.call();
+            throw new IllegalStateException("A task on lane " + callerLane + " cannot wait on lane " + lane + " for key " + key);
+        }
+
+        Future<T> result = lanes[lane].submit(task);
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw e;
+        }
+    }
+
+    public int laneOf(Object key) {
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), lanes.length);
+    }
+
+    public void shutdown() {
+        for (ExecutorService lane : lanes)
+            lane.shutdownNow();
+    }
+}
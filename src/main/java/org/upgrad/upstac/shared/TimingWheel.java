@@ -0,0 +1,150 @@
+package org.upgrad.upstac.shared;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hierarchical timing wheel holding one deadline per key.
+ *
+ * Each level is a ring of slots, a slot of level n spanning wheelSize^n ticks. A timer sits in the lowest
+ * level that reaches its deadline and moves down a level each time its slot comes round, so scheduling and
+ * cancelling are O(1) and advancing costs O(levels) per timer over its lifetime, whatever the number of timers.
+ * Deadlines past the top level wait in its farthest slot and are placed again when it comes round.
+ */
+public class TimingWheel<K> {
+
+    private final long tickMillis;
+
+    private final int wheelSize;
+
+    private final long[] slotSpans;
+
+    private final List<List<Set<K>>> levels = new ArrayList<>();
+
+    private final Map<K, Timer> timers = new HashMap<>();
+
+    private long currentTick;
+
+    public TimingWheel(long tickMillis, int wheelSize, int levelCount, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2 || levelCount < 1)
+            throw new IllegalArgumentException("A timing wheel needs a positive tick, at least two slots and one level");
+
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.slotSpans = new long[levelCount];
+        this.currentTick = startMillis / tickMillis;
+
+        long span = 1;
+        for (int level = 0; level < levelCount; level++) {
+            slotSpans[level] = span;
+            span = Math.multiplyExact(span, wheelSize);
+
+            List<Set<K>> slots = new ArrayList<>(wheelSize);
+            for (int slot = 0; slot < wheelSize; slot++)
+                slots.add(new LinkedHashSet<>());
+            levels.add(slots);
+        }
+    }
+
+    /**
+     * Sets the deadline of the key, replacing any earlier one. Returns false when it has already passed,
+     * in which case nothing is scheduled.
+     */
+    public synchronized boolean schedule(K key, long deadlineMillis) {
+        cancel(key);
+
+        long deadlineTick = (deadlineMillis + tickMillis - 1) / tickMillis;
+        if (deadlineTick <= currentTick)
+            return false;
+
+        place(new Timer(key, deadlineTick));
+        return true;
+    }
+
+    public synchronized boolean cancel(K key) {
+        Timer timer = timers.remove(key);
+        if (timer == null)
+            return false;
+
+        levels.get(timer.level).get(timer.slot).remove(key);
+        return true;
+    }
+
+    /**
+     * Moves the wheel forward to the given time and returns the keys whose deadlines were reached, earliest first.
+     */
+    public synchronized List<K> advanceTo(long nowMillis) {
+        List<K> expired = new ArrayList<>();
+        long targetTick = nowMillis / tickMillis;
+
+        while (currentTick < targetTick) {
+            currentTick++;
+
+            // Higher levels first, so timers cascading into this tick's level 0 slot expire now
+            for (int level = slotSpans.length - 1; level > 0; level--) {
+                if (currentTick % slotSpans[level] != 0)
+                    continue;
+
+                for (K key : drain(level, slotOf(currentTick, level))) {
+                    Timer timer = timers.remove(key);
+                    if (timer.deadlineTick <= currentTick)
+                        expired.add(key);
+                    else
+                        place(timer);
+                }
+            }
+
+            for (K key : drain(0, slotOf(currentTick, 0))) {
+                timers.remove(key);
+                expired.add(key);
+            }
+        }
+        return expired;
+    }
+
+    public synchronized int size() {
+        return timers.size();
+    }
+
+    private void place(Timer timer) {
+        long ticksLeft = timer.deadlineTick - currentTick;
+        int level = 0;
+        while (level < slotSpans.length - 1 && ticksLeft >= slotSpans[level + 1])
+            level++;
+
+        long topSpan = slotSpans[level] * wheelSize;
+        long placedTick = ticksLeft < topSpan ? timer.deadlineTick : currentTick + topSpan - 1;
+
+        timer.level = level;
+        timer.slot = slotOf(placedTick, level);
+        levels.get(level).get(timer.slot).add(timer.key);
+        timers.put(timer.key, timer);
+    }
+
+    private List<K> drain(int level, int slot) {
+        Set<K> keys = levels.get(level).get(slot);
+        List<K> drained = new ArrayList<>(keys);
+        keys.clear();
+        return drained;
+    }
+
+    private int slotOf(long tick, int level) {
+        return (int) ((tick / slotSpans[level]) % wheelSize);
+    }
+
+    private class Timer {
+        private final K key;
+        private final long deadlineTick;
+        private int level;
+        private int slot;
+
+        private Timer(K key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.upgrad.upstac.testrequests;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCreateOutcome {
+
+    private int index;
+    private Long requestId;
+    private boolean created;
+    private String message;
+
+    public static BulkCreateOutcome created(int index, Long requestId) {
+        return new BulkCreateOutcome(index, requestId, true, "Created");
+    }
+
+    public static BulkCreateOutcome rejected(int index, String message) {
+        return new BulkCreateOutcome(index, null, false, message);
+    }
+}
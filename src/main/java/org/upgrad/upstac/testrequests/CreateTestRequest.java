@@ -23,6 +23,9 @@ public class CreateTestRequest {
 
     private Integer pinCode;
 
+    // Optional lab slot to book for collecting the sample
+    private Long slotId;
+
 
 
 
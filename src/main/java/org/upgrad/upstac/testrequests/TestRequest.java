@@ -3,15 +3,20 @@ package org.upgrad.upstac.testrequests;
 import lombok.Data;
 import org.upgrad.upstac.testrequests.consultation.Consultation;
 import org.upgrad.upstac.testrequests.lab.LabResult;
+import org.upgrad.upstac.testrequests.sync.ChangeVersionListener;
+import org.upgrad.upstac.testrequests.sync.ChangeVersioned;
 import org.upgrad.upstac.users.User;
 import org.upgrad.upstac.users.models.Gender;
 
 import javax.persistence.*;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Data
 @Entity
-public class TestRequest {
+@EntityListeners(ChangeVersionListener.class)
+@Table(indexes = @Index(columnList = "changeVersion"))
+public class TestRequest implements ChangeVersioned {
 
 
     @Id
@@ -25,6 +30,9 @@ public class TestRequest {
 
     private RequestStatus status = RequestStatus.INITIATED;
 
+    // When the request entered its current status, for SLA tracking
+    private LocalDateTime statusUpdatedOn = LocalDateTime.now();
+
 
     private String name;
     private Gender gender;
@@ -34,10 +42,24 @@ public class TestRequest {
     private String phoneNumber;
     private Integer pinCode;
 
+    // Lab slot booked for collecting the sample, if any
+    private Long slotId;
+
+    private Long changeVersion;
+
+    // Set when a pool containing this request tested positive, so it is never pooled again
+    private boolean individualTestRequired;
+
     @OneToOne(mappedBy="request")
     Consultation consultation;
 
     @OneToOne(mappedBy="request")
     LabResult labResult;
 
+    public void setStatus(RequestStatus status) {
+        if (this.status != status)
+            statusUpdatedOn = LocalDateTime.now();
+        this.status = status;
+    }
+
 }
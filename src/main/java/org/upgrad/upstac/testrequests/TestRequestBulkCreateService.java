@@ -0,0 +1,209 @@
+package org.upgrad.upstac.testrequests;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.shared.CsvParser;
+import org.upgrad.upstac.users.User;
+import org.upgrad.upstac.users.models.Gender;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads bulk registrations as a JSON array or CSV one record at a time and hands them to
+ * {@link TestRequestService#createTestRequestsFrom} in chunks of app.bulk-create.batch-size.
+ * Each chunk commits on its own, so later chunks see earlier ones as active requests.
+ *
+ * Records that are not test requests are rejected by index and the rest are still read. A chunk that fails to
+ * commit has its records rejected for a retry. When the input cannot be read to the end, the upload fails as a
+ * whole only if no chunk has committed yet; otherwise the outcomes of the committed chunks are returned, followed by
+ * rejections of the records read but not committed and one rejection, at the next index, for the records after.
+ */
+@Service
+public class TestRequestBulkCreateService {
+
+    private static final String[] REQUIRED_COLUMNS = {"name", "email", "phoneNumber", "pinCode"};
+
+    private static Logger logger = LoggerFactory.getLogger(TestRequestBulkCreateService.class);
+
+    @Autowired
+    private TestRequestService testRequestService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.bulk-create.batch-size:1000}")
+    private int batchSize;
+
+    public List<BulkCreateOutcome> createFromJson(User user, InputStream input) throws IOException {
+        Chunks chunks = new Chunks(user);
+        try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY)
+                throw new AppException("Expected a JSON array of test requests");
+
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null)
+                    return chunks.fail("JSON array ends early after record " + chunks.count());
+
+                if (token == JsonToken.START_OBJECT) {
+                    chunks.add(objectMapper.readValue(parser, CreateTestRequest.class));
+                } else {
+                    parser.skipChildren();
+                    chunks.reject("Expected a test request object");
+                }
+            }
+
+            if (parser.nextToken() != null)
+                return chunks.fail("Unexpected content after the JSON array");
+        } catch (JsonProcessingException e) {
+            return chunks.fail("Invalid JSON after record " + chunks.count() + ": " + e.getOriginalMessage());
+        } catch (IOException e) {
+            return chunks.fail("Unable to read test requests after record " + chunks.count());
+        }
+        return chunks.finish();
+    }
+
+    public List<BulkCreateOutcome> createFromCsv(User user, InputStream input) throws IOException {
+        Chunks chunks = new Chunks(user);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+        String header = reader.readLine();
+        if (header == null)
+            throw new AppException("Empty file");
+        Map<String, Integer> columns = CsvParser.indexHeader(header, REQUIRED_COLUMNS);
+
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty())
+                    continue;
+                try {
+                    chunks.add(parse(CsvParser.parseLine(line), columns));
+                } catch (AppException e) {
+                    chunks.reject(e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            return chunks.fail("Unable to read test requests after record " + chunks.count());
+        }
+        return chunks.finish();
+    }
+
+    private static CreateTestRequest parse(List<String> fields, Map<String, Integer> columns) {
+        CreateTestRequest createTestRequest = new CreateTestRequest();
+        createTestRequest.setName(CsvParser.field(fields, columns, "name"));
+        createTestRequest.setAddress(CsvParser.field(fields, columns, "address"));
+        createTestRequest.setEmail(CsvParser.field(fields, columns, "email"));
+        createTestRequest.setPhoneNumber(CsvParser.field(fields, columns, "phoneNumber"));
+        createTestRequest.setAge(parseInteger(CsvParser.field(fields, columns, "age"), "age"));
+        createTestRequest.setPinCode(parseInteger(CsvParser.field(fields, columns, "pinCode"), "pinCode"));
+
+        String gender = CsvParser.field(fields, columns, "gender");
+        try {
+            createTestRequest.setGender(gender == null ? null : Gender.valueOf(gender.toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            throw new AppException("Invalid gender " + gender);
+        }
+        return createTestRequest;
+    }
+
+    private static Integer parseInteger(String value, String column) {
+        try {
+            return value == null ? null : Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new AppException("Invalid " + column + " " + value);
+        }
+    }
+
+    private class Chunks {
+
+        private final User user;
+
+        private final List<BulkCreateOutcome> outcomes = new ArrayList<>();
+
+        private final List<CreateTestRequest> pending = new ArrayList<>();
+
+        private final List<Integer> pendingIndexes = new ArrayList<>();
+
+        private int count;
+
+        private boolean committed;
+
+        Chunks(User user) {
+            this.user = user;
+        }
+
+        int count() {
+            return count;
+        }
+
+        void add(CreateTestRequest createTestRequest) {
+            pendingIndexes.add(count++);
+            pending.add(createTestRequest);
+            outcomes.add(null);
+            if (pending.size() == batchSize)
+                flush();
+        }
+
+        void reject(String message) {
+            outcomes.add(BulkCreateOutcome.rejected(count++, message));
+        }
+
+        List<BulkCreateOutcome> finish() {
+            flush();
+            return outcomes;
+        }
+
+        /**
+         * The outcomes so far when a chunk has committed, since a retry of the whole upload would find its records
+         * already active; the records not committed are rejected with the reason.
+         */
+        List<BulkCreateOutcome> fail(String message) {
+            if (committed == false)
+                throw new AppException(message);
+
+            for (Integer index : pendingIndexes)
+                outcomes.set(index, BulkCreateOutcome.rejected(index, message));
+            outcomes.add(BulkCreateOutcome.rejected(count, message + ", later records were not read"));
+            pending.clear();
+            pendingIndexes.clear();
+            return outcomes;
+        }
+
+        private void flush() {
+            if (pending.isEmpty())
+                return;
+
+            try {
+                List<BulkCreateOutcome> chunkOutcomes = testRequestService.createTestRequestsFrom(user, pending);
+                for (int i = 0; i < chunkOutcomes.size(); i++) {
+                    BulkCreateOutcome outcome = chunkOutcomes.get(i);
+                    outcome.setIndex(pendingIndexes.get(i));
+                    outcomes.set(outcome.getIndex(), outcome);
+                }
+                committed = true;
+            } catch (RuntimeException e) {
+                logger.error("Failed to create test requests " + pendingIndexes.get(0) + " to " + pendingIndexes.get(pendingIndexes.size() - 1), e);
+                for (Integer index : pendingIndexes)
+                    outcomes.set(index, BulkCreateOutcome.rejected(index, "Batch failed, retry this record"));
+            }
+            pending.clear();
+            pendingIndexes.clear();
+        }
+    }
+}
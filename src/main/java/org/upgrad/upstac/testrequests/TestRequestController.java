@@ -5,13 +5,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.upgrad.upstac.config.security.UserLoggedInService;
 import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.testrequests.notification.ResultNotificationService;
+import org.upgrad.upstac.testrequests.slot.LabSlotService;
+import org.upgrad.upstac.testrequests.slot.SlotAvailability;
+import org.upgrad.upstac.testrequests.sync.ResourceVersionService;
+import org.upgrad.upstac.testrequests.sync.TestRequestChanges;
 import org.upgrad.upstac.users.User;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,6 +44,18 @@ public class TestRequestController {
     @Autowired
     private TestRequestQueryService testRequestQueryService;
 
+    @Autowired
+    private ResourceVersionService resourceVersionService;
+
+    @Autowired
+    private ResultNotificationService resultNotificationService;
+
+    @Autowired
+    private TestRequestBulkCreateService testRequestBulkCreateService;
+
+    @Autowired
+    private LabSlotService labSlotService;
+
 
     @PostMapping("/api/testrequests")
     public TestRequest createRequest(@RequestBody CreateTestRequest testRequest) {
@@ -45,14 +68,71 @@ public class TestRequestController {
         }
 
     }
+    @PostMapping(value = "/api/testrequests/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BulkCreateOutcome> createRequests(HttpServletRequest request) {
+        try {
+            User user = userLoggedInService.getLoggedInUser();
+            return testRequestBulkCreateService.createFromJson(user, request.getInputStream());
+        }  catch (AppException e) {
+            throw asBadRequest(e.getMessage());
+        }  catch (IOException e) {
+            throw asBadRequest("Unable to read test requests", e);
+        }
+    }
+
+    @PostMapping(value = "/api/testrequests/bulk", consumes = "text/csv")
+    public List<BulkCreateOutcome> createRequestsFromCsv(HttpServletRequest request) {
+        try {
+            User user = userLoggedInService.getLoggedInUser();
+            return testRequestBulkCreateService.createFromCsv(user, request.getInputStream());
+        }  catch (AppException e) {
+            throw asBadRequest(e.getMessage());
+        }  catch (IOException e) {
+            throw asBadRequest("Unable to read test requests", e);
+        }
+    }
+
     @PreAuthorize("hasAnyRole('USER')")
     @GetMapping("/api/testrequests")
-    public List<TestRequest> requestHistory() {
+    public ResponseEntity<List<TestRequest>> requestHistory(WebRequest webRequest) {
+
+        String userName = userLoggedInService.getLoggedInUserName();
+        return resourceVersionService.respondIfModified(webRequest, ResourceVersionService.historyOf(userName),
+                () -> testRequestService.getHistoryFor(userLoggedInService.getLoggedInUser()));
+
+
+    }
+
+    @PreAuthorize("hasAnyRole('USER','GOVERNMENT_AUTHORITY','TESTER','DOCTOR')")
+    @GetMapping(value = "/api/testrequests", params = "ids")
+    public List<TestRequestLookup> getTestRequestsWithIds(@RequestParam List<Long> ids) {
+        try {
+            User user = userLoggedInService.getLoggedInUser();
+            return testRequestQueryService.findTestRequestsForUserByIDs(user, ids);
+        }catch (AppException e) {
+            throw asBadRequest(e.getMessage());
+        }
+    }
+
+    @PreAuthorize("hasAnyRole('USER')")
+    @GetMapping(value = "/api/testrequests", params = "since")
+    public TestRequestChanges requestHistoryChanges(@RequestParam Long since) {
 
         User user = userLoggedInService.getLoggedInUser();
-        return testRequestService.getHistoryFor(user);
+        return testRequestService.getHistoryChangesFor(user, since);
+    }
 
+    @PreAuthorize("hasAnyRole('USER')")
+    @GetMapping("/api/testrequests/slots")
+    public List<SlotAvailability> availableSlots(@RequestParam Integer pinCode) {
+        return labSlotService.findAvailable(pinCode);
+    }
+
+    @PreAuthorize("hasAnyRole('USER')")
+    @GetMapping(value = "/api/testrequests/notifications", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter resultNotifications() {
 
+        return resultNotificationService.subscribe(userLoggedInService.getLoggedInUserName());
     }
 
     // Extra code added to get the TestRequests with id.
@@ -0,0 +1,24 @@
+package org.upgrad.upstac.testrequests;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestRequestLookup {
+
+    private Long requestId;
+    private boolean found;
+    private TestRequest testRequest;
+
+    public static TestRequestLookup found(TestRequest testRequest) {
+        return new TestRequestLookup(testRequest.getRequestId(), true, testRequest);
+    }
+
+    // Also returned for requests the caller may not see, so their existence is not given away
+    public static TestRequestLookup notFound(Long requestId) {
+        return new TestRequestLookup(requestId, false, null);
+    }
+}
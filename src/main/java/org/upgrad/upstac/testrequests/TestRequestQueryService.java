@@ -3,6 +3,7 @@ package org.upgrad.upstac.testrequests;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 import org.upgrad.upstac.exception.AppException;
@@ -10,10 +11,20 @@ import org.upgrad.upstac.testrequests.consultation.Consultation;
 import org.upgrad.upstac.testrequests.consultation.ConsultationRepository;
 import org.upgrad.upstac.testrequests.lab.LabResult;
 import org.upgrad.upstac.testrequests.lab.LabResultRepository;
+import org.upgrad.upstac.testrequests.routing.RegionalQueue;
+import org.upgrad.upstac.testrequests.sync.ChangeVersionService;
+import org.upgrad.upstac.testrequests.sync.TestRequestChanges;
+import org.upgrad.upstac.testrequests.triage.TriageQueue;
 import org.upgrad.upstac.users.User;
 
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,6 +42,18 @@ public class TestRequestQueryService {
     @Autowired
     private ConsultationRepository consultationRepository;
 
+    @Autowired
+    private ChangeVersionService changeVersionService;
+
+    @Autowired
+    private TriageQueue triageQueue;
+
+    @Autowired
+    private RegionalQueue regionalQueue;
+
+    @Value("${app.multi-get.max-size:200}")
+    private int maxMultiGetSize;
+
     private static Logger logger = LoggerFactory.getLogger(TestRequestQueryService.class);
 
 
@@ -55,6 +78,42 @@ public class TestRequestQueryService {
 
 
 
+    /**
+     * The most severe requests waiting for a doctor, most severe first.
+     */
+    public List<TestRequest> findMostSevereForConsultation(int limit) {
+        if (limit <= 0)
+            throw new AppException("limit must be positive");
+
+        return findInOrder(triageQueue.top(limit), RequestStatus.LAB_TEST_COMPLETED);
+    }
+
+    /**
+     * Requests waiting for a lab test nearest to the tester: oldest first in the tester's pincode region,
+     * then in the neighbouring regions.
+     */
+    public List<TestRequest> findNearestForLabTest(User tester, int limit) {
+        if (limit <= 0)
+            throw new AppException("limit must be positive");
+
+        return findInOrder(regionalQueue.nearestTo(tester.getPinCode(), limit), RequestStatus.INITIATED);
+    }
+
+    private List<TestRequest> findInOrder(List<Long> requestIds, RequestStatus status) {
+        if (requestIds.isEmpty())
+            return Collections.emptyList();
+
+        Map<Long, Integer> rank = new HashMap<>();
+        for (int i = 0; i < requestIds.size(); i++)
+            rank.put(requestIds.get(i), i);
+
+        return testRequestRepository.findAllWithResultsByRequestIdIn(requestIds)
+                .stream()
+                .filter(testRequest -> testRequest.getStatus() == status)
+                .sorted(Comparator.comparing(testRequest -> rank.get(testRequest.getRequestId())))
+                .collect(Collectors.toList());
+    }
+
     public List<TestRequest> findByTester(User user) {
 
         return  labResultRepository.findByTester(user)
@@ -71,6 +130,14 @@ public class TestRequestQueryService {
                 .collect(Collectors.toList());
     }
 
+    public TestRequestChanges findChangesByTester(User user, Long since) {
+        return changeVersionService.changesFrom(() -> labResultRepository.findRequestsByTesterChangedSince(user, since), user, since);
+    }
+
+    public TestRequestChanges findChangesByDoctor(User user, Long since) {
+        return changeVersionService.changesFrom(() -> consultationRepository.findRequestsByDoctorChangedSince(user, since), user, since);
+    }
+
 
     public Optional<TestRequest> findTestRequestForUserByID(User user,Long id) {
 
@@ -92,6 +159,42 @@ public class TestRequestQueryService {
 
 
 
+    /**
+     * Looks up many requests for the user in one query, keeping the ones their role lets them see as
+     * findTestRequestForUserByID does, and reporting the rest as not found, in the order asked for.
+     */
+    public List<TestRequestLookup> findTestRequestsForUserByIDs(User user, List<Long> ids) {
+        List<Long> distinctIds = ids.stream().distinct().collect(Collectors.toList());
+        if (distinctIds.size() > maxMultiGetSize)
+            throw new AppException("At most " + maxMultiGetSize + " requests can be fetched at once");
+
+        Predicate<TestRequest> visible = visibleTo(user);
+        Map<Long, TestRequest> found = testRequestRepository.findAllWithResultsAndStaffByRequestIdIn(distinctIds).stream()
+                .filter(visible)
+                .collect(Collectors.toMap(TestRequest::getRequestId, Function.identity()));
+
+        return distinctIds.stream()
+                .map(id -> found.containsKey(id) ? TestRequestLookup.found(found.get(id)) : TestRequestLookup.notFound(id))
+                .collect(Collectors.toList());
+    }
+
+    private static Predicate<TestRequest> visibleTo(User user) {
+        if (user.doesRoleIsUser())
+            return testRequest -> isSameUser(testRequest.getCreatedBy(), user);
+        else if (user.doesRoleIsTester())
+            return testRequest -> testRequest.getLabResult() != null && isSameUser(testRequest.getLabResult().getTester(), user);
+        else if (user.doesRoleIsDoctor())
+            return testRequest -> testRequest.getConsultation() != null && isSameUser(testRequest.getConsultation().getDoctor(), user);
+        else if (user.doesRoleIsAuthority())
+            return testRequest -> true;
+        else
+            throw new AppException("Invalid Role");
+    }
+
+    private static boolean isSameUser(User owner, User user) {
+        return owner != null && owner.getId().equals(user.getId());
+    }
+
     public Optional<TestRequest> findByDoctorAndID(User doctor,Long id) {
 
 
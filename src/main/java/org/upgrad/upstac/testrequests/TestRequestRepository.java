@@ -1,8 +1,14 @@
 package org.upgrad.upstac.testrequests;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.upgrad.upstac.users.User;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,6 +36,83 @@ public interface TestRequestRepository extends JpaRepository<TestRequest,Long> {
 	List<TestRequest> findByName(String name);
 
 	List<TestRequest> findByStatus(RequestStatus status);
+
+	List<TestRequest> findByCreatedByAndChangeVersionGreaterThan(User user, Long changeVersion);
+
+	@Query("select max(t.changeVersion) from TestRequest t")
+	Long findMaxChangeVersion();
+
+	@Modifying
+	@Query("update TestRequest t set t.changeVersion = :version where t.changeVersion is null")
+	int stampMissingChangeVersions(@Param("version") Long version);
+
+	@Query("select t.requestId from TestRequest t where t.status = :status order by t.requestId")
+	List<Long> findOldestRequestIds(@Param("status") RequestStatus status, Pageable pageable);
+
+	@Query("select t.requestId from TestRequest t where t.status = :status and t.pinCode = :pinCode order by t.requestId")
+	List<Long> findOldestRequestIdsByPinCode(@Param("status") RequestStatus status, @Param("pinCode") Integer pinCode, Pageable pageable);
+
+	@Query("select t.requestId from TestRequest t where t.status = :status and t.pinCode = :pinCode and t.individualTestRequired = false order by t.requestId")
+	List<Long> findOldestPoolableRequestIds(@Param("status") RequestStatus status, @Param("pinCode") Integer pinCode, Pageable pageable);
+
+	@Query("select t.requestId from TestRequest t where t.requestId in :ids and t.individualTestRequired = true")
+	List<Long> findIndividualTestRequiredRequestIds(@Param("ids") Collection<Long> ids);
+
+	@Modifying(clearAutomatically = true)
+	@Query("update TestRequest t set t.individualTestRequired = true where t.changeVersion = :version")
+	int markIndividualTestRequired(@Param("version") Long version);
+
+	@Query("select t.requestId from TestRequest t where t.changeVersion = :version")
+	List<Long> findRequestIdsByChangeVersion(@Param("version") Long version);
+
+	@Query("select t.email from TestRequest t where t.email in :emails and t.status <> :status")
+	List<String> findEmailsInAndStatusNot(@Param("emails") Collection<String> emails, @Param("status") RequestStatus status);
+
+	@Query("select t.phoneNumber from TestRequest t where t.phoneNumber in :phoneNumbers and t.status <> :status")
+	List<String> findPhoneNumbersInAndStatusNot(@Param("phoneNumbers") Collection<String> phoneNumbers, @Param("status") RequestStatus status);
+
+	@Query("select distinct t from TestRequest t left join fetch t.labResult left join fetch t.consultation where t.requestId in :ids")
+	List<TestRequest> findAllWithResultsByRequestIdIn(@Param("ids") Collection<Long> ids);
+
+	// The people each row points to come in the same query, so a multi-get costs one statement whatever its size
+	@Query("select distinct t from TestRequest t left join fetch t.createdBy left join fetch t.labResult l left join fetch l.tester"
+			+ " left join fetch t.consultation c left join fetch c.doctor where t.requestId in :ids")
+	List<TestRequest> findAllWithResultsAndStaffByRequestIdIn(@Param("ids") Collection<Long> ids);
+
+	@Query("select t.requestId, t.age, t.gender, t.pinCode, t.status, t.created, l.result, c.suggestion from TestRequest t"
+			+ " left join t.labResult l left join t.consultation c where t.requestId > :after order by t.requestId, l.resultId")
+	List<Object[]> findCohortRowsAfter(@Param("after") Long after, Pageable pageable);
+
+	@Query("select t.requestId, t.pinCode, t.created, t.phoneNumber, t.email from TestRequest t where t.requestId > :after order by t.requestId")
+	List<Object[]> findPeopleAfter(@Param("after") Long after, Pageable pageable);
+
+	@Query("select t.statusUpdatedOn, t.created, t.pinCode from TestRequest t where t.status = :status")
+	List<Object[]> findCompletionTimesByStatus(@Param("status") RequestStatus status);
+
+	@Query("select t.pinCode, t.status, l.result, c.suggestion, count(t) from TestRequest t left join t.labResult l left join t.consultation c"
+			+ " group by t.pinCode, t.status, l.result, c.suggestion")
+	List<Object[]> countByPinCodeAndStatusAndResultAndSuggestion();
+
+	@Query("select t.requestId, t.statusUpdatedOn, l.tester from TestRequest t join t.labResult l where t.status = :status and l.pool is null")
+	List<Object[]> findTesterClaimsByStatus(@Param("status") RequestStatus status);
+
+	@Query("select t.requestId, t.statusUpdatedOn, c.doctor from TestRequest t join t.consultation c where t.status = :status")
+	List<Object[]> findDoctorClaimsByStatus(@Param("status") RequestStatus status);
+
+	@Query("select t.requestId, t.pinCode from TestRequest t where t.status = :status")
+	List<Object[]> findRequestIdsAndPinCodesByStatus(@Param("status") RequestStatus status);
+
+	@Query("select t.requestId, t.status, t.statusUpdatedOn, t.created from TestRequest t where t.status in :statuses")
+	List<Object[]> findStatusTimesByStatusIn(@Param("statuses") Collection<RequestStatus> statuses);
+
+	@Modifying(clearAutomatically = true)
+	@Query("update TestRequest t set t.status = :to, t.statusUpdatedOn = :now, t.changeVersion = :version where t.requestId in :ids and t.status = :from")
+	int updateStatusWhereCurrent(@Param("ids") Collection<Long> ids, @Param("from") RequestStatus from, @Param("to") RequestStatus to, @Param("now") LocalDateTime now, @Param("version") Long version);
+
+	// Compare-and-set on the status: only one caller can move a request out of a given status
+	@Modifying(clearAutomatically = true)
+	@Query("update TestRequest t set t.status = :to, t.statusUpdatedOn = :now, t.changeVersion = :version where t.requestId = :id and t.status = :from")
+	int updateStatusIfCurrent(@Param("id") Long id, @Param("from") RequestStatus from, @Param("to") RequestStatus to, @Param("now") LocalDateTime now, @Param("version") Long version);
 	
 
 }
@@ -3,12 +3,36 @@ package org.upgrad.upstac.testrequests;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.testrequests.slot.LabSlotService;
+import org.upgrad.upstac.testrequests.sync.ChangeVersionService;
+import org.upgrad.upstac.testrequests.sync.TestRequestChanges;
 import org.upgrad.upstac.users.User;
 
+import javax.transaction.Transactional;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class TestRequestService {
@@ -16,16 +40,32 @@ public class TestRequestService {
     @Autowired
     private TestRequestRepository testRequestRepository;
 
+    @Autowired
+    private ChangeVersionService changeVersionService;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LabSlotService labSlotService;
 
 
     private static Logger logger = LoggerFactory.getLogger(TestRequestService.class);
 
 
 
+    @Transactional
     public TestRequest createTestRequestFrom(User user,CreateTestRequest createTestRequest) {
 
         validateExistingRequestsNotPresentWithSameDetails(createTestRequest);
 
+        // Booked in the same transaction as the insert, so a failed insert hands the place back
+        if (createTestRequest.getSlotId() != null)
+            labSlotService.book(createTestRequest.getSlotId(), createTestRequest.getPinCode());
+
         TestRequest testRequest = new TestRequest();
 
         testRequest.setName(createTestRequest.getName());
@@ -37,9 +77,117 @@ public class TestRequestService {
         testRequest.setPinCode(createTestRequest.getPinCode());
         testRequest.setAddress(createTestRequest.getAddress());
         testRequest.setGender(createTestRequest.getGender());
+        testRequest.setSlotId(createTestRequest.getSlotId());
 
         testRequest.setCreatedBy(user);
-        return testRequestRepository.save(testRequest);
+        TestRequest savedRequest = testRequestRepository.save(testRequest);
+        applicationEventPublisher.publishEvent(new TestRequestTransitionEvent(savedRequest, null, RequestStatus.INITIATED, user));
+        return savedRequest;
+    }
+
+    /**
+     * Registers a batch of requests with a constant number of statements: two lookups of active requests sharing
+     * an email or phone number, one JDBC batch insert and one reload of the inserted rows by the keys it generated.
+     * Records duplicating an earlier record of the batch or an active request are rejected, as are those asking
+     * for a lab slot that cannot be booked; every other slot is booked in the same transaction.
+     */
+    @Transactional
+    public List<BulkCreateOutcome> createTestRequestsFrom(User user, List<CreateTestRequest> createTestRequests) {
+
+        Set<String> emails = createTestRequests.stream().map(CreateTestRequest::getEmail).filter(Objects::nonNull).collect(Collectors.toSet());
+        Set<String> phoneNumbers = createTestRequests.stream().map(CreateTestRequest::getPhoneNumber).filter(Objects::nonNull).collect(Collectors.toSet());
+        Set<String> activeEmails = emails.isEmpty() ? Collections.emptySet() : new HashSet<>(testRequestRepository.findEmailsInAndStatusNot(emails, RequestStatus.COMPLETED));
+        Set<String> activePhoneNumbers = phoneNumbers.isEmpty() ? Collections.emptySet() : new HashSet<>(testRequestRepository.findPhoneNumbersInAndStatusNot(phoneNumbers, RequestStatus.COMPLETED));
+
+        List<BulkCreateOutcome> outcomes = new ArrayList<>(createTestRequests.size());
+        List<Integer> acceptedIndexes = new ArrayList<>();
+        List<CreateTestRequest> accepted = new ArrayList<>();
+        Set<String> batchEmails = new HashSet<>();
+        Set<String> batchPhoneNumbers = new HashSet<>();
+        for (int index = 0; index < createTestRequests.size(); index++) {
+            CreateTestRequest createTestRequest = createTestRequests.get(index);
+            String email = createTestRequest.getEmail();
+            String phoneNumber = createTestRequest.getPhoneNumber();
+
+            if (activeEmails.contains(email) || activePhoneNumbers.contains(phoneNumber)) {
+                outcomes.add(BulkCreateOutcome.rejected(index, "A Request with same PhoneNumber or Email is already in progress "));
+                continue;
+            }
+            if (batchEmails.contains(email) || batchPhoneNumbers.contains(phoneNumber)) {
+                outcomes.add(BulkCreateOutcome.rejected(index, "A Request with same PhoneNumber or Email is already in this batch"));
+                continue;
+            }
+            if (createTestRequest.getSlotId() != null) {
+                Optional<String> refusal = labSlotService.tryBook(createTestRequest.getSlotId(), createTestRequest.getPinCode());
+                if (refusal.isPresent()) {
+                    outcomes.add(BulkCreateOutcome.rejected(index, refusal.get()));
+                    continue;
+                }
+            }
+            if (email != null)
+                batchEmails.add(email);
+            if (phoneNumber != null)
+                batchPhoneNumbers.add(phoneNumber);
+
+            outcomes.add(null);
+            acceptedIndexes.add(index);
+            accepted.add(createTestRequest);
+        }
+
+        if (accepted.isEmpty())
+            return outcomes;
+
+        return changeVersionService.stamped(version -> {
+            List<Long> createdIds = insertAll(user, accepted, version);
+
+            Map<Long, TestRequest> created = testRequestRepository.findAllWithResultsByRequestIdIn(createdIds).stream()
+                    .collect(Collectors.toMap(TestRequest::getRequestId, Function.identity()));
+            for (int i = 0; i < createdIds.size(); i++) {
+                TestRequest testRequest = created.get(createdIds.get(i));
+                outcomes.set(acceptedIndexes.get(i), BulkCreateOutcome.created(acceptedIndexes.get(i), testRequest.getRequestId()));
+                applicationEventPublisher.publishEvent(new TestRequestTransitionEvent(testRequest, null, RequestStatus.INITIATED, user));
+            }
+            return outcomes;
+        });
+    }
+
+    /**
+     * Inserts the records in one JDBC batch and returns the request ids generated for them, in record order.
+     */
+    private List<Long> insertAll(User user, List<CreateTestRequest> createTestRequests, Long changeVersion) {
+        Date created = Date.valueOf(LocalDate.now());
+        Timestamp statusUpdatedOn = Timestamp.valueOf(LocalDateTime.now());
+        String insert = "insert into test_request (name, gender, address, age, email, phone_number, pin_code, created, status, status_updated_on, created_by_id, change_version, slot_id, individual_test_required) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, false)";
+        return jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement statement = connection.prepareStatement(insert, Statement.RETURN_GENERATED_KEYS)) {
+                for (CreateTestRequest createTestRequest : createTestRequests) {
+                    statement.setString(1, createTestRequest.getName());
+                    statement.setObject(2, createTestRequest.getGender() == null ? null : createTestRequest.getGender().ordinal(), Types.INTEGER);
+                    statement.setString(3, createTestRequest.getAddress());
+                    statement.setObject(4, createTestRequest.getAge(), Types.INTEGER);
+                    statement.setString(5, createTestRequest.getEmail());
+                    statement.setString(6, createTestRequest.getPhoneNumber());
+                    statement.setObject(7, createTestRequest.getPinCode(), Types.INTEGER);
+                    statement.setDate(8, created);
+                    statement.setInt(9, RequestStatus.INITIATED.ordinal());
+                    statement.setTimestamp(10, statusUpdatedOn);
+                    statement.setLong(11, user.getId());
+                    statement.setLong(12, changeVersion);
+                    statement.setObject(13, createTestRequest.getSlotId(), Types.BIGINT);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                List<Long> ids = new ArrayList<>(createTestRequests.size());
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    while (keys.next())
+                        ids.add(keys.getLong(1));
+                }
+                if (ids.size() != createTestRequests.size())
+                    throw new IllegalStateException("Expected " + createTestRequests.size() + " generated request ids, got " + ids.size());
+                return ids;
+            }
+        });
     }
 
     public void validateExistingRequestsNotPresentWithSameDetails(CreateTestRequest createTestRequest) {
@@ -64,5 +212,10 @@ public class TestRequestService {
         return testRequestRepository.findByCreatedBy(loggedInUser);
     }
 
+    public TestRequestChanges getHistoryChangesFor(User loggedInUser, Long since){
+
+        return changeVersionService.changesFrom(() -> testRequestRepository.findByCreatedByAndChangeVersionGreaterThan(loggedInUser, since));
+    }
+
 
 }
@@ -2,26 +2,53 @@ package org.upgrad.upstac.testrequests;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.exception.ConflictException;
+import org.upgrad.upstac.testrequests.consultation.AutoCompletionService;
 import org.upgrad.upstac.testrequests.consultation.Consultation;
 import org.upgrad.upstac.testrequests.consultation.ConsultationService;
 import org.upgrad.upstac.testrequests.consultation.CreateConsultationRequest;
 import org.upgrad.upstac.testrequests.flow.TestRequestFlowService;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.testrequests.lab.BatchAssignOutcome;
+import org.upgrad.upstac.testrequests.lab.BatchAssignRequest;
 import org.upgrad.upstac.testrequests.lab.LabResult;
+import org.upgrad.upstac.testrequests.lab.LabResultRow;
 import org.upgrad.upstac.testrequests.lab.LabResultService;
 import org.upgrad.upstac.testrequests.lab.CreateLabResult;
+import org.upgrad.upstac.testrequests.lane.SerializedTransition;
+import org.upgrad.upstac.testrequests.queue.WorkQueue;
+import org.upgrad.upstac.testrequests.routing.RegionalQueue;
+import org.upgrad.upstac.testrequests.sync.ChangeVersionService;
+import org.upgrad.upstac.testrequests.triage.TriageQueue;
 import org.upgrad.upstac.users.User;
 
 import javax.transaction.Transactional;
 import javax.validation.Valid;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 @Validated
 public class TestRequestUpdateService {
 
+    private static final int CLAIM_CANDIDATES = 10;
+
     @Autowired
     private TestRequestRepository testRequestRepository;
 
@@ -37,6 +64,27 @@ public class TestRequestUpdateService {
     @Autowired
     private ConsultationService consultationService;
 
+    @Autowired
+    private AutoCompletionService autoCompletionService;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Autowired
+    private ChangeVersionService changeVersionService;
+
+    @Autowired
+    private TriageQueue triageQueue;
+
+    @Autowired
+    private RegionalQueue regionalQueue;
+
+    @Value("${app.routing.spill-nationally:true}")
+    private boolean spillNationally;
+
+    @Value("${app.batch-assign.max-size:200}")
+    private int maxBatchAssignSize;
+
 
     @Transactional
     public TestRequest saveTestRequest(@Valid TestRequest result) {
@@ -44,44 +92,322 @@ public class TestRequestUpdateService {
     }
 
 
-    TestRequest updateStatusAndSave(TestRequest testRequest, RequestStatus status) {
+    TestRequest updateStatusAndSave(TestRequest testRequest, RequestStatus status, User changedBy) {
+        RequestStatus previousStatus = testRequest.getStatus();
         testRequest.setStatus(status);
-        return saveTestRequest(testRequest);
+        return saveTransition(testRequest, previousStatus, status, changedBy);
+    }
+
+    private TestRequest saveTransition(TestRequest testRequest, RequestStatus from, RequestStatus to, User changedBy) {
+        TestRequest savedRequest = saveTestRequest(testRequest);
+        applicationEventPublisher.publishEvent(new TestRequestTransitionEvent(savedRequest, from, to, changedBy));
+        return savedRequest;
+    }
+
+    /**
+     * Moves the first candidate still waiting in the given status to the next one, or returns empty when none is.
+     * Candidates already taken by a concurrent caller are skipped.
+     */
+    private Optional<TestRequest> claimFirst(List<Long> candidateIds, RequestStatus from, RequestStatus to) {
+        for (Long id : candidateIds) {
+            int claimed = changeVersionService.stamped(version -> testRequestRepository.updateStatusIfCurrent(id, from, to, LocalDateTime.now(), version));
+            if (claimed == 1)
+                return testRequestRepository.findByRequestId(id);
+        }
+        return Optional.empty();
+    }
+
+    private Optional<TestRequest> claimOldest(RequestStatus from, RequestStatus to) {
+        return claimFirst(testRequestRepository.findOldestRequestIds(from, PageRequest.of(0, CLAIM_CANDIDATES)), from, to);
     }
 
+    /**
+     * Claims the oldest request in the tester's pincode region or its neighbours, and only when those are
+     * all empty the oldest anywhere, unless app.routing.spill-nationally is off.
+     */
+    @Transactional
+    public Optional<TestRequest> claimNextForLabTest(User tester) {
+        Optional<TestRequest> nearest = claimFirst(regionalQueue.nearestTo(tester.getPinCode(), CLAIM_CANDIDATES), RequestStatus.INITIATED, RequestStatus.LAB_TEST_IN_PROGRESS);
+        Optional<TestRequest> claimed = nearest.isPresent() || spillNationally == false ? nearest : claimOldest(RequestStatus.INITIATED, RequestStatus.LAB_TEST_IN_PROGRESS);
+        return claimed.map(testRequest -> {
+            LabResult labResult = labResultService.assignForLabTest(testRequest, tester);
+            testRequestFlowService.log(testRequest, RequestStatus.INITIATED, RequestStatus.LAB_TEST_IN_PROGRESS, tester);
+            testRequest.setLabResult(labResult);
+            return saveTransition(testRequest, RequestStatus.INITIATED, RequestStatus.LAB_TEST_IN_PROGRESS, tester);
+        });
+    }
+
+    @Transactional
+    public Optional<TestRequest> claimNextForConsultation(User doctor) {
+        Optional<TestRequest> mostSevere = claimFirst(triageQueue.top(CLAIM_CANDIDATES), RequestStatus.LAB_TEST_COMPLETED, RequestStatus.DIAGNOSIS_IN_PROCESS);
+        Optional<TestRequest> claimed = mostSevere.isPresent() ? mostSevere : claimOldest(RequestStatus.LAB_TEST_COMPLETED, RequestStatus.DIAGNOSIS_IN_PROCESS);
+        return claimed.map(testRequest -> {
+            Consultation consultation = consultationService.assignForConsultation(testRequest, doctor);
+            testRequestFlowService.log(testRequest, RequestStatus.LAB_TEST_COMPLETED, RequestStatus.DIAGNOSIS_IN_PROCESS, doctor);
+            testRequest.setConsultation(consultation);
+            return saveTransition(testRequest, RequestStatus.LAB_TEST_COMPLETED, RequestStatus.DIAGNOSIS_IN_PROCESS, doctor);
+        });
+    }
+
+    @SerializedTransition
     public TestRequest assignForLabTest(Long id, User tester) {
         TestRequest testRequest = testRequestRepository.findByRequestIdAndStatus(id,RequestStatus.INITIATED).orElseThrow(()-> new AppException("Invalid ID"));
         LabResult labResult= labResultService.assignForLabTest(testRequest,tester);
         testRequestFlowService.log(testRequest, RequestStatus.INITIATED, RequestStatus.LAB_TEST_IN_PROGRESS, tester);
         testRequest.setLabResult(labResult);
-        return updateStatusAndSave(testRequest, RequestStatus.LAB_TEST_IN_PROGRESS);
+        return updateStatusAndSave(testRequest, RequestStatus.LAB_TEST_IN_PROGRESS, tester);
     }
 
-    public TestRequest updateLabTest(Long id,@Valid CreateLabResult createLabResult, User tester) {
+    /**
+     * Claims many requests for one tester, reporting requests that are unknown or no longer INITIATED back
+     * instead of failing the batch.
+     */
+    @Transactional
+    public List<BatchAssignOutcome> assignForLabTests(@Valid BatchAssignRequest batchAssignRequest, User tester) {
+        List<Long> requestedIds = idsToAssign(batchAssignRequest);
+        if (requestedIds.isEmpty())
+            return Collections.emptyList();
+
+        Map<Long, TestRequest> claimed = assignAll(requestedIds, WorkQueue.LAB_TEST, tester).stream()
+                .collect(Collectors.toMap(TestRequest::getRequestId, Function.identity()));
+
+        List<BatchAssignOutcome> outcomes = new ArrayList<>(requestedIds.size());
+        for (Long id : requestedIds) {
+            TestRequest testRequest = claimed.get(id);
+            outcomes.add(testRequest == null ? BatchAssignOutcome.rejected(id, "Invalid ID or State") : BatchAssignOutcome.assigned(testRequest));
+        }
+        return outcomes;
+    }
+
+    /**
+     * Claims the requests still waiting in the queue for one tester or doctor with a constant number of statements:
+     * one conditional status update, a lookup of the rows it changed by their shared change version, two batched
+     * inserts and one reload. Requests that are unknown or have left the queue are left out of the result.
+     */
+    @Transactional
+    public List<TestRequest> assignAll(List<Long> ids, WorkQueue workQueue, User staff) {
+        RequestStatus from = workQueue.getWaitingStatus();
+        RequestStatus to = workQueue.getInProgressStatus();
+
+        return changeVersionService.stamped(version -> {
+            testRequestRepository.updateStatusWhereCurrent(ids, from, to, LocalDateTime.now(), version);
+            List<Long> claimedIds = testRequestRepository.findRequestIdsByChangeVersion(version);
+            if (claimedIds.isEmpty())
+                return Collections.<TestRequest>emptyList();
+
+            if (workQueue == WorkQueue.LAB_TEST)
+                labResultService.assignForLabTests(claimedIds, staff, version);
+            else
+                consultationService.assignForConsultations(claimedIds, staff, version);
+            testRequestFlowService.logAll(claimedIds, from, to, staff);
+
+            List<TestRequest> claimed = testRequestRepository.findAllWithResultsByRequestIdIn(claimedIds);
+            for (TestRequest testRequest : claimed)
+                applicationEventPublisher.publishEvent(new TestRequestTransitionEvent(testRequest, from, to, staff));
+            return claimed;
+        });
+    }
 
-        TestRequest testRequest = testRequestRepository.findByRequestIdAndStatus(id,RequestStatus.LAB_TEST_IN_PROGRESS).orElseThrow(()-> new AppException("Invalid ID or State"));
+    private List<Long> idsToAssign(BatchAssignRequest batchAssignRequest) {
+        if (batchAssignRequest.getIds() != null && batchAssignRequest.getIds().isEmpty() == false) {
+            List<Long> ids = batchAssignRequest.getIds().stream().distinct().collect(Collectors.toList());
+            if (ids.size() > maxBatchAssignSize)
+                throw new AppException("At most " + maxBatchAssignSize + " requests can be assigned at once");
+            return ids;
+        }
+
+        if (batchAssignRequest.getPinCode() == null || batchAssignRequest.getCount() == null)
+            throw new AppException("Either ids or a pinCode and count are required");
+
+        int count = Math.min(batchAssignRequest.getCount(), maxBatchAssignSize);
+        return testRequestRepository.findOldestRequestIdsByPinCode(RequestStatus.INITIATED, batchAssignRequest.getPinCode(), PageRequest.of(0, count));
+    }
+
+    /**
+     * Stores the lab result, and completes the request in the same transaction when the auto-completion
+     * rules find nothing a doctor needs to review. The status moves with the same conditional update as
+     * {@link #returnExpiredClaim}, so of the result and an expiring claim only one goes through.
+     */
+    @Transactional
+    @SerializedTransition
+    public TestRequest updateLabTest(Long id,@Valid CreateLabResult createLabResult, User tester) {
 
+        TestRequest testRequest = completeClaim(id, WorkQueue.LAB_TEST);
 
-        labResultService.updateLabTest(testRequest, createLabResult, tester);
+        LabResult labResult = labResultService.updateLabTest(testRequest, createLabResult, tester);
         testRequestFlowService.log(testRequest, RequestStatus.LAB_TEST_IN_PROGRESS, RequestStatus.LAB_TEST_COMPLETED, tester);
-        return updateStatusAndSave(testRequest, RequestStatus.LAB_TEST_COMPLETED);
+        testRequest.setLabResult(labResult);
+        applicationEventPublisher.publishEvent(new TestRequestTransitionEvent(testRequest, RequestStatus.LAB_TEST_IN_PROGRESS, RequestStatus.LAB_TEST_COMPLETED, tester));
+        return completeIfNoReviewNeeded(testRequest);
+    }
+
+    /**
+     * Tests an INITIATED request without assigning it first: one conditional status update straight to
+     * LAB_TEST_COMPLETED, one lab result insert and both flow entries in one batch.
+     */
+    @Transactional
+    @SerializedTransition
+    public TestRequest submitLabTest(Long id, @Valid CreateLabResult createLabResult, User tester) {
+        int submitted = changeVersionService.stamped(version -> testRequestRepository.updateStatusIfCurrent(id, RequestStatus.INITIATED, RequestStatus.LAB_TEST_COMPLETED, LocalDateTime.now(), version));
+        if (submitted == 0)
+            throw new AppException("Invalid ID or State");
+
+        TestRequest testRequest = testRequestRepository.findByRequestId(id).orElseThrow(() -> new AppException("Invalid ID or State"));
+        testRequest.setLabResult(labResultService.submitLabTest(testRequest, createLabResult, tester));
+        testRequestFlowService.logPath(id, tester, RequestStatus.INITIATED, RequestStatus.LAB_TEST_IN_PROGRESS, RequestStatus.LAB_TEST_COMPLETED);
+
+        applicationEventPublisher.publishEvent(new TestRequestTransitionEvent(testRequest, RequestStatus.INITIATED, RequestStatus.LAB_TEST_IN_PROGRESS, tester));
+        applicationEventPublisher.publishEvent(new TestRequestTransitionEvent(testRequest, RequestStatus.LAB_TEST_IN_PROGRESS, RequestStatus.LAB_TEST_COMPLETED, tester));
+        return completeIfNoReviewNeeded(testRequest);
+    }
+
+    private TestRequest completeIfNoReviewNeeded(TestRequest testRequest) {
+        if (autoCompletionService.canComplete(testRequest.getLabResult()) == false)
+            return testRequest;
+
+        Consultation consultation = autoCompletionService.complete(testRequest);
+        testRequestFlowService.log(testRequest, RequestStatus.LAB_TEST_COMPLETED, RequestStatus.COMPLETED, consultation.getDoctor());
+        testRequest.setConsultation(consultation);
+        return updateStatusAndSave(testRequest, RequestStatus.COMPLETED, consultation.getDoctor());
     }
 
+    /**
+     * Completes the lab tests of many requests assigned to the tester in one transaction, using the same
+     * set-based statements as {@link #assignForLabTests}. Returns the ids that were completed; the others
+     * are unknown, not assigned to the tester or not in progress.
+     */
+    @Transactional
+    public Set<Long> updateLabTests(List<LabResultRow> rows, User tester) {
+        Map<Long, CreateLabResult> results = rows.stream()
+                .collect(Collectors.toMap(LabResultRow::getRequestId, LabResultRow::getCreateLabResult, (first, second) -> first, LinkedHashMap::new));
+
+        List<Long> assignedIds = labResultService.findRequestIdsAssignedTo(tester, results.keySet());
+        if (assignedIds.isEmpty())
+            return Collections.emptySet();
+
+        return changeVersionService.stamped(version -> {
+            testRequestRepository.updateStatusWhereCurrent(assignedIds, RequestStatus.LAB_TEST_IN_PROGRESS, RequestStatus.LAB_TEST_COMPLETED, LocalDateTime.now(), version);
+            List<Long> completedIds = testRequestRepository.findRequestIdsByChangeVersion(version);
+            if (completedIds.isEmpty())
+                return Collections.<Long>emptySet();
+
+            labResultService.updateLabTests(completedIds, results, version);
+            testRequestFlowService.logAll(completedIds, RequestStatus.LAB_TEST_IN_PROGRESS, RequestStatus.LAB_TEST_COMPLETED, tester);
+            for (TestRequest testRequest : testRequestRepository.findAllWithResultsByRequestIdIn(completedIds))
+                applicationEventPublisher.publishEvent(new TestRequestTransitionEvent(testRequest, RequestStatus.LAB_TEST_IN_PROGRESS, RequestStatus.LAB_TEST_COMPLETED, tester));
+
+            return new HashSet<>(completedIds);
+        });
+    }
+
+    /**
+     * Sends in-progress requests back to the lab queue to be tested one by one, dropping their lab results.
+     */
+    @Transactional
+    public List<TestRequest> requeueForIndividualTests(List<Long> ids, User tester) {
+        if (ids.isEmpty())
+            return Collections.emptyList();
+
+        return changeVersionService.stamped(version -> {
+            testRequestRepository.updateStatusWhereCurrent(ids, RequestStatus.LAB_TEST_IN_PROGRESS, RequestStatus.INITIATED, LocalDateTime.now(), version);
+            testRequestRepository.markIndividualTestRequired(version);
+            List<Long> requeuedIds = testRequestRepository.findRequestIdsByChangeVersion(version);
+            if (requeuedIds.isEmpty())
+                return Collections.<TestRequest>emptyList();
+
+            Map<Long, User> testers = labResultService.findTestersOf(requeuedIds);
+            labResultService.deleteForRequests(requeuedIds, version);
+            testRequestFlowService.logAll(requeuedIds, RequestStatus.LAB_TEST_IN_PROGRESS, RequestStatus.INITIATED, tester);
+            List<TestRequest> requeued = testRequestRepository.findAllWithResultsByRequestIdIn(requeuedIds);
+            for (TestRequest testRequest : requeued)
+                applicationEventPublisher.publishEvent(new TestRequestTransitionEvent(testRequest, RequestStatus.LAB_TEST_IN_PROGRESS, RequestStatus.INITIATED, tester, testers.get(testRequest.getRequestId())));
+            return requeued;
+        });
+    }
+
+    /**
+     * Sends a request whose claim ran out back to the queue it was claimed from, unless it has moved on or been
+     * claimed again by someone else since. Its lab result or consultation is dropped and the reversal logged.
+     */
+    @Transactional
+    @SerializedTransition
+    public Optional<TestRequest> returnExpiredClaim(Long id, WorkQueue workQueue, User owner) {
+        RequestStatus from = workQueue.getInProgressStatus();
+        RequestStatus to = workQueue.getWaitingStatus();
+
+        Optional<TestRequest> claimed = testRequestRepository.findByRequestIdAndStatus(id, from);
+        if (claimed.isPresent() == false || isHeldBy(claimed.get(), workQueue, owner) == false)
+            return Optional.empty();
+
+        List<Long> ids = Collections.singletonList(id);
+        int returned = changeVersionService.stamped(version -> {
+            if (testRequestRepository.updateStatusIfCurrent(id, from, to, LocalDateTime.now(), version) == 0)
+                return 0;
+
+            if (workQueue == WorkQueue.LAB_TEST)
+                labResultService.deleteForRequests(ids, version);
+            else
+                consultationService.deleteForRequests(ids, version);
+            return 1;
+        });
+        if (returned == 0)
+            return Optional.empty();
+
+        testRequestFlowService.logAll(ids, from, to, owner);
+
+        TestRequest testRequest = testRequestRepository.findAllWithResultsByRequestIdIn(ids).get(0);
+        applicationEventPublisher.publishEvent(new TestRequestTransitionEvent(testRequest, from, to, owner, owner));
+        return Optional.of(testRequest);
+    }
+
+    private static boolean isHeldBy(TestRequest testRequest, WorkQueue workQueue, User owner) {
+        User holder = null;
+        if (workQueue == WorkQueue.CONSULTATION && testRequest.getConsultation() != null)
+            holder = testRequest.getConsultation().getDoctor();
+
+        // Pooled samples wait on the pool result rather than on their tester
+        if (workQueue == WorkQueue.LAB_TEST && testRequest.getLabResult() != null && testRequest.getLabResult().getPool() == null)
+            holder = testRequest.getLabResult().getTester();
+
+        return holder != null && holder.getId().equals(owner.getId());
+    }
+
+    @SerializedTransition
     public TestRequest assignForConsultation(Long id, User doctor) {
         TestRequest testRequest = testRequestRepository.findByRequestIdAndStatus(id,RequestStatus.LAB_TEST_COMPLETED).orElseThrow(()-> new AppException("Invalid ID or State"));
         Consultation consultation =consultationService.assignForConsultation(testRequest,doctor);
         testRequestFlowService.log(testRequest, RequestStatus.LAB_TEST_COMPLETED, RequestStatus.DIAGNOSIS_IN_PROCESS, doctor);
         testRequest.setConsultation(consultation);
-        return updateStatusAndSave(testRequest, RequestStatus.DIAGNOSIS_IN_PROCESS);
+        return updateStatusAndSave(testRequest, RequestStatus.DIAGNOSIS_IN_PROCESS, doctor);
     }
 
 
+    @Transactional
+    @SerializedTransition
     public TestRequest updateConsultation(Long id, @Valid CreateConsultationRequest createConsultationRequest, User doctor) {
 
-        TestRequest testRequest = testRequestRepository.findByRequestIdAndStatus(id,RequestStatus.DIAGNOSIS_IN_PROCESS).orElseThrow(()-> new AppException("Invalid ID or State"));
-        consultationService.updateConsultation(testRequest, createConsultationRequest, doctor);
+        TestRequest testRequest = completeClaim(id, WorkQueue.CONSULTATION);
+        Consultation consultation = consultationService.updateConsultation(testRequest, createConsultationRequest, doctor);
         testRequestFlowService.log(testRequest, RequestStatus.DIAGNOSIS_IN_PROCESS, RequestStatus.COMPLETED, doctor);
-        return updateStatusAndSave(testRequest, RequestStatus.COMPLETED);
+        testRequest.setConsultation(consultation);
+        applicationEventPublisher.publishEvent(new TestRequestTransitionEvent(testRequest, RequestStatus.DIAGNOSIS_IN_PROCESS, RequestStatus.COMPLETED, doctor));
+        return testRequest;
+    }
+
+    /**
+     * Moves a claimed request out of the queue's in-progress status with a conditional update and reloads it.
+     * A request that was in progress when read but is no longer lost to a concurrent transition.
+     */
+    private TestRequest completeClaim(Long id, WorkQueue workQueue) {
+        RequestStatus from = workQueue.getInProgressStatus();
+        RequestStatus to = workQueue.getCompletedStatus();
+        testRequestRepository.findByRequestIdAndStatus(id, from).orElseThrow(() -> new AppException("Invalid ID or State"));
+
+        int completed = changeVersionService.stamped(version -> testRequestRepository.updateStatusIfCurrent(id, from, to, LocalDateTime.now(), version));
+        if (completed == 0)
+            throw new ConflictException("Request " + id + " was returned to the queue or completed meanwhile");
+
+        return testRequestRepository.findByRequestId(id).orElseThrow(() -> new AppException("Invalid ID or State"));
     }
 
 }
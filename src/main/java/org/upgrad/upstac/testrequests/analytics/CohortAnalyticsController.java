@@ -0,0 +1,29 @@
+package org.upgrad.upstac.testrequests.analytics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.upgrad.upstac.exception.AppException;
+
+import static org.upgrad.upstac.exception.UpgradResponseStatusException.asBadRequest;
+
+@RestController
+@RequestMapping("/api/government/analytics")
+public class CohortAnalyticsController {
+
+    @Autowired
+    private CohortAnalyticsService cohortAnalyticsService;
+
+    @PostMapping("/query")
+    @PreAuthorize("hasAnyRole('GOVERNMENT_AUTHORITY')")
+    public CohortResult query(@RequestBody CohortQuery cohortQuery) {
+        try {
+            return cohortAnalyticsService.query(cohortQuery);
+        } catch (AppException e) {
+            throw asBadRequest(e.getMessage());
+        }
+    }
+}
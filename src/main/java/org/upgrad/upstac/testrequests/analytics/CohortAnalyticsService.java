@@ -0,0 +1,88 @@
+package org.upgrad.upstac.testrequests.analytics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.upgrad.upstac.testrequests.RequestStatus;
+import org.upgrad.upstac.testrequests.TestRequest;
+import org.upgrad.upstac.testrequests.TestRequestRepository;
+import org.upgrad.upstac.testrequests.consultation.DoctorSuggestion;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.testrequests.lab.TestStatus;
+import org.upgrad.upstac.users.models.Gender;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Answers cohort queries from {@link CohortColumns} instead of the database. The columns are loaded page by page
+ * at startup and kept current from transition events, which add new requests and update the status, result and
+ * suggestion of the others once their transactions commit.
+ */
+@Service
+public class CohortAnalyticsService {
+
+    private static final int PAGE_SIZE = 10000;
+
+    private static Logger logger = LoggerFactory.getLogger(CohortAnalyticsService.class);
+
+    @Autowired
+    private TestRequestRepository testRequestRepository;
+
+    // 0 uses every available processor
+    @Value("${app.analytics.parallelism:0}")
+    private int parallelism;
+
+    @Value("${app.analytics.chunk-rows:65536}")
+    private int chunkRows;
+
+    private CohortColumns cohortColumns;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    void load() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        cohortColumns = new CohortColumns(PAGE_SIZE, chunkRows);
+
+        long after = 0;
+        List<Object[]> rows;
+        do {
+            rows = testRequestRepository.findCohortRowsAfter(after, PageRequest.of(0, PAGE_SIZE));
+            for (Object[] row : rows)
+                cohortColumns.put((Long) row[0], (Integer) row[1], (Gender) row[2], (Integer) row[3], (RequestStatus) row[4],
+                        (LocalDate) row[5], (TestStatus) row[6], (DoctorSuggestion) row[7]);
+
+            if (rows.isEmpty() == false)
+                after = (Long) rows.get(rows.size() - 1)[0];
+        } while (rows.size() == PAGE_SIZE);
+
+        logger.info("Cohort analytics loaded " + cohortColumns.size() + " requests");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(TestRequestTransitionEvent event) {
+        TestRequest testRequest = event.getTestRequest();
+        TestStatus result = testRequest.getLabResult() == null ? null : testRequest.getLabResult().getResult();
+        DoctorSuggestion suggestion = testRequest.getConsultation() == null ? null : testRequest.getConsultation().getSuggestion();
+
+        cohortColumns.put(testRequest.getRequestId(), testRequest.getAge(), testRequest.getGender(), testRequest.getPinCode(),
+                event.getToStatus(), testRequest.getCreated(), result, suggestion);
+    }
+
+    public CohortResult query(CohortQuery query) {
+        return cohortColumns.query(query, pool);
+    }
+}
@@ -0,0 +1,371 @@
+package org.upgrad.upstac.testrequests.analytics;
+
+import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.testrequests.RequestStatus;
+import org.upgrad.upstac.testrequests.consultation.DoctorSuggestion;
+import org.upgrad.upstac.testrequests.lab.TestStatus;
+import org.upgrad.upstac.users.models.Gender;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Requests held column by column in primitive arrays, one row per request, for counting slices of them quickly.
+ *
+ * Enums are stored as their ordinal plus one and dates as epoch days, with 0 and -1 standing for missing values.
+ * A query splits the rows into chunks scanned in parallel on a fork-join pool, each chunk counting its matches per
+ * group into its own map, and the maps are merged on the way back up.
+ *
+ * Rows are added and changed under one lock; queries take no lock and may see a request halfway through a change.
+ * When the arrays fill up they are copied into larger ones, and queries already running finish on the old copy.
+ */
+public class CohortColumns {
+
+    public static final int MAX_GROUP_BY = 3;
+
+    // Every group key code fits in this many bits, so three of them pack into one long
+    private static final int CODE_BITS = 21;
+
+    private static final int AGE_BAND_YEARS = 10;
+
+    private final Object writeLock = new Object();
+
+    private final Map<Long, Integer> rowsByRequestId = new HashMap<>();
+
+    private final int chunkRows;
+
+    private volatile Columns columns;
+
+    private volatile int size;
+
+    public CohortColumns(int initialCapacity, int chunkRows) {
+        this.columns = new Columns(Math.max(initialCapacity, 16));
+        this.chunkRows = chunkRows;
+    }
+
+    /**
+     * Adds the request, or replaces what is held about it when it is already there.
+     */
+    public void put(Long requestId, Integer age, Gender gender, Integer pinCode, RequestStatus status, LocalDate created,
+                    TestStatus result, DoctorSuggestion suggestion) {
+        synchronized (writeLock) {
+            Integer row = rowsByRequestId.get(requestId);
+            if (row == null) {
+                if (size == columns.capacity())
+                    columns = columns.grow();
+                row = size;
+            }
+
+            Columns current = columns;
+            current.age[row] = age == null ? -1 : age;
+            current.gender[row] = code(gender);
+            current.pinCode[row] = pinCode == null ? 0 : pinCode;
+            current.status[row] = code(status);
+            current.createdDay[row] = created == null ? -1 : (int) created.toEpochDay();
+            current.result[row] = code(result);
+            current.suggestion[row] = code(suggestion);
+
+            if (row == size) {
+                rowsByRequestId.put(requestId, row);
+                size = row + 1;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public CohortResult query(CohortQuery query, ForkJoinPool pool) {
+        Filter filter = new Filter(query);
+        if (filter.groupBy.length > MAX_GROUP_BY)
+            throw new AppException("Group by at most " + MAX_GROUP_BY + " dimensions");
+
+        long startedAt = System.currentTimeMillis();
+        int rows = size;
+        Partial total = pool.invoke(new ScanTask(columns, filter, 0, rows));
+
+        List<CohortGroup> groups = new ArrayList<>();
+        total.toSortedMap().forEach((key, counts) ->
+                groups.add(new CohortGroup(labels(filter.groupBy, key), counts[0], counts[1], counts[2])));
+        return new CohortResult(rows, total.matched, System.currentTimeMillis() - startedAt, groups);
+    }
+
+    private static byte code(Enum<?> value) {
+        return value == null ? 0 : (byte) (value.ordinal() + 1);
+    }
+
+    private static Map<CohortDimension, String> labels(CohortDimension[] groupBy, long key) {
+        Map<CohortDimension, String> labels = new EnumMap<>(CohortDimension.class);
+        for (int index = groupBy.length - 1; index >= 0; index--) {
+            int code = (int) (key & ((1L << CODE_BITS) - 1));
+            key >>>= CODE_BITS;
+            labels.put(groupBy[index], code == 0 ? null : label(groupBy[index], code));
+        }
+        return labels;
+    }
+
+    private static String label(CohortDimension dimension, int code) {
+        switch (dimension) {
+            case AGE_BAND:
+                int from = (code - 1) * AGE_BAND_YEARS;
+                return from + "-" + (from + AGE_BAND_YEARS - 1);
+            case GENDER:
+                return Gender.values()[code - 1].name();
+            case PIN_CODE:
+                return String.valueOf(code);
+            case STATUS:
+                return RequestStatus.values()[code - 1].name();
+            case RESULT:
+                return TestStatus.values()[code - 1].name();
+            case SUGGESTION:
+                return DoctorSuggestion.values()[code - 1].name();
+            default:
+                return LocalDate.ofEpochDay(code - 1).toString();
+        }
+    }
+
+    private static class Columns {
+        private final int[] age;
+        private final byte[] gender;
+        private final int[] pinCode;
+        private final byte[] status;
+        private final int[] createdDay;
+        private final byte[] result;
+        private final byte[] suggestion;
+
+        private Columns(int capacity) {
+            this(new int[capacity], new byte[capacity], new int[capacity], new byte[capacity], new int[capacity],
+                    new byte[capacity], new byte[capacity]);
+        }
+
+        private Columns(int[] age, byte[] gender, int[] pinCode, byte[] status, int[] createdDay, byte[] result, byte[] suggestion) {
+            this.age = age;
+            this.gender = gender;
+            this.pinCode = pinCode;
+            this.status = status;
+            this.createdDay = createdDay;
+            this.result = result;
+            this.suggestion = suggestion;
+        }
+
+        private int capacity() {
+            return age.length;
+        }
+
+        private Columns grow() {
+            int capacity = capacity() * 2;
+            return new Columns(Arrays.copyOf(age, capacity), Arrays.copyOf(gender, capacity), Arrays.copyOf(pinCode, capacity),
+                    Arrays.copyOf(status, capacity), Arrays.copyOf(createdDay, capacity), Arrays.copyOf(result, capacity),
+                    Arrays.copyOf(suggestion, capacity));
+        }
+    }
+
+    /**
+     * The query compiled against the codes in the columns: allowed codes per enum column, sorted pin codes for a
+     * binary search, and day numbers for the date range.
+     */
+    private static class Filter {
+        private final int minAge;
+        private final int maxAge;
+        private final boolean[] genders;
+        private final int[] pinCodes;
+        private final boolean[] statuses;
+        private final boolean[] results;
+        private final boolean[] suggestions;
+        private final int createdFrom;
+        private final int createdTo;
+        private final CohortDimension[] groupBy;
+
+        private Filter(CohortQuery query) {
+            minAge = query.getMinAge() == null ? Integer.MIN_VALUE : query.getMinAge();
+            maxAge = query.getMaxAge() == null ? Integer.MAX_VALUE : query.getMaxAge();
+            genders = allowed(query.getGenders(), Gender.values().length);
+            pinCodes = query.getPinCodes() == null || query.getPinCodes().isEmpty()
+                    ? null
+                    : query.getPinCodes().stream().mapToInt(Integer::intValue).sorted().toArray();
+            statuses = allowed(query.getStatuses(), RequestStatus.values().length);
+            results = allowed(query.getResults(), TestStatus.values().length);
+            suggestions = allowed(query.getSuggestions(), DoctorSuggestion.values().length);
+            createdFrom = query.getCreatedFrom() == null ? Integer.MIN_VALUE : (int) query.getCreatedFrom().toEpochDay();
+            createdTo = query.getCreatedTo() == null ? Integer.MAX_VALUE : (int) query.getCreatedTo().toEpochDay();
+            groupBy = query.getGroupBy() == null
+                    ? new CohortDimension[0]
+                    : query.getGroupBy().toArray(new CohortDimension[0]);
+        }
+
+        private static boolean[] allowed(Collection<? extends Enum<?>> values, int count) {
+            if (values == null || values.isEmpty())
+                return null;
+
+            boolean[] allowed = new boolean[count + 1];
+            for (Enum<?> value : values)
+                allowed[code(value)] = true;
+            return allowed;
+        }
+
+        private boolean matches(Columns columns, int row) {
+            int age = columns.age[row];
+            if ((minAge != Integer.MIN_VALUE || maxAge != Integer.MAX_VALUE) && (age < 0 || age < minAge || age > maxAge))
+                return false;
+            if (genders != null && genders[columns.gender[row]] == false)
+                return false;
+            if (pinCodes != null && Arrays.binarySearch(pinCodes, columns.pinCode[row]) < 0)
+                return false;
+            if (statuses != null && statuses[columns.status[row]] == false)
+                return false;
+            if (results != null && results[columns.result[row]] == false)
+                return false;
+            if (suggestions != null && suggestions[columns.suggestion[row]] == false)
+                return false;
+
+            int createdDay = columns.createdDay[row];
+            return (createdFrom == Integer.MIN_VALUE && createdTo == Integer.MAX_VALUE)
+                    || (createdDay >= 0 && createdDay >= createdFrom && createdDay <= createdTo);
+        }
+
+        private long groupKey(Columns columns, int row) {
+            long key = 0;
+            for (CohortDimension dimension : groupBy)
+                key = (key << CODE_BITS) | codeOf(dimension, columns, row);
+            return key;
+        }
+
+        private static int codeOf(CohortDimension dimension, Columns columns, int row) {
+            switch (dimension) {
+                case AGE_BAND:
+                    int age = columns.age[row];
+                    return age < 0 ? 0 : age / AGE_BAND_YEARS + 1;
+                case GENDER:
+                    return columns.gender[row];
+                case PIN_CODE:
+                    return columns.pinCode[row];
+                case STATUS:
+                    return columns.status[row];
+                case RESULT:
+                    return columns.result[row];
+                case SUGGESTION:
+                    return columns.suggestion[row];
+                default:
+                    int createdDay = columns.createdDay[row];
+                    return createdDay < 0 ? 0 : createdDay + 1;
+            }
+        }
+    }
+
+    /**
+     * Counts per group key of one range of rows: matching requests, those with a result and those positive.
+     * Keys and counts live in primitive arrays probed linearly, so counting a row allocates nothing.
+     */
+    private static class Partial {
+        private static final int COUNTS = 3;
+
+        private long[] keys = new long[16];
+        private long[] counts = new long[16 * COUNTS];
+        private boolean[] used = new boolean[16];
+        private int groups;
+        private long matched;
+
+        private int slotOf(long key) {
+            int mask = keys.length - 1;
+            long hash = key * 0x9E3779B97F4A7C15L;
+            int slot = (int) (hash ^ (hash >>> 32)) & mask;
+            while (used[slot] && keys[slot] != key)
+                slot = (slot + 1) & mask;
+
+            if (used[slot] == false) {
+                if ((groups + 1) * 2 > keys.length) {
+                    resize();
+                    return slotOf(key);
+                }
+                used[slot] = true;
+                keys[slot] = key;
+                groups++;
+            }
+            return slot;
+        }
+
+        private void add(long key, long count, long tested, long positive) {
+            int offset = slotOf(key) * COUNTS;
+            counts[offset] += count;
+            counts[offset + 1] += tested;
+            counts[offset + 2] += positive;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            long[] oldCounts = counts;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            counts = new long[keys.length * COUNTS];
+            used = new boolean[keys.length];
+            groups = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++)
+                if (oldUsed[slot])
+                    add(oldKeys[slot], oldCounts[slot * COUNTS], oldCounts[slot * COUNTS + 1], oldCounts[slot * COUNTS + 2]);
+        }
+
+        private Partial merge(Partial other) {
+            matched += other.matched;
+            for (int slot = 0; slot < other.keys.length; slot++)
+                if (other.used[slot])
+                    add(other.keys[slot], other.counts[slot * COUNTS], other.counts[slot * COUNTS + 1], other.counts[slot * COUNTS + 2]);
+            return this;
+        }
+
+        private Map<Long, long[]> toSortedMap() {
+            Map<Long, long[]> sorted = new TreeMap<>();
+            for (int slot = 0; slot < keys.length; slot++)
+                if (used[slot])
+                    sorted.put(keys[slot], Arrays.copyOfRange(counts, slot * COUNTS, slot * COUNTS + COUNTS));
+            return sorted;
+        }
+    }
+
+    private class ScanTask extends RecursiveTask<Partial> {
+
+        private final Columns columns;
+        private final Filter filter;
+        private final int from;
+        private final int to;
+
+        private ScanTask(Columns columns, Filter filter, int from, int to) {
+            this.columns = columns;
+            this.filter = filter;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > chunkRows) {
+                int middle = (from + to) >>> 1;
+                ScanTask left = new ScanTask(columns, filter, from, middle);
+                left.fork();
+                Partial right = new ScanTask(columns, filter, middle, to).compute();
+                return left.join().merge(right);
+            }
+
+            Partial partial = new Partial();
+            int positiveCode = code(TestStatus.POSITIVE);
+            for (int row = from; row < to; row++) {
+                if (filter.matches(columns, row) == false)
+                    continue;
+
+                partial.matched++;
+                int result = columns.result[row];
+                partial.add(filter.groupKey(columns, row), 1, result != 0 ? 1 : 0, result == positiveCode ? 1 : 0);
+            }
+            return partial;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package org.upgrad.upstac.testrequests.analytics;
+
+public enum CohortDimension {
+
+    AGE_BAND, GENDER, PIN_CODE, STATUS, RESULT, SUGGESTION, CREATED_ON
+}
@@ -0,0 +1,19 @@
+package org.upgrad.upstac.testrequests.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class CohortGroup {
+
+    private Map<CohortDimension, String> key;
+
+    private long count;
+
+    private long tested;
+
+    private long positive;
+}
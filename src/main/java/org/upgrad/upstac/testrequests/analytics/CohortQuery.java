@@ -0,0 +1,39 @@
+package org.upgrad.upstac.testrequests.analytics;
+
+import lombok.Data;
+import org.upgrad.upstac.testrequests.RequestStatus;
+import org.upgrad.upstac.testrequests.consultation.DoctorSuggestion;
+import org.upgrad.upstac.testrequests.lab.TestStatus;
+import org.upgrad.upstac.users.models.Gender;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A slice of requests to count. Filters left empty match every request; the others must all match.
+ */
+@Data
+public class CohortQuery {
+
+    private Integer minAge;
+
+    private Integer maxAge;
+
+    private Set<Gender> genders;
+
+    private Set<Integer> pinCodes;
+
+    private Set<RequestStatus> statuses;
+
+    private Set<TestStatus> results;
+
+    private Set<DoctorSuggestion> suggestions;
+
+    private LocalDate createdFrom;
+
+    private LocalDate createdTo;
+
+    private List<CohortDimension> groupBy = new ArrayList<>();
+}
@@ -0,0 +1,19 @@
+package org.upgrad.upstac.testrequests.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class CohortResult {
+
+    private long scanned;
+
+    private long matched;
+
+    private long tookMillis;
+
+    private List<CohortGroup> groups;
+}
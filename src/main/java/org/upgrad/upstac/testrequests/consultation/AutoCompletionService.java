@@ -0,0 +1,163 @@
+package org.upgrad.upstac.testrequests.consultation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.upgrad.upstac.auth.register.RegisterRequest;
+import org.upgrad.upstac.testrequests.TestRequest;
+import org.upgrad.upstac.testrequests.lab.LabResult;
+import org.upgrad.upstac.testrequests.lab.TestStatus;
+import org.upgrad.upstac.users.User;
+import org.upgrad.upstac.users.UserRepository;
+import org.upgrad.upstac.users.UserService;
+import org.upgrad.upstac.users.models.AccountStatus;
+import org.upgrad.upstac.users.models.Gender;
+import org.upgrad.upstac.users.roles.RoleService;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Completes lab results that need no review, such as negatives with normal vitals, without a doctor.
+ *
+ * Every rule configured under app.auto-completion has to hold; vitals outside their range or missing fail it.
+ * Completed requests get a NO_ISSUES consultation signed by a system doctor account that cannot log in. That
+ * account is created on first use in a transaction of its own, so a rolled back lab result never takes it along,
+ * and is only kept once committed.
+ */
+@Service
+public class AutoCompletionService {
+
+    @Autowired
+    private ConsultationService consultationService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private RoleService roleService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.auto-completion.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.auto-completion.results:NEGATIVE}")
+    private TestStatus[] results;
+
+    @Value("${app.auto-completion.max-severity:0}")
+    private int maxSeverity;
+
+    @Value("${app.auto-completion.systolic:90,139}")
+    private double[] systolic;
+
+    @Value("${app.auto-completion.diastolic:60,89}")
+    private double[] diastolic;
+
+    @Value("${app.auto-completion.heart-rate:50,100}")
+    private double[] heartRate;
+
+    @Value("${app.auto-completion.temperature-celsius:36.0,37.9}")
+    private double[] temperatureCelsius;
+
+    @Value("${app.auto-completion.oxygen-saturation:95,100}")
+    private double[] oxygenSaturation;
+
+    @Value("${app.auto-completion.doctor-user-name:systemdoctor}")
+    private String doctorUserName;
+
+    private final Map<String, Predicate<LabResult>> rules = new LinkedHashMap<>();
+
+    private volatile User systemDoctor;
+
+    private TransactionTemplate separateTransaction;
+
+    private static Logger logger = LoggerFactory.getLogger(AutoCompletionService.class);
+
+
+    @PostConstruct
+    void createSeparateTransaction() {
+        separateTransaction = new TransactionTemplate(transactionManager);
+        separateTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    void buildRules() {
+        rules.put("result", labResult -> Arrays.asList(results).contains(labResult.getResult()));
+        rules.put("severity", labResult -> labResult.getSeverity() != null && labResult.getSeverity() <= maxSeverity);
+        rules.put("systolic", labResult -> isWithin(labResult.getSystolic(), systolic));
+        rules.put("diastolic", labResult -> isWithin(labResult.getDiastolic(), diastolic));
+        rules.put("heart-rate", labResult -> isWithin(labResult.getHeartRate(), heartRate));
+        rules.put("temperature-celsius", labResult -> isWithin(labResult.getTemperatureCelsius(), temperatureCelsius));
+        rules.put("oxygen-saturation", labResult -> isWithin(labResult.getOxygenSaturation(), oxygenSaturation));
+
+        if (enabled)
+            logger.info("Auto-completion enabled for results " + Arrays.toString(results) + " with rules " + rules.keySet());
+    }
+
+    /**
+     * The first configured rule the lab result fails, or empty when it can be completed without review.
+     */
+    public Optional<String> findUnmetRule(LabResult labResult) {
+        return rules.entrySet().stream()
+                .filter(rule -> rule.getValue().test(labResult) == false)
+                .map(Map.Entry::getKey)
+                .findFirst();
+    }
+
+    public boolean canComplete(LabResult labResult) {
+        return enabled && findUnmetRule(labResult).isPresent() == false;
+    }
+
+    public User getSystemDoctor() {
+        if (systemDoctor == null) {
+            synchronized (this) {
+                if (systemDoctor == null)
+                    systemDoctor = separateTransaction.execute(status ->
+                            Optional.ofNullable(userRepository.findByUserName(doctorUserName)).orElseGet(this::createSystemDoctor));
+            }
+        }
+        return systemDoctor;
+    }
+
+    public Consultation complete(TestRequest testRequest) {
+        return consultationService.completeWithoutReview(testRequest, getSystemDoctor(),
+                "Auto-completed: " + testRequest.getLabResult().getResult() + " result with vitals in the normal range");
+    }
+
+    private User createSystemDoctor() {
+        RegisterRequest registerRequest = new RegisterRequest();
+        registerRequest.setUserName(doctorUserName);
+        registerRequest.setPassword(UUID.randomUUID().toString());
+        registerRequest.setFirstName("System");
+        registerRequest.setLastName("Doctor");
+        registerRequest.setEmail(doctorUserName + "@upgrad.com");
+        registerRequest.setPhoneNumber("0000000000");
+        registerRequest.setAddress("");
+        registerRequest.setPinCode(0);
+        registerRequest.setGender(Gender.OTHER);
+        registerRequest.setDateOfBirth("1970-01-01");
+
+        // Rejected accounts cannot log in and are not listed for approval
+        logger.info("Creating system doctor " + doctorUserName);
+        return userService.addUserWithRole(registerRequest, roleService.getForDoctor(), AccountStatus.REJECTED);
+    }
+
+    private static boolean isWithin(Number value, double[] range) {
+        return value != null && value.doubleValue() >= range[0] && value.doubleValue() <= range[1];
+    }
+}
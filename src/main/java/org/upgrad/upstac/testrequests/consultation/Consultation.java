@@ -4,6 +4,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.ToString;
 import org.upgrad.upstac.testrequests.TestRequest;
+import org.upgrad.upstac.testrequests.sync.ChangeVersionListener;
+import org.upgrad.upstac.testrequests.sync.ChangeVersioned;
 import org.upgrad.upstac.users.User;
 
 import javax.persistence.*;
@@ -11,7 +13,8 @@ import java.time.LocalDate;
 
 @Data
 @Entity
-public class Consultation {
+@EntityListeners(ChangeVersionListener.class)
+public class Consultation implements ChangeVersioned {
 
 
     @Id
@@ -33,6 +36,8 @@ public class Consultation {
     @ManyToOne
     User doctor;
 
+    private Long changeVersion;
+
 
 
 
@@ -3,21 +3,36 @@ package org.upgrad.upstac.testrequests.consultation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.upgrad.upstac.config.security.UserLoggedInService;
 import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.exception.ConflictException;
 import org.upgrad.upstac.testrequests.RequestStatus;
 import org.upgrad.upstac.testrequests.TestRequest;
 import org.upgrad.upstac.testrequests.TestRequestQueryService;
 import org.upgrad.upstac.testrequests.TestRequestUpdateService;
+import org.upgrad.upstac.testrequests.dispatch.DispatchService;
 import org.upgrad.upstac.testrequests.flow.TestRequestFlowService;
+import org.upgrad.upstac.testrequests.lease.ClaimLease;
+import org.upgrad.upstac.testrequests.lease.ClaimLeaseService;
+import org.upgrad.upstac.testrequests.queue.ClaimQueueService;
+import org.upgrad.upstac.testrequests.queue.WorkQueue;
+import org.upgrad.upstac.testrequests.queue.WorkQueueStreamService;
+import org.upgrad.upstac.testrequests.sync.ResourceVersionService;
+import org.upgrad.upstac.testrequests.sync.TestRequestChanges;
 import org.upgrad.upstac.users.User;
 
 import javax.validation.ConstraintViolationException;
 import java.util.List;
 
 import static org.upgrad.upstac.exception.UpgradResponseStatusException.asBadRequest;
+import static org.upgrad.upstac.exception.UpgradResponseStatusException.asConflict;
 import static org.upgrad.upstac.exception.UpgradResponseStatusException.asConstraintViolation;
 
 @RestController
@@ -38,17 +53,91 @@ public class ConsultationController {
     @Autowired
     private UserLoggedInService userLoggedInService;
 
+    @Autowired
+    private ResourceVersionService resourceVersionService;
+
+    @Autowired
+    private WorkQueueStreamService workQueueStreamService;
+
+    @Autowired
+    private ClaimQueueService claimQueueService;
+
+    @Autowired
+    private ClaimLeaseService claimLeaseService;
+
+    @Autowired
+    private DispatchService dispatchService;
+
     @GetMapping("/in-queue")
     @PreAuthorize("hasAnyRole('DOCTOR')")
-    public List<TestRequest> getForConsultations()  {
-        return testRequestQueryService.findBy(RequestStatus.LAB_TEST_COMPLETED);
+    public ResponseEntity<List<TestRequest>> getForConsultations(WebRequest webRequest)  {
+        return resourceVersionService.respondIfModified(webRequest, ResourceVersionService.queueOf(RequestStatus.LAB_TEST_COMPLETED),
+                () -> testRequestQueryService.findBy(RequestStatus.LAB_TEST_COMPLETED));
+    }
+
+    @GetMapping(value = "/in-queue", params = "limit")
+    @PreAuthorize("hasAnyRole('DOCTOR')")
+    public ResponseEntity<List<TestRequest>> getMostSevereForConsultations(@RequestParam int limit, WebRequest webRequest)  {
+        try {
+            return resourceVersionService.respondIfModified(webRequest, ResourceVersionService.queueOf(RequestStatus.LAB_TEST_COMPLETED),
+                    () -> testRequestQueryService.findMostSevereForConsultation(limit));
+        }catch (AppException e) {
+            throw asBadRequest(e.getMessage());
+        }
+    }
+
+    @GetMapping(value = "/in-queue/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('DOCTOR')")
+    public SseEmitter streamForConsultations()  {
+        return workQueueStreamService.subscribe(WorkQueue.CONSULTATION);
     }
 
     @GetMapping
     @PreAuthorize("hasAnyRole('DOCTOR')")
-    public List<TestRequest> getForDoctor()  {
+    public ResponseEntity<List<TestRequest>> getForDoctor(WebRequest webRequest)  {
+        User user = userLoggedInService.getLoggedInUser();
+        claimLeaseService.renewHeldBy(WorkQueue.CONSULTATION, user);
+        return resourceVersionService.respondIfModified(webRequest, ResourceVersionService.doctorListOf(user.getUserName()),
+                () -> testRequestQueryService.findByDoctor(user));
+    }
+
+    @GetMapping(params = "since")
+    @PreAuthorize("hasAnyRole('DOCTOR')")
+    public TestRequestChanges getChangesForDoctor(@RequestParam Long since)  {
+        User user = userLoggedInService.getLoggedInUser();
+        claimLeaseService.renewHeldBy(WorkQueue.CONSULTATION, user);
+        return testRequestQueryService.findChangesByDoctor(user, since);
+    }
+
+    @PreAuthorize("hasAnyRole('DOCTOR')")
+    @PutMapping("/claim-next")
+    public DeferredResult<ResponseEntity<TestRequest>> claimNextForConsultation() {
         User user = userLoggedInService.getLoggedInUser();
-        return testRequestQueryService.findByDoctor(user);
+        return claimQueueService.claimNext(WorkQueue.CONSULTATION, user);
+    }
+
+    @PreAuthorize("hasAnyRole('DOCTOR')")
+    @PutMapping("/dispatched/next")
+    public ResponseEntity<TestRequest> nextDispatched() {
+        try {
+            User user = userLoggedInService.getLoggedInUser();
+            return dispatchService.next(WorkQueue.CONSULTATION, user)
+                    .map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.noContent().build());
+        }catch (AppException e) {
+            throw asBadRequest(e.getMessage());
+        }
+    }
+
+    @PreAuthorize("hasAnyRole('DOCTOR')")
+    @PutMapping("/renew/{id}")
+    public ClaimLease renewClaim(@PathVariable Long id) {
+        try {
+            User user = userLoggedInService.getLoggedInUser();
+            return claimLeaseService.renew(id, WorkQueue.CONSULTATION, user);
+        }catch (AppException e) {
+            throw asBadRequest(e.getMessage());
+        }
     }
 
     @PreAuthorize("hasAnyRole('DOCTOR')")
@@ -67,10 +156,13 @@ public class ConsultationController {
     public TestRequest updateConsultation(@PathVariable Long id,@RequestBody CreateConsultationRequest createConsultationRequest) {
         try {
             User user = userLoggedInService.getLoggedInUser();
+            claimLeaseService.renewHeldBy(WorkQueue.CONSULTATION, user);
             return testRequestUpdateService.updateConsultation(id, createConsultationRequest, user);
             //return null; // replace this line of code with your implementation
         } catch (ConstraintViolationException e) {
             throw asConstraintViolation(e);
+        }catch (ConflictException e) {
+            throw asConflict(e.getMessage());
         }catch (AppException e) {
             throw asBadRequest(e.getMessage());
         }
@@ -1,6 +1,9 @@
 package org.upgrad.upstac.testrequests.consultation;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import org.upgrad.upstac.testrequests.TestRequest;
 import org.upgrad.upstac.users.User;
@@ -27,5 +30,15 @@ public interface ConsultationRepository extends JpaRepository<Consultation,Long>
 
     Optional<Consultation> findByDoctorAndRequest(User doctor,TestRequest testRequest);
 
+    @Query("select c.request from Consultation c where c.doctor = :doctor and (c.request.changeVersion > :version or c.changeVersion > :version)")
+    List<TestRequest> findRequestsByDoctorChangedSince(@Param("doctor") User doctor, @Param("version") Long version);
+
+    @Query("select max(c.changeVersion) from Consultation c")
+    Long findMaxChangeVersion();
+
+    @Modifying
+    @Query("update Consultation c set c.changeVersion = :version where c.changeVersion is null")
+    int stampMissingChangeVersions(@Param("version") Long version);
+
 
 }
@@ -3,6 +3,7 @@ package org.upgrad.upstac.testrequests.consultation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 import org.upgrad.upstac.testrequests.TestRequest;
@@ -10,6 +11,7 @@ import org.upgrad.upstac.users.User;
 
 import javax.transaction.Transactional;
 import java.time.LocalDate;
+import java.util.List;
 
 @Service
 @Validated
@@ -18,6 +20,9 @@ public class ConsultationService {
     @Autowired
     private ConsultationRepository consultationRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private static Logger logger = LoggerFactory.getLogger(ConsultationService.class);
 
     @Transactional
@@ -28,14 +33,50 @@ public class ConsultationService {
         return consultationRepository.save(consultation);
     }
 
+    // Consultation ids are not request ids, so the one created on assignment is looked up by its request
     public Consultation updateConsultation(TestRequest testRequest , CreateConsultationRequest createConsultationRequest, User doctor) {
-        Consultation consultation = new Consultation();
+        Consultation consultation = consultationRepository.findByRequest(testRequest).orElseGet(Consultation::new);
         consultation.setRequest(testRequest);
-        consultation.setId(testRequest.getRequestId());
         consultation.setDoctor(doctor);
         consultation.setSuggestion(createConsultationRequest.getSuggestion());
         consultation.setComments(createConsultationRequest.getComments());
         consultation.setUpdatedOn(LocalDate.now());
         return consultationRepository.save(consultation);
     }
+
+    public Consultation completeWithoutReview(TestRequest testRequest, User doctor, String comments) {
+        Consultation consultation = new Consultation();
+        consultation.setRequest(testRequest);
+        consultation.setDoctor(doctor);
+        consultation.setSuggestion(DoctorSuggestion.NO_ISSUES);
+        consultation.setComments(comments);
+        consultation.setUpdatedOn(LocalDate.now());
+        return consultationRepository.save(consultation);
+    }
+
+    /**
+     * Creates the empty consultations of many claimed requests in one JDBC batch.
+     */
+    public void assignForConsultations(List<Long> requestIds, User doctor, Long changeVersion) {
+        jdbcTemplate.batchUpdate("insert into consultation (request_request_id, doctor_id, change_version) values (?, ?, ?)",
+                requestIds, requestIds.size(), (statement, requestId) -> {
+                    statement.setLong(1, requestId);
+                    statement.setLong(2, doctor.getId());
+                    statement.setLong(3, changeVersion);
+                });
+    }
+
+    /**
+     * Deletes the consultations of the requests, leaving a tombstone stamped with the change version for each
+     * doctor so their next delta sync drops the requests.
+     */
+    public void deleteForRequests(List<Long> requestIds, Long changeVersion) {
+        jdbcTemplate.batchUpdate("insert into sync_tombstone (request_id, staff_id, change_version) select request_request_id, doctor_id, ? from consultation where request_request_id = ? and doctor_id is not null",
+                requestIds, requestIds.size(), (statement, requestId) -> {
+                    statement.setLong(1, changeVersion);
+                    statement.setLong(2, requestId);
+                });
+        jdbcTemplate.batchUpdate("delete from consultation where request_request_id = ?",
+                requestIds, requestIds.size(), (statement, requestId) -> statement.setLong(1, requestId));
+    }
 }
@@ -0,0 +1,128 @@
+package org.upgrad.upstac.testrequests.dispatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Decides who gets each request of a dispatch batch, from the in-flight counts of the staff on duty.
+ *
+ * Nobody is given more than maxInFlight requests at once. Least-loaded planning keeps staff ordered by their
+ * count; weighted round robin follows the smooth variant, where every pick adds each candidate's weight to its
+ * credit and takes the total back from the one picked, so a 3:1 split comes out as A A B A rather than A A A B.
+ * Not thread safe; the dispatcher plans one batch at a time per queue.
+ */
+public class DispatchPlanner {
+
+    private final DispatchStrategy strategy;
+
+    private final int maxInFlight;
+
+    private final Map<String, Staff> onDuty = new LinkedHashMap<>();
+
+    private final Map<String, Integer> inFlight = new HashMap<>();
+
+    private long picks;
+
+    public DispatchPlanner(DispatchStrategy strategy, int maxInFlight) {
+        if (maxInFlight < 1)
+            throw new IllegalArgumentException("Staff must be able to hold at least one request");
+
+        this.strategy = strategy;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public void join(String userName, int weight) {
+        onDuty.computeIfAbsent(userName, name -> new Staff(name)).weight = Math.max(1, weight);
+    }
+
+    public void leave(String userName) {
+        onDuty.remove(userName);
+    }
+
+    public boolean isOnDuty(String userName) {
+        return onDuty.containsKey(userName);
+    }
+
+    public void started(String userName) {
+        inFlight.merge(userName, 1, Integer::sum);
+    }
+
+    public void finished(String userName) {
+        inFlight.computeIfPresent(userName, (name, count) -> count > 1 ? count - 1 : null);
+    }
+
+    public int inFlight(String userName) {
+        return inFlight.getOrDefault(userName, 0);
+    }
+
+    /**
+     * Owners for up to the given number of requests, in order, counting each as started. Fewer are returned
+     * when everyone on duty is at maxInFlight.
+     */
+    public List<String> plan(int requests) {
+        List<String> owners = new ArrayList<>(requests);
+        if (strategy == DispatchStrategy.LEAST_LOADED)
+            planLeastLoaded(requests, owners);
+        else
+            planWeightedRoundRobin(requests, owners);
+        return owners;
+    }
+
+    private void planLeastLoaded(int requests, List<String> owners) {
+        PriorityQueue<Staff> byLoad = new PriorityQueue<>((left, right) -> {
+            int loads = Integer.compare(inFlight(left.userName), inFlight(right.userName));
+            return loads != 0 ? loads : Long.compare(left.lastPick, right.lastPick);
+        });
+        for (Staff staff : onDuty.values())
+            if (inFlight(staff.userName) < maxInFlight)
+                byLoad.add(staff);
+
+        while (owners.size() < requests && byLoad.isEmpty() == false) {
+            Staff staff = byLoad.poll();
+            pick(staff, owners);
+            if (inFlight(staff.userName) < maxInFlight)
+                byLoad.add(staff);
+        }
+    }
+
+    private void planWeightedRoundRobin(int requests, List<String> owners) {
+        while (owners.size() < requests) {
+            Staff best = null;
+            int totalWeight = 0;
+            for (Staff staff : onDuty.values()) {
+                if (inFlight(staff.userName) >= maxInFlight)
+                    continue;
+                staff.credit += staff.weight;
+                totalWeight += staff.weight;
+                if (best == null || staff.credit > best.credit)
+                    best = staff;
+            }
+            if (best == null)
+                return;
+
+            best.credit -= totalWeight;
+            pick(best, owners);
+        }
+    }
+
+    private void pick(Staff staff, List<String> owners) {
+        staff.lastPick = ++picks;
+        started(staff.userName);
+        owners.add(staff.userName);
+    }
+
+    private static class Staff {
+        private final String userName;
+        private int weight = 1;
+        private int credit;
+        private long lastPick;
+
+        private Staff(String userName) {
+            this.userName = userName;
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package org.upgrad.upstac.testrequests.dispatch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.testrequests.RequestStatus;
+import org.upgrad.upstac.testrequests.TestRequest;
+import org.upgrad.upstac.testrequests.TestRequestRepository;
+import org.upgrad.upstac.testrequests.TestRequestUpdateService;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.testrequests.queue.WorkQueue;
+import org.upgrad.upstac.users.User;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Pushes waiting requests to testers and doctors instead of having them race for the oldest one.
+ *
+ * Each queue keeps the ids of its waiting requests oldest first and the in-flight count of everyone working it.
+ * Staff go on duty by asking for their next request and off duty after app.dispatch.idle-timeout without asking.
+ * Every tick, and whenever someone on duty has nothing left, a batch is planned in memory by the configured
+ * {@link DispatchStrategy} and claimed with one set-based assignment per owner. Batches are only ever planned and
+ * claimed on the dispatcher thread, so the claims do not contend and a request thread asking for work waits at most
+ * app.dispatch.next-wait-ms for a batch it asked for, holding no lock; a request taken meanwhile through the pull
+ * endpoints is simply skipped. Assigned requests wait in their owner's mailbox until asked for, and go back to the
+ * queue with their claim lease if the owner never does.
+ */
+@Service
+public class DispatchService {
+
+    private static Logger logger = LoggerFactory.getLogger(DispatchService.class);
+
+    @Autowired
+    private TestRequestRepository testRequestRepository;
+
+    @Autowired
+    private TestRequestUpdateService testRequestUpdateService;
+
+    @Value("${app.dispatch.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.dispatch.strategy:LEAST_LOADED}")
+    private DispatchStrategy strategy;
+
+    @Value("${app.dispatch.max-in-flight:3}")
+    private int maxInFlight;
+
+    @Value("${app.dispatch.batch-size:100}")
+    private int batchSize;
+
+    // user name:weight pairs for weighted round robin, separated by commas; staff not listed weigh 1
+    @Value("${app.dispatch.weights:}")
+    private String weights;
+
+    @Value("${app.dispatch.idle-timeout:10m}")
+    private Duration idleTimeout;
+
+    @Value("${app.dispatch.tick-ms:1000}")
+    private long tickMillis;
+
+    @Value("${app.dispatch.next-wait-ms:2000}")
+    private long nextWaitMillis;
+
+    private final Map<WorkQueue, Desk> desks = new EnumMap<>(WorkQueue.class);
+
+    private final Map<String, Integer> staffWeights = new HashMap<>();
+
+    private ScheduledExecutorService ticker;
+
+
+    @PostConstruct
+    void start() {
+        if (enabled == false)
+            return;
+
+        for (String pair : weights.split(",")) {
+            String[] userNameAndWeight = pair.trim().split(":");
+            if (userNameAndWeight.length == 2)
+                staffWeights.put(userNameAndWeight[0].trim(), Integer.parseInt(userNameAndWeight[1].trim()));
+        }
+
+        for (WorkQueue workQueue : WorkQueue.values()) {
+            Desk desk = new Desk(workQueue, new DispatchPlanner(strategy, maxInFlight));
+            for (Object[] waiting : testRequestRepository.findRequestIdsAndPinCodesByStatus(workQueue.getWaitingStatus()))
+                desk.ready.add((Long) waiting[0]);
+
+            List<Object[]> claims = workQueue == WorkQueue.LAB_TEST
+                    ? testRequestRepository.findTesterClaimsByStatus(workQueue.getInProgressStatus())
+                    : testRequestRepository.findDoctorClaimsByStatus(workQueue.getInProgressStatus());
+            for (Object[] claim : claims)
+                desk.started((Long) claim[0], ((User) claim[2]).getUserName());
+
+            desks.put(workQueue, desk);
+            logger.info("Dispatching " + workQueue + " by " + strategy + " with " + desk.ready.size() + " requests waiting");
+        }
+
+        ticker = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("dispatch-ticker-"));
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (ticker != null)
+            ticker.shutdownNow();
+    }
+
+    /**
+     * The next request dispatched to the user, already claimed for them, or empty when there is none to give.
+     */
+    public Optional<TestRequest> next(WorkQueue workQueue, User staff) {
+        if (enabled == false)
+            throw new AppException("Dispatching is not enabled, claim requests instead");
+
+        Desk desk = desks.get(workQueue);
+        desk.checkIn(staff, staffWeights.getOrDefault(staff.getUserName(), 1));
+
+        Long requestId = desk.nextFor(staff.getUserName());
+        if (requestId == null && awaitDispatch(desk))
+            requestId = desk.nextFor(staff.getUserName());
+        if (requestId == null)
+            return Optional.empty();
+
+        return testRequestRepository.findAllWithResultsByRequestIdIn(Collections.singletonList(requestId)).stream().findFirst();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(TestRequestTransitionEvent event) {
+        for (Desk desk : desks.values())
+            desk.onTransition(event);
+    }
+
+    void tick() {
+        long idleSince = System.currentTimeMillis() - idleTimeout.toMillis();
+        for (Desk desk : desks.values()) {
+            try {
+                desk.dropIdle(idleSince);
+            } catch (RuntimeException e) {
+                logger.error("Unable to drop idle staff from " + desk.workQueue, e);
+            }
+            dispatch(desk);
+        }
+    }
+
+    /**
+     * Asks the dispatcher thread for a batch and waits for it, returning whether it ran in time. Requests asking
+     * while a batch is waiting to run share it rather than queueing one each.
+     */
+    private boolean awaitDispatch(Desk desk) {
+        Future<?> requested;
+        synchronized (desk.dispatchRequests) {
+            if (desk.requestedDispatch == null) {
+                desk.requestedDispatch = ticker.submit(() -> {
+                    synchronized (desk.dispatchRequests) {
+                        desk.requestedDispatch = null;
+                    }
+                    dispatch(desk);
+                });
+            }
+            requested = desk.requestedDispatch;
+        }
+
+        try {
+            requested.get(nextWaitMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Plans and claims a batch. Runs on the dispatcher thread only, so two batches are never claimed at once.
+     */
+    private void dispatch(Desk desk) {
+        Map<String, List<Long>> assignments;
+        try {
+            assignments = desk.plan(batchSize);
+        } catch (RuntimeException e) {
+            logger.error("Unable to dispatch " + desk.workQueue, e);
+            return;
+        }
+
+        for (Map.Entry<String, List<Long>> assignment : assignments.entrySet()) {
+            User staff = desk.userOf(assignment.getKey());
+            try {
+                List<TestRequest> claimed = testRequestUpdateService.assignAll(assignment.getValue(), desk.workQueue, staff);
+                desk.deliver(staff.getUserName(), claimed);
+            } catch (RuntimeException e) {
+                logger.error("Unable to assign " + assignment.getValue() + " to " + staff.getUserName(), e);
+                desk.requeue(assignment.getValue());
+            }
+        }
+    }
+
+    /**
+     * The dispatching state of one queue, guarded by its own monitor, so transitions keep being recorded while a
+     * batch is being claimed. The dispatch waiting to run for request threads has its own lock.
+     */
+    private static class Desk {
+
+        private final WorkQueue workQueue;
+
+        private final DispatchPlanner planner;
+
+        private final Object dispatchRequests = new Object();
+
+        private Future<?> requestedDispatch;
+
+        private final NavigableSet<Long> ready = new TreeSet<>();
+
+        private final Map<Long, String> owners = new HashMap<>();
+
+        private final Map<String, Deque<Long>> mailboxes = new HashMap<>();
+
+        private final Map<String, User> users = new HashMap<>();
+
+        private final Map<String, Long> lastSeen = new HashMap<>();
+
+        Desk(WorkQueue workQueue, DispatchPlanner planner) {
+            this.workQueue = workQueue;
+            this.planner = planner;
+        }
+
+        synchronized void checkIn(User staff, int weight) {
+            users.put(staff.getUserName(), staff);
+            lastSeen.put(staff.getUserName(), System.currentTimeMillis());
+            planner.join(staff.getUserName(), weight);
+        }
+
+        synchronized void dropIdle(long idleSince) {
+            for (Iterator<Map.Entry<String, Long>> seen = lastSeen.entrySet().iterator(); seen.hasNext(); ) {
+                Map.Entry<String, Long> entry = seen.next();
+                if (entry.getValue() < idleSince) {
+                    planner.leave(entry.getKey());
+                    seen.remove();
+                }
+            }
+        }
+
+        synchronized Long nextFor(String userName) {
+            Deque<Long> mailbox = mailboxes.get(userName);
+            return mailbox == null ? null : mailbox.pollFirst();
+        }
+
+        synchronized User userOf(String userName) {
+            return users.get(userName);
+        }
+
+        /**
+         * Takes the oldest waiting requests for their planned owners. Planned picks are not kept in the in-flight
+         * counts, which follow the claims once they are committed.
+         */
+        synchronized Map<String, List<Long>> plan(int batchSize) {
+            List<String> plannedOwners = planner.plan(Math.min(batchSize, ready.size()));
+
+            Map<String, List<Long>> assignments = new LinkedHashMap<>();
+            for (String owner : plannedOwners) {
+                planner.finished(owner);
+                assignments.computeIfAbsent(owner, name -> new ArrayList<>()).add(ready.pollFirst());
+            }
+            return assignments;
+        }
+
+        synchronized void deliver(String userName, List<TestRequest> claimed) {
+            Deque<Long> mailbox = mailboxes.computeIfAbsent(userName, name -> new ArrayDeque<>());
+            for (TestRequest testRequest : claimed)
+                if (userName.equals(owners.get(testRequest.getRequestId())))
+                    mailbox.addLast(testRequest.getRequestId());
+        }
+
+        synchronized void requeue(List<Long> requestIds) {
+            for (Long requestId : requestIds)
+                if (owners.containsKey(requestId) == false)
+                    ready.add(requestId);
+        }
+
+        synchronized void started(Long requestId, String userName) {
+            if (owners.putIfAbsent(requestId, userName) == null)
+                planner.started(userName);
+        }
+
+        synchronized void onTransition(TestRequestTransitionEvent event) {
+            Long requestId = event.getTestRequest().getRequestId();
+            RequestStatus from = event.getFromStatus();
+            RequestStatus to = event.getToStatus();
+
+            if (workQueue.isEnteredBy(from, to))
+                ready.add(requestId);
+            else if (workQueue.isClaimedBy(from, to))
+                ready.remove(requestId);
+
+            if (to == workQueue.getInProgressStatus() && from != to && event.getChangedBy() != null)
+                started(requestId, event.getChangedBy().getUserName());
+
+            if (from == workQueue.getInProgressStatus() && to != from) {
+                String owner = owners.remove(requestId);
+                if (owner != null) {
+                    planner.finished(owner);
+                    Deque<Long> mailbox = mailboxes.get(owner);
+                    if (mailbox != null)
+                        mailbox.remove(requestId);
+                }
+            }
+        }
+    }
+}
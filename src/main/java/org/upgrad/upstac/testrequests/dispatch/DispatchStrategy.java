@@ -0,0 +1,13 @@
+package org.upgrad.upstac.testrequests.dispatch;
+
+/**
+ * How the dispatcher picks the tester or doctor for the next request.
+ */
+public enum DispatchStrategy {
+
+    // Whoever has the fewest requests in progress, the one served longest ago on a tie
+    LEAST_LOADED,
+
+    // Shares in proportion to app.dispatch.weights, interleaved rather than in runs
+    WEIGHTED_ROUND_ROBIN
+}
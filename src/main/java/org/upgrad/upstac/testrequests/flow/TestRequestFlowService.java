@@ -1,6 +1,7 @@
 package org.upgrad.upstac.testrequests.flow;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 import org.upgrad.upstac.testrequests.TestRequest;
@@ -8,7 +9,11 @@ import org.upgrad.upstac.testrequests.RequestStatus;
 import org.upgrad.upstac.users.User;
 
 import javax.transaction.Transactional;
+import java.sql.Date;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 @Validated
@@ -17,6 +22,9 @@ public class TestRequestFlowService {
     @Autowired
     private TestRequestFlowRepository testRequestFlowRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
 
     @Transactional
     public void log(TestRequest testRequest, RequestStatus from, RequestStatus to, User changedBy) {
@@ -29,6 +37,36 @@ public class TestRequestFlowService {
     }
 
 
+    /**
+     * Logs the same transition for many requests in one JDBC batch.
+     */
+    public void logAll(List<Long> requestIds, RequestStatus from, RequestStatus to, User changedBy) {
+        Date happenedOn = Date.valueOf(LocalDate.now());
+        jdbcTemplate.batchUpdate("insert into test_request_flow (request_request_id, from_status, to_status, changed_by_id, happened_on) values (?, ?, ?, ?, ?)",
+                requestIds, requestIds.size(), (statement, requestId) -> {
+                    statement.setLong(1, requestId);
+                    statement.setInt(2, from.ordinal());
+                    statement.setInt(3, to.ordinal());
+                    statement.setLong(4, changedBy.getId());
+                    statement.setDate(5, happenedOn);
+                });
+    }
+
+    /**
+     * Logs each step of a path taken by one request in a single JDBC batch, e.g. INITIATED, LAB_TEST_IN_PROGRESS, LAB_TEST_COMPLETED.
+     */
+    public void logPath(Long requestId, User changedBy, RequestStatus... path) {
+        Date happenedOn = Date.valueOf(LocalDate.now());
+        List<Integer> steps = IntStream.range(1, path.length).boxed().collect(Collectors.toList());
+        jdbcTemplate.batchUpdate("insert into test_request_flow (request_request_id, from_status, to_status, changed_by_id, happened_on) values (?, ?, ?, ?, ?)",
+                steps, steps.size(), (statement, step) -> {
+                    statement.setLong(1, requestId);
+                    statement.setInt(2, path[step - 1].ordinal());
+                    statement.setInt(3, path[step].ordinal());
+                    statement.setLong(4, changedBy.getId());
+                    statement.setDate(5, happenedOn);
+                });
+    }
 
     public List<TestRequestFlow> findByRequest(TestRequest testRequest) {
 
@@ -0,0 +1,40 @@
+package org.upgrad.upstac.testrequests.flow;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.upgrad.upstac.testrequests.RequestStatus;
+import org.upgrad.upstac.testrequests.TestRequest;
+import org.upgrad.upstac.users.User;
+
+/**
+ * Published after a TestRequest has been created or moved to another status.
+ * fromStatus is null for a newly created request. releasedBy is the tester or doctor who held a request sent back
+ * to a queue, who is not always the one sending it back.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class TestRequestTransitionEvent {
+
+    @ToString.Exclude
+    private final TestRequest testRequest;
+
+    private final RequestStatus fromStatus;
+
+    private final RequestStatus toStatus;
+
+    @ToString.Exclude
+    private final User changedBy;
+
+    @ToString.Exclude
+    private final User releasedBy;
+
+    public TestRequestTransitionEvent(TestRequest testRequest, RequestStatus fromStatus, RequestStatus toStatus, User changedBy) {
+        this(testRequest, fromStatus, toStatus, changedBy, null);
+    }
+
+    public boolean isCreation() {
+        return fromStatus == null;
+    }
+}
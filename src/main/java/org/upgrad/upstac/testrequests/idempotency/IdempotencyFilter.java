@@ -0,0 +1,244 @@
+package org.upgrad.upstac.testrequests.idempotency;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Makes retried POST and PUT calls carrying an Idempotency-Key header safe to repeat.
+ *
+ * The first call with a key runs and, when it succeeds, its response is stored with its Location and ETag headers
+ * and a hash of the request body, taken as the controller streams it; later calls with the same key, user, method
+ * and path get that response back, marked Idempotent-Replayed, without reaching the controller, unless their body
+ * differs, which is answered 422. A duplicate arriving while the first call still runs waits for it, up to
+ * app.idempotency.wait-timeout. Failed calls are not stored, so a retry after a failure runs again. Runs after the security filters, so keys of
+ * different users never meet. Only the paths in app.idempotency.paths are covered, which must not be async.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    public static final String REPLAYED = "Idempotent-Replayed";
+
+    private static final String[] REPLAYED_HEADERS = {HttpHeaders.LOCATION, HttpHeaders.ETAG};
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Value("${app.idempotency.paths:/api/testrequests}")
+    private String[] paths;
+
+    @Value("${app.idempotency.wait-timeout:30s}")
+    private Duration waitTimeout;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        boolean writes = "POST".equals(request.getMethod()) || "PUT".equals(request.getMethod());
+        if (writes == false || request.getHeader(IDEMPOTENCY_KEY) == null)
+            return true;
+
+        String path = urlPathHelper.getPathWithinApplication(request);
+        return Arrays.stream(paths).noneMatch(pattern -> pathMatcher.match(pattern.trim(), path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        String key = scopedKey(request);
+        BodyHashingRequest hashingRequest = new BodyHashingRequest(request);
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+
+        while (true) {
+            Optional<CompletableFuture<StoredResponse>> earlier = idempotencyStore.begin(key);
+            if (earlier.isPresent() == false) {
+                execute(key, hashingRequest, response, chain);
+                return;
+            }
+
+            StoredResponse stored;
+            try {
+                stored = earlier.get().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                response.sendError(HttpStatus.CONFLICT.value(), "A request with this " + IDEMPOTENCY_KEY + " is still in progress");
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException(e);
+            } catch (ExecutionException e) {
+                throw new ServletException(e.getCause());
+            }
+
+            if (stored != null && stored.getBodyHash() != null && stored.getBodyHash().equals(hashingRequest.bodyHash()) == false) {
+                response.sendError(HttpStatus.UNPROCESSABLE_ENTITY.value(), "This " + IDEMPOTENCY_KEY + " was used with a different request body");
+                return;
+            }
+            if (stored != null) {
+                replay(stored, response);
+                return;
+            }
+            // The earlier call failed and released the key, so this one may run it
+        }
+    }
+
+    private void execute(String key, BodyHashingRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+        boolean stored = false;
+        try {
+            chain.doFilter(request, cachingResponse);
+
+            int status = cachingResponse.getStatus();
+            if (request.isAsyncStarted() == false && status >= 200 && status < 300) {
+                Map<String, String> headers = new LinkedHashMap<>();
+                for (String name : REPLAYED_HEADERS)
+                    if (cachingResponse.getHeader(name) != null)
+                        headers.put(name, cachingResponse.getHeader(name));
+
+                idempotencyStore.complete(key, new StoredResponse(status, cachingResponse.getContentType(),
+                        cachingResponse.getContentAsByteArray(), headers, request.bodyHash()));
+                stored = true;
+            }
+        } finally {
+            if (stored == false)
+                idempotencyStore.abandon(key);
+            cachingResponse.copyBodyToResponse();
+        }
+    }
+
+    private static void replay(StoredResponse stored, HttpServletResponse response) throws IOException {
+        response.setStatus(stored.getStatus());
+        if (stored.getContentType() != null)
+            response.setContentType(stored.getContentType());
+        stored.getHeaders().forEach(response::setHeader);
+        response.setHeader(REPLAYED, "true");
+        response.setContentLength(stored.getBody().length);
+        response.getOutputStream().write(stored.getBody());
+    }
+
+    private static String scopedKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String userName = authentication == null ? "" : authentication.getName();
+        return userName + " " + request.getMethod() + " " + request.getRequestURI() + " " + request.getHeader(IDEMPOTENCY_KEY);
+    }
+
+    /**
+     * Hashes the request body as it is read, so bodies streamed to the controller are never held in memory. The
+     * hash covers the whole body, reading whatever the controller left unread.
+     */
+    private static class BodyHashingRequest extends HttpServletRequestWrapper {
+
+        private final MessageDigest digest;
+
+        private ServletInputStream inputStream;
+
+        private BufferedReader reader;
+
+        private String bodyHash;
+
+        BodyHashingRequest(HttpServletRequest request) {
+            super(request);
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                ServletInputStream body = super.getInputStream();
+                inputStream = new ServletInputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        int value = body.read();
+                        if (value != -1)
+                            digest.update((byte) value);
+                        return value;
+                    }
+
+                    @Override
+                    public int read(byte[] buffer, int offset, int length) throws IOException {
+                        int read = body.read(buffer, offset, length);
+                        if (read > 0)
+                            digest.update(buffer, offset, read);
+                        return read;
+                    }
+
+                    @Override
+                    public boolean isFinished() {
+                        return body.isFinished();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return body.isReady();
+                    }
+
+                    @Override
+                    public void setReadListener(ReadListener readListener) {
+                        body.setReadListener(readListener);
+                    }
+                };
+            }
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            if (reader == null) {
+                String encoding = getCharacterEncoding();
+                Charset charset = encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+                reader = new BufferedReader(new InputStreamReader(getInputStream(), charset));
+            }
+            return reader;
+        }
+
+        String bodyHash() throws IOException {
+            if (bodyHash == null) {
+                ServletInputStream body = getInputStream();
+                byte[] buffer = new byte[8192];
+                while (body.read(buffer, 0, buffer.length) != -1) {
+                    // Only hashed
+                }
+                bodyHash = IdempotencyStore.hex(digest.digest());
+            }
+            return bodyHash;
+        }
+    }
+}
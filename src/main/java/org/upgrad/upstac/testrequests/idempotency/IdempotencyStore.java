@@ -0,0 +1,202 @@
+package org.upgrad.upstac.testrequests.idempotency;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Remembers the first response to each idempotency key for app.idempotency.ttl.
+ *
+ * A key is either in flight, while its first call runs, or completed. Callers arriving with an in-flight key get
+ * the pending response to wait on; when the first call fails the key is released and the pending response ends
+ * empty, so one of the waiters runs the call again. Completed responses are held in an LRU map of at most
+ * app.idempotency.max-entries, and also in the IdempotentResponse table when app.idempotency.persistent is on.
+ */
+@Service
+public class IdempotencyStore {
+
+    private static Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    @Autowired
+    private IdempotentResponseRepository idempotentResponseRepository;
+
+    @Value("${app.idempotency.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${app.idempotency.ttl:24h}")
+    private Duration ttl;
+
+    @Value("${app.idempotency.persistent:false}")
+    private boolean persistent;
+
+    private final Map<String, CompletableFuture<StoredResponse>> inFlight = new HashMap<>();
+
+    private final Map<String, Completed> completed = new LinkedHashMap<String, Completed>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Completed> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    private int completedSincePurge;
+
+    public IdempotencyStore() {
+    }
+
+    public IdempotencyStore(int maxEntries, Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Empty when the caller now holds the key and must complete or abandon it, otherwise the response of the
+     * call that holds or held it.
+     */
+    public Optional<CompletableFuture<StoredResponse>> begin(String key) {
+        synchronized (this) {
+            Optional<CompletableFuture<StoredResponse>> earlier = findEarlier(key);
+            if (earlier.isPresent() || persistent == false) {
+                if (earlier.isPresent() == false)
+                    inFlight.put(key, new CompletableFuture<>());
+                return earlier;
+            }
+        }
+
+        Optional<StoredResponse> stored = load(key);
+        synchronized (this) {
+            Optional<CompletableFuture<StoredResponse>> earlier = findEarlier(key);
+            if (earlier.isPresent())
+                return earlier;
+
+            if (stored.isPresent()) {
+                completed.put(key, new Completed(stored.get(), System.currentTimeMillis() + ttl.toMillis()));
+                return Optional.of(CompletableFuture.completedFuture(stored.get()));
+            }
+
+            inFlight.put(key, new CompletableFuture<>());
+            return Optional.empty();
+        }
+    }
+
+    public void complete(String key, StoredResponse response) {
+        CompletableFuture<StoredResponse> pending;
+        boolean purge;
+        synchronized (this) {
+            pending = inFlight.remove(key);
+            completed.put(key, new Completed(response, System.currentTimeMillis() + ttl.toMillis()));
+            purge = ++completedSincePurge >= maxEntries;
+            if (purge)
+                completedSincePurge = 0;
+        }
+        if (pending != null)
+            pending.complete(response);
+
+        if (persistent)
+            save(key, response, purge);
+    }
+
+    public void abandon(String key) {
+        CompletableFuture<StoredResponse> pending;
+        synchronized (this) {
+            pending = inFlight.remove(key);
+        }
+        if (pending != null)
+            pending.complete(null);
+    }
+
+    private Optional<CompletableFuture<StoredResponse>> findEarlier(String key) {
+        Completed done = completed.get(key);
+        if (done != null && done.expiresAt > System.currentTimeMillis())
+            return Optional.of(CompletableFuture.completedFuture(done.response));
+        if (done != null)
+            completed.remove(key);
+
+        return Optional.ofNullable(inFlight.get(key));
+    }
+
+    private Optional<StoredResponse> load(String key) {
+        LocalDateTime oldest = LocalDateTime.now().minus(ttl);
+        return idempotentResponseRepository.findById(hash(key))
+                .filter(row -> row.getCreatedOn().isAfter(oldest))
+                .map(row -> new StoredResponse(row.getStatus(), row.getContentType(), row.getBody(),
+                        headersFrom(row.getHeaders()), row.getBodyHash()));
+    }
+
+    private void save(String key, StoredResponse response, boolean purge) {
+        try {
+            IdempotentResponse row = new IdempotentResponse();
+            row.setKeyHash(hash(key));
+            row.setStatus(response.getStatus());
+            row.setContentType(response.getContentType());
+            row.setBody(response.getBody());
+            row.setHeaders(headersText(response.getHeaders()));
+            row.setBodyHash(response.getBodyHash());
+            row.setCreatedOn(LocalDateTime.now());
+            idempotentResponseRepository.save(row);
+
+            if (purge)
+                logger.info("Purged " + idempotentResponseRepository.deleteCreatedBefore(LocalDateTime.now().minus(ttl)) + " expired idempotent responses");
+        } catch (RuntimeException e) {
+            // The response is still replayed from memory, only not after a restart or on other instances
+            logger.error("Unable to store idempotent response", e);
+        }
+    }
+
+    private static String headersText(Map<String, String> headers) {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, String> header : headers.entrySet())
+            text.append(header.getKey()).append(": ").append(header.getValue()).append('\n');
+        return text.toString();
+    }
+
+    private static Map<String, String> headersFrom(String text) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (text == null)
+            return headers;
+
+        for (String line : text.split("\n")) {
+            int colon = line.indexOf(": ");
+            if (colon > 0)
+                headers.put(line.substring(0, colon), line.substring(colon + 2));
+        }
+        return headers;
+    }
+
+    private static String hash(String key) {
+        try {
+            return hex(MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String hex(byte[] digest) {
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest)
+            hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+
+    private static class Completed {
+        private final StoredResponse response;
+        private final long expiresAt;
+
+        private Completed(StoredResponse response, long expiresAt) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.upgrad.upstac.testrequests.idempotency;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A stored response kept in the database when app.idempotency.persistent is on, so replays survive restarts
+ * and reach every instance.
+ */
+@Data
+@Entity
+@Table(indexes = @Index(columnList = "createdOn"))
+public class IdempotentResponse {
+
+    // SHA-256 of the user, method, path and idempotency key
+    @Id
+    @Column(length = 64)
+    private String keyHash;
+
+    private Integer status;
+
+    private String contentType;
+
+    @Lob
+    private byte[] body;
+
+    // One "name: value" line per replayed header
+    @Column(length = 2000)
+    private String headers;
+
+    @Column(length = 64)
+    private String bodyHash;
+
+    private LocalDateTime createdOn;
+}
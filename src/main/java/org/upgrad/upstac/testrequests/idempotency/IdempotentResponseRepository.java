@@ -0,0 +1,18 @@
+package org.upgrad.upstac.testrequests.idempotency;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+
+
+public interface IdempotentResponseRepository extends JpaRepository<IdempotentResponse,String> {
+
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotentResponse r where r.createdOn < :before")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,27 @@
+package org.upgrad.upstac.testrequests.idempotency;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * The first successful response to an idempotency key, replayed to every retry with that key, and the hash of the
+ * request body it answered, which retries must repeat.
+ */
+@Data
+@AllArgsConstructor
+public class StoredResponse {
+
+    private int status;
+
+    private String contentType;
+
+    private byte[] body;
+
+    // Replayed headers such as Location and ETag, by name
+    private Map<String, String> headers;
+
+    // SHA-256 of the request body, in hex
+    private String bodyHash;
+}
@@ -0,0 +1,25 @@
+package org.upgrad.upstac.testrequests.lab;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.upgrad.upstac.testrequests.TestRequest;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchAssignOutcome {
+
+    private Long requestId;
+    private boolean assigned;
+    private String message;
+    private TestRequest testRequest;
+
+    public static BatchAssignOutcome assigned(TestRequest testRequest) {
+        return new BatchAssignOutcome(testRequest.getRequestId(), true, "Assigned", testRequest);
+    }
+
+    public static BatchAssignOutcome rejected(Long requestId, String message) {
+        return new BatchAssignOutcome(requestId, false, message, null);
+    }
+}
@@ -0,0 +1,20 @@
+package org.upgrad.upstac.testrequests.lab;
+
+import lombok.Data;
+
+import javax.validation.constraints.Positive;
+import java.util.List;
+
+/**
+ * Either the ids to claim, or a pin code and how many of its oldest waiting requests to claim.
+ */
+@Data
+public class BatchAssignRequest {
+
+    private List<Long> ids;
+
+    private Integer pinCode;
+
+    @Positive
+    private Integer count;
+}
@@ -3,21 +3,42 @@ package org.upgrad.upstac.testrequests.lab;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.upgrad.upstac.config.security.UserLoggedInService;
 import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.exception.ConflictException;
 import org.upgrad.upstac.testrequests.RequestStatus;
 import org.upgrad.upstac.testrequests.TestRequest;
 import org.upgrad.upstac.testrequests.TestRequestQueryService;
 import org.upgrad.upstac.testrequests.TestRequestUpdateService;
+import org.upgrad.upstac.testrequests.dispatch.DispatchService;
 import org.upgrad.upstac.testrequests.flow.TestRequestFlowService;
+import org.upgrad.upstac.testrequests.lease.ClaimLease;
+import org.upgrad.upstac.testrequests.lease.ClaimLeaseService;
+import org.upgrad.upstac.testrequests.queue.ClaimQueueService;
+import org.upgrad.upstac.testrequests.queue.WorkQueue;
+import org.upgrad.upstac.testrequests.queue.WorkQueueStreamService;
+import org.upgrad.upstac.testrequests.slot.CreateLabSlotRequest;
+import org.upgrad.upstac.testrequests.slot.LabSlot;
+import org.upgrad.upstac.testrequests.slot.LabSlotService;
+import org.upgrad.upstac.testrequests.sync.ResourceVersionService;
+import org.upgrad.upstac.testrequests.sync.TestRequestChanges;
 import org.upgrad.upstac.users.User;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.ConstraintViolationException;
+import java.io.IOException;
 import java.util.List;
 
 import static org.upgrad.upstac.exception.UpgradResponseStatusException.asBadRequest;
+import static org.upgrad.upstac.exception.UpgradResponseStatusException.asConflict;
 import static org.upgrad.upstac.exception.UpgradResponseStatusException.asConstraintViolation;
 
 @RestController
@@ -38,20 +59,99 @@ public class LabRequestController {
     @Autowired
     private UserLoggedInService userLoggedInService;
 
+    @Autowired
+    private ResourceVersionService resourceVersionService;
+
+    @Autowired
+    private WorkQueueStreamService workQueueStreamService;
+
+    @Autowired
+    private ClaimQueueService claimQueueService;
+
+    @Autowired
+    private ClaimLeaseService claimLeaseService;
+
+    @Autowired
+    private DispatchService dispatchService;
+
+    @Autowired
+    private LabResultUploadService labResultUploadService;
+
+    @Autowired
+    private LabSlotService labSlotService;
+
     @GetMapping("/to-be-tested")
     @PreAuthorize("hasAnyRole('TESTER')")
-    public List<TestRequest> getForTests()  {
-        return testRequestQueryService.findBy(RequestStatus.INITIATED);
+    public ResponseEntity<List<TestRequest>> getForTests(WebRequest webRequest)  {
+        return resourceVersionService.respondIfModified(webRequest, ResourceVersionService.queueOf(RequestStatus.INITIATED),
+                () -> testRequestQueryService.findBy(RequestStatus.INITIATED));
+    }
+
+    @GetMapping("/to-be-tested/nearby")
+    @PreAuthorize("hasAnyRole('TESTER')")
+    public List<TestRequest> getNearestForTests(@RequestParam(defaultValue = "50") int limit)  {
+        try {
+            return testRequestQueryService.findNearestForLabTest(userLoggedInService.getLoggedInUser(), limit);
+        }catch (AppException e) {
+            throw asBadRequest(e.getMessage());
+        }
+    }
+
+    @GetMapping(value = "/to-be-tested/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('TESTER')")
+    public SseEmitter streamForTests()  {
+        return workQueueStreamService.subscribe(WorkQueue.LAB_TEST);
     }
 
     @GetMapping
     @PreAuthorize("hasAnyRole('TESTER')")
-    public List<TestRequest> getForTester()  {
+    public ResponseEntity<List<TestRequest>> getForTester(WebRequest webRequest)  {
+        User user = userLoggedInService.getLoggedInUser();
+        claimLeaseService.renewHeldBy(WorkQueue.LAB_TEST, user);
+        return resourceVersionService.respondIfModified(webRequest, ResourceVersionService.testerListOf(user.getUserName()),
+                () -> testRequestQueryService.findByTester(user));
+    }
+
+    @GetMapping(params = "since")
+    @PreAuthorize("hasAnyRole('TESTER')")
+    public TestRequestChanges getChangesForTester(@RequestParam Long since)  {
         User user =  userLoggedInService.getLoggedInUser();
-        return testRequestQueryService.findByTester(user);
+        claimLeaseService.renewHeldBy(WorkQueue.LAB_TEST, user);
+        return testRequestQueryService.findChangesByTester(user, since);
     }
 
 
+    @PreAuthorize("hasAnyRole('TESTER')")
+    @PutMapping("/claim-next")
+    public DeferredResult<ResponseEntity<TestRequest>> claimNextForLabTest() {
+        User user = userLoggedInService.getLoggedInUser();
+        return claimQueueService.claimNext(WorkQueue.LAB_TEST, user);
+    }
+
+    @PreAuthorize("hasAnyRole('TESTER')")
+    @PutMapping("/dispatched/next")
+    public ResponseEntity<TestRequest> nextDispatched() {
+        try {
+            User user = userLoggedInService.getLoggedInUser();
+            return dispatchService.next(WorkQueue.LAB_TEST, user)
+                    .map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.noContent().build());
+        }catch (AppException e) {
+            throw asBadRequest(e.getMessage());
+        }
+    }
+
+    @PreAuthorize("hasAnyRole('TESTER')")
+    @PutMapping("/renew/{id}")
+    public ClaimLease renewClaim(@PathVariable Long id) {
+        try {
+            User user = userLoggedInService.getLoggedInUser();
+            return claimLeaseService.renew(id, WorkQueue.LAB_TEST, user);
+        }catch (AppException e) {
+            throw asBadRequest(e.getMessage());
+        }
+    }
+
     @PreAuthorize("hasAnyRole('TESTER')")
     @PutMapping("/assign/{id}")
     public TestRequest assignForLabTest(@PathVariable Long id) {
@@ -63,15 +163,74 @@ public class LabRequestController {
         }
     }
 
+    @PreAuthorize("hasAnyRole('TESTER')")
+    @PutMapping("/assign")
+    public List<BatchAssignOutcome> assignForLabTests(@RequestBody BatchAssignRequest batchAssignRequest) {
+        try {
+            User user = userLoggedInService.getLoggedInUser();
+            return testRequestUpdateService.assignForLabTests(batchAssignRequest, user);
+        } catch (ConstraintViolationException e) {
+            throw asConstraintViolation(e);
+        }catch (AppException e) {
+            throw asBadRequest(e.getMessage());
+        }
+    }
+
+    @PreAuthorize("hasAnyRole('TESTER')")
+    @PostMapping("/slots")
+    public LabSlot createSlot(@RequestBody CreateLabSlotRequest createLabSlotRequest) {
+        try {
+            User user = userLoggedInService.getLoggedInUser();
+            return labSlotService.createSlot(createLabSlotRequest, user);
+        } catch (ConstraintViolationException e) {
+            throw asConstraintViolation(e);
+        }catch (AppException e) {
+            throw asBadRequest(e.getMessage());
+        }
+    }
+
+    @PreAuthorize("hasAnyRole('TESTER')")
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public void uploadLabResults(@RequestParam("file") MultipartFile file, HttpServletResponse response) {
+        try {
+            User user = userLoggedInService.getLoggedInUser();
+            response.setContentType("text/csv");
+            response.setCharacterEncoding("UTF-8");
+            response.setHeader("Content-Disposition", "attachment; filename=\"lab-results.csv\"");
+            labResultUploadService.upload(file.getInputStream(), response.getWriter(), user);
+        }catch (AppException e) {
+            // Raised for the header only, before any answer is written; later failures end the result file instead
+            throw asBadRequest(e.getMessage());
+        }catch (IOException e) {
+            throw asBadRequest("Unable to read upload", e);
+        }
+    }
+
     @PreAuthorize("hasAnyRole('TESTER')")
     @PutMapping("/update/{id}")
     public TestRequest updateLabTest(@PathVariable Long id,@RequestBody CreateLabResult createLabResult) {
         try {
             User user = userLoggedInService.getLoggedInUser();
+            claimLeaseService.renewHeldBy(WorkQueue.LAB_TEST, user);
             return testRequestUpdateService.updateLabTest(id, createLabResult, user);
             // return null; // replace this line of code with your implementation
         } catch (ConstraintViolationException e) {
             throw asConstraintViolation(e);
+        }catch (ConflictException e) {
+            throw asConflict(e.getMessage());
+        }catch (AppException e) {
+            throw asBadRequest(e.getMessage());
+        }
+    }
+
+    @PreAuthorize("hasAnyRole('TESTER')")
+    @PutMapping("/submit/{id}")
+    public TestRequest submitLabTest(@PathVariable Long id,@RequestBody CreateLabResult createLabResult) {
+        try {
+            User user = userLoggedInService.getLoggedInUser();
+            return testRequestUpdateService.submitLabTest(id, createLabResult, user);
+        } catch (ConstraintViolationException e) {
+            throw asConstraintViolation(e);
         }catch (AppException e) {
             throw asBadRequest(e.getMessage());
         }
@@ -4,6 +4,9 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.ToString;
 import org.upgrad.upstac.testrequests.TestRequest;
+import org.upgrad.upstac.testrequests.pool.SamplePool;
+import org.upgrad.upstac.testrequests.sync.ChangeVersionListener;
+import org.upgrad.upstac.testrequests.sync.ChangeVersioned;
 import org.upgrad.upstac.users.User;
 
 import javax.persistence.*;
@@ -11,7 +14,15 @@ import java.time.LocalDate;
 
 @Data
 @Entity
-public class LabResult {
+@EntityListeners(ChangeVersionListener.class)
+@Table(indexes = {
+        @Index(columnList = "severity"),
+        @Index(columnList = "systolic"),
+        @Index(columnList = "heartRate"),
+        @Index(columnList = "temperatureCelsius"),
+        @Index(columnList = "oxygenSaturation")
+})
+public class LabResult implements ChangeVersioned {
 
 
     @Id
@@ -27,12 +38,30 @@ public class LabResult {
     private String heartBeat;
     private String temperature;
     private String oxygenLevel;
+
+    // Typed copies of the vitals above in mmHg, bpm, degrees Celsius and SpO2 percent, the text is kept as entered
+    private Integer systolic;
+    private Integer diastolic;
+    private Integer heartRate;
+    private Double temperatureCelsius;
+    private Double oxygenSaturation;
+
     private String comments;
     private TestStatus result;
     private LocalDate updatedOn;
 
+    // Computed from the vitals and result when they are stored, higher is more urgent
+    private Integer severity;
+
     @ManyToOne
     private User tester;
 
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JsonIgnore
+    @ToString.Exclude
+    private SamplePool pool;
+
+    private Long changeVersion;
+
 
 }
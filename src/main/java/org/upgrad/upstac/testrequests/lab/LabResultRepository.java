@@ -1,9 +1,17 @@
 package org.upgrad.upstac.testrequests.lab;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.upgrad.upstac.testrequests.RequestStatus;
 import org.upgrad.upstac.testrequests.TestRequest;
+import org.upgrad.upstac.testrequests.pool.SamplePool;
 import org.upgrad.upstac.users.User;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,5 +33,38 @@ public interface LabResultRepository extends JpaRepository<LabResult,Long> {
     Optional<LabResult> findByTesterAndRequest(User user,TestRequest testRequest);
     Optional<LabResult> findByRequest(TestRequest request);
 
+    @Query("select l.request from LabResult l where l.tester = :tester and (l.request.changeVersion > :version or l.changeVersion > :version)")
+    List<TestRequest> findRequestsByTesterChangedSince(@Param("tester") User tester, @Param("version") Long version);
+
+    @Query("select l.request.requestId from LabResult l where l.tester = :tester and l.request.requestId in :ids")
+    List<Long> findRequestIdsByTesterAndRequestIdIn(@Param("tester") User tester, @Param("ids") Collection<Long> ids);
+
+    @Query("select l.request.requestId, l.tester from LabResult l where l.request.requestId in :ids and l.tester is not null")
+    List<Object[]> findTestersByRequestIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select l.request.requestId from LabResult l where l.pool = :pool and l.request.status = :status")
+    List<Long> findRequestIdsByPoolAndStatus(@Param("pool") SamplePool pool, @Param("status") RequestStatus status);
+
+    @Query("select l.result, count(l) from LabResult l where l.updatedOn >= :since and l.result is not null and l.pool is null group by l.result")
+    List<Object[]> countIndividualResultsSince(@Param("since") LocalDate since);
+
+    @Query("select l.updatedOn, l.request.pinCode, count(l), sum(case when l.result = :positive then 1 else 0 end) from LabResult l"
+            + " where l.result is not null group by l.updatedOn, l.request.pinCode")
+    List<Object[]> countResultsByDayAndPinCode(@Param("positive") TestStatus positive);
+
+    @Query("select l.request.requestId, l.severity, l.bloodPressure, l.heartBeat, l.temperature, l.oxygenLevel, l.result from LabResult l where l.request.status = :status")
+    List<Object[]> findVitalsByRequestStatus(@Param("status") RequestStatus status);
+
+    @Query("select l.resultId, l.bloodPressure, l.heartBeat, l.temperature, l.oxygenLevel from LabResult l where l.resultId > :after and l.updatedOn is not null"
+            + " and l.systolic is null and l.heartRate is null and l.temperatureCelsius is null and l.oxygenSaturation is null order by l.resultId")
+    List<Object[]> findUntypedVitalsAfter(@Param("after") Long after, Pageable pageable);
+
+    @Query("select max(l.changeVersion) from LabResult l")
+    Long findMaxChangeVersion();
+
+    @Modifying
+    @Query("update LabResult l set l.changeVersion = :version where l.changeVersion is null")
+    int stampMissingChangeVersions(@Param("version") Long version);
+
 
 }
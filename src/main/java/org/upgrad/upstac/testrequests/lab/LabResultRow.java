@@ -0,0 +1,13 @@
+package org.upgrad.upstac.testrequests.lab;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class LabResultRow {
+
+    private long lineNumber;
+    private Long requestId;
+    private CreateLabResult createLabResult;
+}
@@ -3,13 +3,23 @@ package org.upgrad.upstac.testrequests.lab;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
+import org.upgrad.upstac.testrequests.RequestStatus;
 import org.upgrad.upstac.testrequests.TestRequest;
+import org.upgrad.upstac.testrequests.pool.SamplePool;
+import org.upgrad.upstac.testrequests.triage.SeverityScorer;
 import org.upgrad.upstac.users.User;
 
 import javax.transaction.Transactional;
+import java.sql.Date;
+import java.sql.Types;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 @Validated
@@ -18,6 +28,9 @@ public class LabResultService {
     @Autowired
     private LabResultRepository labResultRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private static Logger logger = LoggerFactory.getLogger(LabResultService.class);
 
     private LabResult createLabResult(User tester, TestRequest testRequest) {
@@ -36,17 +49,115 @@ public class LabResultService {
         return createLabResult(tester, testRequest);
     }
 
+    /**
+     * Creates the empty lab results of many claimed requests in one JDBC batch.
+     */
+    public void assignForLabTests(List<Long> requestIds, User tester, Long changeVersion) {
+        jdbcTemplate.batchUpdate("insert into lab_result (request_request_id, tester_id, change_version) values (?, ?, ?)",
+                requestIds, requestIds.size(), (statement, requestId) -> {
+                    statement.setLong(1, requestId);
+                    statement.setLong(2, tester.getId());
+                    statement.setLong(3, changeVersion);
+                });
+    }
+
+    public void assignToPool(List<Long> requestIds, SamplePool pool) {
+        jdbcTemplate.batchUpdate("update lab_result set pool_pool_id = ? where request_request_id = ?",
+                requestIds, requestIds.size(), (statement, requestId) -> {
+                    statement.setLong(1, pool.getPoolId());
+                    statement.setLong(2, requestId);
+                });
+    }
+
+    public List<Long> findRequestIdsInPool(SamplePool pool, RequestStatus status) {
+        return labResultRepository.findRequestIdsByPoolAndStatus(pool, status);
+    }
+
+    public Map<Long, User> findTestersOf(Collection<Long> requestIds) {
+        Map<Long, User> testers = new HashMap<>();
+        for (Object[] row : labResultRepository.findTestersByRequestIdIn(requestIds))
+            testers.put((Long) row[0], (User) row[1]);
+        return testers;
+    }
+
+    /**
+     * Deletes the lab results of the requests, leaving a tombstone stamped with the change version for each
+     * tester so their next delta sync drops the requests.
+     */
+    public void deleteForRequests(List<Long> requestIds, Long changeVersion) {
+        jdbcTemplate.batchUpdate("insert into sync_tombstone (request_id, staff_id, change_version) select request_request_id, tester_id, ? from lab_result where request_request_id = ? and tester_id is not null",
+                requestIds, requestIds.size(), (statement, requestId) -> {
+                    statement.setLong(1, changeVersion);
+                    statement.setLong(2, requestId);
+                });
+        jdbcTemplate.batchUpdate("delete from lab_result where request_request_id = ?",
+                requestIds, requestIds.size(), (statement, requestId) -> statement.setLong(1, requestId));
+    }
+
+    public List<Long> findRequestIdsAssignedTo(User tester, Collection<Long> requestIds) {
+        return labResultRepository.findRequestIdsByTesterAndRequestIdIn(tester, requestIds);
+    }
+
+    /**
+     * Writes the results of many requests onto their assigned lab results in one JDBC batch.
+     */
+    public void updateLabTests(List<Long> requestIds, Map<Long, CreateLabResult> results, Long changeVersion) {
+        Date updatedOn = Date.valueOf(LocalDate.now());
+        jdbcTemplate.batchUpdate("update lab_result set blood_pressure = ?, heart_beat = ?, temperature = ?, oxygen_level = ?, systolic = ?, diastolic = ?, heart_rate = ?, temperature_celsius = ?, oxygen_saturation = ?, comments = ?, result = ?, severity = ?, updated_on = ?, change_version = ? where request_request_id = ?",
+                requestIds, requestIds.size(), (statement, requestId) -> {
+                    CreateLabResult createLabResult = results.get(requestId);
+                    Vitals vitals = VitalsParser.parse(createLabResult);
+                    statement.setString(1, createLabResult.getBloodPressure());
+                    statement.setString(2, createLabResult.getHeartBeat());
+                    statement.setString(3, createLabResult.getTemperature());
+                    statement.setString(4, createLabResult.getOxygenLevel());
+                    statement.setObject(5, vitals.getSystolic(), Types.INTEGER);
+                    statement.setObject(6, vitals.getDiastolic(), Types.INTEGER);
+                    statement.setObject(7, vitals.getHeartRate(), Types.INTEGER);
+                    statement.setObject(8, vitals.getTemperatureCelsius(), Types.DOUBLE);
+                    statement.setObject(9, vitals.getOxygenSaturation(), Types.DOUBLE);
+                    statement.setString(10, createLabResult.getComments());
+                    statement.setInt(11, createLabResult.getResult().ordinal());
+                    statement.setInt(12, SeverityScorer.score(vitals, createLabResult.getResult()));
+                    statement.setDate(13, updatedOn);
+                    statement.setLong(14, changeVersion);
+                    statement.setLong(15, requestId);
+                });
+    }
+
+    /**
+     * Writes the results onto the lab result created when the request was assigned. Result ids are not request
+     * ids, so the row is looked up by its request.
+     */
     public LabResult updateLabTest(TestRequest testRequest, CreateLabResult createLabResult, User tester) {
-        LabResult labResult = new LabResult();
+        LabResult labResult = labResultRepository.findByRequest(testRequest).orElseGet(LabResult::new);
+        return saveLabTest(labResult, testRequest, createLabResult, tester);
+    }
+
+    /**
+     * Creates the lab result of a request tested without being assigned first, already holding the results.
+     */
+    public LabResult submitLabTest(TestRequest testRequest, CreateLabResult createLabResult, User tester) {
+        return saveLabTest(new LabResult(), testRequest, createLabResult, tester);
+    }
+
+    private LabResult saveLabTest(LabResult labResult, TestRequest testRequest, CreateLabResult createLabResult, User tester) {
+        Vitals vitals = VitalsParser.parse(createLabResult);
+
         labResult.setRequest(testRequest);
         labResult.setTester(tester);
-        labResult.setResultId(testRequest.getRequestId());
         labResult.setBloodPressure(createLabResult.getBloodPressure());
         labResult.setComments(createLabResult.getComments());
         labResult.setHeartBeat(createLabResult.getHeartBeat());
         labResult.setOxygenLevel(createLabResult.getOxygenLevel());
         labResult.setTemperature(createLabResult.getTemperature());
         labResult.setResult(createLabResult.getResult());
+        labResult.setSystolic(vitals.getSystolic());
+        labResult.setDiastolic(vitals.getDiastolic());
+        labResult.setHeartRate(vitals.getHeartRate());
+        labResult.setTemperatureCelsius(vitals.getTemperatureCelsius());
+        labResult.setOxygenSaturation(vitals.getOxygenSaturation());
+        labResult.setSeverity(SeverityScorer.score(vitals, createLabResult.getResult()));
         labResult.setUpdatedOn(LocalDate.now());
         return saveLabResult(labResult);
     }
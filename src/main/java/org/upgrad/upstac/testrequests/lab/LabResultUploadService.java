@@ -0,0 +1,199 @@
+package org.upgrad.upstac.testrequests.lab;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.shared.CsvParser;
+import org.upgrad.upstac.testrequests.TestRequestUpdateService;
+import org.upgrad.upstac.users.User;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Applies lab results uploaded as CSV, reading and answering one line at a time so the file is never held in memory.
+ *
+ * Lines are taken in chunks of app.lab-upload.batch-size, valid or not, so a file of mostly rejected lines is
+ * answered as it is read too. The valid rows of a chunk are applied in one transaction, and every line gets a
+ * line in the result file telling whether it was completed or why it was rejected.
+ *
+ * Only a missing or malformed header fails the upload with an error status. Once answers are streamed the status
+ * is sent, so the result file ends with a DONE line, or with a FAILED line telling which lines were not applied
+ * when reading stops part way; a result file without either was cut short.
+ */
+@Service
+public class LabResultUploadService {
+
+    private static final String[] REQUIRED_COLUMNS = {"requestId", "bloodPressure", "heartBeat", "temperature", "result"};
+
+    private static Logger logger = LoggerFactory.getLogger(LabResultUploadService.class);
+
+    @Autowired
+    private TestRequestUpdateService testRequestUpdateService;
+
+    @Autowired
+    private Validator validator;
+
+    @Value("${app.lab-upload.batch-size:500}")
+    private int batchSize;
+
+    public void upload(InputStream input, Writer output, User tester) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+        String header = reader.readLine();
+        if (header == null)
+            throw new AppException("Empty file");
+        Map<String, Integer> columns = CsvParser.indexHeader(header, REQUIRED_COLUMNS);
+
+        writeLine(output, "line", "requestId", "outcome", "message");
+
+        List<UploadLine> chunk = new ArrayList<>(batchSize);
+        Set<Long> chunkRequestIds = new HashSet<>();
+        long lineNumber = 1;
+        long answeredThrough = 1;
+        String line;
+
+        try {
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty())
+                    continue;
+
+                UploadLine uploadLine = parse(lineNumber, line, columns);
+                if (uploadLine.row != null && chunkRequestIds.add(uploadLine.row.getRequestId()) == false)
+                    uploadLine = UploadLine.rejected(lineNumber, uploadLine.row.getRequestId(), "Duplicate requestId in upload");
+                chunk.add(uploadLine);
+
+                if (chunk.size() == batchSize) {
+                    apply(chunk, output, tester);
+                    answeredThrough = lineNumber;
+                    chunk.clear();
+                    chunkRequestIds.clear();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Lab result upload stopped after line " + answeredThrough, e);
+            writeLine(output, "", "", "FAILED", "Upload stopped, lines after " + answeredThrough + " were not applied");
+            output.flush();
+            return;
+        }
+        apply(chunk, output, tester);
+        writeLine(output, "", "", "DONE", "");
+        output.flush();
+    }
+
+    private void apply(List<UploadLine> chunk, Writer output, User tester) throws IOException {
+        List<LabResultRow> rows = chunk.stream()
+                .filter(uploadLine -> uploadLine.row != null)
+                .map(uploadLine -> uploadLine.row)
+                .collect(Collectors.toList());
+
+        Set<Long> completed = Collections.emptySet();
+        String failure = "Invalid ID or State";
+        if (rows.isEmpty() == false) {
+            try {
+                completed = testRequestUpdateService.updateLabTests(rows, tester);
+            } catch (RuntimeException e) {
+                logger.error("Failed to apply lab results from lines " + rows.get(0).getLineNumber() + " to " + rows.get(rows.size() - 1).getLineNumber(), e);
+                failure = "Batch failed, retry this row";
+            }
+        }
+
+        for (UploadLine uploadLine : chunk) {
+            if (uploadLine.row == null)
+                writeLine(output, uploadLine.lineNumber, uploadLine.requestId, "REJECTED", uploadLine.message);
+            else if (completed.contains(uploadLine.requestId))
+                writeLine(output, uploadLine.lineNumber, uploadLine.requestId, "COMPLETED", "");
+            else
+                writeLine(output, uploadLine.lineNumber, uploadLine.requestId, "REJECTED", failure);
+        }
+        output.flush();
+    }
+
+    private UploadLine parse(long lineNumber, String line, Map<String, Integer> columns) {
+        Long requestId = null;
+        try {
+            List<String> fields = CsvParser.parseLine(line);
+            requestId = parseRequestId(CsvParser.field(fields, columns, "requestId"));
+
+            CreateLabResult createLabResult = new CreateLabResult();
+            createLabResult.setBloodPressure(CsvParser.field(fields, columns, "bloodPressure"));
+            createLabResult.setHeartBeat(CsvParser.field(fields, columns, "heartBeat"));
+            createLabResult.setTemperature(CsvParser.field(fields, columns, "temperature"));
+            createLabResult.setOxygenLevel(CsvParser.field(fields, columns, "oxygenLevel"));
+            createLabResult.setComments(CsvParser.field(fields, columns, "comments"));
+            createLabResult.setResult(parseResult(CsvParser.field(fields, columns, "result")));
+
+            Set<ConstraintViolation<CreateLabResult>> violations = validator.validate(createLabResult);
+            if (violations.isEmpty() == false)
+                return UploadLine.rejected(lineNumber, requestId, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+
+            VitalsParser.parse(createLabResult);
+            return new UploadLine(lineNumber, requestId, new LabResultRow(lineNumber, requestId, createLabResult), null);
+        } catch (AppException e) {
+            return UploadLine.rejected(lineNumber, requestId, e.getMessage());
+        }
+    }
+
+    private static Long parseRequestId(String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new AppException("Invalid requestId");
+        }
+    }
+
+    private static TestStatus parseResult(String value) {
+        if (value == null)
+            return null;
+        try {
+            return TestStatus.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new AppException("Invalid result, expected one of " + Arrays.toString(TestStatus.values()));
+        }
+    }
+
+    private static void writeLine(Writer output, Object... values) throws IOException {
+        output.write(CsvParser.formatLine(values));
+        output.write("\n");
+    }
+
+    private static class UploadLine {
+
+        private final long lineNumber;
+        private final Long requestId;
+        private final LabResultRow row;
+        private final String message;
+
+        UploadLine(long lineNumber, Long requestId, LabResultRow row, String message) {
+            this.lineNumber = lineNumber;
+            this.requestId = requestId;
+            this.row = row;
+            this.message = message;
+        }
+
+        static UploadLine rejected(long lineNumber, Long requestId, String message) {
+            return new UploadLine(lineNumber, requestId, null, message);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.upgrad.upstac.testrequests.lab;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Vital signs in fixed units: mmHg, beats per minute, degrees Celsius and SpO2 percent. Missing readings are null.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Vitals {
+
+    private Integer systolic;
+    private Integer diastolic;
+    private Integer heartRate;
+    private Double temperatureCelsius;
+    private Double oxygenSaturation;
+}
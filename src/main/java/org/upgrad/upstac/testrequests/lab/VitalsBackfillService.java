@@ -0,0 +1,60 @@
+package org.upgrad.upstac.testrequests.lab;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Fills the typed vitals columns of lab results stored before they existed, reading the text leniently.
+ * Rows are walked by id so unreadable ones are visited once and left empty.
+ */
+@Service
+public class VitalsBackfillService implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final int PAGE_SIZE = 500;
+
+    @Autowired
+    private LabResultRepository labResultRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static Logger logger = LoggerFactory.getLogger(VitalsBackfillService.class);
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        long after = 0;
+        int filled = 0;
+        List<Object[]> rows;
+        do {
+            rows = labResultRepository.findUntypedVitalsAfter(after, PageRequest.of(0, PAGE_SIZE));
+            if (rows.isEmpty())
+                break;
+
+            jdbcTemplate.batchUpdate("update lab_result set systolic = ?, diastolic = ?, heart_rate = ?, temperature_celsius = ?, oxygen_saturation = ? where result_id = ?",
+                    rows, rows.size(), (statement, row) -> {
+                        Vitals vitals = VitalsParser.parseLenient((String) row[1], (String) row[2], (String) row[3], (String) row[4]);
+                        statement.setObject(1, vitals.getSystolic(), Types.INTEGER);
+                        statement.setObject(2, vitals.getDiastolic(), Types.INTEGER);
+                        statement.setObject(3, vitals.getHeartRate(), Types.INTEGER);
+                        statement.setObject(4, vitals.getTemperatureCelsius(), Types.DOUBLE);
+                        statement.setObject(5, vitals.getOxygenSaturation(), Types.DOUBLE);
+                        statement.setLong(6, (Long) row[0]);
+                    });
+
+            filled += rows.size();
+            after = (Long) rows.get(rows.size() - 1)[0];
+        } while (rows.size() == PAGE_SIZE);
+
+        if (filled > 0)
+            logger.info("Typed vitals backfilled for " + filled + " lab results");
+    }
+}
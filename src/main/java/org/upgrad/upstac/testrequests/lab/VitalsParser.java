@@ -0,0 +1,116 @@
+package org.upgrad.upstac.testrequests.lab;
+
+import org.upgrad.upstac.exception.AppException;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the free text vitals of a lab result into {@link Vitals}.
+ *
+ * {@link #parse} is used at ingestion and rejects readings that are malformed or outside physiological ranges.
+ * {@link #parseLenient} is for rows stored before vitals were validated and keeps whatever numbers it can find.
+ */
+public class VitalsParser {
+
+    private static final Pattern BLOOD_PRESSURE = Pattern.compile("(\\d{2,3})\\s*/\\s*(\\d{2,3})\\s*(mm\\s*hg)?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern HEART_RATE = Pattern.compile("(\\d{1,3})\\s*(bpm|/min)?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern TEMPERATURE = Pattern.compile("(\\d{2,3}(\\.\\d+)?)\\s*°?\\s*([CF])?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern OXYGEN_SATURATION = Pattern.compile("(\\d{2,3}(\\.\\d+)?)\\s*%?");
+    private static final Pattern NUMBER = Pattern.compile("\\d+(\\.\\d+)?");
+
+    // Readings above any survivable body temperature in Celsius are taken as Fahrenheit
+    private static final double HIGHEST_CELSIUS = 45;
+
+    public static Vitals parse(CreateLabResult createLabResult) {
+        return parse(createLabResult.getBloodPressure(), createLabResult.getHeartBeat(),
+                createLabResult.getTemperature(), createLabResult.getOxygenLevel());
+    }
+
+    public static Vitals parse(String bloodPressure, String heartBeat, String temperature, String oxygenLevel) {
+        Vitals vitals = new Vitals();
+
+        if (isPresent(bloodPressure)) {
+            Matcher matcher = match(BLOOD_PRESSURE, bloodPressure, "bloodPressure must look like 120/80");
+            vitals.setSystolic(inRange(Integer.valueOf(matcher.group(1)), 50, 300, "systolic blood pressure"));
+            vitals.setDiastolic(inRange(Integer.valueOf(matcher.group(2)), 20, 200, "diastolic blood pressure"));
+            if (vitals.getDiastolic() >= vitals.getSystolic())
+                throw new AppException("diastolic blood pressure must be below systolic");
+        }
+
+        if (isPresent(heartBeat)) {
+            Matcher matcher = match(HEART_RATE, heartBeat, "heartBeat must be beats per minute");
+            vitals.setHeartRate(inRange(Integer.valueOf(matcher.group(1)), 20, 300, "heartBeat"));
+        }
+
+        if (isPresent(temperature)) {
+            Matcher matcher = match(TEMPERATURE, temperature, "temperature must be in C or F");
+            double value = Double.parseDouble(matcher.group(1));
+            boolean fahrenheit = matcher.group(3) == null ? value > HIGHEST_CELSIUS : matcher.group(3).equalsIgnoreCase("F");
+            vitals.setTemperatureCelsius(inRange(fahrenheit ? toCelsius(value) : value, 25.0, 45.0, "temperature"));
+        }
+
+        if (isPresent(oxygenLevel)) {
+            Matcher matcher = match(OXYGEN_SATURATION, oxygenLevel, "oxygenLevel must be a SpO2 percentage");
+            vitals.setOxygenSaturation(inRange(Double.valueOf(matcher.group(1)), 50.0, 100.0, "oxygenLevel"));
+        }
+
+        return vitals;
+    }
+
+    public static Vitals parseLenient(String bloodPressure, String heartBeat, String temperature, String oxygenLevel) {
+        Vitals vitals = new Vitals();
+
+        if (isPresent(bloodPressure)) {
+            Matcher matcher = BLOOD_PRESSURE.matcher(bloodPressure);
+            if (matcher.find()) {
+                vitals.setSystolic(Integer.valueOf(matcher.group(1)));
+                vitals.setDiastolic(Integer.valueOf(matcher.group(2)));
+            } else {
+                vitals.setSystolic(firstInteger(bloodPressure));
+            }
+        }
+
+        vitals.setHeartRate(firstInteger(heartBeat));
+
+        Double celsius = firstNumber(temperature);
+        if (celsius != null)
+            vitals.setTemperatureCelsius(celsius <= HIGHEST_CELSIUS ? celsius : toCelsius(celsius));
+
+        vitals.setOxygenSaturation(firstNumber(oxygenLevel));
+        return vitals;
+    }
+
+    private static Matcher match(Pattern pattern, String value, String message) {
+        Matcher matcher = pattern.matcher(value.trim());
+        if (matcher.matches() == false)
+            throw new AppException(message + ", was " + value);
+        return matcher;
+    }
+
+    private static <T extends Comparable<T>> T inRange(T value, T lowest, T highest, String name) {
+        if (value.compareTo(lowest) < 0 || value.compareTo(highest) > 0)
+            throw new AppException(name + " must be between " + lowest + " and " + highest + ", was " + value);
+        return value;
+    }
+
+    private static double toCelsius(double fahrenheit) {
+        return Math.round((fahrenheit - 32) * 5 / 9 * 10) / 10.0;
+    }
+
+    private static Double firstNumber(String value) {
+        if (value == null)
+            return null;
+        Matcher matcher = NUMBER.matcher(value);
+        return matcher.find() ? Double.valueOf(matcher.group()) : null;
+    }
+
+    private static Integer firstInteger(String value) {
+        Double number = firstNumber(value);
+        return number == null ? null : Integer.valueOf(number.intValue());
+    }
+
+    private static boolean isPresent(String value) {
+        return value != null && value.trim().isEmpty() == false;
+    }
+}
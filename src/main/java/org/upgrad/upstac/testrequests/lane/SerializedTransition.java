@@ -0,0 +1,18 @@
+package org.upgrad.upstac.testrequests.lane;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a transition of one request. With app.transitions.serialized on, calls for the same request id run one
+ * at a time on that request's lane, see {@link TransitionLaneAspect}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SerializedTransition {
+
+    // Position of the request id among the method's arguments
+    int idArgument() default 0;
+}
@@ -0,0 +1,74 @@
+package org.upgrad.upstac.testrequests.lane;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.upgrad.upstac.shared.StripedExecutor;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * Runs every {@link SerializedTransition} on a single-writer lane picked by a hash of its request id.
+ *
+ * Two transitions of the same request, such as a double assign or an update racing an assign, then run one after
+ * the other, the second seeing the committed outcome of the first, without row locks or optimistic retries;
+ * transitions of requests on different lanes still run in parallel. The aspect wraps the transaction of the
+ * transition, which therefore starts and commits on its lane. A transition made from within another, such as one
+ * made by a listener of its events, must fall on the same lane or it is rejected.
+ */
+@Aspect
+@Component
+// Ahead of the transaction advisor, which runs at the lowest precedence
+@Order(0)
+public class TransitionLaneAspect {
+
+    private static Logger logger = LoggerFactory.getLogger(TransitionLaneAspect.class);
+
+    @Value("${app.transitions.serialized:false}")
+    private boolean serialized;
+
+    @Value("${app.transitions.lanes:16}")
+    private int laneCount;
+
+    private StripedExecutor lanes;
+
+    @PostConstruct
+    void start() {
+        if (serialized) {
+            lanes = new StripedExecutor(laneCount, "transition-lane-");
+            logger.info("Transitions of the same request are serialized over " + laneCount + " lanes");
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (lanes != null)
+            lanes.shutdown();
+    }
+
+    @Around("@annotation(serializedTransition)")
+    public Object serialize(ProceedingJoinPoint joinPoint, SerializedTransition serializedTransition) throws Throwable {
+        Object requestId = joinPoint.getArgs()[serializedTransition.idArgument()];
+        if (lanes == null || requestId == null)
+            return joinPoint.proceed();
+
+        return lanes.execute(requestId, () -> proceed(joinPoint));
+    }
+
+    private static Object proceed(ProceedingJoinPoint joinPoint) throws Exception {
+        try {
+            return joinPoint.proceed();
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+}
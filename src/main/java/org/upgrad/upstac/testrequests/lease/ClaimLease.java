@@ -0,0 +1,16 @@
+package org.upgrad.upstac.testrequests.lease;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.upgrad.upstac.testrequests.RequestStatus;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class ClaimLease {
+
+    private Long requestId;
+    private RequestStatus status;
+    private LocalDateTime expiresOn;
+}
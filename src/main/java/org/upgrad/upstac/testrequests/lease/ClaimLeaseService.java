@@ -0,0 +1,207 @@
+package org.upgrad.upstac.testrequests.lease;
+
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.shared.TimingWheel;
+import org.upgrad.upstac.testrequests.TestRequestRepository;
+import org.upgrad.upstac.testrequests.TestRequestUpdateService;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.testrequests.queue.WorkQueue;
+import org.upgrad.upstac.users.User;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives every claimed request a lease that its tester or doctor renews while working on it, explicitly or by
+ * reading their list and writing results, which renews every lease they hold in that queue.
+ *
+ * Leases live in a {@link TimingWheel} keyed by request id; when one runs out the request goes back to the
+ * queue it was claimed from, so work abandoned mid-shift is picked up by someone else. Leases are rebuilt
+ * at startup from the in-progress requests, counting from when they were claimed.
+ */
+@Service
+public class ClaimLeaseService {
+
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 3;
+
+    @Autowired
+    private TestRequestRepository testRequestRepository;
+
+    @Autowired
+    private TestRequestUpdateService testRequestUpdateService;
+
+    @Value("${app.lease.duration:30m}")
+    private Duration leaseDuration;
+
+    @Value("${app.lease.tick-ms:1000}")
+    private long tickMillis;
+
+    // Written under this, together with the wheel holding their deadlines
+    private final Map<Long, Lease> leases = new HashMap<>();
+
+    // The same leases by queue and owner, so renewing someone's leases touches only theirs
+    private final Map<Holder, Set<Long>> held = new HashMap<>();
+
+    private TimingWheel<Long> timingWheel;
+
+    private ScheduledExecutorService ticker;
+
+    private static Logger logger = LoggerFactory.getLogger(ClaimLeaseService.class);
+
+
+    @PostConstruct
+    void start() {
+        timingWheel = new TimingWheel<>(tickMillis, WHEEL_SIZE, WHEEL_LEVELS, System.currentTimeMillis());
+
+        for (WorkQueue workQueue : WorkQueue.values()) {
+            List<Object[]> claims = workQueue == WorkQueue.LAB_TEST
+                    ? testRequestRepository.findTesterClaimsByStatus(workQueue.getInProgressStatus())
+                    : testRequestRepository.findDoctorClaimsByStatus(workQueue.getInProgressStatus());
+            for (Object[] claim : claims) {
+                LocalDateTime claimedOn = claim[1] == null ? LocalDateTime.now() : (LocalDateTime) claim[1];
+                lease((Long) claim[0], workQueue, (User) claim[2], claimedOn.plus(leaseDuration));
+            }
+        }
+        logger.info("Claim leases rebuilt for " + timingWheel.size() + " requests in progress");
+
+        ticker = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("claim-lease-ticker-"));
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(TestRequestTransitionEvent event) {
+        Long requestId = event.getTestRequest().getRequestId();
+        Optional<WorkQueue> claimedFrom = Arrays.stream(WorkQueue.values())
+                .filter(workQueue -> workQueue.getInProgressStatus() == event.getToStatus())
+                .findFirst();
+
+        if (claimedFrom.isPresent())
+            lease(requestId, claimedFrom.get(), event.getChangedBy(), LocalDateTime.now().plus(leaseDuration));
+        else
+            release(requestId);
+    }
+
+    /**
+     * Extends the lease of a request the user is working on by another lease duration.
+     */
+    public synchronized ClaimLease renew(Long requestId, WorkQueue workQueue, User user) {
+        Lease lease = leases.get(requestId);
+        if (lease == null || lease.workQueue != workQueue || Objects.equals(lease.owner.getId(), user.getId()) == false)
+            throw new AppException("No active claim on request " + requestId);
+
+        return lease(requestId, workQueue, user, LocalDateTime.now().plus(leaseDuration));
+    }
+
+    /**
+     * Extends every lease the user holds in the queue, when they show they are still working through it.
+     * Returns how many were extended.
+     */
+    public synchronized int renewHeldBy(WorkQueue workQueue, User user) {
+        List<Long> requestIds = new ArrayList<>(held.getOrDefault(new Holder(workQueue, user.getId()), Collections.emptySet()));
+        LocalDateTime expiresOn = LocalDateTime.now().plus(leaseDuration);
+        for (Long requestId : requestIds)
+            lease(requestId, workQueue, user, expiresOn);
+        return requestIds.size();
+    }
+
+    void tick() {
+        List<Map.Entry<Long, Lease>> expired = new ArrayList<>();
+        synchronized (this) {
+            for (Long requestId : timingWheel.advanceTo(System.currentTimeMillis())) {
+                Lease lease = leases.remove(requestId);
+                unindex(requestId, lease);
+                expired.add(new HashMap.SimpleEntry<>(requestId, lease));
+            }
+        }
+
+        for (Map.Entry<Long, Lease> entry : expired) {
+            Lease lease = entry.getValue();
+            try {
+                testRequestUpdateService.returnExpiredClaim(entry.getKey(), lease.workQueue, lease.owner)
+                        .ifPresent(testRequest -> logger.info("Lease on request " + testRequest.getRequestId() + " held by "
+                                + lease.owner.getUserName() + " expired, returned to " + testRequest.getStatus()));
+            } catch (RuntimeException e) {
+                logger.error("Unable to return expired claim on request " + entry.getKey(), e);
+            }
+        }
+    }
+
+    private synchronized ClaimLease lease(Long requestId, WorkQueue workQueue, User owner, LocalDateTime expiresOn) {
+        // A lease already past its end still runs out through the wheel, on the next tick
+        long expiresAt = Math.max(expiresOn.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), System.currentTimeMillis() + tickMillis);
+        timingWheel.schedule(requestId, expiresAt);
+        Lease lease = new Lease(workQueue, owner);
+        unindex(requestId, leases.put(requestId, lease));
+        held.computeIfAbsent(lease.holder(), holder -> new HashSet<>()).add(requestId);
+        return new ClaimLease(requestId, workQueue.getInProgressStatus(), expiresOn);
+    }
+
+    private synchronized void release(Long requestId) {
+        Lease lease = leases.remove(requestId);
+        if (lease != null) {
+            timingWheel.cancel(requestId);
+            unindex(requestId, lease);
+        }
+    }
+
+    private void unindex(Long requestId, Lease lease) {
+        if (lease == null)
+            return;
+
+        Set<Long> requestIds = held.get(lease.holder());
+        if (requestIds != null && requestIds.remove(requestId) && requestIds.isEmpty())
+            held.remove(lease.holder());
+    }
+
+    private static class Lease {
+        private final WorkQueue workQueue;
+        private final User owner;
+
+        private Lease(WorkQueue workQueue, User owner) {
+            this.workQueue = workQueue;
+            this.owner = owner;
+        }
+
+        private Holder holder() {
+            return new Holder(workQueue, owner == null ? null : owner.getId());
+        }
+    }
+
+    @Data
+    private static class Holder {
+
+        private final WorkQueue workQueue;
+
+        private final Long ownerId;
+    }
+}
@@ -0,0 +1,13 @@
+package org.upgrad.upstac.testrequests.notification;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.upgrad.upstac.testrequests.RequestStatus;
+
+@Data
+@AllArgsConstructor
+public class ResultNotification {
+
+    private Long requestId;
+    private RequestStatus status;
+}
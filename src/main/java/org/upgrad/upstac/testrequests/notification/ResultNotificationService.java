@@ -0,0 +1,65 @@
+package org.upgrad.upstac.testrequests.notification;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.upgrad.upstac.shared.SseSubscriptions;
+import org.upgrad.upstac.testrequests.RequestStatus;
+import org.upgrad.upstac.testrequests.TestRequest;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * Tells patients when their lab result or diagnosis is ready, so they can stop polling their history.
+ * Subscriptions are keyed by user name; an event only touches the subscribers of the request's owner.
+ *
+ * A result is announced once: a lab result when it is entered, unless the request was completed in the same
+ * transaction, in which case the completion announces both; a diagnosis when the request is completed. A claim
+ * running out, which sends a request back to LAB_TEST_COMPLETED, announces nothing.
+ */
+@Service
+public class ResultNotificationService {
+
+    private final SseSubscriptions<String> subscriptions;
+
+    public ResultNotificationService(@Value("${app.sse.sender-threads:2}") int senderThreads,
+                                     @Value("${app.sse.buffer-size:64}") int bufferSize,
+                                     @Value("${app.sse.timeout-ms:1800000}") long timeoutMillis) {
+        this.subscriptions = new SseSubscriptions<>("result-notifications", senderThreads, bufferSize, timeoutMillis);
+    }
+
+    public SseEmitter subscribe(String userName) {
+        return subscriptions.subscribe(userName);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(TestRequestTransitionEvent event) {
+        TestRequest testRequest = event.getTestRequest();
+        if (isResultReady(event, testRequest) == false)
+            return;
+
+        subscriptions.publish(testRequest.getCreatedBy().getUserName(), "RESULT_READY",
+                new ResultNotification(testRequest.getRequestId(), event.getToStatus()));
+    }
+
+    private static boolean isResultReady(TestRequestTransitionEvent event, TestRequest testRequest) {
+        switch (event.getToStatus()) {
+            case LAB_TEST_COMPLETED:
+                // Listeners run after commit, so an auto-completed request already shows COMPLETED here
+                return event.getFromStatus() == RequestStatus.LAB_TEST_IN_PROGRESS
+                        && testRequest.getStatus() == RequestStatus.LAB_TEST_COMPLETED;
+            case COMPLETED:
+                return event.getFromStatus() == RequestStatus.DIAGNOSIS_IN_PROCESS
+                        || event.getFromStatus() == RequestStatus.LAB_TEST_COMPLETED;
+            default:
+                return false;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        subscriptions.shutdown();
+    }
+}
@@ -0,0 +1,35 @@
+package org.upgrad.upstac.testrequests.people;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.upgrad.upstac.exception.AppException;
+
+import java.time.LocalDate;
+
+import static org.upgrad.upstac.exception.UpgradResponseStatusException.asBadRequest;
+
+@RestController
+@RequestMapping("/api/government/people")
+public class DistinctPeopleController {
+
+    @Autowired
+    private DistinctPeopleService distinctPeopleService;
+
+    @GetMapping("/distinct")
+    @PreAuthorize("hasAnyRole('GOVERNMENT_AUTHORITY')")
+    public DistinctPeopleCount countDistinctPeople(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                   @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                   @RequestParam(required = false) Integer region,
+                                                   @RequestParam(required = false) Integer pinCode) {
+        try {
+            return distinctPeopleService.countDistinctPeople(from, to, region, pinCode);
+        } catch (AppException e) {
+            throw asBadRequest(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.upgrad.upstac.testrequests.people;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+public class DistinctPeopleCount {
+
+    private LocalDate fromWeek;
+
+    private LocalDate toWeek;
+
+    private long estimate;
+
+    private double relativeStandardError;
+}
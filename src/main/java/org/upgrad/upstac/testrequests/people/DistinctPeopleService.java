@@ -0,0 +1,272 @@
+package org.upgrad.upstac.testrequests.people;
+
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.shared.HyperLogLog;
+import org.upgrad.upstac.testrequests.TestRequest;
+import org.upgrad.upstac.testrequests.TestRequestRepository;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.testrequests.routing.PincodeRegions;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estimates how many different people raised requests, telling people apart by phone number or else by email, so
+ * someone retesting is counted once without a count distinct over the whole request history.
+ *
+ * Every new request is offered to the HyperLogLog sketch of its pin code and week, and to those of its region and
+ * of the whole country for that week, so a count merges one sketch per week whatever the number of pin codes it
+ * covers. The pin code sketches are saved every app.distinct.flush-ms when they change, merged under a row lock
+ * with the registers already saved, so instances sharing the table add up rather than overwrite each other, and
+ * with the highest request id offered so far. Request ids are taken when rows are inserted but offered when their
+ * transactions commit, so a lower id can still be on its way when a higher one is saved. At startup region and
+ * national sketches are rebuilt from the saved ones and the requests after app.distinct.replay-margin ids below the
+ * highest saved id are offered again, which offering twice leaves unchanged.
+ * Without saved sketches, or with sketches of another precision, all of them are rebuilt from the stored requests.
+ */
+@Service
+public class DistinctPeopleService {
+
+    private static final int PAGE_SIZE = 10000;
+
+    private static final int NATIONAL = 0;
+
+    private static Logger logger = LoggerFactory.getLogger(DistinctPeopleService.class);
+
+    @Autowired
+    private PersonSketchRepository personSketchRepository;
+
+    @Autowired
+    private TestRequestRepository testRequestRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.distinct.precision:11}")
+    private int precision;
+
+    @Value("${app.distinct.flush-ms:60000}")
+    private long flushMillis;
+
+    @Value("${app.distinct.replay-margin:10000}")
+    private long replayMargin;
+
+    private final WeeklySketches byPinCode = new WeeklySketches();
+
+    private final WeeklySketches byRegion = new WeeklySketches();
+
+    private final WeeklySketches national = new WeeklySketches();
+
+    private final Set<SketchKey> changed = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong highWater = new AtomicLong();
+
+    private ScheduledExecutorService ticker;
+
+    @PostConstruct
+    void start() {
+        List<PersonSketch> saved = personSketchRepository.findAll();
+        boolean samePrecision = saved.stream()
+                .allMatch(sketch -> HyperLogLog.fromBytes(sketch.getRegisters()).getPrecision() == precision);
+
+        if (saved.isEmpty() == false && samePrecision) {
+            long savedHighWater = 0;
+            for (PersonSketch sketch : saved) {
+                load(sketch.getPinCode(), sketch.getWeekStart(), HyperLogLog.fromBytes(sketch.getRegisters()));
+                if (sketch.getHighWaterRequestId() != null)
+                    savedHighWater = Math.max(savedHighWater, sketch.getHighWaterRequestId());
+            }
+            highWater.accumulateAndGet(savedHighWater, Math::max);
+            long replayAfter = Math.max(0, savedHighWater - replayMargin);
+            logger.info("Loaded " + saved.size() + " person sketches, replaying requests after " + replayAfter);
+            offerRequestsAfter(replayAfter);
+        } else {
+            offerRequestsAfter(0);
+        }
+        flush();
+
+        ticker = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("person-sketch-flusher-"));
+        ticker.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ticker.shutdownNow();
+        flush();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(TestRequestTransitionEvent event) {
+        if (event.getFromStatus() != null)
+            return;
+
+        TestRequest testRequest = event.getTestRequest();
+        offer(testRequest.getRequestId(), testRequest.getPinCode(), testRequest.getCreated(), testRequest.getPhoneNumber(), testRequest.getEmail());
+    }
+
+    /**
+     * People who raised requests in the weeks from the one holding from to the one holding to, at the pin code or
+     * in the region when given, or across the country.
+     */
+    public DistinctPeopleCount countDistinctPeople(LocalDate from, LocalDate to, Integer region, Integer pinCode) {
+        if (from.isAfter(to))
+            throw new AppException("Range starts after it ends");
+
+        LocalDate fromWeek = weekOf(from);
+        LocalDate toWeek = weekOf(to);
+
+        HyperLogLog union = new HyperLogLog(precision);
+        if (pinCode != null)
+            byPinCode.mergeInto(union, pinCode, fromWeek, toWeek);
+        else if (region != null)
+            byRegion.mergeInto(union, region, fromWeek, toWeek);
+        else
+            national.mergeInto(union, NATIONAL, fromWeek, toWeek);
+
+        return new DistinctPeopleCount(fromWeek, toWeek, union.estimate(), union.relativeStandardError());
+    }
+
+    void flush() {
+        List<SketchKey> toSave = new ArrayList<>(changed);
+        if (toSave.isEmpty())
+            return;
+
+        // Requests below it may still be committing, so restarts replay from a margin below it
+        long savedHighWater = highWater.get();
+        changed.removeAll(toSave);
+        try {
+            transactionTemplate.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                List<PersonSketch> sketches = new ArrayList<>();
+                for (SketchKey key : toSave) {
+                    PersonSketch sketch = personSketchRepository.findByPinCodeAndWeekStart(key.pinCode, key.weekStart)
+                            .orElseGet(PersonSketch::new);
+                    if (sketch.getRegisters() != null) {
+                        HyperLogLog stored = HyperLogLog.fromBytes(sketch.getRegisters());
+                        if (stored.getPrecision() == precision)
+                            load(key.pinCode, key.weekStart, stored);
+                    }
+
+                    sketch.setPinCode(key.pinCode);
+                    sketch.setWeekStart(key.weekStart);
+                    sketch.setRegisters(byPinCode.get(key.pinCode, key.weekStart).toBytes());
+                    sketch.setHighWaterRequestId(savedHighWater);
+                    sketch.setUpdatedOn(now);
+                    sketches.add(sketch);
+                }
+                return personSketchRepository.saveAll(sketches);
+            });
+        } catch (RuntimeException e) {
+            logger.error("Unable to save " + toSave.size() + " person sketches", e);
+            changed.addAll(toSave);
+        }
+    }
+
+    private void offerRequestsAfter(long after) {
+        int offered = 0;
+        List<Object[]> rows;
+        do {
+            rows = testRequestRepository.findPeopleAfter(after, PageRequest.of(0, PAGE_SIZE));
+            for (Object[] row : rows)
+                offer((Long) row[0], (Integer) row[1], (LocalDate) row[2], (String) row[3], (String) row[4]);
+
+            offered += rows.size();
+            if (rows.isEmpty() == false)
+                after = (Long) rows.get(rows.size() - 1)[0];
+        } while (rows.size() == PAGE_SIZE);
+
+        logger.info("Person sketches offered " + offered + " stored requests");
+    }
+
+    private void offer(Long requestId, Integer pinCode, LocalDate created, String phoneNumber, String email) {
+        String person = personOf(phoneNumber, email);
+        if (person != null && created != null) {
+            int pinCodeKey = pinCode == null ? 0 : pinCode;
+            LocalDate week = weekOf(created);
+            if (byPinCode.get(pinCodeKey, week).offer(person))
+                changed.add(new SketchKey(pinCodeKey, week));
+            byRegion.get(PincodeRegions.regionOf(pinCode), week).offer(person);
+            national.get(NATIONAL, week).offer(person);
+        }
+
+        // Raised once the request is in the registers, though lower ids may not be yet
+        if (requestId != null)
+            highWater.accumulateAndGet(requestId, Math::max);
+    }
+
+    private void load(Integer pinCode, LocalDate week, HyperLogLog sketch) {
+        int pinCodeKey = pinCode == null ? 0 : pinCode;
+        byPinCode.get(pinCodeKey, week).merge(sketch);
+        byRegion.get(PincodeRegions.regionOf(pinCode), week).merge(sketch);
+        national.get(NATIONAL, week).merge(sketch);
+    }
+
+    private static String personOf(String phoneNumber, String email) {
+        String digits = phoneNumber == null ? "" : phoneNumber.replaceAll("\\D", "");
+        if (digits.isEmpty() == false)
+            return "phone:" + digits;
+        if (email != null && email.trim().isEmpty() == false)
+            return "email:" + email.trim().toLowerCase();
+        return null;
+    }
+
+    private static LocalDate weekOf(LocalDate day) {
+        return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    /**
+     * Sketches by scope, a pin code or a region, and by the Monday starting their week.
+     */
+    private class WeeklySketches {
+
+        private final ConcurrentMap<Integer, ConcurrentNavigableMap<LocalDate, HyperLogLog>> sketches = new ConcurrentHashMap<>();
+
+        private HyperLogLog get(int scope, LocalDate week) {
+            return sketches.computeIfAbsent(scope, key -> new ConcurrentSkipListMap<>())
+                    .computeIfAbsent(week, key -> new HyperLogLog(precision));
+        }
+
+        private void mergeInto(HyperLogLog union, int scope, LocalDate fromWeek, LocalDate toWeek) {
+            ConcurrentNavigableMap<LocalDate, HyperLogLog> weeks = sketches.get(scope);
+            if (weeks == null)
+                return;
+
+            for (Map.Entry<LocalDate, HyperLogLog> week : weeks.subMap(fromWeek, true, toWeek, true).entrySet())
+                union.merge(week.getValue());
+        }
+    }
+
+    @Data
+    private static class SketchKey {
+
+        private final int pinCode;
+
+        private final LocalDate weekStart;
+    }
+}
@@ -0,0 +1,32 @@
+package org.upgrad.upstac.testrequests.people;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * The HyperLogLog sketch of the people who raised requests at one pin code in the week starting on weekStart.
+ */
+@Data
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"pinCode", "weekStart"}))
+public class PersonSketch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long sketchId;
+
+    private Integer pinCode;
+
+    private LocalDate weekStart;
+
+    @Lob
+    private byte[] registers;
+
+    // Highest request id offered by the instance that last saved the sketch, from where a restart replays requests
+    private Long highWaterRequestId;
+
+    private LocalDateTime updatedOn;
+}
@@ -0,0 +1,15 @@
+package org.upgrad.upstac.testrequests.people;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDate;
+import java.util.Optional;
+
+public interface PersonSketchRepository extends JpaRepository<PersonSketch, Long> {
+
+    // Locked, so instances merging their registers into the same sketch take turns
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<PersonSketch> findByPinCodeAndWeekStart(Integer pinCode, LocalDate weekStart);
+}
@@ -0,0 +1,21 @@
+package org.upgrad.upstac.testrequests.pool;
+
+import lombok.Data;
+
+import javax.validation.constraints.Positive;
+import java.util.List;
+
+/**
+ * Either the ids to pool, or a pin code whose oldest waiting requests are pooled.
+ * Without a size the recommended pool size is used.
+ */
+@Data
+public class CreatePoolRequest {
+
+    private List<Long> ids;
+
+    private Integer pinCode;
+
+    @Positive
+    private Integer size;
+}
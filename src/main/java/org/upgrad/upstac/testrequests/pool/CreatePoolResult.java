@@ -0,0 +1,15 @@
+package org.upgrad.upstac.testrequests.pool;
+
+import lombok.Data;
+import org.upgrad.upstac.testrequests.lab.TestStatus;
+
+import javax.validation.constraints.NotNull;
+
+@Data
+public class CreatePoolResult {
+
+    @NotNull
+    private TestStatus result;
+
+    private String comments;
+}
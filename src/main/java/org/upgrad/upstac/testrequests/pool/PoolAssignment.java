@@ -0,0 +1,15 @@
+package org.upgrad.upstac.testrequests.pool;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.upgrad.upstac.testrequests.lab.BatchAssignOutcome;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class PoolAssignment {
+
+    private SamplePool pool;
+    private List<BatchAssignOutcome> members;
+}
@@ -0,0 +1,66 @@
+package org.upgrad.upstac.testrequests.pool;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.upgrad.upstac.config.security.UserLoggedInService;
+import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.users.User;
+
+import javax.validation.ConstraintViolationException;
+import java.util.List;
+
+import static org.upgrad.upstac.exception.UpgradResponseStatusException.asBadRequest;
+import static org.upgrad.upstac.exception.UpgradResponseStatusException.asConstraintViolation;
+
+@RestController
+@RequestMapping("/api/labrequests/pools")
+public class PoolController {
+
+    @Autowired
+    private PoolService poolService;
+
+    @Autowired
+    private PoolSizeAdvisor poolSizeAdvisor;
+
+    @Autowired
+    private UserLoggedInService userLoggedInService;
+
+    @GetMapping
+    @PreAuthorize("hasAnyRole('TESTER')")
+    public List<SamplePool> getForTester() {
+        return poolService.findByTester(userLoggedInService.getLoggedInUser());
+    }
+
+    @GetMapping("/recommended-size")
+    @PreAuthorize("hasAnyRole('TESTER')")
+    public PoolSizeRecommendation getRecommendedSize() {
+        return poolSizeAdvisor.recommend();
+    }
+
+    @PostMapping
+    @PreAuthorize("hasAnyRole('TESTER')")
+    public PoolAssignment createPool(@RequestBody CreatePoolRequest createPoolRequest) {
+        try {
+            User user = userLoggedInService.getLoggedInUser();
+            return poolService.createPool(createPoolRequest, user);
+        } catch (ConstraintViolationException e) {
+            throw asConstraintViolation(e);
+        } catch (AppException e) {
+            throw asBadRequest(e.getMessage());
+        }
+    }
+
+    @PutMapping("/{id}/result")
+    @PreAuthorize("hasAnyRole('TESTER')")
+    public SamplePool updatePoolResult(@PathVariable Long id, @RequestBody CreatePoolResult createPoolResult) {
+        try {
+            User user = userLoggedInService.getLoggedInUser();
+            return poolService.updatePoolResult(id, createPoolResult, user);
+        } catch (ConstraintViolationException e) {
+            throw asConstraintViolation(e);
+        } catch (AppException e) {
+            throw asBadRequest(e.getMessage());
+        }
+    }
+}
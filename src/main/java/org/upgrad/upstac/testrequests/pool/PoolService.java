@@ -0,0 +1,165 @@
+package org.upgrad.upstac.testrequests.pool;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.validation.annotation.Validated;
+import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.testrequests.RequestStatus;
+import org.upgrad.upstac.testrequests.TestRequestRepository;
+import org.upgrad.upstac.testrequests.TestRequestUpdateService;
+import org.upgrad.upstac.testrequests.lab.BatchAssignOutcome;
+import org.upgrad.upstac.testrequests.lab.BatchAssignRequest;
+import org.upgrad.upstac.testrequests.lab.CreateLabResult;
+import org.upgrad.upstac.testrequests.lab.LabResultRow;
+import org.upgrad.upstac.testrequests.lab.LabResultService;
+import org.upgrad.upstac.testrequests.lab.TestStatus;
+import org.upgrad.upstac.users.User;
+
+import javax.transaction.Transactional;
+import javax.validation.Valid;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@Validated
+public class PoolService {
+
+    @Autowired
+    private SamplePoolRepository samplePoolRepository;
+
+    @Autowired
+    private TestRequestRepository testRequestRepository;
+
+    @Autowired
+    private TestRequestUpdateService testRequestUpdateService;
+
+    @Autowired
+    private LabResultService labResultService;
+
+    @Autowired
+    private PoolSizeAdvisor poolSizeAdvisor;
+
+    /**
+     * Assigns several INITIATED requests to the tester as one pool, through the batch assign transition.
+     * Requests that must be tested individually are reported back instead of being pooled.
+     */
+    @Transactional
+    public PoolAssignment createPool(@Valid CreatePoolRequest createPoolRequest, User tester) {
+        List<Long> ids;
+        Set<Long> individualIds = Collections.emptySet();
+
+        if (createPoolRequest.getIds() != null && createPoolRequest.getIds().isEmpty() == false) {
+            ids = createPoolRequest.getIds().stream().distinct().collect(Collectors.toList());
+            if (ids.size() > poolSizeAdvisor.getMaxSize())
+                throw new AppException("At most " + poolSizeAdvisor.getMaxSize() + " samples can be pooled");
+            individualIds = new HashSet<>(testRequestRepository.findIndividualTestRequiredRequestIds(ids));
+        } else if (createPoolRequest.getPinCode() != null) {
+            ids = testRequestRepository.findOldestPoolableRequestIds(RequestStatus.INITIATED, createPoolRequest.getPinCode(), PageRequest.of(0, poolSizeFor(createPoolRequest)));
+        } else {
+            throw new AppException("Either ids or a pinCode are required");
+        }
+
+        Set<Long> excluded = individualIds;
+        BatchAssignRequest batchAssignRequest = new BatchAssignRequest();
+        batchAssignRequest.setIds(ids.stream().filter(id -> excluded.contains(id) == false).collect(Collectors.toList()));
+        Map<Long, BatchAssignOutcome> assigned = batchAssignRequest.getIds().isEmpty()
+                ? Collections.emptyMap()
+                : testRequestUpdateService.assignForLabTests(batchAssignRequest, tester).stream()
+                        .collect(Collectors.toMap(BatchAssignOutcome::getRequestId, Function.identity()));
+
+        List<Long> memberIds = assigned.values().stream()
+                .filter(BatchAssignOutcome::isAssigned)
+                .map(BatchAssignOutcome::getRequestId)
+                .collect(Collectors.toList());
+        if (memberIds.isEmpty())
+            throw new AppException("None of the requests can be pooled");
+
+        SamplePool pool = new SamplePool();
+        pool.setTester(tester);
+        pool.setPinCode(createPoolRequest.getPinCode());
+        pool.setSize(memberIds.size());
+        pool = samplePoolRepository.save(pool);
+        labResultService.assignToPool(memberIds, pool);
+
+        List<BatchAssignOutcome> outcomes = new ArrayList<>(ids.size());
+        for (Long id : ids)
+            outcomes.add(excluded.contains(id) ? BatchAssignOutcome.rejected(id, "Must be tested individually") : assigned.get(id));
+        return new PoolAssignment(pool, outcomes);
+    }
+
+    /**
+     * A NEGATIVE pool completes the lab test of every member in one batched transition. A POSITIVE pool sends
+     * every member back to the lab queue, flagged for an individual test. The pool's status is moved out of
+     * TESTING first and conditionally, so of two concurrent results only one is recorded.
+     */
+    @Transactional
+    public SamplePool updatePoolResult(Long poolId, @Valid CreatePoolResult createPoolResult, User tester) {
+        SamplePool pool = samplePoolRepository.findById(poolId)
+                .filter(samplePool -> samplePool.getStatus() == PoolStatus.TESTING)
+                .orElseThrow(() -> new AppException("Invalid ID or State"));
+        if (pool.getTester().getId().equals(tester.getId()) == false)
+            throw new AppException("Pool is assigned to another tester");
+
+        boolean positive = createPoolResult.getResult() == TestStatus.POSITIVE;
+        int recorded = samplePoolRepository.updateResultIfCurrent(poolId, PoolStatus.TESTING, positive ? PoolStatus.POSITIVE : PoolStatus.NEGATIVE,
+                createPoolResult.getComments(), LocalDate.now());
+        if (recorded == 0)
+            throw new AppException("Invalid ID or State");
+
+        List<Long> memberIds = labResultService.findRequestIdsInPool(pool, RequestStatus.LAB_TEST_IN_PROGRESS);
+
+        if (positive) {
+            testRequestUpdateService.requeueForIndividualTests(memberIds, tester);
+        } else {
+            CreateLabResult createLabResult = new CreateLabResult();
+            createLabResult.setResult(TestStatus.NEGATIVE);
+            createLabResult.setComments(commentsFor(pool, createPoolResult));
+            testRequestUpdateService.updateLabTests(memberIds.stream()
+                    .map(id -> new LabResultRow(0, id, createLabResult))
+                    .collect(Collectors.toList()), tester);
+        }
+
+        // Only a result that commits feeds the advisor, so a rolled back and retried one is counted once
+        int poolSize = pool.getSize();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    poolSizeAdvisor.record(poolSize, positive);
+                }
+            });
+        } else {
+            poolSizeAdvisor.record(poolSize, positive);
+        }
+        return samplePoolRepository.findById(poolId).orElseThrow(() -> new AppException("Invalid ID or State"));
+    }
+
+    public List<SamplePool> findByTester(User tester) {
+        return samplePoolRepository.findByTester(tester);
+    }
+
+    private int poolSizeFor(CreatePoolRequest createPoolRequest) {
+        if (createPoolRequest.getSize() != null)
+            return Math.min(createPoolRequest.getSize(), poolSizeAdvisor.getMaxSize());
+
+        int recommendedSize = poolSizeAdvisor.recommend().getSize();
+        if (recommendedSize < 2)
+            throw new AppException("Positivity is too high for pooling to save tests, test individually");
+        return recommendedSize;
+    }
+
+    private static String commentsFor(SamplePool pool, CreatePoolResult createPoolResult) {
+        String comments = "Negative in pool " + pool.getPoolId();
+        return createPoolResult.getComments() == null ? comments : comments + ": " + createPoolResult.getComments();
+    }
+}
@@ -0,0 +1,117 @@
+package org.upgrad.upstac.testrequests.pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.upgrad.upstac.testrequests.RequestStatus;
+import org.upgrad.upstac.testrequests.TestRequest;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.testrequests.lab.LabResult;
+import org.upgrad.upstac.testrequests.lab.LabResultRepository;
+import org.upgrad.upstac.testrequests.lab.TestStatus;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Recommends pool sizes from recent positivity.
+ *
+ * Every test outcome, a pool of n or an individual test as a pool of 1, moves exponentially weighted averages of the
+ * positive rate and of the number of samples per test. Per-sample positivity is then estimated as
+ * 1 - (1 - positive rate)^(1 / samples per test). Individual retests of positive pools are left out, as they are
+ * positive far more often than the population.
+ */
+@Service
+public class PoolSizeAdvisor {
+
+    private static Logger logger = LoggerFactory.getLogger(PoolSizeAdvisor.class);
+
+    @Autowired
+    private LabResultRepository labResultRepository;
+
+    @Value("${app.pool.max-size:10}")
+    private int maxSize;
+
+    @Value("${app.pool.smoothing:0.05}")
+    private double smoothing;
+
+    @Value("${app.pool.initial-positivity:0.02}")
+    private double initialPositivity;
+
+    @Value("${app.pool.seed-days:14}")
+    private int seedDays;
+
+    private double positiveRate;
+
+    private double samplesPerTest = 1;
+
+    @PostConstruct
+    void seedFromDatabase() {
+        long positive = 0;
+        long total = 0;
+        for (Object[] count : labResultRepository.countIndividualResultsSince(LocalDate.now().minusDays(seedDays))) {
+            long results = ((Number) count[1]).longValue();
+            total += results;
+            if (count[0] == TestStatus.POSITIVE)
+                positive += results;
+        }
+
+        synchronized (this) {
+            positiveRate = total == 0 ? initialPositivity : (double) positive / total;
+        }
+        logger.info("Pool sizing seeded with positivity " + positiveRate + " from " + total + " results");
+    }
+
+    public synchronized void record(int samples, boolean positive) {
+        positiveRate += smoothing * ((positive ? 1 : 0) - positiveRate);
+        samplesPerTest += smoothing * (samples - samplesPerTest);
+    }
+
+    public synchronized double estimatedPositivity() {
+        return 1 - Math.pow(1 - positiveRate, 1 / samplesPerTest);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public PoolSizeRecommendation recommend() {
+        double positivity = estimatedPositivity();
+        return new PoolSizeRecommendation(positivity, optimalPoolSize(positivity, maxSize));
+    }
+
+    /**
+     * Dorfman two-stage pooling: a pool of n costs one test, plus n individual tests when it is positive, which
+     * happens with probability 1 - (1 - p)^n. Returns the n with the fewest expected tests per sample, 1 when
+     * pooling costs more than testing individually.
+     */
+    public static int optimalPoolSize(double positivity, int maxSize) {
+        int bestSize = 1;
+        double bestTestsPerSample = 1;
+        for (int size = 2; size <= maxSize; size++) {
+            double testsPerSample = 1.0 / size + 1 - Math.pow(1 - positivity, size);
+            if (testsPerSample < bestTestsPerSample) {
+                bestSize = size;
+                bestTestsPerSample = testsPerSample;
+            }
+        }
+        return bestSize;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(TestRequestTransitionEvent event) {
+        if (event.getToStatus() != RequestStatus.LAB_TEST_COMPLETED)
+            return;
+
+        TestRequest testRequest = event.getTestRequest();
+        LabResult labResult = testRequest.getLabResult();
+        if (labResult == null || labResult.getResult() == null || labResult.getPool() != null || testRequest.isIndividualTestRequired())
+            return;
+
+        record(1, labResult.getResult() == TestStatus.POSITIVE);
+    }
+}
@@ -0,0 +1,12 @@
+package org.upgrad.upstac.testrequests.pool;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class PoolSizeRecommendation {
+
+    private double positivity;
+    private int size;
+}
@@ -0,0 +1,5 @@
+package org.upgrad.upstac.testrequests.pool;
+
+public enum PoolStatus {
+    TESTING,NEGATIVE,POSITIVE
+}
@@ -0,0 +1,34 @@
+package org.upgrad.upstac.testrequests.pool;
+
+import lombok.Data;
+import org.upgrad.upstac.users.User;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Swabs of several requests combined and tested once. Members are the lab results pointing at the pool.
+ */
+@Data
+@Entity
+public class SamplePool {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long poolId;
+
+    @ManyToOne
+    private User tester;
+
+    private Integer pinCode;
+
+    private Integer size;
+
+    private PoolStatus status = PoolStatus.TESTING;
+
+    private String comments;
+
+    private LocalDate createdOn = LocalDate.now();
+
+    private LocalDate resultOn;
+}
@@ -0,0 +1,21 @@
+package org.upgrad.upstac.testrequests.pool;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.upgrad.upstac.users.User;
+
+import java.time.LocalDate;
+import java.util.List;
+
+
+public interface SamplePoolRepository extends JpaRepository<SamplePool,Long> {
+
+    List<SamplePool> findByTester(User tester);
+
+    // Compare-and-set on the status: only one caller can record the result of a pool
+    @Modifying(clearAutomatically = true)
+    @Query("update SamplePool p set p.status = :to, p.comments = :comments, p.resultOn = :resultOn where p.poolId = :id and p.status = :from")
+    int updateResultIfCurrent(@Param("id") Long id, @Param("from") PoolStatus from, @Param("to") PoolStatus to, @Param("comments") String comments, @Param("resultOn") LocalDate resultOn);
+}
@@ -0,0 +1,180 @@
+package org.upgrad.upstac.testrequests.queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.upgrad.upstac.testrequests.TestRequest;
+import org.upgrad.upstac.testrequests.TestRequestUpdateService;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.users.User;
+
+import javax.annotation.PreDestroy;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands the oldest waiting request to a tester or doctor in one round trip.
+ *
+ * When a queue is empty the caller is parked as a DeferredResult, so no request thread is held, and
+ * parked callers are served first-come first-served as requests enter the queue. Claiming for parked
+ * callers runs on one drain task per queue at a time; every park and every arrival requests a drain,
+ * so an arrival racing with a park is never missed.
+ */
+@Service
+public class ClaimQueueService {
+
+    private static final Logger log = LoggerFactory.getLogger(ClaimQueueService.class);
+
+    @Autowired
+    private TestRequestUpdateService testRequestUpdateService;
+
+    @Value("${app.claim-next.timeout-ms:30000}")
+    private long timeoutMillis;
+
+    private final Map<WorkQueue, Waiters> waiters = new EnumMap<>(WorkQueue.class);
+
+    private final ExecutorService drainers;
+
+    public ClaimQueueService() {
+        for (WorkQueue workQueue : WorkQueue.values())
+            waiters.put(workQueue, new Waiters(workQueue));
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("claim-next-");
+        threadFactory.setDaemon(true);
+        drainers = Executors.newFixedThreadPool(WorkQueue.values().length, threadFactory);
+    }
+
+    public DeferredResult<ResponseEntity<TestRequest>> claimNext(WorkQueue workQueue, User user) {
+        DeferredResult<ResponseEntity<TestRequest>> result = new DeferredResult<>(timeoutMillis, ResponseEntity.noContent().build());
+
+        Optional<TestRequest> claimed = claim(workQueue, user);
+        if (claimed.isPresent()) {
+            result.setResult(ResponseEntity.ok(claimed.get()));
+            return result;
+        }
+
+        waiters.get(workQueue).park(new Waiter(user, result));
+        return result;
+    }
+
+    public int countWaiting(WorkQueue workQueue) {
+        return waiters.get(workQueue).parked.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(TestRequestTransitionEvent event) {
+        for (WorkQueue workQueue : WorkQueue.values())
+            if (workQueue.isEnteredBy(event.getFromStatus(), event.getToStatus()))
+                waiters.get(workQueue).requestDrain();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        drainers.shutdownNow();
+    }
+
+    private Optional<TestRequest> claim(WorkQueue workQueue, User user) {
+        return workQueue == WorkQueue.LAB_TEST
+                ? testRequestUpdateService.claimNextForLabTest(user)
+                : testRequestUpdateService.claimNextForConsultation(user);
+    }
+
+    private static class Waiter {
+
+        private final User user;
+
+        private final DeferredResult<ResponseEntity<TestRequest>> result;
+
+        Waiter(User user, DeferredResult<ResponseEntity<TestRequest>> result) {
+            this.user = user;
+            this.result = result;
+        }
+    }
+
+    private class Waiters {
+
+        private final WorkQueue workQueue;
+
+        private final Deque<Waiter> parked = new ConcurrentLinkedDeque<>();
+
+        private final AtomicInteger drainRequests = new AtomicInteger();
+
+        Waiters(WorkQueue workQueue) {
+            this.workQueue = workQueue;
+        }
+
+        void park(Waiter waiter) {
+            parked.addLast(waiter);
+            waiter.result.onCompletion(() -> parked.remove(waiter));
+
+            // A request may have entered the queue between the failed claim and parking
+            requestDrain();
+        }
+
+        void requestDrain() {
+            if (drainRequests.getAndIncrement() == 0)
+                drainers.execute(this::drain);
+        }
+
+        private void drain() {
+            int requests = drainRequests.get();
+            do {
+                try {
+                    serveParked();
+                } catch (RuntimeException e) {
+                    log.error("Failed to serve parked claims on " + workQueue, e);
+                }
+                requests = drainRequests.addAndGet(-requests);
+            } while (requests != 0);
+        }
+
+        private void serveParked() {
+            Waiter waiter;
+            while ((waiter = parked.pollFirst()) != null) {
+                if (waiter.result.isSetOrExpired())
+                    continue;
+
+                Optional<TestRequest> claimed;
+                try {
+                    claimed = claim(workQueue, waiter.user);
+                } catch (RuntimeException e) {
+                    waiter.result.setErrorResult(e);
+                    continue;
+                }
+
+                if (claimed.isPresent() == false) {
+                    parked.addFirst(waiter);
+                    return;
+                }
+                if (waiter.result.setResult(ResponseEntity.ok(claimed.get())) == false)
+                    release(claimed.get(), waiter.user);
+            }
+        }
+
+        /**
+         * Puts back a request claimed for a caller whose wait ended meanwhile, unless it was completed or
+         * claimed again since; putting it back makes it enter the queue and requests another drain.
+         */
+        private void release(TestRequest testRequest, User user) {
+            Long id = testRequest.getRequestId();
+            try {
+                if (testRequestUpdateService.returnExpiredClaim(id, workQueue, user).isPresent() == false)
+                    log.warn("Request " + id + " claimed for " + user.getUserName() + " after their wait expired had moved on before it could be put back");
+            } catch (RuntimeException e) {
+                log.error("Failed to put back request " + id + " claimed for " + user.getUserName() + " after their wait expired", e);
+            }
+        }
+    }
+}
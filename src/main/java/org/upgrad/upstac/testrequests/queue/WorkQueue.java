@@ -0,0 +1,50 @@
+package org.upgrad.upstac.testrequests.queue;
+
+import org.upgrad.upstac.testrequests.RequestStatus;
+
+/**
+ * The two places where requests wait for staff: testers pick INITIATED requests,
+ * doctors pick LAB_TEST_COMPLETED ones.
+ */
+public enum WorkQueue {
+
+    LAB_TEST(RequestStatus.INITIATED, RequestStatus.LAB_TEST_IN_PROGRESS, RequestStatus.LAB_TEST_COMPLETED),
+    CONSULTATION(RequestStatus.LAB_TEST_COMPLETED, RequestStatus.DIAGNOSIS_IN_PROCESS, RequestStatus.COMPLETED);
+
+    private final RequestStatus waitingStatus;
+    private final RequestStatus inProgressStatus;
+    private final RequestStatus completedStatus;
+
+    WorkQueue(RequestStatus waitingStatus, RequestStatus inProgressStatus, RequestStatus completedStatus) {
+        this.waitingStatus = waitingStatus;
+        this.inProgressStatus = inProgressStatus;
+        this.completedStatus = completedStatus;
+    }
+
+    public RequestStatus getWaitingStatus() {
+        return waitingStatus;
+    }
+
+    public RequestStatus getInProgressStatus() {
+        return inProgressStatus;
+    }
+
+    public RequestStatus getCompletedStatus() {
+        return completedStatus;
+    }
+
+    public boolean isEnteredBy(RequestStatus from, RequestStatus to) {
+        return to == waitingStatus && from != waitingStatus;
+    }
+
+    /**
+     * Taken off the queue, by staff or by auto-completion skipping the in-progress status.
+     */
+    public boolean isClaimedBy(RequestStatus from, RequestStatus to) {
+        return from == waitingStatus && to != waitingStatus;
+    }
+
+    public boolean isCompletedBy(RequestStatus from, RequestStatus to) {
+        return from == inProgressStatus && to == completedStatus;
+    }
+}
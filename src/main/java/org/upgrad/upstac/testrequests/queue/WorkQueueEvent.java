@@ -0,0 +1,15 @@
+package org.upgrad.upstac.testrequests.queue;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.upgrad.upstac.testrequests.RequestStatus;
+
+@Data
+@AllArgsConstructor
+public class WorkQueueEvent {
+
+    private WorkQueueEventType type;
+    private Long requestId;
+    private RequestStatus status;
+    private Integer pinCode;
+}
@@ -0,0 +1,5 @@
+package org.upgrad.upstac.testrequests.queue;
+
+public enum WorkQueueEventType {
+    ADDED,CLAIMED,COMPLETED
+}
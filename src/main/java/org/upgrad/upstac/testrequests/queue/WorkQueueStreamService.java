@@ -0,0 +1,54 @@
+package org.upgrad.upstac.testrequests.queue;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.upgrad.upstac.shared.SseSubscriptions;
+import org.upgrad.upstac.testrequests.TestRequest;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * Streams ADDED / CLAIMED / COMPLETED events of the tester and doctor queues to subscribed staff,
+ * straight from the transitions, so idle clients never query the database.
+ */
+@Service
+public class WorkQueueStreamService {
+
+    private final SseSubscriptions<WorkQueue> subscriptions;
+
+    public WorkQueueStreamService(@Value("${app.sse.sender-threads:2}") int senderThreads,
+                                  @Value("${app.sse.buffer-size:64}") int bufferSize,
+                                  @Value("${app.sse.timeout-ms:1800000}") long timeoutMillis) {
+        this.subscriptions = new SseSubscriptions<>("work-queue-stream", senderThreads, bufferSize, timeoutMillis);
+    }
+
+    public SseEmitter subscribe(WorkQueue workQueue) {
+        return subscriptions.subscribe(workQueue);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(TestRequestTransitionEvent event) {
+        for (WorkQueue workQueue : WorkQueue.values()) {
+            if (workQueue.isEnteredBy(event.getFromStatus(), event.getToStatus()))
+                publish(workQueue, WorkQueueEventType.ADDED, event);
+            else if (workQueue.isClaimedBy(event.getFromStatus(), event.getToStatus()))
+                publish(workQueue, WorkQueueEventType.CLAIMED, event);
+            else if (workQueue.isCompletedBy(event.getFromStatus(), event.getToStatus()))
+                publish(workQueue, WorkQueueEventType.COMPLETED, event);
+        }
+    }
+
+    private void publish(WorkQueue workQueue, WorkQueueEventType type, TestRequestTransitionEvent event) {
+        TestRequest testRequest = event.getTestRequest();
+        WorkQueueEvent workQueueEvent = new WorkQueueEvent(type, testRequest.getRequestId(), event.getToStatus(), testRequest.getPinCode());
+        subscriptions.publish(workQueue, type.name(), workQueueEvent);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        subscriptions.shutdown();
+    }
+}
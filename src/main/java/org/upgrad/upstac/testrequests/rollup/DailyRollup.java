@@ -0,0 +1,35 @@
+package org.upgrad.upstac.testrequests.rollup;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * What happened on one day at one pin code: lab results that landed, how many of them were positive, and requests
+ * completed with the days they took from being raised.
+ */
+@Data
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"day", "pinCode"}),
+        indexes = @Index(columnList = "region,day"))
+public class DailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long rollupId;
+
+    private LocalDate day;
+
+    private Integer pinCode;
+
+    private int region;
+
+    private long tested;
+
+    private long positive;
+
+    private long completed;
+
+    private long turnaroundDays;
+}
@@ -0,0 +1,42 @@
+package org.upgrad.upstac.testrequests.rollup;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.upgrad.upstac.exception.AppException;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.upgrad.upstac.exception.UpgradResponseStatusException.asBadRequest;
+
+@RestController
+@RequestMapping("/api/government/rollups")
+public class DailyRollupController {
+
+    @Autowired
+    private DailyRollupService dailyRollupService;
+
+    @GetMapping
+    @PreAuthorize("hasAnyRole('GOVERNMENT_AUTHORITY')")
+    public List<DailyStatistics> getDailyStatistics(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                    @RequestParam(required = false) Integer region) {
+        try {
+            return dailyRollupService.findDailyStatistics(from, to, region);
+        } catch (AppException e) {
+            throw asBadRequest(e.getMessage());
+        }
+    }
+
+    @PostMapping("/backfill")
+    @PreAuthorize("hasAnyRole('GOVERNMENT_AUTHORITY')")
+    public int backfill() {
+        return dailyRollupService.backfill();
+    }
+}
@@ -0,0 +1,37 @@
+package org.upgrad.upstac.testrequests.rollup;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DailyRollupRepository extends JpaRepository<DailyRollup, Long> {
+
+    List<DailyRollup> findByDayBetween(LocalDate from, LocalDate to);
+
+    List<DailyRollup> findByRegionAndDayBetween(int region, LocalDate from, LocalDate to);
+
+    /**
+     * Creates the empty rollup for the day and pin code unless it is already there, in the caller's transaction.
+     */
+    @Modifying
+    @Query(value = "insert into daily_rollup (day, pin_code, region, tested, positive, completed, turnaround_days)"
+            + " select :day, :pinCode, :region, 0, 0, 0, 0 from dual"
+            + " where not exists (select 1 from daily_rollup r where r.day = :day and r.pin_code = :pinCode)",
+            nativeQuery = true)
+    int createIfAbsent(@Param("day") LocalDate day, @Param("pinCode") Integer pinCode, @Param("region") int region);
+
+    @Modifying
+    @Query("update DailyRollup r set r.tested = r.tested + :tested, r.positive = r.positive + :positive,"
+            + " r.completed = r.completed + :completed, r.turnaroundDays = r.turnaroundDays + :turnaroundDays"
+            + " where r.day = :day and r.pinCode = :pinCode")
+    int addTo(@Param("day") LocalDate day, @Param("pinCode") Integer pinCode, @Param("tested") long tested,
+              @Param("positive") long positive, @Param("completed") long completed, @Param("turnaroundDays") long turnaroundDays);
+
+    @Modifying
+    @Query("delete from DailyRollup")
+    int deleteAllRollups();
+}
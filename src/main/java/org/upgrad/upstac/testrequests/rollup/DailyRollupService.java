@@ -0,0 +1,262 @@
+package org.upgrad.upstac.testrequests.rollup;
+
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.testrequests.RequestStatus;
+import org.upgrad.upstac.testrequests.TestRequest;
+import org.upgrad.upstac.testrequests.TestRequestRepository;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.testrequests.lab.LabResultRepository;
+import org.upgrad.upstac.testrequests.lab.TestStatus;
+import org.upgrad.upstac.testrequests.routing.PincodeRegions;
+
+import javax.annotation.PostConstruct;
+import javax.transaction.Transactional;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps daily rollups per pin code as lab results land and requests complete, so charts over months read at most
+ * one row per day and pin code instead of scanning every result.
+ *
+ * Transitions are collected per transaction and added to their rollups just before it commits, one update per
+ * rollup touched, in day and pin code order so concurrent transactions lock rollups in the same order. The rollups
+ * therefore commit or roll back with the transitions they count. A rollup row missing for a day and pin code is
+ * inserted if absent in the same transaction, so counting never needs a second connection from the pool.
+ */
+@Service
+public class DailyRollupService {
+
+    private static Logger logger = LoggerFactory.getLogger(DailyRollupService.class);
+
+    @Autowired
+    private DailyRollupRepository dailyRollupRepository;
+
+    @Autowired
+    private TestRequestRepository testRequestRepository;
+
+    @Autowired
+    private LabResultRepository labResultRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate separateTransaction;
+
+    private final Set<Bucket> existingBuckets = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void createSeparateTransaction() {
+        separateTransaction = new TransactionTemplate(transactionManager);
+        separateTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @EventListener
+    public void onTransition(TestRequestTransitionEvent event) {
+        if (isResultEntered(event) == false && isCompletion(event) == false)
+            return;
+
+        if (TransactionSynchronizationManager.isSynchronizationActive() == false) {
+            Map<Bucket, Counts> counts = new TreeMap<>();
+            count(event, counts);
+            separateTransaction.execute(status -> {
+                addAll(counts);
+                return null;
+            });
+            return;
+        }
+
+        Map<Bucket, Counts> counts = pendingCounts();
+        count(event, counts);
+    }
+
+    /**
+     * Totals per day across the region's pin codes, or across all pin codes when no region is given.
+     */
+    public List<DailyStatistics> findDailyStatistics(LocalDate from, LocalDate to, Integer region) {
+        if (from.isAfter(to))
+            throw new AppException("Range starts after it ends");
+
+        List<DailyRollup> rollups = region == null
+                ? dailyRollupRepository.findByDayBetween(from, to)
+                : dailyRollupRepository.findByRegionAndDayBetween(region, from, to);
+
+        Map<LocalDate, DailyStatistics> byDay = new TreeMap<>();
+        for (DailyRollup rollup : rollups)
+            byDay.computeIfAbsent(rollup.getDay(), DailyStatistics::new).add(rollup);
+        return new ArrayList<>(byDay.values());
+    }
+
+    /**
+     * Rebuilds every rollup from the lab results and completed requests already stored. Transitions committed
+     * while it runs may be counted twice or not at all, so run it when requests are not being updated.
+     */
+    @Transactional
+    public int backfill() {
+        Map<Bucket, Counts> counts = new TreeMap<>();
+
+        for (Object[] row : labResultRepository.countResultsByDayAndPinCode(TestStatus.POSITIVE)) {
+            Counts bucketCounts = counts.computeIfAbsent(new Bucket((LocalDate) row[0], (Integer) row[1]), bucket -> new Counts());
+            bucketCounts.tested += (Long) row[2];
+            bucketCounts.positive += (Long) row[3];
+        }
+
+        for (Object[] row : testRequestRepository.findCompletionTimesByStatus(RequestStatus.COMPLETED)) {
+            LocalDate completedOn = ((LocalDateTime) row[0]).toLocalDate();
+            Counts bucketCounts = counts.computeIfAbsent(new Bucket(completedOn, (Integer) row[2]), bucket -> new Counts());
+            bucketCounts.completed++;
+            bucketCounts.turnaroundDays += ChronoUnit.DAYS.between((LocalDate) row[1], completedOn);
+        }
+
+        dailyRollupRepository.deleteAllRollups();
+        existingBuckets.clear();
+
+        List<DailyRollup> rollups = new ArrayList<>();
+        counts.forEach((bucket, bucketCounts) -> rollups.add(bucketCounts.toRollup(bucket)));
+        dailyRollupRepository.saveAll(rollups);
+        rollups.forEach(rollup -> existingBuckets.add(new Bucket(rollup.getDay(), rollup.getPinCode())));
+
+        logger.info("Backfilled " + rollups.size() + " daily rollups");
+        return rollups.size();
+    }
+
+    private void count(TestRequestTransitionEvent event, Map<Bucket, Counts> counts) {
+        TestRequest testRequest = event.getTestRequest();
+        LocalDate today = LocalDate.now();
+        Counts bucketCounts = counts.computeIfAbsent(new Bucket(today, testRequest.getPinCode()), bucket -> new Counts());
+
+        if (isResultEntered(event)) {
+            bucketCounts.tested++;
+            if (testRequest.getLabResult() != null && testRequest.getLabResult().getResult() == TestStatus.POSITIVE)
+                bucketCounts.positive++;
+        } else {
+            bucketCounts.completed++;
+            bucketCounts.turnaroundDays += ChronoUnit.DAYS.between(testRequest.getCreated(), today);
+        }
+    }
+
+    /**
+     * A lab result entered for a claimed request or submitted directly, not a consultation handed back to the
+     * queue, which also enters LAB_TEST_COMPLETED.
+     */
+    private static boolean isResultEntered(TestRequestTransitionEvent event) {
+        return event.getToStatus() == RequestStatus.LAB_TEST_COMPLETED
+                && (event.getFromStatus() == RequestStatus.LAB_TEST_IN_PROGRESS || event.getFromStatus() == RequestStatus.INITIATED);
+    }
+
+    private static boolean isCompletion(TestRequestTransitionEvent event) {
+        return event.getToStatus() == RequestStatus.COMPLETED && event.getFromStatus() != RequestStatus.COMPLETED;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Bucket, Counts> pendingCounts() {
+        Map<Bucket, Counts> counts = (Map<Bucket, Counts>) TransactionSynchronizationManager.getResource(this);
+        if (counts != null)
+            return counts;
+
+        Map<Bucket, Counts> newCounts = new TreeMap<>();
+        TransactionSynchronizationManager.bindResource(this, newCounts);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                addAll(newCounts);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(DailyRollupService.this);
+            }
+        });
+        return newCounts;
+    }
+
+    private void addAll(Map<Bucket, Counts> counts) {
+        counts.forEach((bucket, bucketCounts) -> {
+            ensureExists(bucket);
+            dailyRollupRepository.addTo(bucket.day, bucket.pinCode,
+                    bucketCounts.tested, bucketCounts.positive, bucketCounts.completed, bucketCounts.turnaroundDays);
+        });
+    }
+
+    private void ensureExists(Bucket bucket) {
+        if (existingBuckets.contains(bucket))
+            return;
+
+        dailyRollupRepository.createIfAbsent(bucket.day, bucket.pinCode, PincodeRegions.regionOf(bucket.pinCode));
+        registerExisting(bucket);
+    }
+
+    /**
+     * Remembers the bucket once the row created for it has committed, so a rolled back insert is made again.
+     */
+    private void registerExisting(Bucket bucket) {
+        if (TransactionSynchronizationManager.isSynchronizationActive() == false) {
+            existingBuckets.add(bucket);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                existingBuckets.add(bucket);
+            }
+        });
+    }
+
+    @Data
+    private static class Bucket implements Comparable<Bucket> {
+
+        private static final Comparator<Bucket> ORDER = Comparator.comparing((Bucket bucket) -> bucket.day)
+                .thenComparing(bucket -> bucket.pinCode, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+        private final LocalDate day;
+
+        private final Integer pinCode;
+
+        @Override
+        public int compareTo(Bucket other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    private static class Counts {
+
+        private long tested;
+
+        private long positive;
+
+        private long completed;
+
+        private long turnaroundDays;
+
+        private DailyRollup toRollup(Bucket bucket) {
+            DailyRollup rollup = new DailyRollup();
+            rollup.setDay(bucket.day);
+            rollup.setPinCode(bucket.pinCode);
+            rollup.setRegion(PincodeRegions.regionOf(bucket.pinCode));
+            rollup.setTested(tested);
+            rollup.setPositive(positive);
+            rollup.setCompleted(completed);
+            rollup.setTurnaroundDays(turnaroundDays);
+            return rollup;
+        }
+    }
+}
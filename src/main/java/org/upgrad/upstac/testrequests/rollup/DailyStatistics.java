@@ -0,0 +1,34 @@
+package org.upgrad.upstac.testrequests.rollup;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+public class DailyStatistics {
+
+    private final LocalDate day;
+
+    private long tested;
+
+    private long positive;
+
+    private long completed;
+
+    private long turnaroundDays;
+
+    public Double getPositivityRate() {
+        return tested == 0 ? null : (double) positive / tested;
+    }
+
+    public Double getAverageTurnaroundDays() {
+        return completed == 0 ? null : (double) turnaroundDays / completed;
+    }
+
+    void add(DailyRollup rollup) {
+        tested += rollup.getTested();
+        positive += rollup.getPositive();
+        completed += rollup.getCompleted();
+        turnaroundDays += rollup.getTurnaroundDays();
+    }
+}
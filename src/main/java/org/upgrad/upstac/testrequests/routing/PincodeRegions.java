@@ -0,0 +1,69 @@
+package org.upgrad.upstac.testrequests.routing;
+
+import org.upgrad.upstac.shared.CsvParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pincode regions, the first three digits of a pincode (its sorting district), and which regions border each other.
+ *
+ * Read from a CSV of "region,neighbours" lines with space separated neighbours, nearest first. Adjacency is
+ * symmetric, so each border needs listing only once.
+ */
+public class PincodeRegions {
+
+    public static final int UNKNOWN_REGION = -1;
+
+    private final Map<Integer, Set<Integer>> neighbours;
+
+    private PincodeRegions(Map<Integer, Set<Integer>> neighbours) {
+        this.neighbours = neighbours;
+    }
+
+    public static PincodeRegions parse(String csv) {
+        Map<Integer, Set<Integer>> neighbours = new HashMap<>();
+        String[] lines = csv.split("\n");
+        Map<String, Integer> columns = CsvParser.indexHeader(lines[0], "region", "neighbours");
+
+        for (String line : Arrays.asList(lines).subList(1, lines.length)) {
+            if (line.trim().isEmpty())
+                continue;
+
+            List<String> fields = CsvParser.parseLine(line);
+            Integer region = Integer.valueOf(CsvParser.field(fields, columns, "region").trim());
+            for (String neighbour : CsvParser.field(fields, columns, "neighbours").trim().split("\\s+")) {
+                if (neighbour.isEmpty())
+                    continue;
+                neighbours.computeIfAbsent(region, key -> new LinkedHashSet<>()).add(Integer.valueOf(neighbour));
+                neighbours.computeIfAbsent(Integer.valueOf(neighbour), key -> new LinkedHashSet<>()).add(region);
+            }
+        }
+        return new PincodeRegions(neighbours);
+    }
+
+    public static PincodeRegions none() {
+        return new PincodeRegions(Collections.emptyMap());
+    }
+
+    public static int regionOf(Integer pinCode) {
+        return pinCode == null || pinCode < 100000 || pinCode > 999999 ? UNKNOWN_REGION : pinCode / 1000;
+    }
+
+    /**
+     * The region of the pincode followed by its neighbours, in the order work should be taken from them.
+     */
+    public List<Integer> nearestTo(Integer pinCode) {
+        int region = regionOf(pinCode);
+        List<Integer> regions = new ArrayList<>();
+        regions.add(region);
+        regions.addAll(neighbours.getOrDefault(region, Collections.emptySet()));
+        return regions;
+    }
+}
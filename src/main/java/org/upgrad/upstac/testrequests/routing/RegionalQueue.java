@@ -0,0 +1,107 @@
+package org.upgrad.upstac.testrequests.routing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.upgrad.upstac.shared.FileReader;
+import org.upgrad.upstac.testrequests.RequestStatus;
+import org.upgrad.upstac.testrequests.TestRequest;
+import org.upgrad.upstac.testrequests.TestRequestRepository;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * INITIATED requests partitioned by pincode region, oldest first within a region.
+ *
+ * Testers are offered work from their own region, then from the neighbouring regions once it runs dry, so
+ * queue reads and claims in different regions touch different partitions. Seeded at startup and
+ * maintained from transitions.
+ */
+@Service
+public class RegionalQueue {
+
+    private static Logger logger = LoggerFactory.getLogger(RegionalQueue.class);
+
+    @Autowired
+    private TestRequestRepository testRequestRepository;
+
+    @Value("${app.routing.adjacency-file:pincode-regions.csv}")
+    private String adjacencyFile;
+
+    private PincodeRegions pincodeRegions = PincodeRegions.none();
+
+    private final ConcurrentMap<Integer, NavigableSet<Long>> partitions = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Long, Integer> regionByRequestId = new ConcurrentHashMap<>();
+
+    public RegionalQueue() {
+    }
+
+    public RegionalQueue(PincodeRegions pincodeRegions) {
+        this.pincodeRegions = pincodeRegions;
+    }
+
+    @PostConstruct
+    void seedFromDatabase() {
+        pincodeRegions = PincodeRegions.parse(FileReader.readFromClassPath(adjacencyFile));
+
+        for (Object[] row : testRequestRepository.findRequestIdsAndPinCodesByStatus(RequestStatus.INITIATED))
+            add((Long) row[0], (Integer) row[1]);
+        logger.info("Regional queue seeded with " + regionByRequestId.size() + " requests in " + partitions.size() + " regions");
+    }
+
+    public void add(Long requestId, Integer pinCode) {
+        int region = PincodeRegions.regionOf(pinCode);
+        Integer previous = regionByRequestId.put(requestId, region);
+        if (previous != null && previous != region)
+            partitions.get(previous).remove(requestId);
+        partitions.computeIfAbsent(region, key -> new ConcurrentSkipListSet<>()).add(requestId);
+    }
+
+    public void remove(Long requestId) {
+        Integer region = regionByRequestId.remove(requestId);
+        if (region != null)
+            partitions.get(region).remove(requestId);
+    }
+
+    /**
+     * Up to limit request ids nearest to the pincode: the oldest of its own region first, then of each
+     * neighbouring region in turn.
+     */
+    public List<Long> nearestTo(Integer pinCode, int limit) {
+        List<Long> requestIds = new ArrayList<>(limit);
+        for (Integer region : pincodeRegions.nearestTo(pinCode)) {
+            for (Long requestId : partitions.getOrDefault(region, Collections.emptyNavigableSet())) {
+                if (requestIds.size() == limit)
+                    return requestIds;
+                requestIds.add(requestId);
+            }
+        }
+        return requestIds;
+    }
+
+    public int size() {
+        return regionByRequestId.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(TestRequestTransitionEvent event) {
+        TestRequest testRequest = event.getTestRequest();
+
+        if (event.getToStatus() == RequestStatus.INITIATED)
+            add(testRequest.getRequestId(), testRequest.getPinCode());
+        else if (event.getFromStatus() == RequestStatus.INITIATED)
+            remove(testRequest.getRequestId());
+    }
+}
@@ -0,0 +1,20 @@
+package org.upgrad.upstac.testrequests.sla;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.upgrad.upstac.testrequests.RequestStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * A request still waiting in a status after its SLA ran out.
+ */
+@Data
+@AllArgsConstructor
+public class SlaEscalation {
+
+    private Long requestId;
+    private RequestStatus status;
+    private LocalDateTime statusSince;
+    private LocalDateTime deadline;
+}
@@ -0,0 +1,34 @@
+package org.upgrad.upstac.testrequests.sla;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.upgrad.upstac.testrequests.RequestStatus;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/government/escalations")
+public class SlaEscalationController {
+
+    @Autowired
+    private SlaEscalationService slaEscalationService;
+
+    @Autowired
+    private SlaMetrics slaMetrics;
+
+    @GetMapping
+    @PreAuthorize("hasAnyRole('GOVERNMENT_AUTHORITY')")
+    public List<SlaEscalation> getEscalations() {
+        return slaEscalationService.findEscalations();
+    }
+
+    @GetMapping("/counts")
+    @PreAuthorize("hasAnyRole('GOVERNMENT_AUTHORITY')")
+    public Map<RequestStatus, Long> getEscalationCounts() {
+        return slaMetrics.countEscalations();
+    }
+}
@@ -0,0 +1,16 @@
+package org.upgrad.upstac.testrequests.sla;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published once when a request overstays the SLA of its status.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class SlaEscalationEvent {
+
+    private final SlaEscalation escalation;
+}
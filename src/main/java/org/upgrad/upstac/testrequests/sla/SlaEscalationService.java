@@ -0,0 +1,166 @@
+package org.upgrad.upstac.testrequests.sla;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.upgrad.upstac.shared.TimingWheel;
+import org.upgrad.upstac.testrequests.RequestStatus;
+import org.upgrad.upstac.testrequests.TestRequestRepository;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Escalates requests that stay in INITIATED, LAB_TEST_IN_PROGRESS or DIAGNOSIS_IN_PROCESS longer than the SLA
+ * configured for that status under app.sla.
+ *
+ * Each waiting request holds one timer in a {@link TimingWheel}, set when it enters the status and dropped when it
+ * leaves, so the periodic tick only touches requests whose deadline has come instead of scanning the backlog.
+ * The timers are rebuilt from the status timestamps at startup.
+ */
+@Service
+public class SlaEscalationService {
+
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 4;
+
+    @Autowired
+    private TestRequestRepository testRequestRepository;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Value("${app.sla.initiated:24h}")
+    private Duration initiatedSla;
+
+    @Value("${app.sla.lab-test-in-progress:4h}")
+    private Duration labTestInProgressSla;
+
+    @Value("${app.sla.diagnosis-in-process:12h}")
+    private Duration diagnosisInProcessSla;
+
+    @Value("${app.sla.tick-ms:1000}")
+    private long tickMillis;
+
+    private final Map<RequestStatus, Duration> slas = new EnumMap<>(RequestStatus.class);
+
+    // Written under this, together with the wheel holding the deadlines of the waiting requests
+    private final Map<Long, SlaEscalation> waiting = new HashMap<>();
+
+    private final ConcurrentMap<Long, SlaEscalation> escalated = new ConcurrentHashMap<>();
+
+    private TimingWheel<Long> timingWheel;
+
+    private ScheduledExecutorService ticker;
+
+    private static Logger logger = LoggerFactory.getLogger(SlaEscalationService.class);
+
+
+    @PostConstruct
+    void start() {
+        slas.put(RequestStatus.INITIATED, initiatedSla);
+        slas.put(RequestStatus.LAB_TEST_IN_PROGRESS, labTestInProgressSla);
+        slas.put(RequestStatus.DIAGNOSIS_IN_PROCESS, diagnosisInProcessSla);
+
+        timingWheel = new TimingWheel<>(tickMillis, WHEEL_SIZE, WHEEL_LEVELS, System.currentTimeMillis());
+
+        for (Object[] row : testRequestRepository.findStatusTimesByStatusIn(slas.keySet())) {
+            LocalDateTime since = row[2] != null ? (LocalDateTime) row[2] : ((LocalDate) row[3]).atStartOfDay();
+            track((Long) row[0], (RequestStatus) row[1], since);
+        }
+        logger.info("SLA timers rebuilt for " + timingWheel.size() + " waiting requests, " + escalated.size() + " already overdue");
+
+        ticker = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("sla-ticker-"));
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(TestRequestTransitionEvent event) {
+        track(event.getTestRequest().getRequestId(), event.getToStatus(), LocalDateTime.now());
+    }
+
+    /**
+     * Requests currently past their SLA, the longest overdue first.
+     */
+    public List<SlaEscalation> findEscalations() {
+        return escalated.values().stream()
+                .sorted(Comparator.comparing(SlaEscalation::getDeadline).thenComparing(SlaEscalation::getRequestId))
+                .collect(Collectors.toList());
+    }
+
+    public int countWaiting() {
+        return timingWheel.size();
+    }
+
+    void tick() {
+        try {
+            List<SlaEscalation> due = new ArrayList<>();
+            synchronized (this) {
+                for (Long requestId : timingWheel.advanceTo(System.currentTimeMillis())) {
+                    SlaEscalation escalation = waiting.remove(requestId);
+                    escalated.put(requestId, escalation);
+                    due.add(escalation);
+                }
+            }
+            due.forEach(this::publish);
+        } catch (RuntimeException e) {
+            logger.error("SLA tick failed", e);
+        }
+    }
+
+    private void track(Long requestId, RequestStatus status, LocalDateTime since) {
+        SlaEscalation overdue = null;
+        synchronized (this) {
+            escalated.remove(requestId);
+            waiting.remove(requestId);
+            timingWheel.cancel(requestId);
+
+            Duration sla = slas.get(status);
+            if (sla == null)
+                return;
+
+            LocalDateTime deadline = since.plus(sla);
+            SlaEscalation escalation = new SlaEscalation(requestId, status, since, deadline);
+            if (timingWheel.schedule(requestId, deadline.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())) {
+                waiting.put(requestId, escalation);
+            } else {
+                escalated.put(requestId, escalation);
+                overdue = escalation;
+            }
+        }
+
+        if (overdue != null)
+            publish(overdue);
+    }
+
+    private void publish(SlaEscalation escalation) {
+        applicationEventPublisher.publishEvent(new SlaEscalationEvent(escalation));
+    }
+}
@@ -0,0 +1,34 @@
+package org.upgrad.upstac.testrequests.sla;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.upgrad.upstac.testrequests.RequestStatus;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts SLA escalations per status since startup.
+ */
+@Component
+public class SlaMetrics {
+
+    private final Map<RequestStatus, LongAdder> escalations = new EnumMap<>(RequestStatus.class);
+
+    public SlaMetrics() {
+        for (RequestStatus status : RequestStatus.values())
+            escalations.put(status, new LongAdder());
+    }
+
+    @EventListener
+    public void onEscalation(SlaEscalationEvent event) {
+        escalations.get(event.getEscalation().getStatus()).increment();
+    }
+
+    public Map<RequestStatus, Long> countEscalations() {
+        Map<RequestStatus, Long> counts = new EnumMap<>(RequestStatus.class);
+        escalations.forEach((status, count) -> counts.put(status, count.sum()));
+        return counts;
+    }
+}
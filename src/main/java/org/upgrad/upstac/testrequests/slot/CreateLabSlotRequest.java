@@ -0,0 +1,23 @@
+package org.upgrad.upstac.testrequests.slot;
+
+import lombok.Data;
+
+import javax.validation.constraints.Future;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.time.LocalDateTime;
+
+/**
+ * A slot at the lab of the tester's pincode region.
+ */
+@Data
+public class CreateLabSlotRequest {
+
+    @NotNull
+    @Future
+    private LocalDateTime startsOn;
+
+    @NotNull
+    @Positive
+    private Integer capacity;
+}
@@ -0,0 +1,31 @@
+package org.upgrad.upstac.testrequests.slot;
+
+import lombok.Data;
+import org.upgrad.upstac.users.User;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A collection window at the lab of a pincode region, taking at most capacity bookings.
+ */
+@Data
+@Entity
+@Table(indexes = @Index(columnList = "region, startsOn"))
+public class LabSlot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long slotId;
+
+    private Integer region;
+
+    private LocalDateTime startsOn;
+
+    private Integer capacity;
+
+    private Integer booked = 0;
+
+    @ManyToOne
+    private User createdBy;
+}
@@ -0,0 +1,23 @@
+package org.upgrad.upstac.testrequests.slot;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+
+public interface LabSlotRepository extends JpaRepository<LabSlot,Long> {
+
+    List<LabSlot> findByStartsOnAfter(LocalDateTime startsOn);
+
+    @Query("select s.booked from LabSlot s where s.slotId = :slotId")
+    Integer findBookedBySlotId(@Param("slotId") Long slotId);
+
+    // Compare-and-set on the booked count, so the capacity holds across instances sharing the database
+    @Modifying
+    @Query("update LabSlot s set s.booked = s.booked + 1 where s.slotId = :slotId and s.booked < s.capacity")
+    int bookIfAvailable(@Param("slotId") Long slotId);
+}
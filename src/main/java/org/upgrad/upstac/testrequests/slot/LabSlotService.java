@@ -0,0 +1,180 @@
+package org.upgrad.upstac.testrequests.slot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.validation.annotation.Validated;
+import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.shared.StripedCapacity;
+import org.upgrad.upstac.testrequests.routing.PincodeRegions;
+import org.upgrad.upstac.users.User;
+
+import javax.annotation.PostConstruct;
+import javax.transaction.Transactional;
+import javax.validation.Valid;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Collectors;
+
+/**
+ * Books lab slots for new requests.
+ *
+ * The remaining capacity of every upcoming slot is held in memory as striped counters, so concurrent bookings
+ * mostly touch different counters and availability is answered without querying. A booking taken from memory
+ * is confirmed with a compare-and-set on the booked count, which keeps the capacity exact even when several
+ * instances book the same slot, and is handed back if the surrounding transaction rolls back. A new slot is only
+ * offered once the transaction creating it has committed.
+ */
+@Service
+@Validated
+public class LabSlotService {
+
+    private static Logger logger = LoggerFactory.getLogger(LabSlotService.class);
+
+    @Autowired
+    private LabSlotRepository labSlotRepository;
+
+    @Value("${app.slots.stripes:8}")
+    private int stripes;
+
+    private final ConcurrentMap<Long, Slot> slots = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Integer, Set<Slot>> slotsByRegion = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void loadUpcomingSlots() {
+        List<LabSlot> upcoming = labSlotRepository.findByStartsOnAfter(LocalDateTime.now());
+        upcoming.forEach(this::add);
+        logger.info("Loaded " + upcoming.size() + " upcoming lab slots");
+    }
+
+    @Transactional
+    public LabSlot createSlot(@Valid CreateLabSlotRequest createLabSlotRequest, User tester) {
+        int region = PincodeRegions.regionOf(tester.getPinCode());
+        if (region == PincodeRegions.UNKNOWN_REGION)
+            throw new AppException("Tester has no valid pin code to create slots for");
+
+        LabSlot labSlot = new LabSlot();
+        labSlot.setRegion(region);
+        labSlot.setStartsOn(createLabSlotRequest.getStartsOn());
+        labSlot.setCapacity(createLabSlotRequest.getCapacity());
+        labSlot.setCreatedBy(tester);
+
+        LabSlot savedSlot = labSlotRepository.save(labSlot);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    add(savedSlot);
+                }
+            });
+        } else {
+            add(savedSlot);
+        }
+        return savedSlot;
+    }
+
+    /**
+     * Upcoming slots at the lab serving the pin code, earliest first, leaving out those already full.
+     */
+    public List<SlotAvailability> findAvailable(Integer pinCode) {
+        Set<Slot> regionSlots = slotsByRegion.get(PincodeRegions.regionOf(pinCode));
+        if (regionSlots == null)
+            return Collections.emptyList();
+
+        LocalDateTime now = LocalDateTime.now();
+        regionSlots.removeIf(slot -> {
+            boolean started = !slot.startsOn.isAfter(now);
+            if (started)
+                slots.remove(slot.slotId);
+            return started;
+        });
+
+        return regionSlots.stream()
+                .filter(slot -> slot.remaining.available() > 0)
+                .map(slot -> new SlotAvailability(slot.slotId, slot.startsOn, slot.capacity, slot.remaining.available()))
+                .collect(Collectors.toList());
+    }
+
+    @Transactional
+    public void book(Long slotId, Integer pinCode) {
+        Optional<String> refusal = tryBook(slotId, pinCode);
+        if (refusal.isPresent())
+            throw new AppException(refusal.get());
+    }
+
+    /**
+     * Books a place like {@link #book}, but answers why it could not instead of throwing, so a caller booking for
+     * many records in one transaction can refuse one record without rolling back the others.
+     */
+    @Transactional
+    public Optional<String> tryBook(Long slotId, Integer pinCode) {
+        Slot slot = slots.get(slotId);
+        if (slot == null)
+            return Optional.of("Invalid slot");
+
+        if (slot.region != PincodeRegions.regionOf(pinCode))
+            return Optional.of("Slot is not at the lab serving pin code " + pinCode);
+
+        if (!slot.startsOn.isAfter(LocalDateTime.now()))
+            return Optional.of("Slot has already started");
+
+        if (!slot.remaining.tryAcquire())
+            return Optional.of("Slot is fully booked");
+
+        if (labSlotRepository.bookIfAvailable(slotId) == 0) {
+
+            // Booked up through another instance; take over the count the database holds
+            Integer booked = labSlotRepository.findBookedBySlotId(slotId);
+            slot.remaining.reset(booked == null ? 0 : Math.max(0, slot.capacity - booked));
+            return Optional.of("Slot is fully booked");
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != TransactionSynchronization.STATUS_COMMITTED)
+                        slot.remaining.release();
+                }
+            });
+        }
+        return Optional.empty();
+    }
+
+    private void add(LabSlot labSlot) {
+        Slot slot = new Slot(labSlot, stripes);
+        slots.put(slot.slotId, slot);
+        slotsByRegion.computeIfAbsent(slot.region, region -> new ConcurrentSkipListSet<>(
+                Comparator.comparing((Slot regionSlot) -> regionSlot.startsOn).thenComparing(regionSlot -> regionSlot.slotId)))
+                .add(slot);
+    }
+
+    private static class Slot {
+        private final Long slotId;
+        private final int region;
+        private final LocalDateTime startsOn;
+        private final int capacity;
+        private final StripedCapacity remaining;
+
+        private Slot(LabSlot labSlot, int stripes) {
+            this.slotId = labSlot.getSlotId();
+            this.region = labSlot.getRegion();
+            this.startsOn = labSlot.getStartsOn();
+            this.capacity = labSlot.getCapacity();
+            this.remaining = new StripedCapacity(Math.max(0, capacity - labSlot.getBooked()), stripes);
+        }
+    }
+}
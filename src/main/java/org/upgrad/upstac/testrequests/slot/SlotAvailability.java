@@ -0,0 +1,19 @@
+package org.upgrad.upstac.testrequests.slot;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class SlotAvailability {
+
+    private Long slotId;
+
+    private LocalDateTime startsOn;
+
+    private Integer capacity;
+
+    private Integer available;
+}
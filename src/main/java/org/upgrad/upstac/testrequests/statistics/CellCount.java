@@ -0,0 +1,13 @@
+package org.upgrad.upstac.testrequests.statistics;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CellCount {
+
+    private StatisticsCell cell;
+
+    private long count;
+}
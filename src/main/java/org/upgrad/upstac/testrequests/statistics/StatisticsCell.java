@@ -0,0 +1,37 @@
+package org.upgrad.upstac.testrequests.statistics;
+
+import lombok.Data;
+import org.upgrad.upstac.testrequests.RequestStatus;
+import org.upgrad.upstac.testrequests.TestRequest;
+import org.upgrad.upstac.testrequests.consultation.DoctorSuggestion;
+import org.upgrad.upstac.testrequests.lab.TestStatus;
+
+/**
+ * One combination of pin code, status, test result and doctor suggestion that requests are counted under.
+ *
+ * The result only counts from LAB_TEST_COMPLETED on and the suggestion only once COMPLETED, so a request falls in
+ * the same cell whether it is read from the database or from a transition event carrying later changes.
+ */
+@Data
+public class StatisticsCell {
+
+    private final Integer pinCode;
+
+    private final RequestStatus status;
+
+    private final TestStatus testStatus;
+
+    private final DoctorSuggestion suggestion;
+
+    public static StatisticsCell of(Integer pinCode, RequestStatus status, TestStatus testStatus, DoctorSuggestion suggestion) {
+        boolean tested = status.compareTo(RequestStatus.LAB_TEST_COMPLETED) >= 0;
+        boolean diagnosed = status == RequestStatus.COMPLETED;
+        return new StatisticsCell(pinCode, status, tested ? testStatus : null, diagnosed ? suggestion : null);
+    }
+
+    public static StatisticsCell of(TestRequest testRequest, RequestStatus status) {
+        TestStatus testStatus = testRequest.getLabResult() == null ? null : testRequest.getLabResult().getResult();
+        DoctorSuggestion suggestion = testRequest.getConsultation() == null ? null : testRequest.getConsultation().getSuggestion();
+        return of(testRequest.getPinCode(), status, testStatus, suggestion);
+    }
+}
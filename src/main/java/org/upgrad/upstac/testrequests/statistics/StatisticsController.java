@@ -0,0 +1,22 @@
+package org.upgrad.upstac.testrequests.statistics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/government/statistics")
+public class StatisticsController {
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @GetMapping
+    @PreAuthorize("hasAnyRole('GOVERNMENT_AUTHORITY')")
+    public TestRequestStatistics getStatistics(@RequestParam(required = false) Integer pinCode) {
+        return statisticsService.findStatistics(pinCode);
+    }
+}
@@ -0,0 +1,82 @@
+package org.upgrad.upstac.testrequests.statistics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.upgrad.upstac.testrequests.RequestStatus;
+import org.upgrad.upstac.testrequests.TestRequestRepository;
+import org.upgrad.upstac.testrequests.consultation.DoctorSuggestion;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.testrequests.lab.TestStatus;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live request counts per {@link StatisticsCell}, so dashboards read them without touching the database.
+ *
+ * Seeded with one grouped query at startup, then moved along by every transition event: creation counts a request
+ * in, and each later transition moves it from the cell of its old status to the cell of its new one. Cells are
+ * LongAdders, so concurrent transitions on busy cells update separate stripes rather than contending on one counter.
+ */
+@Service
+public class StatisticsService {
+
+    private static Logger logger = LoggerFactory.getLogger(StatisticsService.class);
+
+    @Autowired
+    private TestRequestRepository testRequestRepository;
+
+    private final ConcurrentMap<StatisticsCell, LongAdder> counts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void seedFromDatabase() {
+        for (Object[] row : testRequestRepository.countByPinCodeAndStatusAndResultAndSuggestion())
+            add(StatisticsCell.of((Integer) row[0], (RequestStatus) row[1], (TestStatus) row[2], (DoctorSuggestion) row[3]), (Long) row[4]);
+
+        logger.info("Statistics seeded with " + counts.size() + " cells");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(TestRequestTransitionEvent event) {
+        if (event.getFromStatus() != null)
+            add(StatisticsCell.of(event.getTestRequest(), event.getFromStatus()), -1);
+        add(StatisticsCell.of(event.getTestRequest(), event.getToStatus()), 1);
+    }
+
+    /**
+     * Counts in every non-empty cell, of one pin code when given.
+     */
+    public TestRequestStatistics findStatistics(Integer pinCode) {
+        Map<RequestStatus, Long> byStatus = new EnumMap<>(RequestStatus.class);
+        for (RequestStatus status : RequestStatus.values())
+            byStatus.put(status, 0L);
+
+        long total = 0;
+        List<CellCount> cells = new ArrayList<>();
+        for (Map.Entry<StatisticsCell, LongAdder> entry : counts.entrySet()) {
+            StatisticsCell cell = entry.getKey();
+            long count = entry.getValue().sum();
+            if (count == 0 || (pinCode != null && Objects.equals(pinCode, cell.getPinCode()) == false))
+                continue;
+
+            cells.add(new CellCount(cell, count));
+            byStatus.merge(cell.getStatus(), count, Long::sum);
+            total += count;
+        }
+        return new TestRequestStatistics(total, byStatus, cells);
+    }
+
+    private void add(StatisticsCell cell, long delta) {
+        counts.computeIfAbsent(cell, key -> new LongAdder()).add(delta);
+    }
+}
@@ -0,0 +1,19 @@
+package org.upgrad.upstac.testrequests.statistics;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.upgrad.upstac.testrequests.RequestStatus;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class TestRequestStatistics {
+
+    private long total;
+
+    private Map<RequestStatus, Long> byStatus;
+
+    private List<CellCount> cells;
+}
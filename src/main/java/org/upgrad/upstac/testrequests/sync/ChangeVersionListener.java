@@ -0,0 +1,30 @@
+package org.upgrad.upstac.testrequests.sync;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+
+/**
+ * Stamps a fresh change version on every insert or update of a {@link ChangeVersioned} entity.
+ *
+ * The service is looked up lazily because the listener is created while the EntityManagerFactory,
+ * which the service's repositories depend on, is still being built.
+ */
+@Component
+public class ChangeVersionListener {
+
+    @Autowired
+    private ObjectProvider<ChangeVersionService> changeVersionService;
+
+    @PrePersist
+    @PreUpdate
+    public void stamp(ChangeVersioned entity) {
+        changeVersionService.getObject().stamped(version -> {
+            entity.setChangeVersion(version);
+            return entity;
+        });
+    }
+}
@@ -0,0 +1,140 @@
+package org.upgrad.upstac.testrequests.sync;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.upgrad.upstac.testrequests.TestRequest;
+import org.upgrad.upstac.testrequests.TestRequestRepository;
+import org.upgrad.upstac.testrequests.consultation.ConsultationRepository;
+import org.upgrad.upstac.testrequests.lab.LabResultRepository;
+import org.upgrad.upstac.users.User;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Hands out the monotonically increasing change versions stamped on TestRequest, LabResult and Consultation rows.
+ *
+ * A version is "in flight" from the moment it is allocated until the change carrying it is committed, so the
+ * cursor handed to clients never moves past a change that is not yet visible to their next query.
+ */
+@Service
+public class ChangeVersionService {
+
+    @Autowired
+    private TestRequestRepository testRequestRepository;
+
+    @Autowired
+    private LabResultRepository labResultRepository;
+
+    @Autowired
+    private ConsultationRepository consultationRepository;
+
+    @Autowired
+    private SyncTombstoneRepository syncTombstoneRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final Object lock = new Object();
+
+    private final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<>();
+
+    private long current;
+
+    private static Logger logger = LoggerFactory.getLogger(ChangeVersionService.class);
+
+
+    @PostConstruct
+    void seedFromDatabase() {
+        current = Stream.of(testRequestRepository.findMaxChangeVersion(),
+                labResultRepository.findMaxChangeVersion(),
+                consultationRepository.findMaxChangeVersion())
+                .filter(Objects::nonNull)
+                .mapToLong(Long::longValue)
+                .max()
+                .orElse(0L);
+
+        // Rows written before change versions existed are stamped once, so a full sync with since=0 still sees them
+        Integer stamped = transactionTemplate.execute(status -> stamped(version ->
+                testRequestRepository.stampMissingChangeVersions(version)
+                        + labResultRepository.stampMissingChangeVersions(version)
+                        + consultationRepository.stampMissingChangeVersions(version)));
+
+        logger.info("Change versions seeded at " + current + ", stamped " + stamped + " legacy rows");
+    }
+
+    /**
+     * Allocates a version, passes it to the change and keeps it in flight until the surrounding
+     * transaction completes, or until the change returns when there is no transaction.
+     */
+    public <T> T stamped(LongFunction<T> change) {
+        long version = allocate();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    inFlight.remove(version);
+                }
+            });
+            return change.apply(version);
+        }
+
+        try {
+            return change.apply(version);
+        } finally {
+            inFlight.remove(version);
+        }
+    }
+
+    /**
+     * Highest version below which every change has been committed.
+     */
+    public long safeCursor() {
+        synchronized (lock) {
+            Long oldestInFlight = inFlight.ceiling(Long.MIN_VALUE);
+            return oldestInFlight == null ? current : oldestInFlight - 1;
+        }
+    }
+
+    public TestRequestChanges changesFrom(Supplier<List<TestRequest>> query) {
+
+        // Taken before querying: everything at or below it is already committed and will be in the result
+        long cursor = safeCursor();
+        return new TestRequestChanges(query.get(), cursor);
+    }
+
+    /**
+     * Like {@link #changesFrom(Supplier)} for a staff member's list, adding the requests that left it since
+     * their last poll through deleted lab results or consultations, unless they are back in it.
+     */
+    public TestRequestChanges changesFrom(Supplier<List<TestRequest>> query, User staff, Long since) {
+        long cursor = safeCursor();
+        List<TestRequest> changes = query.get();
+        Set<Long> changedIds = changes.stream().map(TestRequest::getRequestId).collect(Collectors.toSet());
+        List<Long> removed = syncTombstoneRepository.findRequestIdsRemovedSince(staff.getId(), since).stream()
+                .filter(requestId -> changedIds.contains(requestId) == false)
+                .collect(Collectors.toList());
+        return new TestRequestChanges(changes, removed, cursor);
+    }
+
+    private long allocate() {
+        synchronized (lock) {
+            long version = ++current;
+            inFlight.add(version);
+            return version;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package org.upgrad.upstac.testrequests.sync;
+
+public interface ChangeVersioned {
+
+    Long getChangeVersion();
+
+    void setChangeVersion(Long changeVersion);
+}
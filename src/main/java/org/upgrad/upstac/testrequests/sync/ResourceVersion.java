@@ -0,0 +1,25 @@
+package org.upgrad.upstac.testrequests.sync;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of one cacheable list (a user's history, a work queue, a staff member's requests).
+ */
+public class ResourceVersion {
+
+    private final String tag;
+
+    private final AtomicLong version = new AtomicLong();
+
+    ResourceVersion(String resource, long startedAt) {
+        this.tag = startedAt + "-" + Integer.toHexString(resource.hashCode());
+    }
+
+    void bump() {
+        version.incrementAndGet();
+    }
+
+    public String getETag() {
+        return "\"" + tag + "-" + version.get() + "\"";
+    }
+}
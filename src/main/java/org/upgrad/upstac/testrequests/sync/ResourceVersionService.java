@@ -0,0 +1,91 @@
+package org.upgrad.upstac.testrequests.sync;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.WebRequest;
+import org.upgrad.upstac.testrequests.RequestStatus;
+import org.upgrad.upstac.testrequests.TestRequest;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Keeps an in-memory version per user history, work queue and staff list, bumped by every transition
+ * that can change them. Lets list endpoints answer If-None-Match with a 304 without running their query.
+ *
+ * Only the ETag is compared: it changes on every bump, while If-Modified-Since has one second granularity
+ * and would hand a client a stale 304 after two changes within the same second.
+ */
+@Service
+public class ResourceVersionService {
+
+    // Part of every ETag, so tags handed out before a restart never match again
+    private final long startedAt = System.currentTimeMillis();
+
+    private final ConcurrentMap<String, ResourceVersion> versions = new ConcurrentHashMap<>();
+
+
+    public static String historyOf(String userName) {
+        return "history:" + userName;
+    }
+
+    public static String queueOf(RequestStatus status) {
+        return "queue:" + status.name();
+    }
+
+    public static String testerListOf(String userName) {
+        return "tester:" + userName;
+    }
+
+    public static String doctorListOf(String userName) {
+        return "doctor:" + userName;
+    }
+
+    public ResourceVersion versionOf(String resource) {
+        return versions.computeIfAbsent(resource, key -> new ResourceVersion(key, startedAt));
+    }
+
+    /**
+     * Returns null after marking the response 304 when the client already has the current version,
+     * otherwise the body produced by the supplier.
+     */
+    public <T> ResponseEntity<T> respondIfModified(WebRequest webRequest, String resource, Supplier<T> body) {
+
+        // Read before the query: a change racing with it only makes the next request refetch
+        ResourceVersion version = versionOf(resource);
+        if (webRequest.checkNotModified(version.getETag()))
+            return null;
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(body.get());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(TestRequestTransitionEvent event) {
+        TestRequest testRequest = event.getTestRequest();
+
+        if (testRequest.getCreatedBy() != null)
+            versionOf(historyOf(testRequest.getCreatedBy().getUserName())).bump();
+
+        if (event.getFromStatus() != null)
+            versionOf(queueOf(event.getFromStatus())).bump();
+        versionOf(queueOf(event.getToStatus())).bump();
+
+        if (testRequest.getLabResult() != null && testRequest.getLabResult().getTester() != null)
+            versionOf(testerListOf(testRequest.getLabResult().getTester().getUserName())).bump();
+
+        if (testRequest.getConsultation() != null && testRequest.getConsultation().getDoctor() != null)
+            versionOf(doctorListOf(testRequest.getConsultation().getDoctor().getUserName())).bump();
+
+        // A request sent back to a queue no longer has the lab result or consultation linking it to its staff member
+        if (event.getReleasedBy() != null) {
+            versionOf(testerListOf(event.getReleasedBy().getUserName())).bump();
+            versionOf(doctorListOf(event.getReleasedBy().getUserName())).bump();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.upgrad.upstac.testrequests.sync;
+
+import lombok.Data;
+
+import javax.persistence.*;
+
+/**
+ * Records that a request left a staff member's list because its lab result or consultation was deleted, so
+ * their next delta sync can drop it even though no row links them to it any more.
+ */
+@Data
+@Entity
+@Table(indexes = @Index(columnList = "staffId,changeVersion"))
+public class SyncTombstone {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long tombstoneId;
+
+    private Long requestId;
+
+    private Long staffId;
+
+    private Long changeVersion;
+}
@@ -0,0 +1,13 @@
+package org.upgrad.upstac.testrequests.sync;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface SyncTombstoneRepository extends JpaRepository<SyncTombstone, Long> {
+
+    @Query("select distinct t.requestId from SyncTombstone t where t.staffId = :staffId and t.changeVersion > :version")
+    List<Long> findRequestIdsRemovedSince(@Param("staffId") Long staffId, @Param("version") Long version);
+}
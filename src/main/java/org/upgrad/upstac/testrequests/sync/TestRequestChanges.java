@@ -0,0 +1,27 @@
+package org.upgrad.upstac.testrequests.sync;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.upgrad.upstac.testrequests.TestRequest;
+
+import java.util.Collections;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestRequestChanges {
+
+    private List<TestRequest> changes;
+
+    // Ids of requests that left the list since the last poll and are not back in changes
+    private List<Long> removed = Collections.emptyList();
+
+    // Pass back as ?since= on the next poll
+    private Long cursor;
+
+    public TestRequestChanges(List<TestRequest> changes, Long cursor) {
+        this(changes, Collections.emptyList(), cursor);
+    }
+}
@@ -0,0 +1,40 @@
+package org.upgrad.upstac.testrequests.triage;
+
+import org.upgrad.upstac.testrequests.lab.TestStatus;
+import org.upgrad.upstac.testrequests.lab.Vitals;
+import org.upgrad.upstac.testrequests.lab.VitalsParser;
+
+/**
+ * Early-warning style severity of a lab result: each vital sign outside its normal band adds 1 to 3 points, and a
+ * POSITIVE result adds {@link #POSITIVE_POINTS}. Missing vitals add nothing.
+ */
+public class SeverityScorer {
+
+    static final int POSITIVE_POINTS = 3;
+
+    public static int score(String bloodPressure, String heartBeat, String temperature, String oxygenLevel, TestStatus result) {
+        return score(VitalsParser.parseLenient(bloodPressure, heartBeat, temperature, oxygenLevel), result);
+    }
+
+    public static int score(Vitals vitals, TestStatus result) {
+        int score = result == TestStatus.POSITIVE ? POSITIVE_POINTS : 0;
+
+        Double spO2 = vitals.getOxygenSaturation();
+        if (spO2 != null)
+            score += spO2 <= 91 ? 3 : spO2 <= 93 ? 2 : spO2 <= 95 ? 1 : 0;
+
+        Double celsius = vitals.getTemperatureCelsius();
+        if (celsius != null)
+            score += celsius <= 35 ? 3 : celsius <= 36 ? 1 : celsius <= 38 ? 0 : celsius <= 39 ? 1 : 2;
+
+        Integer pulse = vitals.getHeartRate();
+        if (pulse != null)
+            score += pulse <= 40 ? 3 : pulse <= 50 ? 1 : pulse <= 90 ? 0 : pulse <= 110 ? 1 : pulse <= 130 ? 2 : 3;
+
+        Integer systolic = vitals.getSystolic();
+        if (systolic != null)
+            score += systolic <= 90 ? 3 : systolic <= 100 ? 2 : systolic <= 110 ? 1 : systolic < 220 ? 0 : 3;
+
+        return score;
+    }
+}
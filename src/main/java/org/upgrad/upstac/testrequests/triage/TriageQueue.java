@@ -0,0 +1,110 @@
+package org.upgrad.upstac.testrequests.triage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.upgrad.upstac.testrequests.RequestStatus;
+import org.upgrad.upstac.testrequests.TestRequest;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.testrequests.lab.LabResult;
+import org.upgrad.upstac.testrequests.lab.LabResultRepository;
+import org.upgrad.upstac.testrequests.lab.TestStatus;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * LAB_TEST_COMPLETED requests ordered by severity, most severe first and oldest first among equals.
+ *
+ * Kept in memory next to an index by request id, so entering and leaving the queue are O(log n) and the
+ * top K are read without touching the database. Seeded at startup and maintained from transitions.
+ */
+@Service
+public class TriageQueue {
+
+    private static final Comparator<Entry> MOST_SEVERE_FIRST = Comparator
+            .comparingInt((Entry entry) -> entry.severity).reversed()
+            .thenComparingLong(entry -> entry.requestId);
+
+    private static Logger logger = LoggerFactory.getLogger(TriageQueue.class);
+
+    @Autowired
+    private LabResultRepository labResultRepository;
+
+    private final ConcurrentSkipListSet<Entry> ordered = new ConcurrentSkipListSet<>(MOST_SEVERE_FIRST);
+
+    private final ConcurrentMap<Long, Entry> byRequestId = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void seedFromDatabase() {
+        for (Object[] row : labResultRepository.findVitalsByRequestStatus(RequestStatus.LAB_TEST_COMPLETED)) {
+            Integer severity = (Integer) row[1];
+            if (severity == null)
+                severity = SeverityScorer.score((String) row[2], (String) row[3], (String) row[4], (String) row[5], (TestStatus) row[6]);
+            add((Long) row[0], severity);
+        }
+        logger.info("Triage queue seeded with " + byRequestId.size() + " requests");
+    }
+
+    public void add(Long requestId, int severity) {
+        byRequestId.compute(requestId, (id, previous) -> {
+            if (previous != null)
+                ordered.remove(previous);
+            Entry entry = new Entry(id, severity);
+            ordered.add(entry);
+            return entry;
+        });
+    }
+
+    public void remove(Long requestId) {
+        byRequestId.computeIfPresent(requestId, (id, previous) -> {
+            ordered.remove(previous);
+            return null;
+        });
+    }
+
+    public List<Long> top(int limit) {
+        List<Long> requestIds = new ArrayList<>(Math.min(limit, byRequestId.size()));
+        for (Entry entry : ordered) {
+            if (requestIds.size() == limit)
+                break;
+            requestIds.add(entry.requestId);
+        }
+        return requestIds;
+    }
+
+    public int size() {
+        return byRequestId.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransition(TestRequestTransitionEvent event) {
+        TestRequest testRequest = event.getTestRequest();
+
+        if (event.getToStatus() == RequestStatus.LAB_TEST_COMPLETED) {
+            LabResult labResult = testRequest.getLabResult();
+            add(testRequest.getRequestId(), labResult == null || labResult.getSeverity() == null ? 0 : labResult.getSeverity());
+        } else if (event.getFromStatus() == RequestStatus.LAB_TEST_COMPLETED) {
+            remove(testRequest.getRequestId());
+        }
+    }
+
+    private static class Entry {
+
+        private final long requestId;
+
+        private final int severity;
+
+        Entry(long requestId, int severity) {
+            this.requestId = requestId;
+            this.severity = severity;
+        }
+    }
+}
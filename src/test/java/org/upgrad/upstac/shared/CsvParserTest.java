@@ -0,0 +1,63 @@
+package org.upgrad.upstac.shared;
+
+import org.junit.jupiter.api.Test;
+import org.upgrad.upstac.exception.AppException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvParserTest {
+
+    @Test
+    public void when_fields_are_quoted_expect_commas_and_doubled_quotes_to_be_kept(){
+
+        //Act
+        List<String> fields = CsvParser.parseLine("12, \"fine, \"\"ok\"\"\",,NEGATIVE");
+
+        //Assert
+        assertEquals(Arrays.asList("12", "fine, \"ok\"", "", "NEGATIVE"), fields);
+    }
+
+    @Test
+    public void when_formatted_line_is_parsed_back_expect_the_same_values(){
+
+        //Arrange
+        String line = CsvParser.formatLine(3L, "a \"b\", c", null);
+
+        //Act
+        List<String> fields = CsvParser.parseLine(line);
+
+        //Assert
+        assertEquals(Arrays.asList("3", "a \"b\", c", ""), fields);
+    }
+
+    @Test
+    public void when_required_column_is_missing_expect_exception(){
+
+        //Act
+        AppException appException = assertThrows(AppException.class, () -> CsvParser.indexHeader("requestId,Result", "requestId", "bloodPressure"));
+
+        //Assert
+        assertThat(appException.getMessage(), containsString("bloodPressure"));
+    }
+
+    @Test
+    public void when_header_is_indexed_expect_fields_by_case_insensitive_name(){
+
+        //Arrange
+        Map<String, Integer> columns = CsvParser.indexHeader("RequestId,result", "requestId");
+
+        //Act
+        List<String> fields = CsvParser.parseLine("7,POSITIVE");
+
+        //Assert
+        assertEquals("7", CsvParser.field(fields, columns, "requestId"));
+        assertEquals("POSITIVE", CsvParser.field(fields, columns, "Result"));
+        assertNull(CsvParser.field(fields, columns, "comments"));
+    }
+}
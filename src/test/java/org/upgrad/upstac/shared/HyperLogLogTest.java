@@ -0,0 +1,87 @@
+package org.upgrad.upstac.shared;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    @Test
+    public void when_offered_many_repeated_values_expect_the_distinct_count_within_three_standard_errors(){
+
+        //Arrange
+        HyperLogLog hyperLogLog = new HyperLogLog(11);
+
+        //Act
+        for (int repeat = 0; repeat < 3; repeat++)
+            for (int person = 0; person < 100000; person++)
+                hyperLogLog.offer("90000" + person);
+
+        //Assert
+        double error = Math.abs(hyperLogLog.estimate() - 100000) / 100000.0;
+        assertTrue(error < 3 * hyperLogLog.relativeStandardError(), "Error was " + error);
+    }
+
+    @Test
+    public void when_sketches_overlap_expect_the_merge_to_count_the_union(){
+
+        //Arrange
+        HyperLogLog first = new HyperLogLog(12);
+        HyperLogLog second = new HyperLogLog(12);
+        HyperLogLog union = new HyperLogLog(12);
+        for (int person = 0; person < 30000; person++) {
+            first.offer("person" + person);
+            union.offer("person" + person);
+        }
+        for (int person = 20000; person < 50000; person++) {
+            second.offer("person" + person);
+            union.offer("person" + person);
+        }
+
+        //Act
+        first.merge(second);
+
+        //Assert
+        assertEquals(union.estimate(), first.estimate());
+        assertTrue(Math.abs(first.estimate() - 50000) / 50000.0 < 3 * first.relativeStandardError());
+        assertThrows(IllegalArgumentException.class, () -> first.merge(new HyperLogLog(11)));
+    }
+
+    @Test
+    public void when_few_values_are_offered_expect_a_small_exact_count_and_a_compact_round_trip(){
+
+        //Arrange
+        HyperLogLog hyperLogLog = new HyperLogLog(11);
+        hyperLogLog.offer("9000000001");
+        hyperLogLog.offer("9000000002");
+        boolean changedAgain = hyperLogLog.offer("9000000001");
+
+        //Act
+        byte[] bytes = hyperLogLog.toBytes();
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+
+        //Assert
+        assertFalse(changedAgain);
+        assertEquals(2, hyperLogLog.estimate());
+        assertEquals(2 + 2 * 3, bytes.length);
+        assertEquals(2, restored.estimate());
+        assertEquals(11, restored.getPrecision());
+    }
+
+    @Test
+    public void when_many_registers_are_set_expect_the_dense_round_trip_to_keep_them_all(){
+
+        //Arrange
+        HyperLogLog hyperLogLog = new HyperLogLog(8);
+        for (int person = 0; person < 5000; person++)
+            hyperLogLog.offer("person" + person);
+
+        //Act
+        byte[] bytes = hyperLogLog.toBytes();
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+
+        //Assert
+        assertEquals(2 + 256, bytes.length);
+        assertEquals(hyperLogLog.estimate(), restored.estimate());
+    }
+}
@@ -0,0 +1,90 @@
+package org.upgrad.upstac.shared;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SseSubscriptionsTest {
+
+    SseSubscriptions<String> subscriptions = new SseSubscriptions<>("test-stream", 1, 2, 60000);
+
+    CountDownLatch sendersBlocked = new CountDownLatch(1);
+
+    @BeforeEach
+    public void blockSenders() {
+
+        // Holds the only sender thread so buffers fill up as they would behind a slow connection
+        senders().execute(() -> {
+            try {
+                sendersBlocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    @AfterEach
+    public void shutdown() {
+        subscriptions.shutdown();
+    }
+
+    @Test
+    public void when_a_subscriber_buffer_overflows_expect_only_that_subscriber_disconnected(){
+
+        //Arrange
+        subscriptions.subscribe("LAB_TEST");
+        subscriptions.publish("LAB_TEST", "ADDED", 1);
+        subscriptions.publish("LAB_TEST", "ADDED", 2);
+        subscriptions.subscribe("LAB_TEST");
+
+        //Act
+        subscriptions.publish("LAB_TEST", "ADDED", 3);
+
+        //Assert
+        assertEquals(1, subscriptions.countSubscribers("LAB_TEST"));
+    }
+
+    @Test
+    public void when_publishing_to_one_key_expect_subscribers_of_other_keys_untouched(){
+
+        //Arrange
+        subscriptions.subscribe("LAB_TEST");
+        subscriptions.subscribe("CONSULTATION");
+
+        //Act
+        for (int event = 0; event < 3; event++)
+            subscriptions.publish("LAB_TEST", "ADDED", event);
+
+        //Assert
+        assertEquals(0, subscriptions.countSubscribers("LAB_TEST"));
+        assertEquals(1, subscriptions.countSubscribers("CONSULTATION"));
+    }
+
+    @Test
+    public void when_senders_drain_the_buffer_expect_the_subscriber_to_keep_up() throws Exception {
+
+        //Arrange
+        subscriptions.subscribe("LAB_TEST");
+        subscriptions.publish("LAB_TEST", "ADDED", 1);
+        subscriptions.publish("LAB_TEST", "ADDED", 2);
+
+        //Act
+        sendersBlocked.countDown();
+        senders().submit(() -> { }).get();
+        subscriptions.publish("LAB_TEST", "ADDED", 3);
+        subscriptions.publish("LAB_TEST", "ADDED", 4);
+
+        //Assert
+        assertEquals(1, subscriptions.countSubscribers("LAB_TEST"));
+    }
+
+    private ExecutorService senders() {
+        return (ExecutorService) ReflectionTestUtils.getField(subscriptions, "senders");
+    }
+}
@@ -0,0 +1,62 @@
+package org.upgrad.upstac.shared;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedCapacityTest {
+
+    @Test
+    public void when_many_threads_acquire_expect_exactly_the_capacity_to_be_handed_out() throws Exception {
+
+        //Arrange
+        StripedCapacity stripedCapacity = new StripedCapacity(1000, 8);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Callable<Integer>> callers = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            callers.add(() -> {
+                int acquired = 0;
+                for (int attempt = 0; attempt < 200; attempt++)
+                    if (stripedCapacity.tryAcquire())
+                        acquired++;
+                return acquired;
+            });
+        }
+
+        //Act
+        int acquired = 0;
+        for (Future<Integer> result : executor.invokeAll(callers))
+            acquired += result.get();
+        executor.shutdown();
+
+        //Assert
+        assertEquals(1000, acquired);
+        assertEquals(0, stripedCapacity.available());
+        assertFalse(stripedCapacity.tryAcquire());
+    }
+
+    @Test
+    public void when_only_one_stripe_has_units_left_expect_acquire_to_find_them(){
+
+        //Arrange
+        StripedCapacity stripedCapacity = new StripedCapacity(1, 8);
+
+        //Act
+        boolean first = stripedCapacity.tryAcquire();
+        boolean second = stripedCapacity.tryAcquire();
+        stripedCapacity.release();
+
+        //Assert
+        assertTrue(first);
+        assertFalse(second);
+        assertEquals(1, stripedCapacity.available());
+        assertTrue(stripedCapacity.tryAcquire());
+    }
+}
@@ -0,0 +1,91 @@
+package org.upgrad.upstac.shared;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedExecutorTest {
+
+    @Test
+    public void when_tasks_share_a_key_expect_them_to_run_one_at_a_time() throws Exception {
+
+        //Arrange
+        StripedExecutor stripedExecutor = new StripedExecutor(4, "test-lane-");
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger mostRunning = new AtomicInteger();
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            tasks.add(() -> stripedExecutor.execute(7L, () -> {
+                mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(1);
+                return running.decrementAndGet();
+            }));
+        }
+
+        //Act
+        for (Future<Integer> result : callers.invokeAll(tasks))
+            result.get();
+        callers.shutdown();
+        stripedExecutor.shutdown();
+
+        //Assert
+        assertEquals(1, mostRunning.get());
+    }
+
+    @Test
+    public void when_a_task_submits_another_on_its_lane_expect_it_to_run_in_place(){
+
+        //Arrange
+        StripedExecutor stripedExecutor = new StripedExecutor(2, "test-lane-");
+
+        //Act
+        String threads = assertDoesNotThrow(() -> stripedExecutor.execute(1L, () ->
+                Thread.currentThread().getName() + " " + stripedExecutor.execute(3L, () -> Thread.currentThread().getName())));
+        stripedExecutor.shutdown();
+
+        //Assert
+        String[] names = threads.split(" ");
+        assertEquals(names[0], names[1]);
+    }
+
+    @Test
+    public void when_a_task_submits_another_on_another_lane_expect_it_rejected(){
+
+        //Arrange
+        StripedExecutor stripedExecutor = new StripedExecutor(2, "test-lane-");
+        AtomicInteger ran = new AtomicInteger();
+
+        //Act
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+                stripedExecutor.execute(1L, () -> stripedExecutor.execute(2L, ran::incrementAndGet)));
+        stripedExecutor.shutdown();
+
+        //Assert
+        assertEquals("A task on lane 1 cannot wait on lane 0 for key 2", exception.getMessage());
+        assertEquals(0, ran.get());
+    }
+
+    @Test
+    public void when_a_task_fails_expect_its_exception_to_reach_the_caller(){
+
+        //Arrange
+        StripedExecutor stripedExecutor = new StripedExecutor(2, "test-lane-");
+
+        //Act
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+                stripedExecutor.execute(3L, () -> { throw new IllegalStateException("Invalid ID"); }));
+        stripedExecutor.shutdown();
+
+        //Assert
+        assertEquals("Invalid ID", exception.getMessage());
+    }
+}
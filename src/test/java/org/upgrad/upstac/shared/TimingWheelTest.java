@@ -0,0 +1,82 @@
+package org.upgrad.upstac.shared;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    public void when_deadlines_span_several_levels_expect_each_key_to_expire_on_its_tick(){
+
+        //Arrange
+        TimingWheel<Long> timingWheel = new TimingWheel<>(1, 4, 3, 0);
+        Random random = new Random(7);
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            long deadline = 1 + random.nextInt(200);
+            deadlines.add(deadline);
+            timingWheel.schedule((long) i, deadline);
+        }
+
+        //Act
+        List<Long> wrongTicks = new ArrayList<>();
+        int expiredCount = 0;
+        for (long now = 1; now <= 200; now++) {
+            for (Long key : timingWheel.advanceTo(now)) {
+                expiredCount++;
+                if (deadlines.get(key.intValue()) != now)
+                    wrongTicks.add(key);
+            }
+        }
+
+        //Assert
+        assertEquals(500, expiredCount);
+        assertEquals(Collections.emptyList(), wrongTicks);
+        assertEquals(0, timingWheel.size());
+    }
+
+    @Test
+    public void when_a_key_is_cancelled_or_rescheduled_expect_only_its_latest_deadline_to_fire(){
+
+        //Arrange
+        TimingWheel<String> timingWheel = new TimingWheel<>(10, 8, 2, 1000);
+        timingWheel.schedule("cancelled", 1050);
+        timingWheel.schedule("moved", 1050);
+        timingWheel.schedule("kept", 1100);
+
+        //Act
+        timingWheel.cancel("cancelled");
+        timingWheel.schedule("moved", 1200);
+        List<String> first = timingWheel.advanceTo(1150);
+        List<String> second = timingWheel.advanceTo(1250);
+
+        //Assert
+        assertEquals(Arrays.asList("kept"), first);
+        assertEquals(Arrays.asList("moved"), second);
+    }
+
+    @Test
+    public void when_deadline_is_beyond_the_top_level_or_already_past_expect_it_handled(){
+
+        //Arrange
+        TimingWheel<String> timingWheel = new TimingWheel<>(1, 4, 2, 0);
+
+        //Act
+        boolean pastScheduled = timingWheel.schedule("past", 0);
+        timingWheel.schedule("far", 50);
+        List<String> beforeDeadline = timingWheel.advanceTo(49);
+        List<String> atDeadline = timingWheel.advanceTo(50);
+
+        //Assert
+        assertFalse(pastScheduled);
+        assertTrue(beforeDeadline.isEmpty());
+        assertEquals(Arrays.asList("far"), atDeadline);
+    }
+}
@@ -0,0 +1,129 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.upgrad.upstac.testrequests.consultation.AutoCompletionService;
+import org.upgrad.upstac.testrequests.consultation.Consultation;
+import org.upgrad.upstac.testrequests.consultation.ConsultationRepository;
+import org.upgrad.upstac.testrequests.consultation.DoctorSuggestion;
+import org.upgrad.upstac.testrequests.lab.CreateLabResult;
+import org.upgrad.upstac.testrequests.lab.LabResult;
+import org.upgrad.upstac.testrequests.lab.TestStatus;
+import org.upgrad.upstac.users.User;
+import org.upgrad.upstac.users.UserService;
+import org.upgrad.upstac.users.models.Gender;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "app.auto-completion.enabled=true")
+class AutoCompletionServiceTest {
+
+    private static final AtomicInteger people = new AtomicInteger();
+
+    @Autowired
+    AutoCompletionService autoCompletionService;
+
+    @Autowired
+    TestRequestService testRequestService;
+
+    @Autowired
+    TestRequestUpdateService testRequestUpdateService;
+
+    @Autowired
+    TestRequestRepository testRequestRepository;
+
+    @Autowired
+    ConsultationRepository consultationRepository;
+
+    @Autowired
+    UserService userService;
+
+    @Test
+    public void when_result_is_negative_with_normal_vitals_expect_it_completed_without_review(){
+
+        //Arrange
+        LabResult labResult = labResultWith(TestStatus.NEGATIVE, 120, 80, 72, 36.8, 98.0);
+
+        //Act
+        boolean canComplete = autoCompletionService.canComplete(labResult);
+
+        //Assert
+        assertTrue(canComplete);
+    }
+
+    @Test
+    public void when_result_is_positive_or_a_vital_is_abnormal_expect_it_left_for_a_doctor(){
+
+        //Arrange
+        LabResult positive = labResultWith(TestStatus.POSITIVE, 120, 80, 72, 36.8, 98.0);
+        LabResult lowSaturation = labResultWith(TestStatus.NEGATIVE, 120, 80, 72, 36.8, 93.0);
+        LabResult missingTemperature = labResultWith(TestStatus.NEGATIVE, 120, 80, 72, null, 98.0);
+
+        //Act
+        Optional<String> positiveRule = autoCompletionService.findUnmetRule(positive);
+        Optional<String> saturationRule = autoCompletionService.findUnmetRule(lowSaturation);
+        Optional<String> temperatureRule = autoCompletionService.findUnmetRule(missingTemperature);
+
+        //Assert
+        assertFalse(autoCompletionService.canComplete(positive));
+        assertEquals(Optional.of("result"), positiveRule);
+        assertEquals(Optional.of("severity"), saturationRule);
+        assertEquals(Optional.of("temperature-celsius"), temperatureRule);
+    }
+
+    @Test
+    public void when_a_tester_enters_a_negative_result_with_normal_vitals_expect_the_request_completed_with_a_consultation(){
+
+        //Arrange
+        User tester = userService.findByUserName("tester");
+        Long requestId = createTestRequest().getRequestId();
+        testRequestUpdateService.assignForLabTest(requestId, tester);
+        CreateLabResult createLabResult = new CreateLabResult();
+        createLabResult.setBloodPressure("120/80");
+        createLabResult.setHeartBeat("72");
+        createLabResult.setTemperature("36.8");
+        createLabResult.setOxygenLevel("98");
+        createLabResult.setResult(TestStatus.NEGATIVE);
+
+        //Act
+        testRequestUpdateService.updateLabTest(requestId, createLabResult, tester);
+
+        //Assert
+        TestRequest testRequest = testRequestRepository.findByRequestId(requestId).get();
+        assertEquals(RequestStatus.COMPLETED, testRequest.getStatus());
+        Consultation consultation = consultationRepository.findByRequest(testRequest).get();
+        assertEquals(DoctorSuggestion.NO_ISSUES, consultation.getSuggestion());
+        assertEquals(autoCompletionService.getSystemDoctor().getId(), consultation.getDoctor().getId());
+    }
+
+    private TestRequest createTestRequest() {
+        int person = people.incrementAndGet();
+        CreateTestRequest createTestRequest = new CreateTestRequest();
+        createTestRequest.setName("someuser");
+        createTestRequest.setGender(Gender.FEMALE);
+        createTestRequest.setAddress("some Addres");
+        createTestRequest.setAge(33);
+        createTestRequest.setEmail("auto" + person + "@somedomain.com");
+        createTestRequest.setPhoneNumber(String.valueOf(7400000000L + person));
+        createTestRequest.setPinCode(716768);
+        return testRequestService.createTestRequestFrom(userService.findByUserName("user"), createTestRequest);
+    }
+
+    private LabResult labResultWith(TestStatus result, Integer systolic, Integer diastolic, Integer heartRate, Double celsius, Double spO2) {
+        LabResult labResult = new LabResult();
+        labResult.setResult(result);
+        labResult.setSystolic(systolic);
+        labResult.setDiastolic(diastolic);
+        labResult.setHeartRate(heartRate);
+        labResult.setTemperatureCelsius(celsius);
+        labResult.setOxygenSaturation(spO2);
+        labResult.setSeverity(spO2 != null && spO2 < 95 ? 2 : 0);
+        return labResult;
+    }
+}
@@ -0,0 +1,39 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.Test;
+import org.upgrad.upstac.testrequests.sync.ChangeVersionService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeVersionServiceTest {
+
+    ChangeVersionService changeVersionService = new ChangeVersionService();
+
+    @Test
+    public void when_changes_are_stamped_expect_versions_to_increase(){
+
+        //Act
+        Long first = changeVersionService.stamped(version -> version);
+        Long second = changeVersionService.stamped(version -> version);
+
+        //Assert
+        assertTrue(second > first);
+        assertEquals(second.longValue(), changeVersionService.safeCursor());
+    }
+
+    @Test
+    public void when_a_change_is_in_flight_expect_cursor_to_stay_below_it(){
+
+        //Arrange
+        Long committed = changeVersionService.stamped(version -> version);
+
+        //Act
+        Long cursorDuringChange = changeVersionService.stamped(inFlight ->
+                changeVersionService.stamped(later -> changeVersionService.safeCursor()));
+
+        //Assert
+        assertEquals(committed, cursorDuringChange);
+        assertEquals(committed + 2, changeVersionService.safeCursor());
+    }
+}
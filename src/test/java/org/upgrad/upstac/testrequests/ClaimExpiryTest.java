@@ -0,0 +1,116 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.testrequests.lab.CreateLabResult;
+import org.upgrad.upstac.testrequests.lab.LabResultRepository;
+import org.upgrad.upstac.testrequests.lab.TestStatus;
+import org.upgrad.upstac.testrequests.queue.WorkQueue;
+import org.upgrad.upstac.users.User;
+import org.upgrad.upstac.users.UserService;
+import org.upgrad.upstac.users.models.Gender;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ClaimExpiryTest {
+
+    private static final AtomicInteger people = new AtomicInteger();
+
+    @Autowired
+    TestRequestService testRequestService;
+
+    @Autowired
+    TestRequestUpdateService testRequestUpdateService;
+
+    @Autowired
+    TestRequestRepository testRequestRepository;
+
+    @Autowired
+    LabResultRepository labResultRepository;
+
+    @Autowired
+    UserService userService;
+
+    @Test
+    public void when_the_result_is_entered_before_the_lease_runs_out_expect_the_expiry_to_lose(){
+
+        //Arrange
+        User tester = userService.findByUserName("tester");
+        Long requestId = createTestRequest().getRequestId();
+        testRequestUpdateService.assignForLabTest(requestId, tester);
+        testRequestUpdateService.updateLabTest(requestId, labResult(), tester);
+
+        //Act
+        Optional<TestRequest> returned = testRequestUpdateService.returnExpiredClaim(requestId, WorkQueue.LAB_TEST, tester);
+
+        //Assert
+        assertFalse(returned.isPresent());
+        TestRequest testRequest = testRequestRepository.findByRequestId(requestId).get();
+        assertEquals(RequestStatus.LAB_TEST_COMPLETED, testRequest.getStatus());
+        assertEquals(TestStatus.POSITIVE, labResultRepository.findByRequest(testRequest).get().getResult());
+    }
+
+    @Test
+    public void when_the_lease_runs_out_before_the_result_is_entered_expect_the_result_rejected(){
+
+        //Arrange
+        User tester = userService.findByUserName("tester");
+        Long requestId = createTestRequest().getRequestId();
+        testRequestUpdateService.assignForLabTest(requestId, tester);
+
+        //Act
+        Optional<TestRequest> returned = testRequestUpdateService.returnExpiredClaim(requestId, WorkQueue.LAB_TEST, tester);
+        assertThrows(AppException.class, () -> testRequestUpdateService.updateLabTest(requestId, labResult(), tester));
+
+        //Assert
+        assertTrue(returned.isPresent());
+        TestRequest testRequest = testRequestRepository.findByRequestId(requestId).get();
+        assertEquals(RequestStatus.INITIATED, testRequest.getStatus());
+        assertFalse(labResultRepository.findByRequest(testRequest).isPresent());
+    }
+
+    @Test
+    public void when_the_claim_was_taken_over_expect_the_old_owners_expiry_to_leave_it(){
+
+        //Arrange
+        User tester = userService.findByUserName("tester");
+        User doctor = userService.findByUserName("doctor");
+        Long requestId = createTestRequest().getRequestId();
+        testRequestUpdateService.assignForLabTest(requestId, tester);
+
+        //Act
+        Optional<TestRequest> returned = testRequestUpdateService.returnExpiredClaim(requestId, WorkQueue.LAB_TEST, doctor);
+
+        //Assert
+        assertFalse(returned.isPresent());
+        assertEquals(RequestStatus.LAB_TEST_IN_PROGRESS, testRequestRepository.findByRequestId(requestId).get().getStatus());
+    }
+
+    private static CreateLabResult labResult() {
+        CreateLabResult createLabResult = new CreateLabResult();
+        createLabResult.setBloodPressure("125/82");
+        createLabResult.setHeartBeat("80");
+        createLabResult.setTemperature("38.1");
+        createLabResult.setResult(TestStatus.POSITIVE);
+        return createLabResult;
+    }
+
+    private TestRequest createTestRequest() {
+        int person = people.incrementAndGet();
+        CreateTestRequest createTestRequest = new CreateTestRequest();
+        createTestRequest.setName("someuser");
+        createTestRequest.setGender(Gender.MALE);
+        createTestRequest.setAddress("some Addres");
+        createTestRequest.setAge(47);
+        createTestRequest.setEmail("expiry" + person + "@somedomain.com");
+        createTestRequest.setPhoneNumber(String.valueOf(7600000000L + person));
+        createTestRequest.setPinCode(716768);
+        return testRequestService.createTestRequestFrom(userService.findByUserName("user"), createTestRequest);
+    }
+}
@@ -0,0 +1,151 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.shared.TimingWheel;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.testrequests.lease.ClaimLeaseService;
+import org.upgrad.upstac.testrequests.queue.WorkQueue;
+import org.upgrad.upstac.users.User;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+
+@ExtendWith(MockitoExtension.class)
+class ClaimLeaseServiceTest {
+
+    private static final long LEASE_MILLIS = 300;
+
+    @InjectMocks
+    ClaimLeaseService claimLeaseService;
+
+    @Mock
+    TestRequestRepository testRequestRepository;
+
+    @Mock
+    TestRequestUpdateService testRequestUpdateService;
+
+    User tester = userWithId(1L);
+
+    @BeforeEach
+    public void setUp() {
+        // Ticked by hand rather than through start(), which would start the ticker thread
+        ReflectionTestUtils.setField(claimLeaseService, "leaseDuration", Duration.ofMillis(LEASE_MILLIS));
+        ReflectionTestUtils.setField(claimLeaseService, "tickMillis", 10L);
+        ReflectionTestUtils.setField(claimLeaseService, "timingWheel", new TimingWheel<Long>(10, 64, 3, System.currentTimeMillis()));
+    }
+
+    @Test
+    public void when_a_lease_runs_out_expect_the_claim_returned_to_its_queue() throws InterruptedException {
+
+        //Arrange
+        claim(7L, RequestStatus.LAB_TEST_IN_PROGRESS, tester);
+
+        //Act
+        Thread.sleep(LEASE_MILLIS + 50);
+        ReflectionTestUtils.invokeMethod(claimLeaseService, "tick");
+
+        //Assert
+        Mockito.verify(testRequestUpdateService).returnExpiredClaim(7L, WorkQueue.LAB_TEST, tester);
+    }
+
+    @Test
+    public void when_the_owner_reads_their_list_expect_their_leases_extended() throws InterruptedException {
+
+        //Arrange
+        claim(8L, RequestStatus.DIAGNOSIS_IN_PROCESS, tester);
+        Thread.sleep(LEASE_MILLIS / 2);
+
+        //Act
+        int renewed = claimLeaseService.renewHeldBy(WorkQueue.CONSULTATION, tester);
+        Thread.sleep(LEASE_MILLIS / 2 + 100);
+        ReflectionTestUtils.invokeMethod(claimLeaseService, "tick");
+
+        //Assert
+        assertEquals(1, renewed);
+        Mockito.verify(testRequestUpdateService, Mockito.never()).returnExpiredClaim(anyLong(), any(), any());
+    }
+
+    @Test
+    public void when_someone_else_is_active_expect_the_lease_left_to_run_out() throws InterruptedException {
+
+        //Arrange
+        claim(9L, RequestStatus.LAB_TEST_IN_PROGRESS, tester);
+
+        //Act
+        int renewedForOther = claimLeaseService.renewHeldBy(WorkQueue.LAB_TEST, userWithId(2L));
+        int renewedInOtherQueue = claimLeaseService.renewHeldBy(WorkQueue.CONSULTATION, tester);
+        AppException exception = assertThrows(AppException.class, () -> claimLeaseService.renew(9L, WorkQueue.LAB_TEST, userWithId(2L)));
+        Thread.sleep(LEASE_MILLIS + 50);
+        ReflectionTestUtils.invokeMethod(claimLeaseService, "tick");
+
+        //Assert
+        assertEquals(0, renewedForOther);
+        assertEquals(0, renewedInOtherQueue);
+        assertEquals("No active claim on request 9", exception.getMessage());
+        Mockito.verify(testRequestUpdateService).returnExpiredClaim(9L, WorkQueue.LAB_TEST, tester);
+    }
+
+    @Test
+    public void when_the_claim_is_completed_expect_its_lease_dropped() throws InterruptedException {
+
+        //Arrange
+        claim(10L, RequestStatus.LAB_TEST_IN_PROGRESS, tester);
+
+        //Act
+        claim(10L, RequestStatus.LAB_TEST_COMPLETED, tester);
+        Thread.sleep(LEASE_MILLIS + 50);
+        ReflectionTestUtils.invokeMethod(claimLeaseService, "tick");
+
+        //Assert
+        Mockito.verify(testRequestUpdateService, Mockito.never()).returnExpiredClaim(anyLong(), any(), any());
+        assertThrows(AppException.class, () -> claimLeaseService.renew(10L, WorkQueue.LAB_TEST, tester));
+    }
+
+    @Test
+    public void when_leases_change_hands_or_end_expect_only_the_current_holders_to_renew_them() {
+
+        //Arrange
+        User otherTester = userWithId(2L);
+        claim(11L, RequestStatus.LAB_TEST_IN_PROGRESS, tester);
+        claim(12L, RequestStatus.LAB_TEST_IN_PROGRESS, tester);
+        claim(13L, RequestStatus.LAB_TEST_IN_PROGRESS, tester);
+
+        //Act
+        claim(11L, RequestStatus.LAB_TEST_IN_PROGRESS, otherTester);
+        claim(12L, RequestStatus.LAB_TEST_COMPLETED, tester);
+        int renewedForTester = claimLeaseService.renewHeldBy(WorkQueue.LAB_TEST, tester);
+        int renewedForOther = claimLeaseService.renewHeldBy(WorkQueue.LAB_TEST, otherTester);
+        claim(13L, RequestStatus.LAB_TEST_COMPLETED, tester);
+        int renewedAfterCompleting = claimLeaseService.renewHeldBy(WorkQueue.LAB_TEST, tester);
+
+        //Assert
+        assertEquals(1, renewedForTester);
+        assertEquals(1, renewedForOther);
+        assertEquals(0, renewedAfterCompleting);
+        assertThrows(AppException.class, () -> claimLeaseService.renew(11L, WorkQueue.LAB_TEST, tester));
+    }
+
+    private void claim(Long requestId, RequestStatus toStatus, User user) {
+        TestRequest testRequest = new TestRequest();
+        testRequest.setRequestId(requestId);
+        claimLeaseService.onTransition(new TestRequestTransitionEvent(testRequest, null, toStatus, user));
+    }
+
+    private static User userWithId(Long id) {
+        User user = new User();
+        user.setId(id);
+        user.setUserName("staff" + id);
+        return user;
+    }
+}
@@ -0,0 +1,92 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.testrequests.queue.ClaimQueueService;
+import org.upgrad.upstac.testrequests.queue.WorkQueue;
+import org.upgrad.upstac.users.User;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClaimQueueServiceTest {
+
+    @InjectMocks
+    ClaimQueueService claimQueueService;
+
+    @Mock
+    TestRequestUpdateService testRequestUpdateService;
+
+    @Test
+    public void when_work_is_waiting_expect_claim_next_to_answer_immediately(){
+
+        //Arrange
+        User tester = new User();
+        TestRequest testRequest = new TestRequest();
+        Mockito.when(testRequestUpdateService.claimNextForLabTest(tester)).thenReturn(Optional.of(testRequest));
+
+        //Act
+        DeferredResult<ResponseEntity<TestRequest>> result = claimQueueService.claimNext(WorkQueue.LAB_TEST, tester);
+
+        //Assert
+        assertTrue(result.hasResult());
+        assertSame(testRequest, ((ResponseEntity<?>) result.getResult()).getBody());
+        assertEquals(0, claimQueueService.countWaiting(WorkQueue.LAB_TEST));
+    }
+
+    @Test
+    public void when_queue_is_empty_expect_caller_to_be_served_once_a_request_arrives() throws InterruptedException {
+
+        //Arrange
+        ReflectionTestUtils.setField(claimQueueService, "timeoutMillis", 30000L);
+        User doctor = new User();
+        TestRequest testRequest = new TestRequest();
+        Mockito.when(testRequestUpdateService.claimNextForConsultation(doctor)).thenReturn(Optional.empty());
+        DeferredResult<ResponseEntity<TestRequest>> result = claimQueueService.claimNext(WorkQueue.CONSULTATION, doctor);
+        Mockito.when(testRequestUpdateService.claimNextForConsultation(doctor)).thenReturn(Optional.of(testRequest));
+
+        //Act
+        claimQueueService.onTransition(new TestRequestTransitionEvent(testRequest, RequestStatus.LAB_TEST_IN_PROGRESS, RequestStatus.LAB_TEST_COMPLETED, null));
+        for (int attempt = 0; attempt < 100 && result.hasResult() == false; attempt++)
+            Thread.sleep(20);
+
+        //Assert
+        ResponseEntity<?> response = (ResponseEntity<?>) result.getResult();
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(testRequest, response.getBody());
+    }
+
+    @Test
+    public void when_the_wait_ends_while_claiming_expect_the_claimed_request_put_back() {
+
+        //Arrange
+        ReflectionTestUtils.setField(claimQueueService, "timeoutMillis", 30000L);
+        User doctor = new User();
+        TestRequest testRequest = new TestRequest();
+        testRequest.setRequestId(5L);
+        Mockito.when(testRequestUpdateService.claimNextForConsultation(doctor)).thenReturn(Optional.empty());
+        DeferredResult<ResponseEntity<TestRequest>> result = claimQueueService.claimNext(WorkQueue.CONSULTATION, doctor);
+        Mockito.when(testRequestUpdateService.claimNextForConsultation(doctor)).thenAnswer(invocation -> {
+            result.setResult(ResponseEntity.noContent().build());
+            return Optional.of(testRequest);
+        });
+
+        //Act
+        claimQueueService.onTransition(new TestRequestTransitionEvent(testRequest, RequestStatus.LAB_TEST_IN_PROGRESS, RequestStatus.LAB_TEST_COMPLETED, null));
+
+        //Assert
+        Mockito.verify(testRequestUpdateService, Mockito.timeout(2000)).returnExpiredClaim(5L, WorkQueue.CONSULTATION, doctor);
+        assertEquals(HttpStatus.NO_CONTENT, ((ResponseEntity<?>) result.getResult()).getStatusCode());
+    }
+}
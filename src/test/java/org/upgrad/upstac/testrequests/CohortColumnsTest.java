@@ -0,0 +1,135 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.Test;
+import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.testrequests.analytics.CohortColumns;
+import org.upgrad.upstac.testrequests.analytics.CohortDimension;
+import org.upgrad.upstac.testrequests.analytics.CohortGroup;
+import org.upgrad.upstac.testrequests.analytics.CohortQuery;
+import org.upgrad.upstac.testrequests.analytics.CohortResult;
+import org.upgrad.upstac.testrequests.consultation.DoctorSuggestion;
+import org.upgrad.upstac.testrequests.lab.TestStatus;
+import org.upgrad.upstac.users.models.Gender;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CohortColumnsTest {
+
+    @Test
+    public void when_querying_many_rows_in_chunks_expect_the_same_counts_as_a_plain_scan(){
+
+        //Arrange
+        CohortColumns cohortColumns = new CohortColumns(16, 1000);
+        Random random = new Random(7);
+        LocalDate start = LocalDate.of(2020, 8, 1);
+        Map<String, long[]> expected = new HashMap<>();
+        long expectedMatched = 0;
+        for (long requestId = 1; requestId <= 100000; requestId++) {
+            int age = random.nextInt(90);
+            Gender gender = Gender.values()[random.nextInt(Gender.values().length)];
+            int pinCode = 400001 + random.nextInt(3);
+            TestStatus result = random.nextInt(3) == 0 ? null : TestStatus.values()[random.nextInt(2)];
+            LocalDate created = start.plusDays(random.nextInt(30));
+            cohortColumns.put(requestId, age, gender, pinCode, RequestStatus.LAB_TEST_COMPLETED, created, result, null);
+
+            if (age >= 30 && age <= 59 && gender != Gender.OTHER && created.isBefore(start.plusDays(20))) {
+                expectedMatched++;
+                long[] counts = expected.computeIfAbsent((age / 10 * 10) + "-" + (age / 10 * 10 + 9) + "/" + pinCode, key -> new long[3]);
+                counts[0]++;
+                if (result != null)
+                    counts[1]++;
+                if (result == TestStatus.POSITIVE)
+                    counts[2]++;
+            }
+        }
+
+        CohortQuery query = new CohortQuery();
+        query.setMinAge(30);
+        query.setMaxAge(59);
+        query.setGenders(EnumSet.of(Gender.MALE, Gender.FEMALE));
+        query.setCreatedTo(start.plusDays(19));
+        query.setGroupBy(Arrays.asList(CohortDimension.AGE_BAND, CohortDimension.PIN_CODE));
+
+        //Act
+        CohortResult cohortResult = cohortColumns.query(query, new ForkJoinPool(4));
+
+        //Assert
+        assertEquals(100000, cohortResult.getScanned());
+        assertEquals(expectedMatched, cohortResult.getMatched());
+        assertEquals(9, cohortResult.getGroups().size());
+        for (CohortGroup group : cohortResult.getGroups()) {
+            long[] counts = expected.get(group.getKey().get(CohortDimension.AGE_BAND) + "/" + group.getKey().get(CohortDimension.PIN_CODE));
+            assertArrayEquals(counts, new long[]{group.getCount(), group.getTested(), group.getPositive()});
+        }
+    }
+
+    @Test
+    public void when_a_request_is_put_again_expect_its_row_replaced_rather_than_added(){
+
+        //Arrange
+        CohortColumns cohortColumns = new CohortColumns(16, 1000);
+        cohortColumns.put(1L, 40, Gender.FEMALE, 400001, RequestStatus.INITIATED, LocalDate.of(2020, 8, 1), null, null);
+        cohortColumns.put(1L, 40, Gender.FEMALE, 400001, RequestStatus.COMPLETED, LocalDate.of(2020, 8, 1), TestStatus.POSITIVE, DoctorSuggestion.ADMIT);
+
+        CohortQuery query = new CohortQuery();
+        query.setSuggestions(EnumSet.of(DoctorSuggestion.ADMIT));
+        query.setPinCodes(new HashSet<>(Collections.singletonList(400001)));
+        query.setGroupBy(Arrays.asList(CohortDimension.STATUS, CohortDimension.CREATED_ON));
+
+        //Act
+        CohortResult cohortResult = cohortColumns.query(query, ForkJoinPool.commonPool());
+
+        //Assert
+        assertEquals(1, cohortColumns.size());
+        assertEquals(1, cohortResult.getMatched());
+        assertEquals("COMPLETED", cohortResult.getGroups().get(0).getKey().get(CohortDimension.STATUS));
+        assertEquals("2020-08-01", cohortResult.getGroups().get(0).getKey().get(CohortDimension.CREATED_ON));
+        assertEquals(1, cohortResult.getGroups().get(0).getPositive());
+    }
+
+    @Test
+    public void when_grouping_by_too_many_dimensions_expect_the_query_rejected(){
+
+        //Arrange
+        CohortColumns cohortColumns = new CohortColumns(16, 1000);
+        CohortQuery query = new CohortQuery();
+        query.setGroupBy(Arrays.asList(CohortDimension.AGE_BAND, CohortDimension.GENDER, CohortDimension.STATUS, CohortDimension.RESULT));
+
+        //Act
+        AppException exception = assertThrows(AppException.class, () -> cohortColumns.query(query, ForkJoinPool.commonPool()));
+
+        //Assert
+        assertEquals("Group by at most 3 dimensions", exception.getMessage());
+    }
+
+    @Test
+    public void when_group_by_is_null_expect_one_group_of_every_match(){
+
+        //Arrange
+        CohortColumns cohortColumns = new CohortColumns(16, 1000);
+        cohortColumns.put(1L, 40, Gender.FEMALE, 400001, RequestStatus.COMPLETED, LocalDate.of(2020, 8, 1), TestStatus.POSITIVE, null);
+        cohortColumns.put(2L, 25, Gender.MALE, 400002, RequestStatus.INITIATED, LocalDate.of(2020, 8, 2), null, null);
+        CohortQuery query = new CohortQuery();
+        query.setGroupBy(null);
+
+        //Act
+        CohortResult cohortResult = cohortColumns.query(query, ForkJoinPool.commonPool());
+
+        //Assert
+        assertEquals(2, cohortResult.getMatched());
+        assertEquals(1, cohortResult.getGroups().size());
+        assertTrue(cohortResult.getGroups().get(0).getKey().isEmpty());
+        assertEquals(2, cohortResult.getGroups().get(0).getCount());
+        assertEquals(1, cohortResult.getGroups().get(0).getPositive());
+    }
+}
@@ -20,6 +20,7 @@ import org.upgrad.upstac.testrequests.consultation.DoctorSuggestion;
 import org.upgrad.upstac.testrequests.lab.CreateLabResult;
 import org.upgrad.upstac.testrequests.lab.LabResult;
 import org.upgrad.upstac.testrequests.lab.TestStatus;
+import org.upgrad.upstac.testrequests.lease.ClaimLeaseService;
 import org.upgrad.upstac.users.User;
 import org.upgrad.upstac.users.models.Gender;
 
@@ -48,6 +49,9 @@ class ConsultationControllerTest {
     @Mock
     TestRequestUpdateService testRequestUpdateService;
 
+    @Mock
+    ClaimLeaseService claimLeaseService;
+
     @Test
     @WithUserDetails(value = "doctor")
     public void calling_assignForConsultation_with_valid_test_request_id_should_update_the_request_status(){
@@ -0,0 +1,151 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.testrequests.lab.LabResult;
+import org.upgrad.upstac.testrequests.lab.TestStatus;
+import org.upgrad.upstac.testrequests.rollup.DailyRollup;
+import org.upgrad.upstac.testrequests.rollup.DailyRollupRepository;
+import org.upgrad.upstac.testrequests.rollup.DailyRollupService;
+import org.upgrad.upstac.testrequests.rollup.DailyStatistics;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DailyRollupServiceTest {
+
+    @Mock
+    DailyRollupRepository dailyRollupRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    DailyRollupService dailyRollupService;
+
+    @Test
+    public void when_reading_a_region_expect_its_pin_codes_summed_per_day_in_day_order(){
+
+        //Arrange
+        LocalDate first = LocalDate.of(2020, 8, 1);
+        LocalDate second = first.plusDays(1);
+        when(dailyRollupRepository.findByRegionAndDayBetween(400, first, second)).thenReturn(Arrays.asList(
+                rollupWith(second, 400002, 10, 1, 4, 8),
+                rollupWith(first, 400001, 3, 3, 0, 0),
+                rollupWith(second, 400001, 10, 3, 1, 1)));
+
+        //Act
+        List<DailyStatistics> statistics = dailyRollupService.findDailyStatistics(first, second, 400);
+
+        //Assert
+        assertEquals(2, statistics.size());
+        assertEquals(first, statistics.get(0).getDay());
+        assertEquals(1.0, statistics.get(0).getPositivityRate());
+        assertNull(statistics.get(0).getAverageTurnaroundDays());
+        assertEquals(20, statistics.get(1).getTested());
+        assertEquals(0.2, statistics.get(1).getPositivityRate());
+        assertEquals(1.8, statistics.get(1).getAverageTurnaroundDays());
+    }
+
+    @Test
+    public void when_the_range_ends_before_it_starts_expect_it_rejected(){
+
+        //Act
+        AppException exception = assertThrows(AppException.class,
+                () -> dailyRollupService.findDailyStatistics(LocalDate.of(2020, 8, 2), LocalDate.of(2020, 8, 1), null));
+
+        //Assert
+        assertEquals("Range starts after it ends", exception.getMessage());
+    }
+
+    @Test
+    public void when_a_lab_result_is_entered_expect_it_counted_as_tested(){
+
+        //Arrange
+        ReflectionTestUtils.invokeMethod(dailyRollupService, "createSeparateTransaction");
+        TestRequest testRequest = testRequestWith(560001, TestStatus.POSITIVE);
+
+        //Act
+        dailyRollupService.onTransition(new TestRequestTransitionEvent(testRequest,
+                RequestStatus.LAB_TEST_IN_PROGRESS, RequestStatus.LAB_TEST_COMPLETED, null));
+
+        //Assert
+        verify(dailyRollupRepository).addTo(LocalDate.now(), 560001, 1, 1, 0, 0);
+    }
+
+    @Test
+    public void when_the_first_result_of_the_day_is_entered_expect_its_rollup_created_in_the_same_transaction(){
+
+        //Arrange
+        ReflectionTestUtils.invokeMethod(dailyRollupService, "createSeparateTransaction");
+        TestRequest testRequest = testRequestWith(560001, TestStatus.NEGATIVE);
+
+        //Act
+        dailyRollupService.onTransition(new TestRequestTransitionEvent(testRequest,
+                RequestStatus.LAB_TEST_IN_PROGRESS, RequestStatus.LAB_TEST_COMPLETED, null));
+        dailyRollupService.onTransition(new TestRequestTransitionEvent(testRequest,
+                RequestStatus.DIAGNOSIS_IN_PROCESS, RequestStatus.COMPLETED, null));
+
+        //Assert
+        verify(dailyRollupRepository).createIfAbsent(LocalDate.now(), 560001, 560);
+        verify(dailyRollupRepository).addTo(LocalDate.now(), 560001, 1, 0, 0, 0);
+        verify(dailyRollupRepository).addTo(LocalDate.now(), 560001, 0, 0, 1, 0);
+        verify(transactionManager, times(2)).getTransaction(any());
+    }
+
+    @Test
+    public void when_a_consultation_goes_back_to_the_queue_expect_nothing_counted(){
+
+        //Arrange
+        ReflectionTestUtils.invokeMethod(dailyRollupService, "createSeparateTransaction");
+        TestRequest testRequest = testRequestWith(560001, TestStatus.POSITIVE);
+
+        //Act
+        dailyRollupService.onTransition(new TestRequestTransitionEvent(testRequest,
+                RequestStatus.DIAGNOSIS_IN_PROCESS, RequestStatus.LAB_TEST_COMPLETED, null));
+        dailyRollupService.onTransition(new TestRequestTransitionEvent(testRequest,
+                RequestStatus.COMPLETED, RequestStatus.COMPLETED, null));
+
+        //Assert
+        verifyNoInteractions(dailyRollupRepository);
+    }
+
+    private TestRequest testRequestWith(Integer pinCode, TestStatus result) {
+        LabResult labResult = new LabResult();
+        labResult.setResult(result);
+        TestRequest testRequest = new TestRequest();
+        testRequest.setRequestId(1L);
+        testRequest.setPinCode(pinCode);
+        testRequest.setCreated(LocalDate.now());
+        testRequest.setLabResult(labResult);
+        return testRequest;
+    }
+
+    private DailyRollup rollupWith(LocalDate day, Integer pinCode, long tested, long positive, long completed, long turnaroundDays) {
+        DailyRollup rollup = new DailyRollup();
+        rollup.setDay(day);
+        rollup.setPinCode(pinCode);
+        rollup.setRegion(pinCode / 1000);
+        rollup.setTested(tested);
+        rollup.setPositive(positive);
+        rollup.setCompleted(completed);
+        rollup.setTurnaroundDays(turnaroundDays);
+        return rollup;
+    }
+}
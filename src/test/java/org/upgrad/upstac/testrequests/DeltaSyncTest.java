@@ -0,0 +1,82 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.upgrad.upstac.testrequests.sync.TestRequestChanges;
+import org.upgrad.upstac.users.User;
+import org.upgrad.upstac.users.UserService;
+import org.upgrad.upstac.users.models.Gender;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class DeltaSyncTest {
+
+    private static final AtomicInteger people = new AtomicInteger();
+
+    @Autowired
+    TestRequestService testRequestService;
+
+    @Autowired
+    TestRequestUpdateService testRequestUpdateService;
+
+    @Autowired
+    TestRequestQueryService testRequestQueryService;
+
+    @Autowired
+    UserService userService;
+
+    @Test
+    public void when_a_lab_result_is_dropped_expect_the_testers_next_delta_to_remove_the_request(){
+
+        //Arrange
+        User tester = userService.findByUserName("tester");
+        Long requestId = createTestRequest().getRequestId();
+        testRequestUpdateService.assignForLabTest(requestId, tester);
+        Long cursor = testRequestQueryService.findChangesByTester(tester, 0L).getCursor();
+
+        //Act
+        testRequestUpdateService.requeueForIndividualTests(Collections.singletonList(requestId), tester);
+        TestRequestChanges changes = testRequestQueryService.findChangesByTester(tester, cursor);
+
+        //Assert
+        assertTrue(changes.getRemoved().contains(requestId));
+        assertTrue(changes.getChanges().stream().noneMatch(testRequest -> testRequest.getRequestId().equals(requestId)));
+    }
+
+    @Test
+    public void when_a_dropped_request_is_claimed_again_expect_it_in_the_changes_rather_than_removed(){
+
+        //Arrange
+        User tester = userService.findByUserName("tester");
+        Long requestId = createTestRequest().getRequestId();
+        testRequestUpdateService.assignForLabTest(requestId, tester);
+        Long cursor = testRequestQueryService.findChangesByTester(tester, 0L).getCursor();
+        testRequestUpdateService.requeueForIndividualTests(Collections.singletonList(requestId), tester);
+
+        //Act
+        testRequestUpdateService.assignForLabTest(requestId, tester);
+        TestRequestChanges changes = testRequestQueryService.findChangesByTester(tester, cursor);
+
+        //Assert
+        assertFalse(changes.getRemoved().contains(requestId));
+        assertTrue(changes.getChanges().stream().anyMatch(testRequest -> testRequest.getRequestId().equals(requestId)));
+    }
+
+    private TestRequest createTestRequest() {
+        int person = people.incrementAndGet();
+        CreateTestRequest createTestRequest = new CreateTestRequest();
+        createTestRequest.setName("someuser");
+        createTestRequest.setGender(Gender.MALE);
+        createTestRequest.setAddress("some Addres");
+        createTestRequest.setAge(35);
+        createTestRequest.setEmail("delta" + person + "@somedomain.com");
+        createTestRequest.setPhoneNumber(String.valueOf(7100000000L + person));
+        createTestRequest.setPinCode(716768);
+        return testRequestService.createTestRequestFrom(userService.findByUserName("user"), createTestRequest);
+    }
+}
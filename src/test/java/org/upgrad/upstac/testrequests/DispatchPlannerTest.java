@@ -0,0 +1,66 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.Test;
+import org.upgrad.upstac.testrequests.dispatch.DispatchPlanner;
+import org.upgrad.upstac.testrequests.dispatch.DispatchStrategy;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DispatchPlannerTest {
+
+    @Test
+    public void when_planning_least_loaded_expect_the_idle_staff_to_be_served_first(){
+
+        //Arrange
+        DispatchPlanner planner = new DispatchPlanner(DispatchStrategy.LEAST_LOADED, 3);
+        planner.join("busy", 1);
+        planner.join("idle", 1);
+        planner.started("busy");
+        planner.started("busy");
+
+        //Act
+        List<String> owners = planner.plan(10);
+
+        //Assert
+        assertEquals(Arrays.asList("idle", "idle", "busy", "idle"), owners);
+        assertEquals(3, planner.inFlight("busy"));
+        assertEquals(3, planner.inFlight("idle"));
+    }
+
+    @Test
+    public void when_planning_weighted_round_robin_expect_shares_to_follow_the_weights_interleaved(){
+
+        //Arrange
+        DispatchPlanner planner = new DispatchPlanner(DispatchStrategy.WEIGHTED_ROUND_ROBIN, 100);
+        planner.join("fast", 3);
+        planner.join("slow", 1);
+
+        //Act
+        List<String> owners = planner.plan(8);
+
+        //Assert
+        assertEquals(Arrays.asList("fast", "fast", "slow", "fast", "fast", "fast", "slow", "fast"), owners);
+    }
+
+    @Test
+    public void when_staff_leave_or_finish_expect_only_those_on_duty_and_below_the_limit_to_be_planned(){
+
+        //Arrange
+        DispatchPlanner planner = new DispatchPlanner(DispatchStrategy.LEAST_LOADED, 1);
+        planner.join("first", 1);
+        planner.join("second", 1);
+        planner.leave("second");
+
+        //Act
+        List<String> beforeFinishing = planner.plan(5);
+        planner.finished("first");
+        List<String> afterFinishing = planner.plan(5);
+
+        //Assert
+        assertEquals(Arrays.asList("first"), beforeFinishing);
+        assertEquals(Arrays.asList("first"), afterFinishing);
+    }
+}
@@ -0,0 +1,156 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.upgrad.upstac.testrequests.dispatch.DispatchService;
+import org.upgrad.upstac.testrequests.dispatch.DispatchStrategy;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.testrequests.queue.WorkQueue;
+import org.upgrad.upstac.users.User;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+
+@ExtendWith(MockitoExtension.class)
+class DispatchServiceTest {
+
+    @InjectMocks
+    DispatchService dispatchService;
+
+    @Mock
+    TestRequestRepository testRequestRepository;
+
+    @Mock
+    TestRequestUpdateService testRequestUpdateService;
+
+    User tester = userWithId(1L);
+
+    User otherTester = userWithId(2L);
+
+    @BeforeEach
+    public void setUp() {
+        // Ticks an hour apart, so only asking for the next request dispatches
+        ReflectionTestUtils.setField(dispatchService, "enabled", true);
+        ReflectionTestUtils.setField(dispatchService, "strategy", DispatchStrategy.LEAST_LOADED);
+        ReflectionTestUtils.setField(dispatchService, "maxInFlight", 3);
+        ReflectionTestUtils.setField(dispatchService, "batchSize", 100);
+        ReflectionTestUtils.setField(dispatchService, "weights", "");
+        ReflectionTestUtils.setField(dispatchService, "idleTimeout", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(dispatchService, "tickMillis", 3600000L);
+        ReflectionTestUtils.setField(dispatchService, "nextWaitMillis", 5000L);
+
+        List<Object[]> waiting = Arrays.asList(new Object[]{1L, 560001}, new Object[]{2L, 560001}, new Object[]{3L, 560001});
+        Mockito.when(testRequestRepository.findRequestIdsAndPinCodesByStatus(any()))
+                .thenAnswer(invocation -> invocation.getArgument(0) == RequestStatus.INITIATED ? waiting : Collections.emptyList());
+
+        ReflectionTestUtils.invokeMethod(dispatchService, "start");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ReflectionTestUtils.invokeMethod(dispatchService, "shutdown");
+    }
+
+    @Test
+    public void when_part_of_a_batch_was_claimed_meanwhile_expect_only_the_rest_handed_out() {
+
+        //Arrange
+        AtomicReference<String> claimingThread = new AtomicReference<>();
+        Mockito.when(testRequestUpdateService.assignAll(anyList(), eq(WorkQueue.LAB_TEST), eq(tester))).thenAnswer(invocation -> {
+            claimingThread.set(Thread.currentThread().getName());
+            List<Long> ids = invocation.getArgument(0);
+
+            // Request 2 was claimed through the pull endpoints after the batch was planned
+            claimed(2L, otherTester);
+            List<TestRequest> fresh = new ArrayList<>();
+            for (Long id : ids) {
+                if (id != 2L) {
+                    claimed(id, tester);
+                    fresh.add(testRequestWithId(id));
+                }
+            }
+            return fresh;
+        });
+        reloadsById();
+
+        //Act
+        Optional<TestRequest> first = dispatchService.next(WorkQueue.LAB_TEST, tester);
+        Optional<TestRequest> second = dispatchService.next(WorkQueue.LAB_TEST, tester);
+        Optional<TestRequest> third = dispatchService.next(WorkQueue.LAB_TEST, tester);
+
+        //Assert
+        assertEquals(1L, first.get().getRequestId());
+        assertEquals(3L, second.get().getRequestId());
+        assertFalse(third.isPresent());
+        assertTrue(claimingThread.get().startsWith("dispatch-ticker-"));
+        Mockito.verify(testRequestUpdateService).assignAll(Arrays.asList(1L, 2L, 3L), WorkQueue.LAB_TEST, tester);
+        Mockito.verifyNoMoreInteractions(testRequestUpdateService);
+    }
+
+    @Test
+    public void when_assigning_a_batch_fails_expect_its_requests_dispatched_again() {
+
+        //Arrange
+        Mockito.when(testRequestUpdateService.assignAll(anyList(), eq(WorkQueue.LAB_TEST), eq(tester)))
+                .thenThrow(new RuntimeException("Deadlock found"))
+                .thenAnswer(invocation -> {
+                    List<Long> ids = invocation.getArgument(0);
+                    ids.forEach(id -> claimed(id, tester));
+                    return ids.stream().map(DispatchServiceTest::testRequestWithId).collect(Collectors.toList());
+                });
+        reloadsById();
+
+        //Act
+        Optional<TestRequest> afterFailure = dispatchService.next(WorkQueue.LAB_TEST, tester);
+        Optional<TestRequest> afterRetry = dispatchService.next(WorkQueue.LAB_TEST, tester);
+
+        //Assert
+        assertFalse(afterFailure.isPresent());
+        assertEquals(1L, afterRetry.get().getRequestId());
+        Mockito.verify(testRequestUpdateService, Mockito.times(2)).assignAll(Arrays.asList(1L, 2L, 3L), WorkQueue.LAB_TEST, tester);
+    }
+
+    private void reloadsById() {
+        Mockito.when(testRequestRepository.findAllWithResultsByRequestIdIn(any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(DispatchServiceTest::testRequestWithId).collect(Collectors.toList());
+        });
+    }
+
+    private void claimed(Long requestId, User staff) {
+        dispatchService.onTransition(new TestRequestTransitionEvent(testRequestWithId(requestId),
+                RequestStatus.INITIATED, RequestStatus.LAB_TEST_IN_PROGRESS, staff));
+    }
+
+    private static TestRequest testRequestWithId(Long requestId) {
+        TestRequest testRequest = new TestRequest();
+        testRequest.setRequestId(requestId);
+        return testRequest;
+    }
+
+    private static User userWithId(Long id) {
+        User user = new User();
+        user.setId(id);
+        user.setUserName("staff" + id);
+        return user;
+    }
+}
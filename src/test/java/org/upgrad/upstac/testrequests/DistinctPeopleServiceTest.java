@@ -0,0 +1,214 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.upgrad.upstac.shared.HyperLogLog;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.testrequests.people.DistinctPeopleCount;
+import org.upgrad.upstac.testrequests.people.DistinctPeopleService;
+import org.upgrad.upstac.testrequests.people.PersonSketch;
+import org.upgrad.upstac.testrequests.people.PersonSketchRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+@ExtendWith(MockitoExtension.class)
+class DistinctPeopleServiceTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2020, 8, 10);
+
+    @Mock
+    PersonSketchRepository personSketchRepository;
+
+    @Mock
+    TestRequestRepository testRequestRepository;
+
+    @Mock
+    TransactionTemplate transactionTemplate;
+
+    List<DistinctPeopleService> started = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        Mockito.lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        started.forEach(service -> ReflectionTestUtils.invokeMethod(service, "shutdown"));
+    }
+
+    @Test
+    public void when_people_retest_expect_them_counted_once_by_phone_number_or_else_by_email(){
+
+        //Arrange
+        DistinctPeopleService service = startWith(0L,
+                request(1L, 560001, MONDAY, "98450 12345", "a@somedomain.com"),
+                request(2L, 560001, MONDAY, "9845012345", "b@somedomain.com"),
+                request(3L, 560001, MONDAY, null, " A@SomeDomain.com "),
+                request(4L, 560001, MONDAY, "", "a@somedomain.com"),
+                request(5L, 560001, MONDAY, "98450-99999", "a@somedomain.com"));
+
+        //Act
+        DistinctPeopleCount count = service.countDistinctPeople(MONDAY, MONDAY, null, null);
+
+        //Assert
+        assertEquals(3, count.getEstimate());
+    }
+
+    @Test
+    public void when_counting_a_week_expect_it_to_start_on_monday(){
+
+        //Arrange
+        DistinctPeopleService service = startWith(0L,
+                request(1L, 560001, MONDAY.minusDays(1), "9845000001", null),
+                request(2L, 560001, MONDAY, "9845000002", null),
+                request(3L, 560001, MONDAY.plusDays(6), "9845000003", null));
+
+        //Act
+        DistinctPeopleCount midWeek = service.countDistinctPeople(MONDAY.plusDays(2), MONDAY.plusDays(2), null, null);
+        DistinctPeopleCount sunday = service.countDistinctPeople(MONDAY.minusDays(1), MONDAY.minusDays(1), null, null);
+
+        //Assert
+        assertEquals(MONDAY, midWeek.getFromWeek());
+        assertEquals(2, midWeek.getEstimate());
+        assertEquals(MONDAY.minusDays(7), sunday.getFromWeek());
+        assertEquals(1, sunday.getEstimate());
+    }
+
+    @Test
+    public void when_counting_a_region_or_a_pin_code_expect_only_their_requests(){
+
+        //Arrange
+        DistinctPeopleService service = startWith(0L,
+                request(1L, 560001, MONDAY, "9845000001", null),
+                request(2L, 560002, MONDAY, "9845000002", null),
+                request(3L, 400001, MONDAY, "9845000003", null));
+
+        //Act
+        DistinctPeopleCount pinCode = service.countDistinctPeople(MONDAY, MONDAY, null, 560001);
+        DistinctPeopleCount region = service.countDistinctPeople(MONDAY, MONDAY, 560, null);
+        DistinctPeopleCount country = service.countDistinctPeople(MONDAY, MONDAY, null, null);
+
+        //Assert
+        assertEquals(1, pinCode.getEstimate());
+        assertEquals(2, region.getEstimate());
+        assertEquals(3, country.getEstimate());
+    }
+
+    @Test
+    public void when_restarted_expect_the_saved_sketches_and_the_requests_after_them_counted(){
+
+        //Arrange
+        startWith(0L,
+                request(3L, 560001, MONDAY, "9845000003", null),
+                request(4L, 560002, MONDAY, "9845000004", null));
+        List<PersonSketch> saved = savedSketches();
+        Mockito.when(personSketchRepository.findAll()).thenReturn(saved);
+
+        //Act
+        DistinctPeopleService restarted = startWith(2L,
+                request(3L, 560001, MONDAY, "9845000003", null),
+                request(4L, 560002, MONDAY, "9845000004", null),
+                request(5L, 560001, MONDAY, "9845000005", null));
+        DistinctPeopleCount region = restarted.countDistinctPeople(MONDAY, MONDAY, 560, null);
+
+        //Assert
+        assertEquals(2, saved.size());
+        assertTrue(saved.stream().allMatch(sketch -> sketch.getHighWaterRequestId() == 4L));
+        assertEquals(3, region.getEstimate());
+        Mockito.verify(testRequestRepository).findPeopleAfter(eq(2L), any());
+    }
+
+    @Test
+    public void when_a_lower_id_commits_after_a_higher_one_was_saved_expect_it_replayed_on_restart(){
+
+        //Arrange
+        DistinctPeopleService service = startWith(0L);
+        service.onTransition(new TestRequestTransitionEvent(testRequestWith(3L, "9845000003"), null, RequestStatus.INITIATED, null));
+        ReflectionTestUtils.invokeMethod(service, "flush");
+        List<PersonSketch> saved = savedSketches();
+        Mockito.when(personSketchRepository.findAll()).thenReturn(saved);
+
+        //Act
+        DistinctPeopleService restarted = startWith(1L,
+                request(2L, 560001, MONDAY, "9845000002", null),
+                request(3L, 560001, MONDAY, "9845000003", null));
+
+        //Assert
+        assertEquals(3L, saved.get(0).getHighWaterRequestId());
+        assertEquals(2, restarted.countDistinctPeople(MONDAY, MONDAY, null, null).getEstimate());
+    }
+
+    @Test
+    public void when_another_instance_saved_the_sketch_first_expect_its_people_kept(){
+
+        //Arrange
+        HyperLogLog otherInstance = new HyperLogLog(11);
+        otherInstance.offer("phone:9845000009");
+        PersonSketch stored = new PersonSketch();
+        stored.setPinCode(560001);
+        stored.setWeekStart(MONDAY);
+        stored.setRegisters(otherInstance.toBytes());
+        Mockito.when(personSketchRepository.findByPinCodeAndWeekStart(560001, MONDAY)).thenReturn(Optional.of(stored));
+
+        //Act
+        DistinctPeopleService service = startWith(0L, request(1L, 560001, MONDAY, "9845000001", null));
+
+        //Assert
+        assertEquals(2, HyperLogLog.fromBytes(savedSketches().get(0).getRegisters()).estimate());
+        assertEquals(2, service.countDistinctPeople(MONDAY, MONDAY, null, null).getEstimate());
+    }
+
+    private DistinctPeopleService startWith(Long after, Object[]... requests) {
+        Mockito.when(testRequestRepository.findPeopleAfter(eq(after), any())).thenReturn(Arrays.asList(requests));
+
+        DistinctPeopleService service = new DistinctPeopleService();
+        ReflectionTestUtils.setField(service, "personSketchRepository", personSketchRepository);
+        ReflectionTestUtils.setField(service, "testRequestRepository", testRequestRepository);
+        ReflectionTestUtils.setField(service, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(service, "precision", 11);
+        ReflectionTestUtils.setField(service, "flushMillis", 3600000L);
+        ReflectionTestUtils.setField(service, "replayMargin", 2L);
+        ReflectionTestUtils.invokeMethod(service, "start");
+        started.add(service);
+        return service;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<PersonSketch> savedSketches() {
+        ArgumentCaptor<List<PersonSketch>> saved = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(personSketchRepository).saveAll(saved.capture());
+        return saved.getValue();
+    }
+
+    private static TestRequest testRequestWith(Long requestId, String phoneNumber) {
+        TestRequest testRequest = new TestRequest();
+        testRequest.setRequestId(requestId);
+        testRequest.setPinCode(560001);
+        testRequest.setCreated(MONDAY);
+        testRequest.setPhoneNumber(phoneNumber);
+        return testRequest;
+    }
+
+    private static Object[] request(Long requestId, Integer pinCode, LocalDate created, String phoneNumber, String email) {
+        return new Object[]{requestId, pinCode, created, phoneNumber, email};
+    }
+}
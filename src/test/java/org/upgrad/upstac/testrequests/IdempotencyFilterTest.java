@@ -0,0 +1,139 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.StreamUtils;
+import org.upgrad.upstac.testrequests.idempotency.IdempotencyFilter;
+import org.upgrad.upstac.testrequests.idempotency.IdempotencyStore;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyFilterTest {
+
+    private static final String BODY = "{\"name\":\"someuser\",\"pinCode\":716768}";
+
+    IdempotencyFilter idempotencyFilter = new IdempotencyFilter();
+
+    AtomicInteger calls = new AtomicInteger();
+
+    CountDownLatch release = new CountDownLatch(0);
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(idempotencyFilter, "idempotencyStore", new IdempotencyStore(100, Duration.ofHours(1)));
+        ReflectionTestUtils.setField(idempotencyFilter, "paths", new String[]{"/api/testrequests"});
+        ReflectionTestUtils.setField(idempotencyFilter, "waitTimeout", Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void when_a_key_is_reused_with_the_same_body_expect_the_first_response_replayed_with_its_headers() throws Exception {
+
+        //Arrange
+        MockHttpServletResponse first = post("k1", BODY);
+
+        //Act
+        MockHttpServletResponse retry = post("k1", BODY);
+
+        //Assert
+        assertEquals(1, calls.get());
+        assertEquals(HttpStatus.CREATED.value(), retry.getStatus());
+        assertEquals(first.getContentAsString(), retry.getContentAsString());
+        assertEquals("/api/testrequests/1", retry.getHeader("Location"));
+        assertEquals("\"1\"", retry.getHeader("ETag"));
+        assertEquals("application/json", retry.getContentType());
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED));
+        assertNull(first.getHeader(IdempotencyFilter.REPLAYED));
+    }
+
+    @Test
+    public void when_a_key_is_reused_with_another_body_expect_it_rejected_as_unprocessable() throws Exception {
+
+        //Arrange
+        post("k2", BODY);
+
+        //Act
+        MockHttpServletResponse retry = post("k2", "{\"name\":\"someoneelse\",\"pinCode\":716768}");
+
+        //Assert
+        assertEquals(1, calls.get());
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY.value(), retry.getStatus());
+        assertNull(retry.getHeader(IdempotencyFilter.REPLAYED));
+    }
+
+    @Test
+    public void when_duplicates_arrive_while_the_first_call_runs_expect_it_to_run_once() throws Exception {
+
+        //Arrange
+        release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        List<Future<MockHttpServletResponse>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            results.add(callers.submit((Callable<MockHttpServletResponse>) () -> post("k3", BODY)));
+
+        //Act
+        while (calls.get() == 0)
+            Thread.sleep(5);
+        Thread.sleep(100);
+        release.countDown();
+        List<MockHttpServletResponse> responses = new ArrayList<>();
+        for (Future<MockHttpServletResponse> result : results)
+            responses.add(result.get());
+        callers.shutdown();
+
+        //Assert
+        assertEquals(1, calls.get());
+        assertEquals(3, responses.stream().filter(response -> response.getHeader(IdempotencyFilter.REPLAYED) != null).count());
+        for (MockHttpServletResponse response : responses) {
+            assertEquals(HttpStatus.CREATED.value(), response.getStatus());
+            assertEquals("{\"requestId\":1}", response.getContentAsString());
+            assertEquals("/api/testrequests/1", response.getHeader("Location"));
+        }
+    }
+
+    private MockHttpServletResponse post(String idempotencyKey, String body) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/testrequests");
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY, idempotencyKey);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        idempotencyFilter.doFilter(request, response, createRequest());
+        return response;
+    }
+
+    private FilterChain createRequest() {
+        return (request, response) -> {
+            int requestId = calls.incrementAndGet();
+            StreamUtils.copyToString(request.getInputStream(), StandardCharsets.UTF_8);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            HttpServletResponse httpResponse = (HttpServletResponse) response;
+            httpResponse.setStatus(HttpStatus.CREATED.value());
+            httpResponse.setHeader("Location", "/api/testrequests/" + requestId);
+            httpResponse.setHeader("ETag", "\"" + requestId + "\"");
+            httpResponse.setContentType("application/json");
+            httpResponse.getWriter().write("{\"requestId\":" + requestId + "}");
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.Test;
+import org.upgrad.upstac.testrequests.idempotency.IdempotencyStore;
+import org.upgrad.upstac.testrequests.idempotency.StoredResponse;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+
+    IdempotencyStore idempotencyStore = new IdempotencyStore(2, Duration.ofHours(1));
+
+    @Test
+    public void when_a_duplicate_arrives_while_the_first_call_runs_expect_it_to_get_the_first_response(){
+
+        //Arrange
+        StoredResponse response = new StoredResponse(200, "application/json", "{\"requestId\":1}".getBytes(), Collections.emptyMap(), null);
+        Optional<CompletableFuture<StoredResponse>> first = idempotencyStore.begin("user POST /api/testrequests k1");
+        Optional<CompletableFuture<StoredResponse>> duplicate = idempotencyStore.begin("user POST /api/testrequests k1");
+
+        //Act
+        boolean doneBeforeCompletion = duplicate.get().isDone();
+        idempotencyStore.complete("user POST /api/testrequests k1", response);
+        Optional<CompletableFuture<StoredResponse>> retry = idempotencyStore.begin("user POST /api/testrequests k1");
+
+        //Assert
+        assertFalse(first.isPresent());
+        assertFalse(doneBeforeCompletion);
+        assertSame(response, duplicate.get().join());
+        assertSame(response, retry.get().join());
+    }
+
+    @Test
+    public void when_the_first_call_fails_expect_the_key_to_be_released_for_a_retry(){
+
+        //Arrange
+        idempotencyStore.begin("user PUT /api/labrequests/update/1 k2");
+        Optional<CompletableFuture<StoredResponse>> duplicate = idempotencyStore.begin("user PUT /api/labrequests/update/1 k2");
+
+        //Act
+        idempotencyStore.abandon("user PUT /api/labrequests/update/1 k2");
+        Optional<CompletableFuture<StoredResponse>> retry = idempotencyStore.begin("user PUT /api/labrequests/update/1 k2");
+
+        //Assert
+        assertNull(duplicate.get().join());
+        assertFalse(retry.isPresent());
+    }
+
+    @Test
+    public void when_more_keys_complete_than_the_store_holds_expect_the_least_recently_used_to_be_forgotten(){
+
+        //Arrange
+        for (String key : new String[]{"a", "b", "c"}) {
+            idempotencyStore.begin(key);
+            idempotencyStore.complete(key, new StoredResponse(200, null, new byte[0], Collections.emptyMap(), null));
+        }
+
+        //Act
+        Optional<CompletableFuture<StoredResponse>> oldest = idempotencyStore.begin("a");
+        Optional<CompletableFuture<StoredResponse>> newest = idempotencyStore.begin("c");
+
+        //Assert
+        assertFalse(oldest.isPresent());
+        assertTrue(newest.isPresent());
+    }
+}
@@ -8,19 +8,27 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.web.server.ResponseStatusException;
 import org.upgrad.upstac.config.security.UserLoggedInService;
 import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.exception.ConflictException;
+import org.upgrad.upstac.testrequests.lab.BatchAssignOutcome;
+import org.upgrad.upstac.testrequests.lab.BatchAssignRequest;
 import org.upgrad.upstac.testrequests.lab.CreateLabResult;
 import org.upgrad.upstac.testrequests.lab.LabRequestController;
 import org.upgrad.upstac.testrequests.lab.LabResult;
 import org.upgrad.upstac.testrequests.lab.TestStatus;
+import org.upgrad.upstac.testrequests.lease.ClaimLeaseService;
+import org.upgrad.upstac.testrequests.queue.WorkQueue;
 import org.upgrad.upstac.users.User;
 import org.upgrad.upstac.users.models.Gender;
 
 import javax.validation.ConstraintViolationException;
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
@@ -43,6 +51,9 @@ class LabRequestControllerTest {
     @Mock
     UserLoggedInService userLoggedInService;
 
+    @Mock
+    ClaimLeaseService claimLeaseService;
+
     @Test
     @WithUserDetails(value = "tester")
     public void calling_assignForLabTest_with_valid_test_request_id_should_update_the_request_status(){
@@ -119,6 +130,26 @@ class LabRequestControllerTest {
         assertThat(responseStatusException.getMessage(), containsString("Invalid TestRequestId"));
     }
 
+    @Test
+    @WithUserDetails(value = "tester")
+    public void calling_updateLabTest_after_the_claim_was_returned_should_answer_conflict_and_renew_the_testers_other_claims(){
+        //Arrange
+        TestRequest testRequest = getTestRequestByStatus(RequestStatus.LAB_TEST_IN_PROGRESS);
+        CreateLabResult createLabResult = getCreateLabResult(testRequest);
+        User user = createUser();
+        Mockito.when(userLoggedInService.getLoggedInUser()).thenReturn(user);
+        Mockito.when(testRequestUpdateService.updateLabTest(testRequest.getRequestId(), createLabResult, user)).thenThrow(new ConflictException("Returned to the queue"));
+
+        //Act
+        ResponseStatusException responseStatusException = assertThrows(ResponseStatusException.class, ()->{
+            labRequestController.updateLabTest(testRequest.getRequestId(), createLabResult);
+        });
+
+        //Assert
+        assertEquals(HttpStatus.CONFLICT, responseStatusException.getStatus());
+        Mockito.verify(claimLeaseService).renewHeldBy(WorkQueue.LAB_TEST, user);
+    }
+
     @Test
     @WithUserDetails(value = "tester")
     public void calling_updateLabTest_with_invalid_empty_status_should_throw_exception(){
@@ -141,6 +172,85 @@ class LabRequestControllerTest {
 
     }
 
+    @Test
+    @WithUserDetails(value = "tester")
+    public void calling_assignForLabTests_with_a_batch_of_ids_should_return_an_outcome_per_id(){
+        //Arrange
+        TestRequest testRequest = getTestRequestByStatus(RequestStatus.INITIATED);
+        Long invalidRequestId = -34L;
+        BatchAssignRequest batchAssignRequest = new BatchAssignRequest();
+        batchAssignRequest.setIds(Arrays.asList(testRequest.getRequestId(), invalidRequestId));
+        User user = createUser();
+        Mockito.when(userLoggedInService.getLoggedInUser()).thenReturn(user);
+        Mockito.when(testRequestUpdateService.assignForLabTests(batchAssignRequest, user)).thenReturn(Arrays.asList(
+                BatchAssignOutcome.assigned(testRequest),
+                BatchAssignOutcome.rejected(invalidRequestId, "Invalid ID or State")));
+
+        //Act
+        List<BatchAssignOutcome> outcomes = labRequestController.assignForLabTests(batchAssignRequest);
+
+        //Assert
+        assertEquals(2, outcomes.size());
+        assertTrue(outcomes.get(0).isAssigned());
+        assertFalse(outcomes.get(1).isAssigned());
+        assertEquals(invalidRequestId, outcomes.get(1).getRequestId());
+    }
+
+    @Test
+    @WithUserDetails(value = "tester")
+    public void calling_assignForLabTests_without_ids_or_pincode_should_throw_exception(){
+        //Arrange
+        BatchAssignRequest batchAssignRequest = new BatchAssignRequest();
+        User user = createUser();
+        Mockito.when(userLoggedInService.getLoggedInUser()).thenReturn(user);
+        Mockito.when(testRequestUpdateService.assignForLabTests(batchAssignRequest, user)).thenThrow(new AppException("Either ids or a pinCode and count are required"));
+
+        //Act
+        ResponseStatusException responseStatusException = assertThrows(ResponseStatusException.class, ()->{
+            labRequestController.assignForLabTests(batchAssignRequest);
+        });
+
+        //Assert
+        assertThat(responseStatusException.getMessage(), containsString("pinCode and count"));
+    }
+
+    @Test
+    @WithUserDetails(value = "tester")
+    public void calling_submitLabTest_with_valid_test_request_id_should_complete_the_lab_test_in_one_call(){
+        //Arrange
+        TestRequest testRequest = getTestRequestByStatus(RequestStatus.LAB_TEST_IN_PROGRESS);
+        CreateLabResult createLabResult = getCreateLabResult(testRequest);
+        User user = createUser();
+        Mockito.when(userLoggedInService.getLoggedInUser()).thenReturn(user);
+        Mockito.when(testRequestUpdateService.submitLabTest(testRequest.getRequestId(), createLabResult, user)).thenReturn(testRequest);
+
+        //Act
+        TestRequest testRequestOutput = labRequestController.submitLabTest(testRequest.getRequestId(), createLabResult);
+
+        //Assert
+        assertEquals(testRequestOutput.getStatus(), RequestStatus.LAB_TEST_COMPLETED);
+        assertEquals(testRequestOutput.getLabResult(), testRequest.getLabResult());
+    }
+
+    @Test
+    @WithUserDetails(value = "tester")
+    public void calling_submitLabTest_with_request_not_initiated_should_throw_exception(){
+        //Arrange
+        TestRequest testRequest = getTestRequestByStatus(RequestStatus.LAB_TEST_IN_PROGRESS);
+        CreateLabResult createLabResult = getCreateLabResult(testRequest);
+        User user = createUser();
+        Mockito.when(userLoggedInService.getLoggedInUser()).thenReturn(user);
+        Mockito.when(testRequestUpdateService.submitLabTest(testRequest.getRequestId(), createLabResult, user)).thenThrow(new AppException("Invalid ID or State"));
+
+        //Act
+        ResponseStatusException responseStatusException = assertThrows(ResponseStatusException.class, ()->{
+            labRequestController.submitLabTest(testRequest.getRequestId(), createLabResult);
+        });
+
+        //Assert
+        assertThat(responseStatusException.getMessage(), containsString("Invalid ID or State"));
+    }
+
     // Helper methods to mock the Objects.
     public CreateLabResult getCreateLabResult(TestRequest testRequest) {
         return CreateLabResult();
@@ -0,0 +1,165 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.upgrad.upstac.testrequests.lab.LabResultRow;
+import org.upgrad.upstac.testrequests.lab.LabResultUploadService;
+import org.upgrad.upstac.users.User;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+
+@ExtendWith(MockitoExtension.class)
+class LabResultUploadServiceTest {
+
+    private static final String HEADER = "requestId,bloodPressure,heartBeat,temperature,result\n";
+
+    @InjectMocks
+    LabResultUploadService labResultUploadService;
+
+    @Mock
+    TestRequestUpdateService testRequestUpdateService;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(labResultUploadService, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(labResultUploadService, "batchSize", 2);
+    }
+
+    @Test
+    public void when_most_lines_are_invalid_expect_rejections_written_before_the_file_is_read_to_the_end() throws IOException {
+
+        //Arrange
+        String csv = HEADER
+                + "1,120/80,72,37,MAYBE\n"
+                + "x,120/80,72,37,NEGATIVE\n"
+                + "3,120/80,72,,NEGATIVE\n"
+                + "4,120/80,72,37,MAYBE\n"
+                + "5,120/80,72,37,NEGATIVE\n";
+        Mockito.when(testRequestUpdateService.updateLabTests(anyList(), any())).thenReturn(Collections.singleton(5L));
+        FlushRecordingWriter output = new FlushRecordingWriter();
+
+        //Act
+        labResultUploadService.upload(input(csv), output, new User());
+
+        //Assert
+        assertEquals(3, output.lineCountsAtFlush.get(0), "header and the first chunk of two lines");
+        assertEquals(5, output.lineCountsAtFlush.get(1));
+        List<String> lines = Arrays.asList(output.toString().split("\n"));
+        assertEquals(7, lines.size());
+        assertTrue(lines.get(1).startsWith("2,1,REJECTED,"));
+        assertEquals("3,,REJECTED,Invalid requestId", lines.get(2));
+        assertTrue(lines.get(3).startsWith("4,3,REJECTED,temperature"));
+        assertEquals("6,5,COMPLETED,", lines.get(5));
+        assertEquals(",,DONE,", lines.get(6));
+    }
+
+    @Test
+    public void when_lines_are_valid_expect_them_applied_chunk_by_chunk() throws IOException {
+
+        //Arrange
+        String csv = HEADER
+                + "1,120/80,72,37,NEGATIVE\n"
+                + "2,120/80,72,37,POSITIVE\n"
+                + "3,120/80,72,37,NEGATIVE\n";
+        Mockito.when(testRequestUpdateService.updateLabTests(anyList(), any()))
+                .thenReturn(new HashSet<>(Arrays.asList(1L, 2L)), Collections.emptySet());
+        StringWriter output = new StringWriter();
+
+        //Act
+        labResultUploadService.upload(input(csv), output, new User());
+
+        //Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<LabResultRow>> chunks = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(testRequestUpdateService, Mockito.times(2)).updateLabTests(chunks.capture(), any());
+        assertEquals(2, chunks.getAllValues().get(0).size());
+        assertEquals(1, chunks.getAllValues().get(1).size());
+        String[] lines = output.toString().split("\n");
+        assertEquals("2,1,COMPLETED,", lines[1]);
+        assertEquals("3,2,COMPLETED,", lines[2]);
+        assertEquals("4,3,REJECTED,Invalid ID or State", lines[3]);
+    }
+
+    @Test
+    public void when_a_request_id_repeats_within_a_chunk_expect_the_repeat_rejected() throws IOException {
+
+        //Arrange
+        String csv = HEADER
+                + "1,120/80,72,37,NEGATIVE\n"
+                + "1,120/80,72,37,POSITIVE\n";
+        Mockito.when(testRequestUpdateService.updateLabTests(anyList(), any())).thenReturn(Collections.singleton(1L));
+        StringWriter output = new StringWriter();
+
+        //Act
+        labResultUploadService.upload(input(csv), output, new User());
+
+        //Assert
+        String[] lines = output.toString().split("\n");
+        assertEquals("2,1,COMPLETED,", lines[1]);
+        assertEquals("3,1,REJECTED,Duplicate requestId in upload", lines[2]);
+    }
+
+    @Test
+    public void when_reading_fails_part_way_expect_the_answered_lines_kept_and_the_failure_written_last() throws IOException {
+
+        //Arrange
+        String csv = HEADER
+                + "1,120/80,72,37,NEGATIVE\n"
+                + "2,120/80,72,37,NEGATIVE\n"
+                + "3,120/80,72,37,NEGATIVE\n";
+        Mockito.when(testRequestUpdateService.updateLabTests(anyList(), any())).thenReturn(new HashSet<>(Arrays.asList(1L, 2L)));
+        StringWriter output = new StringWriter();
+        InputStream failing = new SequenceInputStream(input(csv), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        });
+
+        //Act
+        labResultUploadService.upload(failing, output, new User());
+
+        //Assert
+        String[] lines = output.toString().split("\n");
+        assertEquals(4, lines.length);
+        assertEquals("3,2,COMPLETED,", lines[2]);
+        assertEquals(",,FAILED,\"Upload stopped, lines after 3 were not applied\"", lines[3]);
+        Mockito.verify(testRequestUpdateService, Mockito.times(1)).updateLabTests(anyList(), any());
+    }
+
+    private static ByteArrayInputStream input(String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static class FlushRecordingWriter extends StringWriter {
+
+        private final List<Integer> lineCountsAtFlush = new ArrayList<>();
+
+        @Override
+        public void flush() {
+            lineCountsAtFlush.add(toString().split("\n").length);
+        }
+    }
+}
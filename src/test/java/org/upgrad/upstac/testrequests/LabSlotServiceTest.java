@@ -0,0 +1,158 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.testrequests.slot.CreateLabSlotRequest;
+import org.upgrad.upstac.testrequests.slot.LabSlot;
+import org.upgrad.upstac.testrequests.slot.LabSlotService;
+import org.upgrad.upstac.testrequests.slot.SlotAvailability;
+import org.upgrad.upstac.users.User;
+import org.upgrad.upstac.users.UserService;
+import org.upgrad.upstac.users.models.Gender;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class LabSlotServiceTest {
+
+    private static final AtomicInteger people = new AtomicInteger();
+
+    private static final AtomicInteger hours = new AtomicInteger();
+
+    @Autowired
+    LabSlotService labSlotService;
+
+    @Autowired
+    TestRequestService testRequestService;
+
+    @Autowired
+    TestRequestRepository testRequestRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    UserService userService;
+
+    @Test
+    public void when_a_place_is_booked_expect_one_place_fewer_available(){
+
+        //Arrange
+        User tester = userService.findByUserName("tester");
+        LabSlot slot = createSlot(tester, 3);
+
+        //Act
+        labSlotService.book(slot.getSlotId(), tester.getPinCode());
+
+        //Assert
+        assertEquals(Integer.valueOf(2), availabilityOf(slot, tester).getAvailable());
+    }
+
+    @Test
+    public void when_the_slot_is_full_expect_the_booking_refused_and_the_slot_no_longer_offered(){
+
+        //Arrange
+        User tester = userService.findByUserName("tester");
+        LabSlot slot = createSlot(tester, 1);
+        labSlotService.book(slot.getSlotId(), tester.getPinCode());
+
+        //Act
+        AppException exception = assertThrows(AppException.class, () -> labSlotService.book(slot.getSlotId(), tester.getPinCode()));
+
+        //Assert
+        assertEquals("Slot is fully booked", exception.getMessage());
+        assertTrue(labSlotService.findAvailable(tester.getPinCode()).stream().noneMatch(available -> available.getSlotId().equals(slot.getSlotId())));
+    }
+
+    @Test
+    public void when_the_booking_transaction_rolls_back_expect_the_place_handed_back(){
+
+        //Arrange
+        User tester = userService.findByUserName("tester");
+        LabSlot slot = createSlot(tester, 1);
+
+        //Act
+        new TransactionTemplate(transactionManager).execute(status -> {
+            labSlotService.book(slot.getSlotId(), tester.getPinCode());
+            status.setRollbackOnly();
+            return null;
+        });
+
+        //Assert
+        assertEquals(Integer.valueOf(1), availabilityOf(slot, tester).getAvailable());
+        assertDoesNotThrow(() -> labSlotService.book(slot.getSlotId(), tester.getPinCode()));
+    }
+
+    @Test
+    public void when_the_slot_creation_rolls_back_expect_the_slot_never_offered(){
+
+        //Arrange
+        User tester = userService.findByUserName("tester");
+
+        //Act
+        LabSlot slot = new TransactionTemplate(transactionManager).execute(status -> {
+            LabSlot created = createSlot(tester, 5);
+            status.setRollbackOnly();
+            return created;
+        });
+
+        //Assert
+        assertTrue(labSlotService.findAvailable(tester.getPinCode()).stream().noneMatch(available -> available.getSlotId().equals(slot.getSlotId())));
+    }
+
+    @Test
+    public void when_a_bulk_batch_asks_for_more_places_than_left_expect_the_extra_records_rejected(){
+
+        //Arrange
+        User tester = userService.findByUserName("tester");
+        LabSlot slot = createSlot(tester, 1);
+        CreateTestRequest first = createTestRequest(tester.getPinCode(), slot.getSlotId());
+        CreateTestRequest second = createTestRequest(tester.getPinCode(), slot.getSlotId());
+
+        //Act
+        List<BulkCreateOutcome> outcomes = testRequestService.createTestRequestsFrom(userService.findByUserName("user"), Arrays.asList(first, second));
+
+        //Assert
+        assertTrue(outcomes.get(0).isCreated());
+        assertEquals(slot.getSlotId(), testRequestRepository.findByRequestId(outcomes.get(0).getRequestId()).get().getSlotId());
+        assertFalse(outcomes.get(1).isCreated());
+        assertEquals("Slot is fully booked", outcomes.get(1).getMessage());
+    }
+
+    private LabSlot createSlot(User tester, int capacity) {
+        CreateLabSlotRequest createLabSlotRequest = new CreateLabSlotRequest();
+        createLabSlotRequest.setStartsOn(LocalDateTime.now().plusDays(1).plusHours(hours.incrementAndGet()));
+        createLabSlotRequest.setCapacity(capacity);
+        return labSlotService.createSlot(createLabSlotRequest, tester);
+    }
+
+    private SlotAvailability availabilityOf(LabSlot slot, User tester) {
+        return labSlotService.findAvailable(tester.getPinCode()).stream()
+                .filter(available -> available.getSlotId().equals(slot.getSlotId()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Slot " + slot.getSlotId() + " is not offered"));
+    }
+
+    private CreateTestRequest createTestRequest(Integer pinCode, Long slotId) {
+        int person = people.incrementAndGet();
+        CreateTestRequest createTestRequest = new CreateTestRequest();
+        createTestRequest.setName("someuser");
+        createTestRequest.setGender(Gender.FEMALE);
+        createTestRequest.setAddress("some Addres");
+        createTestRequest.setAge(38);
+        createTestRequest.setEmail("slot" + person + "@somedomain.com");
+        createTestRequest.setPhoneNumber(String.valueOf(7700000000L + person));
+        createTestRequest.setPinCode(pinCode);
+        createTestRequest.setSlotId(slotId);
+        return createTestRequest;
+    }
+}
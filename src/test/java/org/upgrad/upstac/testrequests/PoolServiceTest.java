@@ -0,0 +1,181 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.testrequests.lab.TestStatus;
+import org.upgrad.upstac.testrequests.pool.CreatePoolRequest;
+import org.upgrad.upstac.testrequests.pool.CreatePoolResult;
+import org.upgrad.upstac.testrequests.pool.PoolService;
+import org.upgrad.upstac.testrequests.pool.PoolSizeAdvisor;
+import org.upgrad.upstac.testrequests.pool.PoolStatus;
+import org.upgrad.upstac.testrequests.pool.SamplePool;
+import org.upgrad.upstac.testrequests.pool.SamplePoolRepository;
+import org.upgrad.upstac.testrequests.sync.ResourceVersionService;
+import org.upgrad.upstac.users.User;
+import org.upgrad.upstac.users.UserService;
+import org.upgrad.upstac.users.models.Gender;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class PoolServiceTest {
+
+    private static final AtomicInteger people = new AtomicInteger();
+
+    @Autowired
+    PoolService poolService;
+
+    @Autowired
+    SamplePoolRepository samplePoolRepository;
+
+    @Autowired
+    TestRequestService testRequestService;
+
+    @Autowired
+    TestRequestRepository testRequestRepository;
+
+    @Autowired
+    ResourceVersionService resourceVersionService;
+
+    @Autowired
+    PoolSizeAdvisor poolSizeAdvisor;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    UserService userService;
+
+    private List<Long> memberIds;
+
+    @Test
+    public void when_two_results_for_a_pool_race_expect_only_one_recorded() throws InterruptedException {
+
+        //Arrange
+        User tester = userService.findByUserName("tester");
+        SamplePool pool = createPool(tester);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        List<Future<SamplePool>> results = new ArrayList<>();
+
+        //Act
+        for (TestStatus result : Arrays.asList(TestStatus.NEGATIVE, TestStatus.POSITIVE))
+            results.add(callers.submit((Callable<SamplePool>) () -> {
+                start.await();
+                return poolService.updatePoolResult(pool.getPoolId(), poolResult(result), tester);
+            }));
+        start.countDown();
+
+        //Assert
+        List<SamplePool> recorded = new ArrayList<>();
+        int rejected = 0;
+        for (Future<SamplePool> result : results) {
+            try {
+                recorded.add(result.get());
+            } catch (ExecutionException e) {
+                rejected++;
+            }
+        }
+        callers.shutdown();
+        assertEquals(1, recorded.size());
+        assertEquals(1, rejected);
+        assertEquals(recorded.get(0).getStatus(), samplePoolRepository.findById(pool.getPoolId()).get().getStatus());
+    }
+
+    @Test
+    public void when_a_result_is_already_recorded_expect_another_rejected(){
+
+        //Arrange
+        User tester = userService.findByUserName("tester");
+        SamplePool pool = createPool(tester);
+        poolService.updatePoolResult(pool.getPoolId(), poolResult(TestStatus.NEGATIVE), tester);
+
+        //Act
+        AppException exception = assertThrows(AppException.class,
+                () -> poolService.updatePoolResult(pool.getPoolId(), poolResult(TestStatus.POSITIVE), tester));
+
+        //Assert
+        assertEquals("Invalid ID or State", exception.getMessage());
+        assertEquals(PoolStatus.NEGATIVE, samplePoolRepository.findById(pool.getPoolId()).get().getStatus());
+    }
+
+    @Test
+    public void when_a_pool_is_positive_expect_members_requeued_and_the_testers_list_changed(){
+
+        //Arrange
+        User tester = userService.findByUserName("tester");
+        SamplePool pool = createPool(tester);
+        String eTag = resourceVersionService.versionOf(ResourceVersionService.testerListOf("tester")).getETag();
+
+        //Act
+        poolService.updatePoolResult(pool.getPoolId(), poolResult(TestStatus.POSITIVE), tester);
+
+        //Assert
+        assertNotEquals(eTag, resourceVersionService.versionOf(ResourceVersionService.testerListOf("tester")).getETag());
+        List<TestRequest> members = testRequestRepository.findAllWithResultsByRequestIdIn(memberIds);
+        assertTrue(members.stream().allMatch(testRequest -> testRequest.getStatus() == RequestStatus.INITIATED));
+        assertTrue(members.stream().allMatch(TestRequest::isIndividualTestRequired));
+    }
+
+    @Test
+    public void when_the_result_is_rolled_back_expect_the_advisor_not_to_count_it(){
+
+        //Arrange
+        User tester = userService.findByUserName("tester");
+        SamplePool pool = createPool(tester);
+        double positivity = poolSizeAdvisor.estimatedPositivity();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        //Act
+        transactionTemplate.execute(status -> {
+            poolService.updatePoolResult(pool.getPoolId(), poolResult(TestStatus.POSITIVE), tester);
+            status.setRollbackOnly();
+            return null;
+        });
+
+        //Assert
+        assertEquals(positivity, poolSizeAdvisor.estimatedPositivity());
+        assertEquals(PoolStatus.TESTING, samplePoolRepository.findById(pool.getPoolId()).get().getStatus());
+    }
+
+    private SamplePool createPool(User tester) {
+        memberIds = Arrays.asList(createTestRequest().getRequestId(), createTestRequest().getRequestId());
+        CreatePoolRequest createPoolRequest = new CreatePoolRequest();
+        createPoolRequest.setIds(memberIds);
+        return poolService.createPool(createPoolRequest, tester).getPool();
+    }
+
+    private static CreatePoolResult poolResult(TestStatus result) {
+        CreatePoolResult createPoolResult = new CreatePoolResult();
+        createPoolResult.setResult(result);
+        return createPoolResult;
+    }
+
+    private TestRequest createTestRequest() {
+        int person = people.incrementAndGet();
+        CreateTestRequest createTestRequest = new CreateTestRequest();
+        createTestRequest.setName("someuser");
+        createTestRequest.setGender(Gender.MALE);
+        createTestRequest.setAddress("some Addres");
+        createTestRequest.setAge(29);
+        createTestRequest.setEmail("pool" + person + "@somedomain.com");
+        createTestRequest.setPhoneNumber(String.valueOf(7300000000L + person));
+        createTestRequest.setPinCode(716768);
+        return testRequestService.createTestRequestFrom(userService.findByUserName("user"), createTestRequest);
+    }
+}
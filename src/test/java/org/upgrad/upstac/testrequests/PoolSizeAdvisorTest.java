@@ -0,0 +1,41 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.Test;
+import org.upgrad.upstac.testrequests.pool.PoolSizeAdvisor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PoolSizeAdvisorTest {
+
+    @Test
+    public void when_positivity_is_low_expect_larger_pools(){
+
+        //Act
+        int lowPositivitySize = PoolSizeAdvisor.optimalPoolSize(0.02, 20);
+        int higherPositivitySize = PoolSizeAdvisor.optimalPoolSize(0.05, 20);
+
+        //Assert
+        assertEquals(8, lowPositivitySize);
+        assertEquals(5, higherPositivitySize);
+    }
+
+    @Test
+    public void when_positivity_is_very_low_expect_pool_size_capped(){
+
+        //Act
+        int size = PoolSizeAdvisor.optimalPoolSize(0.001, 10);
+
+        //Assert
+        assertEquals(10, size);
+    }
+
+    @Test
+    public void when_positivity_is_high_expect_no_pooling(){
+
+        //Act
+        int size = PoolSizeAdvisor.optimalPoolSize(0.4, 10);
+
+        //Assert
+        assertEquals(1, size);
+    }
+}
@@ -0,0 +1,62 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.Test;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.testrequests.routing.PincodeRegions;
+import org.upgrad.upstac.testrequests.routing.RegionalQueue;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RegionalQueueTest {
+
+    PincodeRegions pincodeRegions = PincodeRegions.parse("region,neighbours\n110,121 201\n560,561\n");
+
+    RegionalQueue regionalQueue = new RegionalQueue(pincodeRegions);
+
+    @Test
+    public void when_adjacency_is_listed_once_expect_it_to_work_both_ways(){
+
+        //Act
+        //Assert
+        assertEquals(Arrays.asList(110, 121, 201), pincodeRegions.nearestTo(110001));
+        assertEquals(Arrays.asList(201, 110), pincodeRegions.nearestTo(201301));
+        assertEquals(Arrays.asList(PincodeRegions.UNKNOWN_REGION), pincodeRegions.nearestTo(null));
+    }
+
+    @Test
+    public void when_home_region_runs_dry_expect_work_from_neighbouring_regions(){
+
+        //Arrange
+        regionalQueue.add(5L, 201301);
+        regionalQueue.add(3L, 110001);
+        regionalQueue.add(4L, 560003);
+        regionalQueue.add(2L, 121001);
+        regionalQueue.add(1L, 110002);
+
+        //Act
+        //Assert
+        assertEquals(Arrays.asList(1L, 3L, 2L), regionalQueue.nearestTo(110005, 3));
+        assertEquals(Arrays.asList(1L, 3L, 2L, 5L), regionalQueue.nearestTo(110005, 10));
+        assertEquals(Arrays.asList(4L), regionalQueue.nearestTo(560001, 10));
+    }
+
+    @Test
+    public void when_request_is_claimed_expect_it_to_leave_its_region(){
+
+        //Arrange
+        TestRequest testRequest = new TestRequest();
+        testRequest.setRequestId(7L);
+        testRequest.setPinCode(110001);
+        regionalQueue.onTransition(new TestRequestTransitionEvent(testRequest, null, RequestStatus.INITIATED, null));
+        regionalQueue.add(8L, 110001);
+
+        //Act
+        regionalQueue.onTransition(new TestRequestTransitionEvent(testRequest, RequestStatus.INITIATED, RequestStatus.LAB_TEST_IN_PROGRESS, null));
+
+        //Assert
+        assertEquals(Arrays.asList(8L), regionalQueue.nearestTo(110001, 10));
+        assertEquals(1, regionalQueue.size());
+    }
+}
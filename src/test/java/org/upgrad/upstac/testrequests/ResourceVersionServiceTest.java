@@ -0,0 +1,108 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.testrequests.sync.ResourceVersionService;
+import org.upgrad.upstac.users.User;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResourceVersionServiceTest {
+
+    ResourceVersionService resourceVersionService = new ResourceVersionService();
+
+    @Test
+    public void when_the_client_sends_the_current_etag_expect_not_modified_without_running_the_query(){
+
+        //Arrange
+        String resource = ResourceVersionService.queueOf(RequestStatus.INITIATED);
+        String eTag = currentETag(resource);
+
+        //Act
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ResponseEntity<String> second = resourceVersionService.respondIfModified(
+                new ServletWebRequest(request(eTag, null), response), resource, () -> fail("Query should not run"));
+
+        //Assert
+        assertNull(second);
+        assertEquals(304, response.getStatus());
+    }
+
+    @Test
+    public void when_the_resource_changes_within_the_same_second_expect_the_old_etag_to_get_the_new_body(){
+
+        //Arrange
+        String resource = ResourceVersionService.queueOf(RequestStatus.INITIATED);
+        String eTag = currentETag(resource);
+        TestRequest testRequest = new TestRequest();
+
+        //Act
+        resourceVersionService.onTransition(new TestRequestTransitionEvent(testRequest, null, RequestStatus.INITIATED, null));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ResponseEntity<String> second = resourceVersionService.respondIfModified(
+                new ServletWebRequest(request(eTag, null), response), resource, () -> "second");
+
+        //Assert
+        assertNotNull(second);
+        assertEquals("second", second.getBody());
+        assertNotEquals(eTag, response.getHeader("ETag"));
+    }
+
+    @Test
+    public void when_only_if_modified_since_is_sent_expect_the_body_even_for_a_later_date(){
+
+        //Arrange
+        String resource = ResourceVersionService.queueOf(RequestStatus.LAB_TEST_COMPLETED);
+
+        //Act
+        ResponseEntity<String> response = resourceVersionService.respondIfModified(
+                webRequest(null, System.currentTimeMillis() + 60_000), resource, () -> "body");
+
+        //Assert
+        assertNotNull(response);
+        assertEquals("body", response.getBody());
+    }
+
+    @Test
+    public void when_a_request_is_sent_back_by_someone_else_expect_the_list_of_the_staff_member_who_held_it_changed(){
+
+        //Arrange
+        User authority = new User();
+        authority.setUserName("authority");
+        User tester = new User();
+        tester.setUserName("tester");
+        String testerETag = resourceVersionService.versionOf(ResourceVersionService.testerListOf("tester")).getETag();
+        String authorityETag = resourceVersionService.versionOf(ResourceVersionService.testerListOf("authority")).getETag();
+
+        //Act
+        resourceVersionService.onTransition(new TestRequestTransitionEvent(new TestRequest(),
+                RequestStatus.LAB_TEST_IN_PROGRESS, RequestStatus.INITIATED, authority, tester));
+
+        //Assert
+        assertNotEquals(testerETag, resourceVersionService.versionOf(ResourceVersionService.testerListOf("tester")).getETag());
+        assertEquals(authorityETag, resourceVersionService.versionOf(ResourceVersionService.testerListOf("authority")).getETag());
+    }
+
+    private String currentETag(String resource) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        resourceVersionService.respondIfModified(new ServletWebRequest(request(null, null), response), resource, () -> "first");
+        return response.getHeader("ETag");
+    }
+
+    private ServletWebRequest webRequest(String ifNoneMatch, Long ifModifiedSince) {
+        return new ServletWebRequest(request(ifNoneMatch, ifModifiedSince), new MockHttpServletResponse());
+    }
+
+    private MockHttpServletRequest request(String ifNoneMatch, Long ifModifiedSince) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/labrequests");
+        if (ifNoneMatch != null)
+            request.addHeader("If-None-Match", ifNoneMatch);
+        if (ifModifiedSince != null)
+            request.addHeader("If-Modified-Since", ifModifiedSince);
+        return request;
+    }
+}
@@ -0,0 +1,107 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.upgrad.upstac.shared.SseSubscriptions;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.testrequests.notification.ResultNotification;
+import org.upgrad.upstac.testrequests.notification.ResultNotificationService;
+import org.upgrad.upstac.users.User;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ResultNotificationServiceTest {
+
+    @Mock
+    SseSubscriptions<String> subscriptions;
+
+    ResultNotificationService resultNotificationService = new ResultNotificationService(1, 4, 60000);
+
+    @BeforeEach
+    public void useMockedSubscriptions() {
+        ReflectionTestUtils.setField(resultNotificationService, "subscriptions", subscriptions);
+    }
+
+    @Test
+    public void when_a_lab_result_is_entered_expect_the_owner_notified_once(){
+
+        //Arrange
+        TestRequest testRequest = testRequestWithStatus(RequestStatus.LAB_TEST_COMPLETED);
+
+        //Act
+        resultNotificationService.onTransition(new TestRequestTransitionEvent(testRequest,
+                RequestStatus.LAB_TEST_IN_PROGRESS, RequestStatus.LAB_TEST_COMPLETED, null));
+
+        //Assert
+        ArgumentCaptor<Object> notification = ArgumentCaptor.forClass(Object.class);
+        verify(subscriptions).publish(eq("user"), eq("RESULT_READY"), notification.capture());
+        assertEquals(RequestStatus.LAB_TEST_COMPLETED, ((ResultNotification) notification.getValue()).getStatus());
+    }
+
+    @Test
+    public void when_a_lab_result_is_auto_completed_expect_a_single_notification_for_the_completion(){
+
+        //Arrange
+        TestRequest testRequest = testRequestWithStatus(RequestStatus.COMPLETED);
+
+        //Act
+        resultNotificationService.onTransition(new TestRequestTransitionEvent(testRequest,
+                RequestStatus.LAB_TEST_IN_PROGRESS, RequestStatus.LAB_TEST_COMPLETED, null));
+        resultNotificationService.onTransition(new TestRequestTransitionEvent(testRequest,
+                RequestStatus.LAB_TEST_COMPLETED, RequestStatus.COMPLETED, null));
+
+        //Assert
+        ArgumentCaptor<Object> notification = ArgumentCaptor.forClass(Object.class);
+        verify(subscriptions, times(1)).publish(eq("user"), eq("RESULT_READY"), notification.capture());
+        assertEquals(RequestStatus.COMPLETED, ((ResultNotification) notification.getValue()).getStatus());
+    }
+
+    @Test
+    public void when_a_diagnosis_is_entered_expect_the_owner_notified(){
+
+        //Arrange
+        TestRequest testRequest = testRequestWithStatus(RequestStatus.COMPLETED);
+
+        //Act
+        resultNotificationService.onTransition(new TestRequestTransitionEvent(testRequest,
+                RequestStatus.DIAGNOSIS_IN_PROCESS, RequestStatus.COMPLETED, null));
+
+        //Assert
+        verify(subscriptions).publish(eq("user"), eq("RESULT_READY"), any());
+    }
+
+    @Test
+    public void when_an_expired_consultation_claim_is_returned_expect_no_notification(){
+
+        //Arrange
+        TestRequest testRequest = testRequestWithStatus(RequestStatus.LAB_TEST_COMPLETED);
+
+        //Act
+        resultNotificationService.onTransition(new TestRequestTransitionEvent(testRequest,
+                RequestStatus.DIAGNOSIS_IN_PROCESS, RequestStatus.LAB_TEST_COMPLETED, null));
+
+        //Assert
+        verify(subscriptions, never()).publish(anyString(), anyString(), any());
+    }
+
+    private TestRequest testRequestWithStatus(RequestStatus status) {
+        User owner = new User();
+        owner.setUserName("user");
+
+        TestRequest testRequest = new TestRequest();
+        testRequest.setRequestId(11L);
+        testRequest.setStatus(status);
+        testRequest.setCreatedBy(owner);
+        return testRequest;
+    }
+}
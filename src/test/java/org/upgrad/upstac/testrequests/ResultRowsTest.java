@@ -0,0 +1,108 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.upgrad.upstac.testrequests.consultation.Consultation;
+import org.upgrad.upstac.testrequests.consultation.ConsultationRepository;
+import org.upgrad.upstac.testrequests.consultation.CreateConsultationRequest;
+import org.upgrad.upstac.testrequests.consultation.DoctorSuggestion;
+import org.upgrad.upstac.testrequests.lab.CreateLabResult;
+import org.upgrad.upstac.testrequests.lab.LabResult;
+import org.upgrad.upstac.testrequests.lab.LabResultRepository;
+import org.upgrad.upstac.testrequests.lab.TestStatus;
+import org.upgrad.upstac.users.User;
+import org.upgrad.upstac.users.UserService;
+import org.upgrad.upstac.users.models.Gender;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ResultRowsTest {
+
+    private static final AtomicInteger people = new AtomicInteger();
+
+    @Autowired
+    TestRequestService testRequestService;
+
+    @Autowired
+    TestRequestUpdateService testRequestUpdateService;
+
+    @Autowired
+    TestRequestRepository testRequestRepository;
+
+    @Autowired
+    LabResultRepository labResultRepository;
+
+    @Autowired
+    ConsultationRepository consultationRepository;
+
+    @Autowired
+    UserService userService;
+
+    @Test
+    public void when_a_submitted_and_an_assigned_request_get_results_expect_each_to_keep_its_own_lab_result(){
+
+        //Arrange
+        User tester = userService.findByUserName("tester");
+        TestRequest submitted = createTestRequest();
+        testRequestUpdateService.submitLabTest(submitted.getRequestId(), labResult(TestStatus.POSITIVE, "130/85"), tester);
+        TestRequest assigned = testRequestUpdateService.assignForLabTest(createTestRequest().getRequestId(), tester);
+        Long assignedResultId = labResultRepository.findByRequest(assigned).get().getResultId();
+
+        //Act
+        testRequestUpdateService.updateLabTest(assigned.getRequestId(), labResult(TestStatus.POSITIVE, "120/80"), tester);
+
+        //Assert
+        LabResult assignedResult = labResultRepository.findByRequest(assigned).get();
+        assertEquals(assignedResultId, assignedResult.getResultId());
+        assertEquals("120/80", assignedResult.getBloodPressure());
+        assertEquals("130/85", labResultRepository.findByRequest(submitted).get().getBloodPressure());
+    }
+
+    @Test
+    public void when_a_doctor_enters_a_diagnosis_expect_it_on_the_consultation_created_on_assignment(){
+
+        //Arrange
+        User tester = userService.findByUserName("tester");
+        User doctor = userService.findByUserName("doctor");
+        Long requestId = createTestRequest().getRequestId();
+        testRequestUpdateService.submitLabTest(requestId, labResult(TestStatus.POSITIVE, "120/80"), tester);
+        TestRequest assigned = testRequestUpdateService.assignForConsultation(requestId, doctor);
+        Long consultationId = consultationRepository.findByRequest(assigned).get().getId();
+        CreateConsultationRequest createConsultationRequest = new CreateConsultationRequest();
+        createConsultationRequest.setSuggestion(DoctorSuggestion.HOME_QUARANTINE);
+
+        //Act
+        testRequestUpdateService.updateConsultation(requestId, createConsultationRequest, doctor);
+
+        //Assert
+        Consultation consultation = consultationRepository.findByRequest(assigned).get();
+        assertEquals(consultationId, consultation.getId());
+        assertEquals(DoctorSuggestion.HOME_QUARANTINE, consultation.getSuggestion());
+    }
+
+    private static CreateLabResult labResult(TestStatus result, String bloodPressure) {
+        CreateLabResult createLabResult = new CreateLabResult();
+        createLabResult.setBloodPressure(bloodPressure);
+        createLabResult.setHeartBeat("72");
+        createLabResult.setTemperature("37.2");
+        createLabResult.setResult(result);
+        return createLabResult;
+    }
+
+    private TestRequest createTestRequest() {
+        int person = people.incrementAndGet();
+        CreateTestRequest createTestRequest = new CreateTestRequest();
+        createTestRequest.setName("someuser");
+        createTestRequest.setGender(Gender.MALE);
+        createTestRequest.setAddress("some Addres");
+        createTestRequest.setAge(52);
+        createTestRequest.setEmail("rows" + person + "@somedomain.com");
+        createTestRequest.setPhoneNumber(String.valueOf(7500000000L + person));
+        createTestRequest.setPinCode(716768);
+        return testRequestService.createTestRequestFrom(userService.findByUserName("user"), createTestRequest);
+    }
+}
@@ -0,0 +1,73 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.upgrad.upstac.testrequests.consultation.DoctorSuggestion;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.testrequests.lab.LabResult;
+import org.upgrad.upstac.testrequests.lab.TestStatus;
+import org.upgrad.upstac.testrequests.statistics.StatisticsCell;
+import org.upgrad.upstac.testrequests.statistics.StatisticsService;
+import org.upgrad.upstac.testrequests.statistics.TestRequestStatistics;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StatisticsServiceTest {
+
+    @Mock
+    TestRequestRepository testRequestRepository;
+
+    @InjectMocks
+    StatisticsService statisticsService;
+
+    @Test
+    public void when_requests_move_through_transitions_expect_them_counted_in_their_current_cell_only(){
+
+        //Arrange
+        when(testRequestRepository.countByPinCodeAndStatusAndResultAndSuggestion()).thenReturn(Collections.singletonList(
+                new Object[]{400001, RequestStatus.COMPLETED, TestStatus.NEGATIVE, DoctorSuggestion.NO_ISSUES, 5L}));
+        ReflectionTestUtils.invokeMethod(statisticsService, "seedFromDatabase");
+
+        TestRequest testRequest = new TestRequest();
+        testRequest.setPinCode(400001);
+
+        //Act
+        statisticsService.onTransition(new TestRequestTransitionEvent(testRequest, null, RequestStatus.INITIATED, null));
+        statisticsService.onTransition(new TestRequestTransitionEvent(testRequest, RequestStatus.INITIATED, RequestStatus.LAB_TEST_IN_PROGRESS, null));
+        LabResult labResult = new LabResult();
+        labResult.setResult(TestStatus.POSITIVE);
+        testRequest.setLabResult(labResult);
+        statisticsService.onTransition(new TestRequestTransitionEvent(testRequest, RequestStatus.LAB_TEST_IN_PROGRESS, RequestStatus.LAB_TEST_COMPLETED, null));
+
+        TestRequestStatistics statistics = statisticsService.findStatistics(400001);
+
+        //Assert
+        assertEquals(6, statistics.getTotal());
+        assertEquals(0L, statistics.getByStatus().get(RequestStatus.INITIATED));
+        assertEquals(0L, statistics.getByStatus().get(RequestStatus.LAB_TEST_IN_PROGRESS));
+        assertEquals(1L, statistics.getByStatus().get(RequestStatus.LAB_TEST_COMPLETED));
+        assertEquals(5L, statistics.getByStatus().get(RequestStatus.COMPLETED));
+        assertEquals(2, statistics.getCells().size());
+        assertEquals(0, statisticsService.findStatistics(110001).getTotal());
+    }
+
+    @Test
+    public void when_a_cell_is_built_before_results_count_expect_the_result_and_suggestion_left_out(){
+
+        //Act
+        StatisticsCell inProgress = StatisticsCell.of(400001, RequestStatus.LAB_TEST_IN_PROGRESS, TestStatus.POSITIVE, DoctorSuggestion.ADMIT);
+        StatisticsCell tested = StatisticsCell.of(400001, RequestStatus.DIAGNOSIS_IN_PROCESS, TestStatus.POSITIVE, DoctorSuggestion.ADMIT);
+
+        //Assert
+        assertEquals(StatisticsCell.of(400001, RequestStatus.LAB_TEST_IN_PROGRESS, null, null), inProgress);
+        assertEquals(StatisticsCell.of(400001, RequestStatus.DIAGNOSIS_IN_PROCESS, TestStatus.POSITIVE, null), tested);
+    }
+}
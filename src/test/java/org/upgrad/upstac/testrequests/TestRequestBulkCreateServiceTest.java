@@ -0,0 +1,165 @@
+package org.upgrad.upstac.testrequests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.users.User;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+
+@ExtendWith(MockitoExtension.class)
+class TestRequestBulkCreateServiceTest {
+
+    @InjectMocks
+    TestRequestBulkCreateService testRequestBulkCreateService;
+
+    @Mock
+    TestRequestService testRequestService;
+
+    @Spy
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(testRequestBulkCreateService, "batchSize", 2);
+    }
+
+    @Test
+    public void when_json_array_spans_several_chunks_expect_outcomes_in_record_order(){
+
+        //Arrange
+        User user = new User();
+        String json = "[{\"name\":\"a\",\"email\":\"a@x.com\"},{\"name\":\"b\",\"email\":\"b@x.com\"},{\"name\":\"c\",\"email\":\"c@x.com\"}]";
+        Mockito.when(testRequestService.createTestRequestsFrom(any(User.class), anyList()))
+                .thenReturn(Arrays.asList(BulkCreateOutcome.created(0, 10L), BulkCreateOutcome.rejected(1, "Duplicate")))
+                .thenReturn(Collections.singletonList(BulkCreateOutcome.created(0, 11L)));
+
+        //Act
+        List<BulkCreateOutcome> outcomes = assertDoesNotThrow(() -> testRequestBulkCreateService.createFromJson(user, asStream(json)));
+
+        //Assert
+        assertEquals(3, outcomes.size());
+        assertEquals(Long.valueOf(10L), outcomes.get(0).getRequestId());
+        assertFalse(outcomes.get(1).isCreated());
+        assertEquals(2, outcomes.get(2).getIndex());
+        assertEquals(Long.valueOf(11L), outcomes.get(2).getRequestId());
+    }
+
+    @Test
+    public void when_csv_row_is_invalid_expect_it_rejected_without_reaching_the_service(){
+
+        //Arrange
+        User user = new User();
+        String csv = "name,email,phoneNumber,pinCode,age\nbad,b@x.com,2,716768,old\ngood,g@x.com,3,716768,30\n";
+        Mockito.when(testRequestService.createTestRequestsFrom(any(User.class), anyList()))
+                .thenReturn(Collections.singletonList(BulkCreateOutcome.created(0, 12L)));
+
+        //Act
+        List<BulkCreateOutcome> outcomes = assertDoesNotThrow(() -> testRequestBulkCreateService.createFromCsv(user, asStream(csv)));
+
+        //Assert
+        assertEquals("Invalid age old", outcomes.get(0).getMessage());
+        assertEquals(1, outcomes.get(1).getIndex());
+        assertTrue(outcomes.get(1).isCreated());
+    }
+
+    @Test
+    public void when_json_array_holds_elements_that_are_not_objects_expect_them_rejected_and_later_records_read(){
+
+        //Arrange
+        User user = new User();
+        String json = "[{\"name\":\"a\"},null,5,[1,{\"name\":\"x\"}],{\"name\":\"b\"}]";
+        Mockito.when(testRequestService.createTestRequestsFrom(any(User.class), anyList()))
+                .thenReturn(Arrays.asList(BulkCreateOutcome.created(0, 10L), BulkCreateOutcome.created(1, 11L)));
+
+        //Act
+        List<BulkCreateOutcome> outcomes = assertDoesNotThrow(() -> testRequestBulkCreateService.createFromJson(user, asStream(json)));
+
+        //Assert
+        assertEquals(5, outcomes.size());
+        assertEquals(Long.valueOf(10L), outcomes.get(0).getRequestId());
+        for (int index = 1; index <= 3; index++) {
+            assertEquals(index, outcomes.get(index).getIndex());
+            assertEquals("Expected a test request object", outcomes.get(index).getMessage());
+        }
+        assertEquals(4, outcomes.get(4).getIndex());
+        assertEquals(Long.valueOf(11L), outcomes.get(4).getRequestId());
+    }
+
+    @Test
+    public void when_json_breaks_after_a_chunk_committed_expect_its_outcomes_returned_and_the_rest_rejected(){
+
+        //Arrange
+        User user = new User();
+        String json = "[{\"name\":\"a\"},{\"name\":\"b\"},{\"name\":\"c\"},{\"name\":";
+        Mockito.when(testRequestService.createTestRequestsFrom(any(User.class), anyList()))
+                .thenReturn(Arrays.asList(BulkCreateOutcome.created(0, 10L), BulkCreateOutcome.created(1, 11L)));
+
+        //Act
+        List<BulkCreateOutcome> outcomes = assertDoesNotThrow(() -> testRequestBulkCreateService.createFromJson(user, asStream(json)));
+
+        //Assert
+        Mockito.verify(testRequestService, Mockito.times(1)).createTestRequestsFrom(any(User.class), anyList());
+        assertEquals(4, outcomes.size());
+        assertEquals(Long.valueOf(11L), outcomes.get(1).getRequestId());
+        assertFalse(outcomes.get(2).isCreated());
+        assertTrue(outcomes.get(2).getMessage().startsWith("Invalid JSON after record 3"));
+        assertEquals(3, outcomes.get(3).getIndex());
+        assertTrue(outcomes.get(3).getMessage().endsWith("later records were not read"));
+    }
+
+    @Test
+    public void when_json_has_trailing_content_before_any_chunk_committed_expect_the_upload_rejected(){
+
+        //Arrange
+        User user = new User();
+        String json = "[{\"name\":\"a\"}] {\"name\":\"b\"}";
+
+        //Act
+        AppException exception = assertThrows(AppException.class, () -> testRequestBulkCreateService.createFromJson(user, asStream(json)));
+
+        //Assert
+        assertEquals("Unexpected content after the JSON array", exception.getMessage());
+        Mockito.verifyNoInteractions(testRequestService);
+    }
+
+    @Test
+    public void when_a_chunk_fails_to_commit_expect_its_records_rejected_and_later_chunks_created(){
+
+        //Arrange
+        User user = new User();
+        String json = "[{\"name\":\"a\"},{\"name\":\"b\"},{\"name\":\"c\"}]";
+        Mockito.when(testRequestService.createTestRequestsFrom(any(User.class), anyList()))
+                .thenThrow(new RuntimeException("Lock wait timeout exceeded"))
+                .thenReturn(Collections.singletonList(BulkCreateOutcome.created(0, 12L)));
+
+        //Act
+        List<BulkCreateOutcome> outcomes = assertDoesNotThrow(() -> testRequestBulkCreateService.createFromJson(user, asStream(json)));
+
+        //Assert
+        assertEquals(3, outcomes.size());
+        assertEquals("Batch failed, retry this record", outcomes.get(0).getMessage());
+        assertEquals("Batch failed, retry this record", outcomes.get(1).getMessage());
+        assertEquals(Long.valueOf(12L), outcomes.get(2).getRequestId());
+    }
+
+    private static ByteArrayInputStream asStream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
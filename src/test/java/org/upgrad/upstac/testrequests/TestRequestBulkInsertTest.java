@@ -0,0 +1,61 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.upgrad.upstac.users.UserService;
+import org.upgrad.upstac.users.models.Gender;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class TestRequestBulkInsertTest {
+
+    private static final AtomicInteger people = new AtomicInteger();
+
+    @Autowired
+    TestRequestService testRequestService;
+
+    @Autowired
+    TestRequestRepository testRequestRepository;
+
+    @Autowired
+    UserService userService;
+
+    @Test
+    public void when_a_batch_is_registered_expect_each_outcome_to_carry_the_id_of_its_own_record(){
+
+        //Arrange
+        CreateTestRequest first = createTestRequest();
+        CreateTestRequest duplicate = createTestRequest();
+        duplicate.setEmail(first.getEmail());
+        CreateTestRequest third = createTestRequest();
+
+        //Act
+        List<BulkCreateOutcome> outcomes = testRequestService.createTestRequestsFrom(userService.findByUserName("user"), Arrays.asList(first, duplicate, third));
+
+        //Assert
+        assertTrue(outcomes.get(0).isCreated());
+        assertFalse(outcomes.get(1).isCreated());
+        assertTrue(outcomes.get(2).isCreated());
+        assertEquals(first.getPhoneNumber(), testRequestRepository.findByRequestId(outcomes.get(0).getRequestId()).get().getPhoneNumber());
+        assertEquals(third.getPhoneNumber(), testRequestRepository.findByRequestId(outcomes.get(2).getRequestId()).get().getPhoneNumber());
+    }
+
+    private CreateTestRequest createTestRequest() {
+        int person = people.incrementAndGet();
+        CreateTestRequest createTestRequest = new CreateTestRequest();
+        createTestRequest.setName("someuser");
+        createTestRequest.setGender(Gender.FEMALE);
+        createTestRequest.setAddress("some Addres");
+        createTestRequest.setAge(41);
+        createTestRequest.setEmail("bulk" + person + "@somedomain.com");
+        createTestRequest.setPhoneNumber(String.valueOf(7200000000L + person));
+        createTestRequest.setPinCode(716768);
+        return createTestRequest;
+    }
+}
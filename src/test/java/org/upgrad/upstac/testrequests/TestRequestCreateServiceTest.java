@@ -6,7 +6,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
 import org.upgrad.upstac.users.User;
 import org.upgrad.upstac.users.models.Gender;
 
@@ -25,6 +27,8 @@ class TestRequestCreateServiceTest {
     @Mock
     TestRequestRepository testRequestRepository;
 
+    @Mock
+    ApplicationEventPublisher applicationEventPublisher;
 
     @InjectMocks
     TestRequestService testRequestService;
@@ -69,6 +73,7 @@ class TestRequestCreateServiceTest {
         //Assert
 
         Mockito.verify(testRequestRepository).save(any());
+        Mockito.verify(applicationEventPublisher).publishEvent(any(TestRequestTransitionEvent.class));
 
     }
 
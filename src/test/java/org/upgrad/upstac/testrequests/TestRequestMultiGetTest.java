@@ -0,0 +1,106 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.testrequests.lab.LabResult;
+import org.upgrad.upstac.users.User;
+import org.upgrad.upstac.users.roles.Role;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class TestRequestMultiGetTest {
+
+    @Mock
+    TestRequestRepository testRequestRepository;
+
+    @InjectMocks
+    TestRequestQueryService testRequestQueryService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(testRequestQueryService, "maxMultiGetSize", 3);
+    }
+
+    @Test
+    public void when_a_user_asks_for_several_ids_expect_only_their_own_requests_and_markers_for_the_rest(){
+
+        //Arrange
+        User user = createUser(1L, "USER");
+        User someoneElse = createUser(2L, "USER");
+        Mockito.when(testRequestRepository.findAllWithResultsAndStaffByRequestIdIn(Arrays.asList(10L, 11L, 12L)))
+                .thenReturn(Arrays.asList(createTestRequest(10L, user), createTestRequest(11L, someoneElse)));
+
+        //Act
+        List<TestRequestLookup> lookups = testRequestQueryService.findTestRequestsForUserByIDs(user, Arrays.asList(10L, 11L, 12L, 10L));
+
+        //Assert
+        assertEquals(Arrays.asList(10L, 11L, 12L), lookups.stream().map(TestRequestLookup::getRequestId).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(true, false, false), lookups.stream().map(TestRequestLookup::isFound).collect(Collectors.toList()));
+        assertNull(lookups.get(1).getTestRequest());
+    }
+
+    @Test
+    public void when_a_tester_asks_for_ids_expect_only_requests_they_test(){
+
+        //Arrange
+        User tester = createUser(3L, "TESTER");
+        TestRequest tested = createTestRequest(20L, createUser(1L, "USER"));
+        LabResult labResult = new LabResult();
+        labResult.setTester(tester);
+        tested.setLabResult(labResult);
+        Mockito.when(testRequestRepository.findAllWithResultsAndStaffByRequestIdIn(Arrays.asList(20L, 21L)))
+                .thenReturn(Arrays.asList(tested, createTestRequest(21L, createUser(1L, "USER"))));
+
+        //Act
+        List<TestRequestLookup> lookups = testRequestQueryService.findTestRequestsForUserByIDs(tester, Arrays.asList(20L, 21L));
+
+        //Assert
+        assertTrue(lookups.get(0).isFound());
+        assertFalse(lookups.get(1).isFound());
+    }
+
+    @Test
+    public void when_more_ids_than_allowed_are_asked_for_expect_exception(){
+
+        //Arrange
+        User user = createUser(1L, "USER");
+
+        //Act
+        AppException result = assertThrows(AppException.class, () ->
+                testRequestQueryService.findTestRequestsForUserByIDs(user, Arrays.asList(1L, 2L, 3L, 4L)));
+
+        //Assert
+        assertEquals("At most 3 requests can be fetched at once", result.getMessage());
+    }
+
+    private TestRequest createTestRequest(Long requestId, User createdBy) {
+        TestRequest testRequest = new TestRequest();
+        testRequest.setRequestId(requestId);
+        testRequest.setCreatedBy(createdBy);
+        testRequest.setStatus(RequestStatus.INITIATED);
+        return testRequest;
+    }
+
+    private User createUser(Long id, String roleName) {
+        Role role = new Role();
+        role.setName(roleName);
+        User user = new User();
+        user.setId(id);
+        user.setUserName("user" + id);
+        user.setRoles(Collections.singleton(role));
+        return user;
+    }
+}
@@ -0,0 +1,104 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.testrequests.flow.TestRequestFlowRepository;
+import org.upgrad.upstac.testrequests.lab.LabResultRepository;
+import org.upgrad.upstac.users.User;
+import org.upgrad.upstac.users.UserService;
+import org.upgrad.upstac.users.models.Gender;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "app.transitions.serialized=true")
+class TransitionLaneTest {
+
+    private static final int CALLERS = 8;
+
+    private static final AtomicInteger people = new AtomicInteger();
+
+    @Autowired
+    TestRequestService testRequestService;
+
+    @Autowired
+    TestRequestUpdateService testRequestUpdateService;
+
+    @Autowired
+    TestRequestRepository testRequestRepository;
+
+    @Autowired
+    TestRequestFlowRepository testRequestFlowRepository;
+
+    @Autowired
+    LabResultRepository labResultRepository;
+
+    @Autowired
+    UserService userService;
+
+    @Test
+    public void when_the_same_request_is_assigned_concurrently_expect_only_one_to_win() throws Exception {
+
+        //Arrange
+        User tester = userService.findByUserName("tester");
+        Long requestId = createTestRequest().getRequestId();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        List<Future<TestRequest>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(callers.submit((Callable<TestRequest>) () -> {
+                start.await();
+                return testRequestUpdateService.assignForLabTest(requestId, tester);
+            }));
+        }
+
+        //Act
+        start.countDown();
+        int won = 0;
+        int lost = 0;
+        for (Future<TestRequest> result : results) {
+            try {
+                result.get();
+                won++;
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof AppException);
+                lost++;
+            }
+        }
+        callers.shutdown();
+
+        //Assert
+        assertEquals(1, won);
+        assertEquals(CALLERS - 1, lost);
+        TestRequest testRequest = testRequestRepository.findByRequestId(requestId).get();
+        assertEquals(RequestStatus.LAB_TEST_IN_PROGRESS, testRequest.getStatus());
+        assertTrue(labResultRepository.findByRequest(testRequest).isPresent());
+        assertEquals(1, testRequestFlowRepository.findByRequest(testRequest).stream()
+                .filter(flow -> flow.getToStatus() == RequestStatus.LAB_TEST_IN_PROGRESS)
+                .count());
+    }
+
+    private TestRequest createTestRequest() {
+        int person = people.incrementAndGet();
+        CreateTestRequest createTestRequest = new CreateTestRequest();
+        createTestRequest.setName("someuser");
+        createTestRequest.setGender(Gender.MALE);
+        createTestRequest.setAddress("some Addres");
+        createTestRequest.setAge(47);
+        createTestRequest.setEmail("lane" + person + "@somedomain.com");
+        createTestRequest.setPhoneNumber(String.valueOf(7800000000L + person));
+        createTestRequest.setPinCode(716768);
+        return testRequestService.createTestRequestFrom(userService.findByUserName("user"), createTestRequest);
+    }
+}
@@ -0,0 +1,62 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.Test;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.testrequests.lab.TestStatus;
+import org.upgrad.upstac.testrequests.triage.SeverityScorer;
+import org.upgrad.upstac.testrequests.triage.TriageQueue;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TriageQueueTest {
+
+    TriageQueue triageQueue = new TriageQueue();
+
+    @Test
+    public void when_requests_are_added_expect_most_severe_first_and_oldest_first_among_equals(){
+
+        //Arrange
+        triageQueue.add(3L, 2);
+        triageQueue.add(1L, 2);
+        triageQueue.add(2L, 9);
+        triageQueue.add(4L, 0);
+
+        //Act
+        //Assert
+        assertEquals(Arrays.asList(2L, 1L, 3L), triageQueue.top(3));
+    }
+
+    @Test
+    public void when_request_is_claimed_expect_it_to_leave_the_queue(){
+
+        //Arrange
+        TestRequest testRequest = new TestRequest();
+        testRequest.setRequestId(5L);
+        triageQueue.add(5L, 7);
+        triageQueue.add(6L, 1);
+
+        //Act
+        triageQueue.onTransition(new TestRequestTransitionEvent(testRequest, RequestStatus.LAB_TEST_COMPLETED, RequestStatus.DIAGNOSIS_IN_PROCESS, null));
+
+        //Assert
+        assertEquals(Arrays.asList(6L), triageQueue.top(10));
+        assertEquals(1, triageQueue.size());
+    }
+
+    @Test
+    public void when_vitals_are_abnormal_expect_higher_severity_than_normal_vitals(){
+
+        //Act
+        int normal = SeverityScorer.score("120/80", "72", "98.6", "98", TestStatus.NEGATIVE);
+        int critical = SeverityScorer.score("85/60", "125", "39.5", "89", TestStatus.POSITIVE);
+        int unreadable = SeverityScorer.score("n/a", null, "", "low", TestStatus.NEGATIVE);
+
+        //Assert
+        assertEquals(0, normal);
+        assertEquals(0, unreadable);
+        assertTrue(critical > normal);
+    }
+}
@@ -0,0 +1,70 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.Test;
+import org.upgrad.upstac.exception.AppException;
+import org.upgrad.upstac.testrequests.lab.Vitals;
+import org.upgrad.upstac.testrequests.lab.VitalsParser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VitalsParserTest {
+
+    @Test
+    public void when_vitals_have_units_expect_typed_values_in_standard_units(){
+
+        //Act
+        Vitals vitals = VitalsParser.parse("120 / 80 mmHg", "72 bpm", "98.6 F", "97%");
+
+        //Assert
+        assertEquals(120, vitals.getSystolic().intValue());
+        assertEquals(80, vitals.getDiastolic().intValue());
+        assertEquals(72, vitals.getHeartRate().intValue());
+        assertEquals(37.0, vitals.getTemperatureCelsius());
+        assertEquals(97.0, vitals.getOxygenSaturation());
+    }
+
+    @Test
+    public void when_temperature_has_no_unit_expect_it_inferred_from_the_value(){
+
+        //Act
+        Vitals celsius = VitalsParser.parse("120/80", "72", "38.5", null);
+        Vitals fahrenheit = VitalsParser.parse("120/80", "72", "101.3", null);
+
+        //Assert
+        assertEquals(38.5, celsius.getTemperatureCelsius());
+        assertEquals(38.5, fahrenheit.getTemperatureCelsius());
+        assertNull(celsius.getOxygenSaturation());
+    }
+
+    @Test
+    public void when_vitals_are_malformed_or_out_of_range_expect_them_rejected(){
+
+        //Act
+        AppException missingDiastolic = assertThrows(AppException.class, () -> VitalsParser.parse("120", "72", "37", "98"));
+        AppException saturation = assertThrows(AppException.class, () -> VitalsParser.parse("120/80", "72", "37", "120"));
+        AppException inverted = assertThrows(AppException.class, () -> VitalsParser.parse("80/120", "72", "37", "98"));
+
+        //Assert
+        assertThat(missingDiastolic.getMessage(), containsString("bloodPressure"));
+        assertThat(saturation.getMessage(), containsString("oxygenLevel"));
+        assertThat(inverted.getMessage(), containsString("diastolic"));
+    }
+
+    @Test
+    public void when_legacy_text_is_read_leniently_expect_whatever_numbers_are_found(){
+
+        //Act
+        Vitals vitals = VitalsParser.parseLenient("high 150", "n/a", "99", "low");
+
+        //Assert
+        assertEquals(150, vitals.getSystolic().intValue());
+        assertNull(vitals.getDiastolic());
+        assertNull(vitals.getHeartRate());
+        assertEquals(37.2, vitals.getTemperatureCelsius());
+        assertNull(vitals.getOxygenSaturation());
+    }
+}
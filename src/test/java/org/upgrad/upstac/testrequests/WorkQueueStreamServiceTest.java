@@ -0,0 +1,81 @@
+package org.upgrad.upstac.testrequests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.upgrad.upstac.shared.SseSubscriptions;
+import org.upgrad.upstac.testrequests.flow.TestRequestTransitionEvent;
+import org.upgrad.upstac.testrequests.queue.WorkQueue;
+import org.upgrad.upstac.testrequests.queue.WorkQueueEvent;
+import org.upgrad.upstac.testrequests.queue.WorkQueueEventType;
+import org.upgrad.upstac.testrequests.queue.WorkQueueStreamService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WorkQueueStreamServiceTest {
+
+    @Mock
+    SseSubscriptions<WorkQueue> subscriptions;
+
+    WorkQueueStreamService workQueueStreamService = new WorkQueueStreamService(1, 4, 60000);
+
+    @BeforeEach
+    public void useMockedSubscriptions() {
+        ReflectionTestUtils.setField(workQueueStreamService, "subscriptions", subscriptions);
+    }
+
+    @Test
+    public void when_a_request_is_created_expect_an_added_event_on_the_lab_queue_only(){
+
+        //Act
+        workQueueStreamService.onTransition(new TestRequestTransitionEvent(testRequest(), null, RequestStatus.INITIATED, null));
+
+        //Assert
+        ArgumentCaptor<Object> event = ArgumentCaptor.forClass(Object.class);
+        verify(subscriptions).publish(eq(WorkQueue.LAB_TEST), eq("ADDED"), event.capture());
+        verifyNoMoreInteractions(subscriptions);
+        assertEquals(WorkQueueEventType.ADDED, ((WorkQueueEvent) event.getValue()).getType());
+        assertEquals(7L, ((WorkQueueEvent) event.getValue()).getRequestId());
+    }
+
+    @Test
+    public void when_a_lab_test_completes_expect_it_completed_on_the_lab_queue_and_added_to_the_consultation_queue(){
+
+        //Act
+        workQueueStreamService.onTransition(new TestRequestTransitionEvent(testRequest(),
+                RequestStatus.LAB_TEST_IN_PROGRESS, RequestStatus.LAB_TEST_COMPLETED, null));
+
+        //Assert
+        verify(subscriptions).publish(eq(WorkQueue.LAB_TEST), eq("COMPLETED"), any());
+        verify(subscriptions).publish(eq(WorkQueue.CONSULTATION), eq("ADDED"), any());
+        verifyNoMoreInteractions(subscriptions);
+    }
+
+    @Test
+    public void when_a_doctor_claims_a_request_expect_a_claimed_event_on_the_consultation_queue(){
+
+        //Act
+        workQueueStreamService.onTransition(new TestRequestTransitionEvent(testRequest(),
+                RequestStatus.LAB_TEST_COMPLETED, RequestStatus.DIAGNOSIS_IN_PROCESS, null));
+
+        //Assert
+        verify(subscriptions).publish(eq(WorkQueue.CONSULTATION), eq("CLAIMED"), any());
+        verify(subscriptions, never()).publish(eq(WorkQueue.LAB_TEST), anyString(), any());
+    }
+
+    private TestRequest testRequest() {
+        TestRequest testRequest = new TestRequest();
+        testRequest.setRequestId(7L);
+        testRequest.setPinCode(716768);
+        return testRequest;
+    }
+}